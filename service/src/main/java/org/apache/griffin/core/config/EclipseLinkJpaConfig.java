@@ -24,6 +24,7 @@ import javax.sql.DataSource;
 
 import org.eclipse.persistence.config.PersistenceUnitProperties;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.orm.jpa.JpaBaseConfiguration;
 import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
 import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
@@ -36,6 +37,12 @@ import org.springframework.transaction.jta.JtaTransactionManager;
 @Configuration
 @ComponentScan("org.apache.griffin.core")
 public class EclipseLinkJpaConfig extends JpaBaseConfiguration {
+    /**
+     * statements per JDBC batch when EclipseLink writes changed rows
+     */
+    @Value("${spring.jpa.batch.writing.size:100}")
+    private int batchWritingSize = 100;
+
     protected EclipseLinkJpaConfig(
         DataSource ds, JpaProperties properties,
         ObjectProvider<JtaTransactionManager> jtm,
@@ -54,6 +61,9 @@ public class EclipseLinkJpaConfig extends JpaBaseConfiguration {
         map.put(PersistenceUnitProperties.WEAVING, "false");
         map.put(PersistenceUnitProperties.DDL_GENERATION,
             "create-or-extend-tables");
+        map.put(PersistenceUnitProperties.BATCH_WRITING, "JDBC");
+        map.put(PersistenceUnitProperties.BATCH_WRITING_SIZE,
+            String.valueOf(batchWritingSize));
         return map;
     }
 }
@@ -0,0 +1,155 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.config;
+
+import java.security.Principal;
+import java.util.function.Supplier;
+import javax.security.auth.Subject;
+
+import org.apache.griffin.core.util.KerberosLogin;
+import org.apache.griffin.core.util.SubjectRestTemplate;
+import org.apache.http.auth.AuthSchemeProvider;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.AuthSchemes;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.auth.SPNegoSchemeFactory;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * One pooled HTTP client for all Livy calls. With Kerberos enabled the
+ * client shares a single keytab login and keeps the auth cookie Livy hands
+ * out after a successful SPNEGO handshake, so only the first request on a
+ * fresh cookie has to negotiate.
+ */
+@Configuration
+public class LivyClientConfig {
+
+    @Value("${livy.server.auth.kerberos.principal:}")
+    private String principal;
+
+    @Value("${livy.server.auth.kerberos.keytab:}")
+    private String keyTabLocation;
+
+    @Value("${livy.server.auth.kerberos.relogin.check.in.milliseconds:60000}")
+    private long reloginCheckInterval = 60000;
+
+    @Value("${livy.http.max.connections:50}")
+    private int maxConnections = 50;
+
+    @Value("${livy.http.connect.timeout.in.milliseconds:10000}")
+    private int connectTimeout = 10000;
+
+    @Value("${livy.http.read.timeout.in.milliseconds:60000}")
+    private int readTimeout = 60000;
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "livy.need.kerberos", havingValue = "true")
+    public KerberosLogin livyKerberosLogin() {
+        return new KerberosLogin(principal, keyTabLocation,
+            reloginCheckInterval);
+    }
+
+    @Bean(name = "livyRestTemplate")
+    public RestTemplate livyRestTemplate(
+        ObjectProvider<KerberosLogin> kerberosLogin) {
+        KerberosLogin login = kerberosLogin.getIfAvailable();
+        if (login == null) {
+            return createRestTemplate(createHttpClient(maxConnections,
+                connectTimeout, readTimeout, null), null);
+        }
+        return createRestTemplate(createHttpClient(maxConnections,
+            connectTimeout, readTimeout, new SPNegoSchemeFactory(true)),
+            login::getSubject);
+    }
+
+    /**
+     * @param spnego scheme answering Negotiate challenges, null to
+     *               send requests without authentication
+     */
+    static CloseableHttpClient createHttpClient(int maxConnections,
+                                                int connectTimeout,
+                                                int readTimeout,
+                                                AuthSchemeProvider spnego) {
+        PoolingHttpClientConnectionManager pool =
+            new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxConnections);
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(connectTimeout)
+            .setSocketTimeout(readTimeout)
+            .build();
+        HttpClientBuilder builder = HttpClients.custom()
+            .setConnectionManager(pool)
+            .setDefaultRequestConfig(requestConfig)
+            .setDefaultCookieStore(new BasicCookieStore());
+        if (spnego != null) {
+            CredentialsProvider credentials = new BasicCredentialsProvider();
+            credentials.setCredentials(AuthScope.ANY, new SubjectCredentials());
+            // every request runs as the same principal, so connections
+            // negotiated once can be leased by any later request
+            builder.setDefaultAuthSchemeRegistry(RegistryBuilder
+                .<AuthSchemeProvider>create()
+                .register(AuthSchemes.SPNEGO, spnego)
+                .build())
+                .setDefaultCredentialsProvider(credentials)
+                .disableConnectionState();
+        }
+        return builder.build();
+    }
+
+    static RestTemplate createRestTemplate(CloseableHttpClient httpClient,
+                                           Supplier<Subject> subject) {
+        HttpComponentsClientHttpRequestFactory requestFactory =
+            new HttpComponentsClientHttpRequestFactory(httpClient);
+        return subject == null ? new RestTemplate(requestFactory)
+            : new SubjectRestTemplate(requestFactory, subject);
+    }
+
+    /**
+     * SPNEGO takes its credentials from the current subject, the client
+     * only needs an entry to pick the scheme.
+     */
+    private static class SubjectCredentials implements Credentials {
+        @Override
+        public Principal getUserPrincipal() {
+            return null;
+        }
+
+        @Override
+        public String getPassword() {
+            return null;
+        }
+    }
+}
@@ -54,6 +54,20 @@ public abstract class GriffinException extends RuntimeException {
         }
     }
 
+    @ResponseStatus(value = HttpStatus.GATEWAY_TIMEOUT)
+    public static class GatewayTimeoutException extends GriffinException {
+        public GatewayTimeoutException(GriffinExceptionMessage message) {
+            super(message.toString());
+        }
+    }
+
+    @ResponseStatus(value = HttpStatus.TOO_MANY_REQUESTS)
+    public static class TooManyRequestsException extends GriffinException {
+        public TooManyRequestsException(GriffinExceptionMessage message) {
+            super(message.toString());
+        }
+    }
+
     public static class ServiceException extends GriffinException {
         public ServiceException(String message, Throwable cause) {
             super(message, cause);
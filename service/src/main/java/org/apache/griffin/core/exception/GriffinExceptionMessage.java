@@ -56,6 +56,16 @@ public enum GriffinExceptionMessage {
 
     INVALID_MEASURE_PREDICATE(40016, "The measure predicate is invalid"),
 
+    INVALID_METRIC_TIME_RANGE(40017, "Property 'from' must not be less " +
+        "than zero and must be less than 'to'"),
+
+    INVALID_METRIC_BUCKET_INTERVAL(40018, "Property 'interval' must be " +
+        "positive and must not give more buckets than allowed"),
+
+    MISSING_METRIC_VALUE_FIELDS(40019, "Missing property 'fields'"),
+
+    INVALID_METRIC_CURSOR(40020, "Property 'cursor' is invalid"),
+
     //404, "Not Found"
     MEASURE_ID_DOES_NOT_EXIST(40401, "Measure id does not exist"),
 
@@ -78,10 +88,22 @@ public enum GriffinExceptionMessage {
 
     JOB_INSTANCE_NOT_FOUND(40410, "No job instances with given job instance id found"),
 
+    METRIC_CACHE_DISABLED(40411, "Metric cache is disabled"),
+
+    METRIC_WRITE_BUFFER_DISABLED(40412, "Metric write buffer is disabled"),
+
     //409, "Conflict"
     MEASURE_NAME_ALREADY_EXIST(40901, "Measure name already exists"),
 
-    QUARTZ_JOB_ALREADY_EXIST(40902, "Quartz job already exist");
+    QUARTZ_JOB_ALREADY_EXIST(40902, "Quartz job already exist"),
+
+    //429, "Too Many Requests"
+    METRIC_WRITE_BUFFER_FULL(42901, "Metric write buffer is full"),
+
+    METRIC_STORE_BUSY(42902, "Metric store has too many pending requests"),
+
+    //504, "Gateway Timeout"
+    METRIC_STORE_TIMEOUT(50401, "Metric store did not respond in time");
 
     private final int code;
     private final String message;
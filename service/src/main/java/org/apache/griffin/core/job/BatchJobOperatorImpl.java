@@ -36,6 +36,7 @@ import static org.quartz.Trigger.TriggerState.PAUSED;
 import static org.quartz.TriggerKey.triggerKey;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
@@ -43,10 +44,10 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.griffin.core.exception.GriffinException;
+import org.apache.griffin.core.job.JobStateProvider.TriggerInfo;
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.BatchJob;
 import org.apache.griffin.core.job.entity.JobDataSegment;
-import org.apache.griffin.core.job.entity.JobHealth;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
 import org.apache.griffin.core.job.entity.JobState;
 import org.apache.griffin.core.job.entity.LivySessionStates;
@@ -83,6 +84,8 @@ public class BatchJobOperatorImpl implements JobOperator {
     private BatchJobRepo batchJobRepo;
     @Autowired
     private JobServiceImpl jobService;
+    @Autowired
+    private PredicateEngine predicateEngine;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -151,21 +154,6 @@ public class BatchJobOperatorImpl implements JobOperator {
     }
 
 
-    @Override
-    public JobHealth getHealth(JobHealth jobHealth, AbstractJob job)
-        throws SchedulerException {
-        List<? extends Trigger> triggers = jobService
-            .getTriggers(job.getName(), job.getGroup());
-        if (!CollectionUtils.isEmpty(triggers)) {
-            jobHealth.setJobCount(jobHealth.getJobCount() + 1);
-            if (jobService.isJobHealthy(job.getId())) {
-                jobHealth.setHealthyJobCount(
-                    jobHealth.getHealthyJobCount() + 1);
-            }
-        }
-        return jobHealth;
-    }
-
     @Override
     public JobState getState(AbstractJob job, String action)
         throws SchedulerException {
@@ -183,6 +171,26 @@ public class BatchJobOperatorImpl implements JobOperator {
         return jobState;
     }
 
+    /**
+     * job state from a trigger loaded along with those of other jobs
+     *
+     * @param trigger trigger of the job, null if it has none
+     * @see JobStateProvider#getTriggers
+     */
+    JobState getState(TriggerInfo trigger) {
+        JobState jobState = new JobState();
+        TriggerState triggerState = trigger != null ? trigger.getState()
+            : TriggerState.NONE;
+        jobState.setState(triggerState.toString());
+        jobState.setToStart(getStartStatus(triggerState));
+        jobState.setToStop(getStopStatus(triggerState));
+        if (trigger != null) {
+            jobState.setNextFireTime(trigger.getNextFireTime());
+            jobState.setPreviousFireTime(trigger.getPreviousFireTime());
+        }
+        return jobState;
+    }
+
     private void setTriggerTime(AbstractJob job, JobState jobState)
         throws SchedulerException {
         List<? extends Trigger> triggers = jobService
@@ -275,6 +283,9 @@ public class BatchJobOperatorImpl implements JobOperator {
     }
 
     public void deleteJob(String group, String name) throws SchedulerException {
+        predicateEngine.remove(name);
+        // predicate jobs scheduled through Quartz before the predicate
+        // engine took over
         Scheduler scheduler = factory.getScheduler();
         JobKey jobKey = new JobKey(name, group);
         if (!scheduler.checkExists(jobKey)) {
@@ -301,36 +312,32 @@ public class BatchJobOperatorImpl implements JobOperator {
         scheduler.pauseJob(jobKey);
     }
 
-    public boolean pauseJobInstances(List<JobInstanceBean> instances) {
-        if (CollectionUtils.isEmpty(instances)) {
-            return true;
-        }
-        List<JobInstanceBean> deletedInstances = new ArrayList<>();
-        boolean pauseStatus = true;
+    /**
+     * Delete predicate jobs of instances in batch, with one delete of
+     * their pending predicates and one call to Quartz for the ones
+     * scheduled before the predicate engine took over.
+     *
+     * @param instances job instances to expire
+     * @throws SchedulerException if Quartz fails to delete the jobs
+     */
+    public void deletePredicateJobs(Collection<JobInstanceBean> instances)
+        throws SchedulerException {
+        List<String> names = new ArrayList<>();
+        List<JobKey> jobKeys = new ArrayList<>();
         for (JobInstanceBean instance : instances) {
-            boolean status = pauseJobInstance(instance, deletedInstances);
-            pauseStatus = pauseStatus && status;
-        }
-        instanceRepo.saveAll(deletedInstances);
-        return pauseStatus;
-    }
-
-    private boolean pauseJobInstance(JobInstanceBean instance,
-                                     List<JobInstanceBean> deletedInstances) {
-        String pGroup = instance.getPredicateGroup();
-        String pName = instance.getPredicateName();
-        try {
-            if (!instance.isPredicateDeleted()) {
-                deleteJob(pGroup, pName);
-                instance.setPredicateDeleted(true);
-                deletedInstances.add(instance);
+            String pName = instance.getPredicateName();
+            if (!instance.isPredicateDeleted()
+                && !StringUtils.isEmpty(pName)) {
+                names.add(pName);
+                jobKeys.add(new JobKey(pName, instance.getPredicateGroup()));
             }
-        } catch (SchedulerException e) {
-            LOGGER.error("Failed to pause predicate job({},{}).", pGroup,
-                    pName);
-            return false;
         }
-        return true;
+        if (names.isEmpty()) {
+            return;
+        }
+        predicateEngine.remove(names);
+        // jobs not existing are skipped by Quartz
+        factory.getScheduler().deleteJobs(jobKeys);
     }
 
     private void validateParams(AbstractJob job, GriffinMeasure measure) {
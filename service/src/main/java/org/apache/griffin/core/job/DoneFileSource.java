@@ -0,0 +1,40 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Reports the creation of files on one file system to the done file
+ * watcher.
+ */
+interface DoneFileSource extends Closeable {
+    /**
+     * Report the creation of a file, or of its parent dirs missing yet.
+     *
+     * @param file qualified path of the file
+     * @return registration to close once the file isn't watched anymore,
+     * null if there is none to close
+     */
+    Closeable watch(Path file) throws IOException;
+}
@@ -0,0 +1,239 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.PreDestroy;
+
+import org.apache.griffin.core.util.FSUtil;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the predicate engine as soon as a watched done file, or a missing
+ * dir on its way, is created, so that the predicate is checked again
+ * without waiting for the next poll. Local and NFS paths are watched with
+ * a WatchService and HDFS paths through inotify if enabled. Paths of other
+ * file systems are polled only.
+ */
+@Component
+public class DoneFileWatcher {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(DoneFileWatcher.class);
+
+    @Value("${predicate.watch.local.enabled:true}")
+    private boolean localEnabled = true;
+    /**
+     * HDFS inotify takes superuser rights
+     */
+    @Value("${predicate.watch.hdfs.enabled:false}")
+    private boolean hdfsEnabled = false;
+
+    private final Object lock = new Object();
+    /**
+     * guarded by lock
+     */
+    private final Map<String, Watch> watches = new HashMap<>();
+    /**
+     * keys of the watches woken up by the creation of a path, guarded by
+     * lock
+     */
+    private final Map<String, Set<String>> keysByPath = new HashMap<>();
+    /**
+     * sources by scheme and authority, null if it can't be watched,
+     * guarded by lock
+     */
+    private final Map<String, DoneFileSource> sources = new HashMap<>();
+
+    /**
+     * Call the listener once any of the paths, or a missing dir on their
+     * way, is created, replacing the watch of the same key if any.
+     *
+     * @param key      what is waiting, such as the predicate job name
+     * @param paths    paths to watch
+     * @param listener called from a watcher thread, so it should be quick
+     */
+    public void watch(String key, Collection<String> paths,
+                      Runnable listener) {
+        unwatch(key);
+        Watch watch = new Watch(listener);
+        Map<Path, DoneFileSource> files = new HashMap<>();
+        for (String path : paths) {
+            try {
+                Path file = FSUtil.makeQualified(path);
+                DoneFileSource source = getSource(file.toUri());
+                if (source == null) {
+                    continue;
+                }
+                files.put(file, source);
+                for (Path p = file; p.getParent() != null; p = p.getParent()) {
+                    watch.triggers.add(key(p.toUri()));
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Can not watch {}. {}", path, e.getMessage());
+            }
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            watches.put(key, watch);
+            for (String trigger : watch.triggers) {
+                keysByPath.computeIfAbsent(trigger, k -> new HashSet<>())
+                    .add(key);
+            }
+        }
+        for (Map.Entry<Path, DoneFileSource> file : files.entrySet()) {
+            try {
+                Closeable registration = file.getValue().watch(file.getKey());
+                if (registration != null) {
+                    watch.registrations.add(registration);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Can not watch {}. {}", file.getKey(),
+                    e.getMessage());
+            }
+        }
+    }
+
+    public void unwatch(String key) {
+        Watch watch;
+        synchronized (lock) {
+            watch = watches.remove(key);
+            if (watch == null) {
+                return;
+            }
+            for (String trigger : watch.triggers) {
+                Set<String> keys = keysByPath.get(trigger);
+                if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                    keysByPath.remove(trigger);
+                }
+            }
+        }
+        for (Closeable registration : watch.registrations) {
+            try {
+                registration.close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to unwatch {}. {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Wake up the watches of a created path.
+     *
+     * @param path watch key of the path
+     */
+    void onCreated(String path) {
+        List<Runnable> listeners = new ArrayList<>();
+        synchronized (lock) {
+            Set<String> keys = keysByPath.get(path);
+            if (keys == null) {
+                return;
+            }
+            for (String key : keys) {
+                listeners.add(watches.get(key).listener);
+            }
+        }
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                LOGGER.warn("Failed to wake up watch of {}. {}", path,
+                    e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        List<DoneFileSource> opened;
+        synchronized (lock) {
+            opened = new ArrayList<>(sources.values());
+            sources.clear();
+        }
+        for (DoneFileSource source : opened) {
+            try {
+                if (source != null) {
+                    source.close();
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close done file source. {}",
+                    e.getMessage());
+            }
+        }
+    }
+
+    static String key(URI uri) {
+        return key(uri.getScheme(), uri.getAuthority(), uri.getPath());
+    }
+
+    /**
+     * @return the same key for a path however it's qualified
+     */
+    static String key(String scheme, String authority, String path) {
+        return scheme + "://" + (authority == null ? "" : authority) + path;
+    }
+
+    private DoneFileSource getSource(URI uri) {
+        String scheme = uri.getScheme();
+        String id = key(scheme, uri.getAuthority(), "/");
+        synchronized (lock) {
+            if (sources.containsKey(id)) {
+                return sources.get(id);
+            }
+            DoneFileSource source = null;
+            try {
+                if ("file".equals(scheme) && localEnabled) {
+                    source = new LocalDoneFileSource(this::onCreated);
+                } else if ("hdfs".equals(scheme) && hdfsEnabled) {
+                    source = new HdfsDoneFileSource(uri, this::onCreated);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Can not watch done files of {}, poll them " +
+                    "only. {}", id, e.getMessage());
+            }
+            sources.put(id, source);
+            return source;
+        }
+    }
+
+    private static class Watch {
+        private final Runnable listener;
+        private final Set<String> triggers = new HashSet<>();
+        private final List<Closeable> registrations = new ArrayList<>();
+
+        Watch(Runnable listener) {
+            this.listener = listener;
+        }
+    }
+}
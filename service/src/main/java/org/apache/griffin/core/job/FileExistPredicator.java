@@ -22,12 +22,24 @@ package org.apache.griffin.core.job;
 import static org.apache.griffin.core.job.JobInstance.PATH_CONNECTOR_CHARACTER;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.griffin.core.job.entity.SegmentPredicate;
 import org.apache.griffin.core.util.FSUtil;
+import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +49,29 @@ public class FileExistPredicator implements Predicator {
 
     private static final String PREDICT_PATH = "path";
     private static final String PREDICT_ROOT_PATH = "root.path";
+    private static final int LISTING_THREADS = 8;
+    private static final int MAX_CACHED_PATHS = 100000;
+
+    /**
+     * Done files are never removed once written, so a path seen existing
+     * is not checked again by later fires.
+     */
+    private static final Set<String> EXISTING_PATHS = Collections
+        .newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<String, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(
+                    Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_CACHED_PATHS;
+                }
+            }));
+
+    private static final ExecutorService LISTING_POOL = Executors
+        .newFixedThreadPool(LISTING_THREADS, r -> {
+            Thread thread = new Thread(r, "predicate-listing");
+            thread.setDaemon(true);
+            return thread;
+        });
 
     private SegmentPredicate predicate;
 
@@ -44,8 +79,15 @@ public class FileExistPredicator implements Predicator {
         this.predicate = predicate;
     }
 
+    /**
+     * Paths not seen existing yet, as done files appear there.
+     */
     @Override
-    public boolean predicate() throws IOException {
+    public List<String> getWatchedPaths() {
+        return getUnknownPaths(getPaths());
+    }
+
+    private List<String> getPaths() {
         Map<String, Object> config = predicate.getConfigMap();
         String[] paths = null;
         String rootPath = null;
@@ -59,15 +101,107 @@ public class FileExistPredicator implements Predicator {
                 "config root.path and path.");
             throw new NullPointerException();
         }
+        List<String> hdfsPaths = new ArrayList<>();
         for (String path : paths) {
-            String hdfsPath = rootPath + path;
-            LOGGER.info("Predicate path: {}", hdfsPath);
-            if (!FSUtil.isFileExist(hdfsPath)) {
+            hdfsPaths.add(rootPath + path);
+        }
+        return hdfsPaths;
+    }
+
+    @Override
+    public boolean predicate() throws IOException {
+        List<String> hdfsPaths = getPaths();
+        List<String> unknownPaths = getUnknownPaths(hdfsPaths);
+        LOGGER.info("Predicate paths: {}, {} of them left to check.",
+            hdfsPaths.size(), unknownPaths.size());
+        if (unknownPaths.isEmpty()) {
+            return true;
+        }
+        Set<String> existingPaths = findExisting(unknownPaths);
+        EXISTING_PATHS.addAll(existingPaths);
+        for (String hdfsPath : unknownPaths) {
+            if (!existingPaths.contains(hdfsPath)) {
                 LOGGER.info("Predicate path: " + hdfsPath + " doesn't exist.");
                 return false;
             }
-            LOGGER.info("Predicate path: " + hdfsPath + " exists.");
         }
         return true;
     }
+
+    private static List<String> getUnknownPaths(List<String> hdfsPaths) {
+        List<String> unknownPaths = new ArrayList<>();
+        for (String hdfsPath : hdfsPaths) {
+            if (!EXISTING_PATHS.contains(hdfsPath)) {
+                unknownPaths.add(hdfsPath);
+            }
+        }
+        return unknownPaths;
+    }
+
+    /**
+     * Check paths grouped by parent directory, one listing per parent, and
+     * list different parents in parallel.
+     */
+    private static Set<String> findExisting(List<String> paths)
+        throws IOException {
+        Map<String, List<String>> pathsByParent = new LinkedHashMap<>();
+        Set<String> existingPaths = new HashSet<>();
+        for (String hdfsPath : paths) {
+            Path parent = new Path(hdfsPath).getParent();
+            if (parent == null) {
+                if (FSUtil.isFileExist(hdfsPath)) {
+                    existingPaths.add(hdfsPath);
+                }
+                continue;
+            }
+            pathsByParent.computeIfAbsent(parent.toString(),
+                k -> new ArrayList<>()).add(hdfsPath);
+        }
+        if (pathsByParent.size() == 1) {
+            Map.Entry<String, List<String>> group = pathsByParent.entrySet()
+                .iterator().next();
+            existingPaths.addAll(existingUnder(group.getKey(),
+                group.getValue()));
+            return existingPaths;
+        }
+        List<Future<List<String>>> listings = new ArrayList<>();
+        for (Map.Entry<String, List<String>> group
+            : pathsByParent.entrySet()) {
+            listings.add(LISTING_POOL.submit(() ->
+                existingUnder(group.getKey(), group.getValue())));
+        }
+        for (Future<List<String>> listing : listings) {
+            try {
+                existingPaths.addAll(listing.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                    "Interrupted while checking predicate paths.");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+        return existingPaths;
+    }
+
+    private static List<String> existingUnder(String parent,
+                                              List<String> paths)
+        throws IOException {
+        // a single path is cheaper to stat than to list its directory
+        if (paths.size() == 1) {
+            return FSUtil.isFileExist(paths.get(0)) ? paths
+                : Collections.emptyList();
+        }
+        Set<String> names = FSUtil.listNames(parent);
+        List<String> existingPaths = new ArrayList<>();
+        for (String hdfsPath : paths) {
+            if (names.contains(new Path(hdfsPath).getName())) {
+                existingPaths.add(hdfsPath);
+            }
+        }
+        return existingPaths;
+    }
 }
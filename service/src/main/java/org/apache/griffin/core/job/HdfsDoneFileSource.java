@@ -0,0 +1,112 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.function.Consumer;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSInotifyEventInputStream;
+import org.apache.hadoop.hdfs.client.HdfsAdmin;
+import org.apache.hadoop.hdfs.inotify.Event;
+import org.apache.hadoop.hdfs.inotify.EventBatch;
+import org.apache.hadoop.hdfs.inotify.MissingEventsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches done files on HDFS through the NameNode inotify stream, which
+ * covers the whole namespace, so nothing needs to be registered per file.
+ * Reading the stream takes HDFS superuser rights. Without them the source
+ * stops on the first read and done files are polled only.
+ */
+class HdfsDoneFileSource implements DoneFileSource {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(HdfsDoneFileSource.class);
+
+    private final URI uri;
+    private final Consumer<String> listener;
+    private final DFSInotifyEventInputStream events;
+    private final Thread poller;
+
+    /**
+     * @param listener receives the watch keys of created paths
+     */
+    HdfsDoneFileSource(URI uri, Consumer<String> listener)
+        throws IOException {
+        this.uri = uri;
+        this.listener = listener;
+        this.events = new HdfsAdmin(uri, new Configuration())
+            .getInotifyEventStream();
+        this.poller = new Thread(this::poll, "hdfs-done-file-watcher");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    @Override
+    public Closeable watch(Path file) {
+        return null;
+    }
+
+    private void poll() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                EventBatch batch = events.take();
+                for (Event event : batch.getEvents()) {
+                    String path = getCreatedPath(event);
+                    if (path != null) {
+                        listener.accept(DoneFileWatcher.key(uri.getScheme(),
+                            uri.getAuthority(), path));
+                    }
+                }
+            } catch (MissingEventsException e) {
+                LOGGER.warn("Missed HDFS events, polling covers them. {}",
+                    e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                LOGGER.warn("Stop watching done files of {}, poll them " +
+                    "only. {}", uri, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private static String getCreatedPath(Event event) {
+        switch (event.getEventType()) {
+            case CREATE:
+                return ((Event.CreateEvent) event).getPath();
+            case CLOSE:
+                return ((Event.CloseEvent) event).getPath();
+            case RENAME:
+                return ((Event.RenameEvent) event).getDstPath();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        poller.interrupt();
+    }
+}
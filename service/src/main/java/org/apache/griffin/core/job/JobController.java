@@ -26,6 +26,8 @@ import java.util.Map;
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.JobHealth;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.JobInstanceExpiryStats;
+import org.apache.griffin.core.job.entity.LivySubmitStats;
 import org.apache.griffin.core.util.FSUtil;
 import org.quartz.SchedulerException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -92,8 +94,10 @@ public class JobController {
     public List<JobInstanceBean> findInstancesOfJob(
         @RequestParam("jobId") Long id,
         @RequestParam("page") int page,
-        @RequestParam("size") int size) {
-        return jobService.findInstancesOfJob(id, page, size);
+        @RequestParam("size") int size,
+        @RequestParam(value = "archived", defaultValue = "true")
+            boolean archived) {
+        return jobService.findInstancesOfJob(id, page, size, archived);
     }
 
     @RequestMapping(value = "/jobs/instances/{instanceId}", method = RequestMethod.GET)
@@ -106,6 +110,18 @@ public class JobController {
         return jobService.getHealthInfo();
     }
 
+    @RequestMapping(value = "/jobs/submissions/stats",
+        method = RequestMethod.GET)
+    public LivySubmitStats getSubmitStats() {
+        return jobService.getSubmitStats();
+    }
+
+    @RequestMapping(value = "/jobs/instances/expiry/stats",
+        method = RequestMethod.GET)
+    public JobInstanceExpiryStats getExpiryStats() {
+        return jobService.getExpiryStats();
+    }
+
     @RequestMapping(path = "/jobs/download", method = RequestMethod.GET)
     public ResponseEntity<Resource> download(
         @RequestParam("jobName") String jobName,
@@ -128,7 +144,10 @@ public class JobController {
     }
 
     @RequestMapping(value = "jobs/triggerKeys/{triggerKey:.+}", method = RequestMethod.GET)
-    public List<JobInstanceBean> findInstanceByTriggerKey(@PathVariable("triggerKey") String triggerKey) {
-        return jobService.findInstancesByTriggerKey(triggerKey);
+    public List<JobInstanceBean> findInstanceByTriggerKey(
+        @PathVariable("triggerKey") String triggerKey,
+        @RequestParam(value = "archived", defaultValue = "true")
+            boolean archived) {
+        return jobService.findInstancesByTriggerKey(triggerKey, archived);
     }
 }
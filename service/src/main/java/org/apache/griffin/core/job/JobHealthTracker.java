@@ -0,0 +1,297 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.JobStateProvider.getBatchJobKey;
+import static org.apache.griffin.core.job.JobStateProvider.getBatchJobKeys;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.PostConstruct;
+
+import org.apache.griffin.core.job.JobStateProvider.InstanceInfo;
+import org.apache.griffin.core.job.JobStateProvider.TriggerInfo;
+import org.apache.griffin.core.job.entity.AbstractJob;
+import org.apache.griffin.core.job.entity.BatchJob;
+import org.apache.griffin.core.job.entity.JobHealth;
+import org.apache.griffin.core.job.entity.JobHealthRecord;
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates;
+import org.apache.griffin.core.job.repo.JobHealthRecordRepo;
+import org.apache.griffin.core.job.repo.JobRepo;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Keeps the job health summary, updated as instances change state rather
+ * than recomputed on every read.
+ * <p>
+ * The health of each job is a persisted record, so that the summary is
+ * restored on restart from one query. Changes made around the tracker,
+ * such as by another griffin server, or a batch job whose trigger
+ * completed, are caught up by a periodic full recompute.
+ */
+@Component
+public class JobHealthTracker {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(JobHealthTracker.class);
+
+    @Autowired
+    private JobHealthRecordRepo recordRepo;
+    @Autowired
+    private JobRepo<AbstractJob> jobRepo;
+    @Autowired
+    private JobStateProvider stateProvider;
+
+    /**
+     * records by job id, guarded by this
+     */
+    private final Map<Long, JobHealthRecord> records = new HashMap<>();
+    private int jobCount;
+    private int healthyJobCount;
+
+    @PostConstruct
+    public void init() {
+        synchronized (this) {
+            for (JobHealthRecord record : recordRepo.findAll()) {
+                put(record);
+            }
+        }
+        if (records.isEmpty()) {
+            reconcile();
+        }
+    }
+
+    public synchronized JobHealth getHealth() {
+        return new JobHealth(healthyJobCount, jobCount);
+    }
+
+    /**
+     * Count the state of an instance saved with a new state, unless a later
+     * instance of its job is counted already.
+     */
+    public void update(JobInstanceBean instance) {
+        update(Collections.singletonList(instance));
+    }
+
+    public synchronized void update(Collection<JobInstanceBean> instances) {
+        Map<Long, JobHealthRecord> changed = new HashMap<>();
+        for (JobInstanceBean instance : instances) {
+            if (instance.getJob() == null || instance.getTms() == null) {
+                continue;
+            }
+            Long jobId = instance.getJob().getId();
+            JobHealthRecord record = records.get(jobId);
+            if (record == null) {
+                record = new JobHealthRecord(jobId, true);
+            } else if (record.getLatestTms() != null
+                && record.getLatestTms() > instance.getTms()) {
+                continue;
+            }
+            boolean healthy = LivySessionStates.isHealthy(instance
+                .getState());
+            if (records.containsKey(jobId) && instance.getTms().equals(
+                record.getLatestTms()) && record.isHealthy() == healthy) {
+                continue;
+            }
+            remove(jobId);
+            record.setLatestTms(instance.getTms());
+            record.setHealthy(healthy);
+            put(record);
+            changed.put(jobId, record);
+        }
+        if (!changed.isEmpty()) {
+            recordRepo.saveAll(changed.values());
+        }
+    }
+
+    /**
+     * Count a new job, which has no instances yet.
+     */
+    public synchronized void add(AbstractJob job) {
+        if (job.getId() == null || records.containsKey(job.getId())) {
+            return;
+        }
+        JobHealthRecord record = new JobHealthRecord(job.getId(), true);
+        put(record);
+        recordRepo.save(record);
+    }
+
+    /**
+     * Stop counting a deleted job.
+     */
+    public synchronized void remove(AbstractJob job) {
+        if (remove(job.getId()) != null) {
+            recordRepo.deleteByJobIdIn(Collections.singletonList(
+                job.getId()));
+        }
+    }
+
+    /**
+     * Count the latest instances of jobs again, as some of their instances
+     * are deleted.
+     */
+    public void refresh(Collection<Long> jobIds) {
+        if (CollectionUtils.isEmpty(jobIds)) {
+            return;
+        }
+        Map<Long, InstanceInfo> latest = stateProvider
+            .getLatestInstances(jobIds);
+        List<JobHealthRecord> changed = new ArrayList<>();
+        synchronized (this) {
+            for (Long jobId : jobIds) {
+                JobHealthRecord record = remove(jobId);
+                if (record == null) {
+                    continue;
+                }
+                InstanceInfo instance = latest.get(jobId);
+                record.setLatestTms(instance != null ? instance.getTms()
+                    : null);
+                record.setHealthy(instance != null && LivySessionStates
+                    .isHealthy(instance.getState()));
+                put(record);
+                changed.add(record);
+            }
+            recordRepo.saveAll(changed);
+        }
+    }
+
+    /**
+     * Recompute the health of all jobs, and correct the records kept.
+     */
+    @Scheduled(fixedDelayString =
+        "${job.health.reconcile.interval.in.milliseconds:600000}",
+        initialDelayString =
+            "${job.health.reconcile.interval.in.milliseconds:600000}")
+    public void reconcile() {
+        List<AbstractJob> jobs = jobRepo.findByDeleted(false);
+        Map<JobKey, TriggerInfo> triggers;
+        try {
+            triggers = stateProvider.getTriggers(getBatchJobKeys(jobs));
+        } catch (SchedulerException e) {
+            LOGGER.error("Failed to reconcile job health.", e);
+            return;
+        }
+        List<Long> jobIds = new ArrayList<>();
+        for (AbstractJob job : jobs) {
+            jobIds.add(job.getId());
+        }
+        Map<Long, InstanceInfo> latest = stateProvider
+            .getLatestInstances(jobIds);
+        List<JobHealthRecord> changed = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        synchronized (this) {
+            Map<Long, JobHealthRecord> kept = new HashMap<>(records);
+            for (AbstractJob job : jobs) {
+                JobHealthRecord record = kept.remove(job.getId());
+                if (reconcile(job, record, triggers,
+                    latest.get(job.getId()))) {
+                    changed.add(records.get(job.getId()));
+                }
+            }
+            // jobs deleted meanwhile
+            for (Long jobId : kept.keySet()) {
+                remove(jobId);
+                removed.add(jobId);
+            }
+            recordRepo.saveAll(changed);
+            if (!removed.isEmpty()) {
+                recordRepo.deleteByJobIdIn(removed);
+            }
+        }
+        LOGGER.info("Reconciled health of {} jobs, {} records corrected.",
+            jobs.size(), changed.size() + removed.size());
+    }
+
+    /**
+     * guarded by this
+     *
+     * @return whether the record of the job is corrected
+     */
+    private boolean reconcile(AbstractJob job, JobHealthRecord record,
+                              Map<JobKey, TriggerInfo> triggers,
+                              InstanceInfo instance) {
+        JobKey key = getBatchJobKey(job);
+        // a batch job counts while it has a trigger, a streaming one always
+        boolean counted = job instanceof BatchJob ? key != null
+            && triggers.containsKey(key) : true;
+        Long latestTms = instance != null ? instance.getTms() : null;
+        boolean healthy = instance != null && LivySessionStates
+            .isHealthy(instance.getState());
+        boolean isNew = record == null;
+        if (isNew) {
+            record = new JobHealthRecord(job.getId(), counted);
+        } else if (record.getLatestTms() != null && (latestTms == null
+            || record.getLatestTms() > latestTms)) {
+            // updated after the recompute read the instances
+            latestTms = record.getLatestTms();
+            healthy = record.isHealthy();
+        }
+        if (!isNew && record.isCounted() == counted
+            && record.isHealthy() == healthy
+            && Objects.equals(record.getLatestTms(), latestTms)) {
+            return false;
+        }
+        remove(job.getId());
+        record.setCounted(counted);
+        record.setLatestTms(latestTms);
+        record.setHealthy(healthy);
+        put(record);
+        return true;
+    }
+
+    /**
+     * guarded by this
+     */
+    private void put(JobHealthRecord record) {
+        records.put(record.getJobId(), record);
+        if (record.isCounted()) {
+            jobCount++;
+            if (record.isHealthy()) {
+                healthyJobCount++;
+            }
+        }
+    }
+
+    /**
+     * guarded by this
+     */
+    private JobHealthRecord remove(Long jobId) {
+        JobHealthRecord record = records.remove(jobId);
+        if (record != null && record.isCounted()) {
+            jobCount--;
+            if (record.isHealthy()) {
+                healthyJobCount--;
+            }
+        }
+        return record;
+    }
+}
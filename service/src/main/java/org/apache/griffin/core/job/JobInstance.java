@@ -19,18 +19,12 @@ under the License.
 
 package org.apache.griffin.core.job;
 
-import static org.apache.griffin.core.exception.GriffinExceptionMessage.QUARTZ_JOB_ALREADY_EXIST;
 import static org.apache.griffin.core.job.JobServiceImpl.GRIFFIN_JOB_ID;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.FINDING;
 import static org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType.BATCH;
 import static org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType.STREAMING;
 import static org.apache.griffin.core.util.JsonUtil.toEntity;
 import static org.apache.griffin.core.util.JsonUtil.toJson;
-import static org.quartz.JobBuilder.newJob;
-import static org.quartz.JobKey.jobKey;
-import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
-import static org.quartz.TriggerBuilder.newTrigger;
-import static org.quartz.TriggerKey.triggerKey;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -42,14 +36,15 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.griffin.core.exception.GriffinException;
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.JobDataSegment;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.PendingPredicate;
 import org.apache.griffin.core.job.entity.SegmentPredicate;
 import org.apache.griffin.core.job.entity.SegmentRange;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
 import org.apache.griffin.core.job.repo.JobRepo;
+import org.apache.griffin.core.measure.MeasureSnapshotStore;
 import org.apache.griffin.core.measure.entity.DataConnector;
 import org.apache.griffin.core.measure.entity.DataSource;
 import org.apache.griffin.core.measure.entity.GriffinMeasure;
@@ -58,7 +53,6 @@ import org.apache.griffin.core.measure.repo.GriffinMeasureRepo;
 import org.apache.griffin.core.util.TimeUtil;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
-import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobKey;
@@ -66,7 +60,6 @@ import org.quartz.PersistJobDataAfterExecution;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
-import org.quartz.TriggerKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -81,8 +74,31 @@ public class JobInstance implements Job {
     private static final Logger LOGGER = LoggerFactory
         .getLogger(JobInstance.class);
     public static final String MEASURE_KEY = "measure";
+    /**
+     * id of the measure snapshot to submit, in place of the measure json
+     */
+    public static final String MEASURE_SNAPSHOT_KEY = "measureSnapshotId";
+    /**
+     * timestamp of the run, put into the measure snapshot as it's submitted
+     */
+    public static final String MEASURE_TIMESTAMP_KEY = "measureTimestamp";
+    /**
+     * json of the connector configs of the run by connector name, put into
+     * the measure snapshot as it's submitted
+     */
+    public static final String CONNECTOR_CONFIGS_KEY = "connectorConfigs";
     public static final String PREDICATES_KEY = "predicts";
     public static final String PREDICATE_JOB_NAME = "predicateJobName";
+    /**
+     * time by which the measure should be submitted to Livy, that is the
+     * fire time of the job plus livy.task.submit.sla.in.milliseconds
+     */
+    public static final String SUBMIT_DEADLINE_KEY = "submitDeadline";
+    /**
+     * organization of the measure, or its owner if it has none, sharing
+     * Livy slots with the others in the submit queue
+     */
+    public static final String ORGANIZATION_KEY = "organization";
     private static final String TRIGGER_KEY = "trigger";
     static final String JOB_NAME = "jobName";
     static final String PATH_CONNECTOR_CHARACTER = ",";
@@ -102,17 +118,32 @@ public class JobInstance implements Job {
     private JobInstanceRepo instanceRepo;
     @Autowired
     private Environment env;
+    @Autowired
+    private PredicateEngine predicateEngine;
+    @Autowired
+    private MeasureSnapshotStore snapshotStore;
+    @Autowired
+    private JobHealthTracker healthTracker;
 
     private GriffinMeasure measure;
     private AbstractJob job;
     private List<SegmentPredicate> mPredicates;
     private Long jobStartTime;
+    private Long measureSnapshotId;
+    /**
+     * connector configs of this run by connector name
+     */
+    private Map<String, Map<String, Object>> connectorConfigs;
 
     @Override
     @Transactional
     public void execute(JobExecutionContext context) {
         try {
             initParam(context);
+            preProcessMeasure();
+            // snapshot the measure before the values of this run are filled
+            // in, so that all runs of the job share it
+            measureSnapshotId = snapshotStore.save(measure);
             setSourcesPartitionsAndPredicates(measure.getDataSources());
             createJobInstance(job.getConfigMap());
         } catch (Exception e) {
@@ -123,6 +154,7 @@ public class JobInstance implements Job {
     private void initParam(JobExecutionContext context)
         throws SchedulerException {
         mPredicates = new ArrayList<>();
+        connectorConfigs = new HashMap<>();
         JobDetail jobDetail = context.getJobDetail();
         Long jobId = jobDetail.getJobDataMap().getLong(GRIFFIN_JOB_ID);
         job = jobRepo.findOne(jobId);
@@ -223,6 +255,9 @@ public class JobInstance implements Job {
     private void setConnectorConf(DataConnector dc, Long[] sampleTs) {
         genConfMap(dc.getConfigMap(), sampleTs, dc.getDataTimeZone());
         dc.setConfigMap(dc.getConfigMap());
+        if (dc.getConfigMap() != null) {
+            connectorConfigs.put(dc.getName(), dc.getConfigMap());
+        }
     }
 
     /**
@@ -269,13 +304,10 @@ public class JobInstance implements Job {
         String groupName = "PG";
         String jobName = job.getJobName() + "_predicate_"
             + System.currentTimeMillis();
-        TriggerKey tk = triggerKey(jobName, groupName);
-        if (factory.getScheduler().checkExists(tk)) {
-            throw new GriffinException.ConflictException(QUARTZ_JOB_ALREADY_EXIST);
-        }
         String triggerKey = (String) confMap.get(TRIGGER_KEY);
         saveJobInstance(jobName, groupName, triggerKey);
-        createJobInstance(tk, interval, repeat, jobName);
+        predicateEngine.add(genPendingPredicate(jobName, groupName, interval,
+            repeat));
     }
 
     @SuppressWarnings("unchecked")
@@ -314,52 +346,31 @@ public class JobInstance implements Job {
         instance.setJob(job);
         instance.setTriggerKey(triggerKey);
         instanceRepo.save(instance);
+        healthTracker.update(instance);
     }
 
-    private void createJobInstance(TriggerKey tk, Long interval, Integer
-        repeatCount, String pJobName) throws Exception {
-        JobDetail jobDetail = addJobDetail(tk, pJobName);
-        Trigger trigger = genTriggerInstance(tk, jobDetail, interval,
-            repeatCount);
-        factory.getScheduler().scheduleJob(trigger);
-    }
-
-    private Trigger genTriggerInstance(TriggerKey tk, JobDetail jd, Long
-        interval, Integer repeatCount) {
-        return newTrigger().withIdentity(tk).forJob(jd).startNow()
-            .withSchedule(simpleSchedule().withIntervalInMilliseconds
-                (interval).withRepeatCount(repeatCount))
-            .build();
-    }
-
-    private JobDetail addJobDetail(TriggerKey tk, String pJobName)
-        throws SchedulerException, IOException {
-        Scheduler scheduler = factory.getScheduler();
-        JobKey jobKey = jobKey(tk.getName(), tk.getGroup());
-        JobDetail jobDetail;
-        Boolean isJobKeyExist = scheduler.checkExists(jobKey);
-        if (isJobKeyExist) {
-            jobDetail = scheduler.getJobDetail(jobKey);
-        } else {
-            jobDetail = newJob(SparkSubmitJob.class)
-                .storeDurably()
-                .withIdentity(jobKey)
-                .build();
-        }
-        setJobDataMap(jobDetail, pJobName);
-        scheduler.addJob(jobDetail, isJobKeyExist);
-        return jobDetail;
-    }
-
-    private void setJobDataMap(JobDetail jobDetail, String pJobName)
+    private PendingPredicate genPendingPredicate(String pJobName,
+                                                 String pGroup,
+                                                 Long interval,
+                                                 Integer repeatCount)
         throws IOException {
-        JobDataMap dataMap = jobDetail.getJobDataMap();
-        preProcessMeasure();
-        String result = toJson(measure);
-        dataMap.put(MEASURE_KEY, result);
-        dataMap.put(PREDICATES_KEY, toJson(mPredicates));
-        dataMap.put(JOB_NAME, job.getJobName());
-        dataMap.put(PREDICATE_JOB_NAME, pJobName);
+        PendingPredicate pending = new PendingPredicate(pJobName, pGroup,
+            job.getJobName(), interval, repeatCount);
+        pending.setMeasureSnapshotId(measureSnapshotId);
+        pending.setMeasureTimestamp(measure.getTimestamp());
+        if (!connectorConfigs.isEmpty()) {
+            pending.setConnectorConfigs(toJson(connectorConfigs));
+        }
+        pending.setPredicates(toJson(mPredicates));
+        String sla = env.getProperty("livy.task.submit.sla.in.milliseconds");
+        pending.setSubmitDeadline(jobStartTime
+            + Long.valueOf(sla != null ? sla : "3600000"));
+        String org = StringUtils.isNotBlank(measure.getOrganization())
+            ? measure.getOrganization() : measure.getOwner();
+        if (StringUtils.isNotBlank(org)) {
+            pending.setOrganization(org);
+        }
+        return pending;
     }
 
     private void preProcessMeasure() throws IOException {
@@ -0,0 +1,129 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.DEAD;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.ERROR;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_FOUND;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.STOPPED;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.SUCCESS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.griffin.core.job.entity.ArchivedJobInstance;
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.repo.ArchivedJobInstanceRepo;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves job instances in their final states into the archive table once
+ * older than a threshold, so that the job instance table only keeps recent
+ * and running ones. Instances are moved in batches, each copied and deleted
+ * in one transaction. The latest instance of each job stays, as job health
+ * and job states are computed from it.
+ */
+@Component
+public class JobInstanceArchiver {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(JobInstanceArchiver.class);
+
+    static final State[] FINAL_STATES = {SUCCESS, ERROR, DEAD, STOPPED,
+        NOT_FOUND};
+
+    @Autowired
+    private JobInstanceRepo instanceRepo;
+    @Autowired
+    private ArchivedJobInstanceRepo archiveRepo;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${jobInstance.archive.enabled:true}")
+    private boolean enabled = true;
+    @Value("${jobInstance.archive.after.in.milliseconds:86400000}")
+    private long archiveAfter = 86400000;
+    @Value("${jobInstance.archive.batch.size:1000}")
+    private int batchSize = 1000;
+
+    @Scheduled(fixedDelayString =
+        "${jobInstance.archive.interval.in.milliseconds:3600000}")
+    public void archive() {
+        if (enabled) {
+            archive(System.currentTimeMillis() - archiveAfter);
+        }
+    }
+
+    /**
+     * Archive instances in their final states since before the given time.
+     *
+     * @param tms instances of timestamps at or before it are archived
+     * @return count of archived instances
+     */
+    int archive(long tms) {
+        TransactionTemplate transaction = new TransactionTemplate(
+            transactionManager);
+        long afterId = 0;
+        int archived = 0;
+        try {
+            while (true) {
+                List<JobInstanceBean> batch = instanceRepo
+                    .findArchivableAfter(tms, FINAL_STATES, afterId,
+                        new PageRequest(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                Integer count = transaction.execute(status ->
+                    moveToArchive(batch));
+                archived += count != null ? count : 0;
+                afterId = batch.get(batch.size() - 1).getId();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to archive job instances after id {}.",
+                afterId, e);
+        }
+        LOGGER.info("Archive {} job instances.", archived);
+        return archived;
+    }
+
+    private int moveToArchive(List<JobInstanceBean> instances) {
+        long now = System.currentTimeMillis();
+        List<ArchivedJobInstance> archived = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (JobInstanceBean instance : instances) {
+            archived.add(new ArchivedJobInstance(instance, now));
+            ids.add(instance.getId());
+        }
+        archiveRepo.saveAll(archived);
+        return instanceRepo.deleteByIdIn(ids);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.JobInstanceExpiryStats;
+import org.apache.griffin.core.job.repo.ArchivedJobInstanceRepo;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes expired job instances chunk by chunk in the order of id. The
+ * predicate jobs of a chunk are deleted in batch before its instances, and
+ * each chunk is deleted in a transaction of its own, so a run never holds
+ * more than one chunk in memory or locks the instance table for long. A run
+ * stops once its time budget is used up, leaving the rest to the next one.
+ * Expired instances of the archive table are deleted after the ones of the
+ * job instance table.
+ */
+@Component
+public class JobInstanceExpirer {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(JobInstanceExpirer.class);
+
+    @Autowired
+    private JobInstanceRepo instanceRepo;
+    @Autowired
+    private BatchJobOperatorImpl batchJobOp;
+    @Autowired
+    private JobHealthTracker healthTracker;
+    @Autowired
+    private ArchivedJobInstanceRepo archiveRepo;
+
+    @Value("${jobInstance.expiry.chunk.size:1000}")
+    private int chunkSize = 1000;
+    @Value("${jobInstance.expiry.time.budget.in.milliseconds:60000}")
+    private long timeBudget = 60000;
+
+    private final Object lock = new Object();
+    private long lastStartTms;
+    private long lastDuration;
+    private int lastChunkCount;
+    private int lastDeletedCount;
+    private boolean lastFinished = true;
+    private long deletedCount;
+    private long unfinishedRunCount;
+    private long failedRunCount;
+
+    @Scheduled(fixedDelayString = "${jobInstance.expiry.interval.in." +
+        "milliseconds:${jobInstance.expired.milliseconds}}")
+    public void expire() {
+        expire(System.currentTimeMillis());
+    }
+
+    /**
+     * Delete instances expired by the given time.
+     *
+     * @param expireTms instances expiring at or before it are deleted
+     * @return count of deleted instances
+     */
+    int expire(long expireTms) {
+        long start = System.currentTimeMillis();
+        long afterId = 0;
+        int chunks = 0;
+        int deleted = 0;
+        boolean finished = false;
+        boolean failed = false;
+        while (true) {
+            List<JobInstanceBean> chunk = instanceRepo.findExpiredAfter(
+                expireTms, afterId, new PageRequest(0, chunkSize));
+            if (chunk.isEmpty()) {
+                finished = true;
+                break;
+            }
+            try {
+                batchJobOp.deletePredicateJobs(chunk);
+            } catch (SchedulerException e) {
+                LOGGER.error("Failed to delete predicate jobs of {} " +
+                    "expired job instances.", chunk.size(), e);
+                failed = true;
+                break;
+            }
+            List<Long> ids = new ArrayList<>(chunk.size());
+            Set<Long> jobIds = new HashSet<>();
+            for (JobInstanceBean instance : chunk) {
+                ids.add(instance.getId());
+                if (instance.getJob() != null) {
+                    jobIds.add(instance.getJob().getId());
+                }
+            }
+            deleted += instanceRepo.deleteByIdIn(ids);
+            chunks++;
+            healthTracker.refresh(jobIds);
+            afterId = ids.get(ids.size() - 1);
+            LOGGER.debug("Deleted chunk {} of expired job instances up to " +
+                "id {}.", chunks, afterId);
+            if (chunk.size() < chunkSize) {
+                finished = true;
+                break;
+            }
+            if (System.currentTimeMillis() - start >= timeBudget) {
+                break;
+            }
+        }
+        while (finished) {
+            List<Long> ids = archiveRepo.findExpiredIds(expireTms,
+                new PageRequest(0, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            deleted += archiveRepo.deleteByIdIn(ids);
+            chunks++;
+            if (ids.size() < chunkSize) {
+                break;
+            }
+            finished = System.currentTimeMillis() - start < timeBudget;
+        }
+        long duration = System.currentTimeMillis() - start;
+        if (finished) {
+            LOGGER.info("Delete {} expired job instances in {} ms.", deleted,
+                duration);
+        } else if (!failed) {
+            LOGGER.info("Delete {} expired job instances in {} ms, and " +
+                "leave the rest to the next run.", deleted, duration);
+        }
+        record(start, duration, chunks, deleted, finished, failed);
+        return deleted;
+    }
+
+    private void record(long start, long duration, int chunks, int deleted,
+                        boolean finished, boolean failed) {
+        synchronized (lock) {
+            lastStartTms = start;
+            lastDuration = duration;
+            lastChunkCount = chunks;
+            lastDeletedCount = deleted;
+            lastFinished = finished;
+            deletedCount += deleted;
+            if (failed) {
+                failedRunCount++;
+            } else if (!finished) {
+                unfinishedRunCount++;
+            }
+        }
+    }
+
+    public JobInstanceExpiryStats getStats() {
+        JobInstanceExpiryStats stats = new JobInstanceExpiryStats();
+        synchronized (lock) {
+            stats.setLastStartTms(lastStartTms);
+            stats.setLastDuration(lastDuration);
+            stats.setLastChunkCount(lastChunkCount);
+            stats.setLastDeletedCount(lastDeletedCount);
+            stats.setLastFinished(lastFinished);
+            stats.setDeletedCount(deletedCount);
+            stats.setUnfinishedRunCount(unfinishedRunCount);
+            stats.setFailedRunCount(failedRunCount);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,494 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.BUSY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.DEAD;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.IDLE;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_STARTED;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.RECOVERING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.RUNNING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.STARTING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.UNKNOWN;
+import static org.apache.griffin.core.job.entity.LivySessionStates.isActive;
+import static org.apache.griffin.core.job.entity.LivySessionStates.parseLivyState;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.apache.griffin.core.util.JsonUtil;
+import org.apache.griffin.core.util.TokenBucket;
+import org.apache.griffin.core.util.YarnNetUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Owns all polling of job instance states from Livy and YARN.
+ * <p>
+ * Syncs run on a bounded pool of workers, and every call to Livy or YARN
+ * takes a permit of the rate limit of that endpoint first. Requests for a
+ * session which is already waiting to be synced share its sync, and
+ * instances somebody is looking at are synced before the scheduled ones.
+ * Readers never wait for a sync: they get the state last saved together
+ * with the time it was synced.
+ */
+@Component
+public class JobInstanceSyncEngine {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(JobInstanceSyncEngine.class);
+    private static final State[] ACTIVE_STATES = {STARTING, NOT_STARTED,
+        RECOVERING, IDLE, RUNNING, BUSY};
+
+    /**
+     * Sync priority, the first one is synced first.
+     */
+    public enum Priority {
+        VIEWED,
+        SCHEDULED
+    }
+
+    @Autowired
+    private JobInstanceRepo instanceRepo;
+    @Autowired
+    private Environment env;
+    @Autowired
+    private LivyTaskSubmitHelper livyTaskSubmitHelper;
+    @Autowired
+    private LivySubmitScheduler submitScheduler;
+    @Autowired
+    private JobHealthTracker healthTracker;
+
+    /**
+     * whether to sync job instances from the batch listing of Livy instead
+     * of one Livy request per instance
+     */
+    @Value("${jobInstance.sync.by.listing:true}")
+    private boolean syncByListing = true;
+    @Value("${livy.batches.page.size:1000}")
+    private int livyBatchesPageSize = 1000;
+    @Value("${jobInstance.sync.threads:4}")
+    private int threads = 4;
+    @Value("${jobInstance.sync.timeout.in.milliseconds:300000}")
+    private long syncTimeout = 300000;
+    @Value("${livy.requests.per.second:20}")
+    private double livyRequestsPerSecond = 20;
+    @Value("${yarn.requests.per.second:10}")
+    private double yarnRequestsPerSecond = 10;
+
+    private final Map<Long, SyncTask> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Long> syncedTimes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private ThreadPoolExecutor workers;
+    private TokenBucket livyLimiter;
+    private TokenBucket yarnLimiter;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0L,
+            TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r,
+                "job-instance-sync-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        livyLimiter = new TokenBucket(livyRequestsPerSecond);
+        yarnLimiter = new TokenBucket(yarnRequestsPerSecond);
+    }
+
+    @PreDestroy
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Stamp instances with the time their state was last synced, and ask
+     * for syncing the ones whose state is not final yet, without waiting
+     * for it.
+     *
+     * @param instances instances about to be returned to a reader
+     * @return the same instances
+     */
+    public List<JobInstanceBean> refresh(List<JobInstanceBean> instances) {
+        for (JobInstanceBean instance : instances) {
+            if (instance.getId() != null) {
+                instance.setSyncedTms(syncedTimes.get(instance.getId()));
+            }
+            if (needsSync(instance.getState())) {
+                requestSync(instance, Priority.VIEWED, true);
+            }
+        }
+        return instances;
+    }
+
+    /**
+     * Sync all active instances and wait for it, so that scheduled syncs
+     * never overlap.
+     */
+    public void syncActiveInstances() {
+        long listedTms = System.currentTimeMillis();
+        List<JobInstanceBean> beans = instanceRepo.findByActiveState(
+            ACTIVE_STATES);
+        Set<Long> sessionIds = new HashSet<>();
+        for (JobInstanceBean instance : beans) {
+            sessionIds.add(instance.getSessionId());
+        }
+        submitScheduler.retainSessions(sessionIds, listedTms);
+        List<JobInstanceBean> oneByOne = syncByListing
+            ? syncByListing(beans) : beans;
+        List<CompletableFuture<Void>> syncs = new ArrayList<>();
+        for (JobInstanceBean instance : oneByOne) {
+            syncs.add(requestSync(instance, Priority.SCHEDULED, false));
+        }
+        try {
+            CompletableFuture.allOf(syncs.toArray(new CompletableFuture[0]))
+                .get(syncTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("{} job instance syncs are not done within {} ms.",
+                workers.getQueue().size(), syncTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Failed to sync job instances.", e);
+        }
+    }
+
+    /**
+     * Queue a sync of an instance, or join the sync already queued for its
+     * session, raising its priority if needed.
+     *
+     * @param instance instance to sync
+     * @param priority priority of the sync
+     * @param reload   whether to sync a copy of the instance loaded by the
+     *                 worker, when the given one is shared with a reader
+     * @return future done when the sync is
+     */
+    CompletableFuture<Void> requestSync(JobInstanceBean instance,
+                                        Priority priority, boolean reload) {
+        Long sessionId = instance.getSessionId();
+        if (sessionId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        SyncTask created = new SyncTask(instance, priority, reload);
+        SyncTask task = pending.putIfAbsent(sessionId, created);
+        if (task == null) {
+            try {
+                workers.execute(created);
+            } catch (RejectedExecutionException e) {
+                pending.remove(sessionId, created);
+                created.done.complete(null);
+            }
+            return created.done;
+        }
+        task.raise(priority);
+        return task.done;
+    }
+
+    int getQueueSize() {
+        return workers.getQueue().size();
+    }
+
+    private static boolean needsSync(State state) {
+        return state == UNKNOWN || isActive(state);
+    }
+
+    private class SyncTask implements Runnable, Comparable<SyncTask> {
+        private final JobInstanceBean instance;
+        private final boolean reload;
+        private final long seq = sequence.incrementAndGet();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile Priority priority;
+
+        SyncTask(JobInstanceBean instance, Priority priority, boolean reload) {
+            this.instance = instance;
+            this.priority = priority;
+            this.reload = reload;
+        }
+
+        synchronized void raise(Priority higher) {
+            if (higher.compareTo(priority) < 0
+                && workers.getQueue().remove(this)) {
+                priority = higher;
+                workers.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                JobInstanceBean bean = reload
+                    ? instanceRepo.findByInstanceId(instance.getId())
+                    : instance;
+                if (bean != null && needsSync(bean.getState())) {
+                    syncInstance(bean);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Failed to sync session {}.",
+                    instance.getSessionId(), e);
+            } finally {
+                pending.remove(instance.getSessionId(), this);
+                done.complete(null);
+            }
+        }
+
+        @Override
+        public int compareTo(SyncTask other) {
+            int order = priority.compareTo(other.priority);
+            return order != 0 ? order : Long.compare(seq, other.seq);
+        }
+    }
+
+    /**
+     * Match instances to the batches listed by Livy in memory, and save the
+     * changed ones together, so that JPA writes them in JDBC batches.
+     *
+     * @return instances whose session Livy does not list, which also covers
+     * sessions Livy has forgotten, or all instances if listing fails
+     */
+    private List<JobInstanceBean> syncByListing(List<JobInstanceBean> beans) {
+        if (beans.isEmpty()) {
+            return beans;
+        }
+        Map<Long, Map<String, Object>> batches;
+        try {
+            livyLimiter.acquire();
+            batches = livyTaskSubmitHelper.getBatchesFromLivy(
+                livyBatchesPageSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ArrayList<>();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to list Livy batches, sync job instances " +
+                "one by one. {}", e.getMessage());
+            return beans;
+        }
+        List<JobInstanceBean> changed = new ArrayList<>();
+        List<JobInstanceBean> unlisted = new ArrayList<>();
+        for (JobInstanceBean instance : beans) {
+            if (instance.getSessionId() == null) {
+                continue;
+            }
+            Map<String, Object> batch = batches.get(instance.getSessionId());
+            if (batch == null) {
+                unlisted.add(instance);
+                continue;
+            }
+            try {
+                if (updateByLivy(instance, batch)) {
+                    changed.add(instance);
+                }
+                markSynced(instance);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to sync session {} by Livy listing, " +
+                    "sync it alone. {}", instance.getSessionId(),
+                    e.getMessage());
+                unlisted.add(instance);
+            }
+        }
+        if (!changed.isEmpty()) {
+            instanceRepo.saveAll(changed);
+            healthTracker.update(changed);
+        }
+        LOGGER.info("Synced {} job instances with {} Livy batches, {} changed.",
+            beans.size(), batches.size(), changed.size());
+        return unlisted;
+    }
+
+    /**
+     * call livy to update part of job instance table data associated with group
+     * and jobName in mysql.
+     *
+     * @param instance job instance livy info
+     */
+    private void syncInstance(JobInstanceBean instance)
+        throws InterruptedException {
+        String uri = env.getProperty("livy.uri") + "/"
+            + instance.getSessionId();
+        TypeReference<HashMap<String, Object>> type =
+            new TypeReference<HashMap<String, Object>>() {
+            };
+        livyLimiter.acquire();
+        try {
+            String resultStr = livyTaskSubmitHelper.getFromLivy(uri);
+            LOGGER.info(resultStr);
+
+            HashMap<String, Object> resultMap = JsonUtil.toEntity(resultStr,
+                type);
+            setJobInstanceIdAndUri(instance, resultMap);
+        } catch (ResourceAccessException e) {
+            LOGGER.error("Your url may be wrong. Please check {}.\n {}", uri, e
+                .getMessage());
+        } catch (HttpClientErrorException e) {
+            LOGGER.warn("sessionId({}) appId({}) {}.", instance.getSessionId(),
+                instance.getAppId(), e.getMessage());
+            setStateByYarn(instance, e);
+            if (!needsSync(instance.getState())) {
+                submitScheduler.release(instance.getSessionId());
+            }
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+        }
+    }
+
+    private void setStateByYarn(JobInstanceBean instance,
+                                HttpClientErrorException e)
+        throws InterruptedException {
+        if (!checkStatus(instance, e)) {
+            int code = e.getStatusCode().value();
+            boolean match = (code == 400 || code == 404)
+                && instance.getAppId() != null;
+            //this means your url is correct,but your param is wrong or livy
+            //session may be overdue.
+            if (match) {
+                setStateByYarn(instance);
+            }
+        }
+    }
+
+    /**
+     * Check instance status in case that session id is overdue and app id is
+     * null and so we cannot update instance state
+     * .
+     *
+     * @param instance job instance bean
+     * @param e        HttpClientErrorException
+     * @return boolean
+     */
+    private boolean checkStatus(JobInstanceBean instance,
+                                HttpClientErrorException e) {
+        int code = e.getStatusCode().value();
+        String appId = instance.getAppId();
+        String responseBody = e.getResponseBodyAsString();
+        Long sessionId = instance.getSessionId();
+        sessionId = sessionId != null ? sessionId : -1;
+        // If code is 404 and appId is null and response body is like 'Session
+        // {id} not found',this means instance may not be scheduled for
+        // a long time by spark for too many tasks. It may be dead.
+        if (code == 404 && appId == null && (responseBody != null &&
+            responseBody.contains(sessionId.toString()))) {
+            instance.setState(DEAD);
+            instance.setDeleted(true);
+            instanceRepo.save(instance);
+            healthTracker.update(instance);
+            markSynced(instance);
+            return true;
+        }
+        return false;
+    }
+
+    private void setStateByYarn(JobInstanceBean instance)
+        throws InterruptedException {
+        LOGGER.warn("Spark session {} may be overdue! " +
+            "Now we use yarn to update state.", instance.getSessionId());
+        String yarnUrl = env.getProperty("yarn.uri");
+        yarnLimiter.acquire();
+        boolean success = YarnNetUtil.update(yarnUrl, instance);
+        if (!success) {
+            if (instance.getState().equals(UNKNOWN)) {
+                return;
+            }
+            instance.setState(UNKNOWN);
+        } else {
+            markSynced(instance);
+        }
+        instanceRepo.save(instance);
+        healthTracker.update(instance);
+    }
+
+    private void setJobInstanceIdAndUri(JobInstanceBean instance, HashMap<String
+        , Object> resultMap) {
+        if (resultMap != null) {
+            updateByLivy(instance, resultMap);
+            instanceRepo.save(instance);
+            healthTracker.update(instance);
+            markSynced(instance);
+        }
+    }
+
+    /**
+     * Set state, appId and appUri of an instance from Livy batch info.
+     *
+     * @return whether any of them changed
+     */
+    private boolean updateByLivy(JobInstanceBean instance,
+                                 Map<String, Object> resultMap) {
+        Object stateValue = resultMap.get("state");
+        Object appIdValue = resultMap.get("appId");
+        State state = stateValue == null ? null
+            : parseLivyState(stateValue.toString());
+        String appId = appIdValue == null ? null : appIdValue.toString();
+        String appUri = appId == null ? null : env.getProperty("yarn.uri")
+            + "/cluster/app/" + appId;
+        boolean changed = state != instance.getState()
+            || !Objects.equals(appId, instance.getAppId())
+            || !Objects.equals(appUri, instance.getAppUri());
+        instance.setState(state);
+        instance.setAppId(appId);
+        instance.setAppUri(appUri);
+        // a session in a final state gives its submission permit back
+        if (state != null && !needsSync(state)) {
+            submitScheduler.release(instance.getSessionId());
+        }
+        return changed;
+    }
+
+    /**
+     * Remember when the state of an instance was last confirmed, for as
+     * long as it may still change.
+     */
+    private void markSynced(JobInstanceBean instance) {
+        if (instance.getId() == null) {
+            return;
+        }
+        if (needsSync(instance.getState())) {
+            syncedTimes.put(instance.getId(), System.currentTimeMillis());
+        } else {
+            syncedTimes.remove(instance.getId());
+        }
+    }
+}
@@ -20,7 +20,6 @@ under the License.
 package org.apache.griffin.core.job;
 
 import org.apache.griffin.core.job.entity.AbstractJob;
-import org.apache.griffin.core.job.entity.JobHealth;
 import org.apache.griffin.core.job.entity.JobState;
 import org.apache.griffin.core.measure.entity.GriffinMeasure;
 import org.quartz.SchedulerException;
@@ -35,9 +34,6 @@ public interface JobOperator {
 
     void delete(AbstractJob job) throws SchedulerException;
 
-    JobHealth getHealth(JobHealth jobHealth, AbstractJob job)
-        throws SchedulerException;
-
     JobState getState(AbstractJob job, String action)
         throws SchedulerException;
 }
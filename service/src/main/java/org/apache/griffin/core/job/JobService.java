@@ -24,6 +24,8 @@ import java.util.List;
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.JobHealth;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.JobInstanceExpiryStats;
+import org.apache.griffin.core.job.entity.LivySubmitStats;
 import org.quartz.SchedulerException;
 
 public interface JobService {
@@ -40,12 +42,18 @@ public interface JobService {
 
     void deleteJob(String jobName) throws SchedulerException;
 
-    List<JobInstanceBean> findInstancesOfJob(Long jobId, int page, int size);
+    List<JobInstanceBean> findInstancesOfJob(Long jobId, int page, int size,
+                                             boolean archived);
 
-    List<JobInstanceBean> findInstancesByTriggerKey(String triggerKey);
+    List<JobInstanceBean> findInstancesByTriggerKey(String triggerKey,
+                                                    boolean archived);
 
     JobHealth getHealthInfo();
 
+    LivySubmitStats getSubmitStats();
+
+    JobInstanceExpiryStats getExpiryStats();
+
     String getJobHdfsSinksPath(String jobName, long timestamp);
 
     JobInstanceBean findInstance(Long id);
@@ -30,16 +30,8 @@ import static org.apache.griffin.core.exception.GriffinExceptionMessage.JOB_TYPE
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.MEASURE_TYPE_DOES_NOT_SUPPORT;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.NO_SUCH_JOB_ACTION;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.QUARTZ_JOB_ALREADY_EXIST;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.BUSY;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.DEAD;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.IDLE;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_STARTED;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.RECOVERING;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.RUNNING;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.STARTING;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.SUCCESS;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.UNKNOWN;
-import static org.apache.griffin.core.job.entity.LivySessionStates.isActive;
+import static org.apache.griffin.core.job.JobStateProvider.getBatchJobKey;
+import static org.apache.griffin.core.job.JobStateProvider.getBatchJobKeys;
 import static org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType.BATCH;
 import static org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType.STREAMING;
 import static org.quartz.CronScheduleBuilder.cronSchedule;
@@ -49,26 +41,29 @@ import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
 import static org.quartz.TriggerBuilder.newTrigger;
 import static org.quartz.TriggerKey.triggerKey;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.griffin.core.event.GriffinEventManager;
 import org.apache.griffin.core.event.JobEvent;
 import org.apache.griffin.core.exception.GriffinException;
+import org.apache.griffin.core.job.JobStateProvider.TriggerInfo;
 import org.apache.griffin.core.job.entity.AbstractJob;
+import org.apache.griffin.core.job.entity.ArchivedJobInstance;
 import org.apache.griffin.core.job.entity.BatchJob;
 import org.apache.griffin.core.job.entity.JobHealth;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.JobInstanceExpiryStats;
 import org.apache.griffin.core.job.entity.JobState;
 import org.apache.griffin.core.job.entity.JobType;
-import org.apache.griffin.core.job.entity.LivySessionStates;
-import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.entity.LivySubmitStats;
 import org.apache.griffin.core.job.entity.StreamingJob;
+import org.apache.griffin.core.job.repo.ArchivedJobInstanceRepo;
 import org.apache.griffin.core.job.repo.BatchJobRepo;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
 import org.apache.griffin.core.job.repo.JobRepo;
@@ -76,8 +71,6 @@ import org.apache.griffin.core.job.repo.StreamingJobRepo;
 import org.apache.griffin.core.measure.entity.GriffinMeasure;
 import org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType;
 import org.apache.griffin.core.measure.repo.GriffinMeasureRepo;
-import org.apache.griffin.core.util.JsonUtil;
-import org.apache.griffin.core.util.YarnNetUtil;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.quartz.JobDataMap;
@@ -92,7 +85,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.env.Environment;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -100,8 +92,6 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.quartz.SchedulerFactoryBean;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.ResourceAccessException;
 
 @Service
 public class JobServiceImpl implements JobService {
@@ -119,8 +109,6 @@ public class JobServiceImpl implements JobService {
     @Autowired
     private JobInstanceRepo instanceRepo;
     @Autowired
-    private Environment env;
-    @Autowired
     private GriffinMeasureRepo measureRepo;
     @Autowired
     private BatchJobRepo batchJobRepo;
@@ -135,7 +123,17 @@ public class JobServiceImpl implements JobService {
     @Autowired
     private GriffinEventManager eventManager;
     @Autowired
-    private LivyTaskSubmitHelper livyTaskSubmitHelper;
+    private JobInstanceSyncEngine syncEngine;
+    @Autowired
+    private LivySubmitScheduler submitScheduler;
+    @Autowired
+    private JobStateProvider stateProvider;
+    @Autowired
+    private JobHealthTracker healthTracker;
+    @Autowired
+    private JobInstanceExpirer expirer;
+    @Autowired
+    private ArchivedJobInstanceRepo archiveRepo;
 
     public JobServiceImpl() {
 
@@ -157,8 +155,17 @@ public class JobServiceImpl implements JobService {
     private List<AbstractJob> getJobDataBeans(List<? extends AbstractJob> jobs) {
         List<AbstractJob> dataList = new ArrayList<>();
         try {
+            Map<JobKey, TriggerInfo> triggers = stateProvider.getTriggers(
+                getBatchJobKeys(jobs));
             for (AbstractJob job : jobs) {
-                JobState jobState = genJobState(job);
+                JobState jobState;
+                if (job instanceof BatchJob) {
+                    JobKey key = getBatchJobKey(job);
+                    jobState = key != null ? batchJobOp.getState(
+                        triggers.get(key)) : null;
+                } else {
+                    jobState = genJobState(job);
+                }
                 job.setJobState(jobState);
                 dataList.add(job);
             }
@@ -178,6 +185,7 @@ public class JobServiceImpl implements JobService {
         GriffinMeasure measure = getMeasureIfValid(measureId);
         JobOperator op = getJobOperator(measure.getProcessType());
         AbstractJob jobSaved = op.add(job, measure);
+        healthTracker.add(jobSaved);
         jobEvent = JobEvent.yieldJobEventAfterCreation(jobSaved);
         eventManager.notifyListeners(jobEvent);
         return jobSaved;
@@ -240,6 +248,7 @@ public class JobServiceImpl implements JobService {
         eventManager.notifyListeners(event);
         JobOperator op = getJobOperator(job);
         op.delete(job);
+        healthTracker.remove(job);
         event = JobEvent.yieldJobEventAfterRemoval(job);
         eventManager.notifyListeners(event);
     }
@@ -262,6 +271,7 @@ public class JobServiceImpl implements JobService {
             eventManager.notifyListeners(event);
             JobOperator op = getJobOperator(job);
             op.delete(job);
+            healthTracker.remove(job);
             event = JobEvent.yieldJobEventAfterRemoval(job);
             eventManager.notifyListeners(event);
         }
@@ -271,7 +281,8 @@ public class JobServiceImpl implements JobService {
     public List<JobInstanceBean> findInstancesOfJob(
         Long jobId,
         int page,
-        int size) {
+        int size,
+        boolean archived) {
         AbstractJob job = jobRepo.findByIdAndDeleted(jobId, false);
         if (job == null) {
             LOGGER.warn("Job id {} does not exist.", jobId);
@@ -280,39 +291,62 @@ public class JobServiceImpl implements JobService {
         }
         size = size > MAX_PAGE_SIZE ? MAX_PAGE_SIZE : size;
         size = size <= 0 ? DEFAULT_PAGE_SIZE : size;
-        Pageable pageable = new PageRequest(page, size,
+        if (!archived) {
+            Pageable pageable = new PageRequest(page, size,
+                Sort.Direction.DESC, "tms");
+            List<JobInstanceBean> instances = instanceRepo.findByJobId(jobId,
+                pageable);
+            return syncEngine.refresh(instances);
+        }
+        // a page of both tables merged is within the first pages of each
+        Pageable pageable = new PageRequest(0, (page + 1) * size,
             Sort.Direction.DESC, "tms");
-        List<JobInstanceBean> instances = instanceRepo.findByJobId(jobId,
-            pageable);
-        return updateState(instances);
+        List<JobInstanceBean> instances = new ArrayList<>(instanceRepo
+            .findByJobId(jobId, pageable));
+        for (ArchivedJobInstance instance : archiveRepo.findByJobId(jobId,
+            pageable)) {
+            instances.add(instance.toInstance());
+        }
+        instances.sort(Comparator.comparing(JobInstanceBean::getTms,
+            Comparator.nullsLast(Comparator.reverseOrder())));
+        int from = Math.min(page * size, instances.size());
+        int to = Math.min(from + size, instances.size());
+        return syncEngine.refresh(new ArrayList<>(instances.subList(from,
+            to)));
     }
 
     @Override
     public JobInstanceBean findInstance(Long id) {
         JobInstanceBean bean = instanceRepo.findByInstanceId(id);
         if (bean == null) {
+            ArchivedJobInstance archived = archiveRepo.findByInstanceId(id);
+            if (archived != null) {
+                return archived.toInstance();
+            }
             LOGGER.warn("Instance id {} does not exist.", id);
             throw new GriffinException
                 .NotFoundException(INSTANCE_ID_DOES_NOT_EXIST);
         }
+        syncEngine.refresh(Collections.singletonList(bean));
         return bean;
     }
 
-    private List<JobInstanceBean> updateState(List<JobInstanceBean> instances) {
-        for (JobInstanceBean instance : instances) {
-            State state = instance.getState();
-            if (state.equals(UNKNOWN) || isActive(state)) {
-                syncInstancesOfJob(instance);
-            }
+    @Override
+    public List<JobInstanceBean> findInstancesByTriggerKey(String triggerKey,
+                                                           boolean archived) {
+        List<JobInstanceBean> instances = instanceRepo.findByTriggerKey(
+            triggerKey);
+        if (!archived) {
+            return instances;
+        }
+        instances = new ArrayList<>(instances);
+        for (ArchivedJobInstance instance : archiveRepo.findByTriggerKey(
+            triggerKey)) {
+            instances.add(instance.toInstance());
         }
         return instances;
     }
 
-    @Override
-    public List<JobInstanceBean> findInstancesByTriggerKey(String triggerKey) {
-        return instanceRepo.findByTriggerKey(triggerKey);
-    }
-
     /**
      * a job is regard as healthy job when its latest instance is in healthy
      * state.
@@ -321,34 +355,17 @@ public class JobServiceImpl implements JobService {
      */
     @Override
     public JobHealth getHealthInfo() {
-        JobHealth jobHealth = new JobHealth();
-        List<AbstractJob> jobs = jobRepo.findByDeleted(false);
-        for (AbstractJob job : jobs) {
-            JobOperator op = getJobOperator(job);
-            try {
-                jobHealth = op.getHealth(jobHealth, job);
-            } catch (SchedulerException e) {
-                LOGGER.error("Job schedule exception. {}", e);
-                throw new GriffinException
-                    .ServiceException("Fail to Get HealthInfo", e);
-            }
+        return healthTracker.getHealth();
+    }
 
-        }
-        return jobHealth;
+    @Override
+    public LivySubmitStats getSubmitStats() {
+        return submitScheduler.getStats();
     }
 
-    @Scheduled(fixedDelayString = "${jobInstance.expired.milliseconds}")
-    public void deleteExpiredJobInstance() {
-        Long timeMills = System.currentTimeMillis();
-        List<JobInstanceBean> instances = instanceRepo
-            .findByExpireTmsLessThanEqual
-                (timeMills);
-        if (!batchJobOp.pauseJobInstances(instances)) {
-            LOGGER.error("Pause job failure.");
-            return;
-        }
-        int count = instanceRepo.deleteByExpireTimestamp(timeMills);
-        LOGGER.info("Delete {} expired job instances.", count);
+    @Override
+    public JobInstanceExpiryStats getExpiryStats() {
+        return expirer.getStats();
     }
 
     private void validateJobExist(AbstractJob job) {
@@ -513,134 +530,7 @@ public class JobServiceImpl implements JobService {
 
     @Scheduled(fixedDelayString = "${jobInstance.fixedDelay.in.milliseconds}")
     public void syncInstancesOfAllJobs() {
-        LivySessionStates.State[] states = {STARTING, NOT_STARTED, RECOVERING,
-            IDLE, RUNNING, BUSY};
-        List<JobInstanceBean> beans = instanceRepo.findByActiveState(states);
-        for (JobInstanceBean jobInstance : beans) {
-            syncInstancesOfJob(jobInstance);
-        }
-    }
-
-    /**
-     * call livy to update part of job instance table data associated with group
-     * and jobName in mysql.
-     *
-     * @param instance job instance livy info
-     */
-    private void syncInstancesOfJob(JobInstanceBean instance) {
-        if (instance.getSessionId() == null) {
-            return;
-        }
-        String uri = env.getProperty("livy.uri") + "/"
-            + instance.getSessionId();
-        TypeReference<HashMap<String, Object>> type =
-            new TypeReference<HashMap<String, Object>>() {
-            };
-        try {
-            String resultStr = livyTaskSubmitHelper.getFromLivy(uri);
-            LOGGER.info(resultStr);
-
-            HashMap<String, Object> resultMap = JsonUtil.toEntity(resultStr,
-                type);
-            setJobInstanceIdAndUri(instance, resultMap);
-        } catch (ResourceAccessException e) {
-            LOGGER.error("Your url may be wrong. Please check {}.\n {}", uri, e
-                .getMessage());
-        } catch (HttpClientErrorException e) {
-            LOGGER.warn("sessionId({}) appId({}) {}.", instance.getSessionId(),
-                instance.getAppId(), e.getMessage());
-            setStateByYarn(instance, e);
-            livyTaskSubmitHelper.decreaseCurTaskNum(instance.getId());
-        } catch (Exception e) {
-            LOGGER.error(e.getMessage());
-        }
-
-    }
-
-    private void setStateByYarn(JobInstanceBean instance,
-                                HttpClientErrorException e) {
-        if (!checkStatus(instance, e)) {
-            int code = e.getStatusCode().value();
-            boolean match = (code == 400 || code == 404)
-                && instance.getAppId() != null;
-            //this means your url is correct,but your param is wrong or livy
-            //session may be overdue.
-            if (match) {
-                setStateByYarn(instance);
-            }
-        }
-
-    }
-
-    /**
-     * Check instance status in case that session id is overdue and app id is
-     * null and so we cannot update instance state
-     * .
-     *
-     * @param instance job instance bean
-     * @param e        HttpClientErrorException
-     * @return boolean
-     */
-    private boolean checkStatus(JobInstanceBean instance,
-                                HttpClientErrorException e) {
-        int code = e.getStatusCode().value();
-        String appId = instance.getAppId();
-        String responseBody = e.getResponseBodyAsString();
-        Long sessionId = instance.getSessionId();
-        sessionId = sessionId != null ? sessionId : -1;
-        // If code is 404 and appId is null and response body is like 'Session
-        // {id} not found',this means instance may not be scheduled for
-        // a long time by spark for too many tasks. It may be dead.
-        if (code == 404 && appId == null && (responseBody != null &&
-            responseBody.contains(sessionId.toString()))) {
-            instance.setState(DEAD);
-            instance.setDeleted(true);
-            instanceRepo.save(instance);
-            return true;
-        }
-        return false;
-    }
-
-    private void setStateByYarn(JobInstanceBean instance) {
-        LOGGER.warn("Spark session {} may be overdue! " +
-            "Now we use yarn to update state.", instance.getSessionId());
-        String yarnUrl = env.getProperty("yarn.uri");
-        boolean success = YarnNetUtil.update(yarnUrl, instance);
-        if (!success) {
-            if (instance.getState().equals(UNKNOWN)) {
-                return;
-            }
-            instance.setState(UNKNOWN);
-        }
-        instanceRepo.save(instance);
-    }
-
-
-    private void setJobInstanceIdAndUri(JobInstanceBean instance, HashMap<String
-        , Object> resultMap) {
-        if (resultMap != null) {
-            Object state = resultMap.get("state");
-            Object appId = resultMap.get("appId");
-            instance.setState(state == null ? null : LivySessionStates.State
-                .valueOf(state.toString().toUpperCase
-                    ()));
-            instance.setAppId(appId == null ? null : appId.toString());
-            instance.setAppUri(appId == null ? null : env
-                .getProperty("yarn.uri") + "/cluster/app/" + appId);
-            instanceRepo.save(instance);
-            // If Livy returns to success or dead, task execution completes one,TaskNum--
-            if (instance.getState().equals(SUCCESS) || instance.getState().equals(DEAD)) {
-                livyTaskSubmitHelper.decreaseCurTaskNum(instance.getSessionId());
-            }
-        }
-    }
-
-    public Boolean isJobHealthy(Long jobId) {
-        Pageable pageable = new PageRequest(0, 1, Sort.Direction.DESC, "tms");
-        List<JobInstanceBean> instances = instanceRepo.findByJobId(jobId,
-            pageable);
-        return !CollectionUtils.isEmpty(instances) && LivySessionStates
-            .isHealthy(instances.get(0).getState());
+        syncEngine.syncActiveInstances();
     }
 
     @Override
@@ -0,0 +1,272 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.quartz.Trigger.TriggerState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.griffin.core.job.entity.AbstractJob;
+import org.apache.griffin.core.job.entity.BatchJob;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.impl.jdbcjobstore.JobStoreSupport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Loads the scheduler state of many jobs at once, for job listing and
+ * health, rather than asking Quartz and the instance table job by job.
+ * <p>
+ * With a JDBC job store, the triggers of all requested jobs are read from
+ * the Quartz trigger table with one query. Otherwise, as with the RAM job
+ * store, they are asked from the scheduler one job at a time.
+ */
+@Component
+public class JobStateProvider {
+    private static final String TABLE_PREFIX_KEY =
+        "org.quartz.jobStore.tablePrefix";
+
+    @Autowired
+    @Qualifier("schedulerFactoryBean")
+    private SchedulerFactoryBean factory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    @Qualifier("quartzConf")
+    private Properties quartzConf;
+    @Autowired
+    private JobInstanceRepo instanceRepo;
+
+    /**
+     * max job ids in one query of latest instances
+     */
+    @Value("${job.state.batch.size:1000}")
+    private int batchSize = 1000;
+
+    /**
+     * @param keys Quartz job keys
+     * @return trigger of each job having one, the trigger named as the
+     * job if it has several
+     */
+    public Map<JobKey, TriggerInfo> getTriggers(Collection<JobKey> keys)
+        throws SchedulerException {
+        if (CollectionUtils.isEmpty(keys)) {
+            return Collections.emptyMap();
+        }
+        Scheduler scheduler = factory.getScheduler();
+        if (!JobStoreSupport.class.isAssignableFrom(
+            scheduler.getMetaData().getJobStoreClass())) {
+            return getTriggers(scheduler, keys);
+        }
+        Set<String> groups = new LinkedHashSet<>();
+        for (JobKey key : keys) {
+            groups.add(key.getGroup());
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(scheduler.getSchedulerName());
+        args.addAll(groups);
+        String sql = "SELECT JOB_NAME, JOB_GROUP, TRIGGER_NAME, " +
+            "TRIGGER_STATE, NEXT_FIRE_TIME, PREV_FIRE_TIME FROM " +
+            quartzConf.getProperty(TABLE_PREFIX_KEY, "QRTZ_") + "TRIGGERS " +
+            "WHERE SCHED_NAME = ? AND JOB_GROUP IN (" +
+            String.join(",", Collections.nCopies(groups.size(), "?")) + ")";
+        Set<JobKey> wanted = new LinkedHashSet<>(keys);
+        Map<JobKey, TriggerInfo> triggers = new HashMap<>();
+        jdbcTemplate.query(sql, args.toArray(), rs -> {
+            JobKey key = new JobKey(rs.getString(1), rs.getString(2));
+            if (!wanted.contains(key) || (triggers.containsKey(key)
+                && !key.getName().equals(rs.getString(3)))) {
+                return;
+            }
+            triggers.put(key, new TriggerInfo(toTriggerState(
+                rs.getString(4)), toTime(rs.getLong(5)),
+                toTime(rs.getLong(6))));
+        });
+        return triggers;
+    }
+
+    /**
+     * @param jobIds griffin job ids
+     * @return latest instance of each job having instances
+     */
+    public Map<Long, InstanceInfo> getLatestInstances(Collection<Long> jobIds) {
+        List<Long> ids = new ArrayList<>(jobIds);
+        Map<Long, InstanceInfo> instances = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from,
+                Math.min(from + batchSize, ids.size()));
+            for (Object[] row : instanceRepo.findLatestOfJobs(batch)) {
+                instances.put((Long) row[0], new InstanceInfo(
+                    (State) row[1], (Long) row[2]));
+            }
+        }
+        return instances;
+    }
+
+    /**
+     * @return Quartz job keys of the batch jobs, which are scheduled by
+     * Quartz themselves
+     */
+    static List<JobKey> getBatchJobKeys(List<? extends AbstractJob> jobs) {
+        List<JobKey> keys = new ArrayList<>();
+        for (AbstractJob job : jobs) {
+            JobKey key = getBatchJobKey(job);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return Quartz job key of a batch job, null for other jobs and batch
+     * jobs never scheduled
+     */
+    static JobKey getBatchJobKey(AbstractJob job) {
+        if (!(job instanceof BatchJob) || job.getName() == null
+            || job.getGroup() == null) {
+            return null;
+        }
+        return new JobKey(job.getName(), job.getGroup());
+    }
+
+    private Map<JobKey, TriggerInfo> getTriggers(Scheduler scheduler,
+                                                 Collection<JobKey> keys)
+        throws SchedulerException {
+        Map<JobKey, TriggerInfo> triggers = new HashMap<>();
+        for (JobKey key : keys) {
+            List<? extends Trigger> jobTriggers = scheduler
+                .getTriggersOfJob(key);
+            if (CollectionUtils.isEmpty(jobTriggers)) {
+                continue;
+            }
+            Trigger trigger = jobTriggers.get(0);
+            triggers.put(key, new TriggerInfo(
+                scheduler.getTriggerState(trigger.getKey()),
+                toTime(trigger.getNextFireTime()),
+                toTime(trigger.getPreviousFireTime())));
+        }
+        return triggers;
+    }
+
+    /**
+     * the state the scheduler reports for a state stored in the trigger
+     * table
+     *
+     * @see JobStoreSupport#getTriggerState
+     */
+    static TriggerState toTriggerState(String state) {
+        if (state == null || "DELETED".equals(state)) {
+            return TriggerState.NONE;
+        }
+        switch (state) {
+            case "COMPLETE":
+                return TriggerState.COMPLETE;
+            case "PAUSED":
+            case "PAUSED_BLOCKED":
+                return TriggerState.PAUSED;
+            case "ERROR":
+                return TriggerState.ERROR;
+            case "BLOCKED":
+                return TriggerState.BLOCKED;
+            default:
+                return TriggerState.NORMAL;
+        }
+    }
+
+    private static long toTime(Date date) {
+        return date != null ? date.getTime() : -1;
+    }
+
+    /**
+     * Quartz stores -1 or null for a fire time a trigger doesn't have
+     */
+    private static long toTime(long tms) {
+        return tms > 0 ? tms : -1;
+    }
+
+    public static class InstanceInfo {
+        private final State state;
+        private final Long tms;
+
+        InstanceInfo(State state, Long tms) {
+            this.state = state;
+            this.tms = tms;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public Long getTms() {
+            return tms;
+        }
+    }
+
+    public static class TriggerInfo {
+        private final TriggerState state;
+        private final long nextFireTime;
+        private final long previousFireTime;
+
+        TriggerInfo(TriggerState state, long nextFireTime,
+                    long previousFireTime) {
+            this.state = state;
+            this.nextFireTime = nextFireTime;
+            this.previousFireTime = previousFireTime;
+        }
+
+        public TriggerState getState() {
+            return state;
+        }
+
+        /**
+         * @return next fire time, -1 if there is none
+         */
+        public long getNextFireTime() {
+            return nextFireTime;
+        }
+
+        /**
+         * @return previous fire time, -1 if there is none
+         */
+        public long getPreviousFireTime() {
+            return previousFireTime;
+        }
+    }
+}
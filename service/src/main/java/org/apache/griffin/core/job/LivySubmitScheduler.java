@@ -0,0 +1,463 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.JobInstance.ORGANIZATION_KEY;
+import static org.apache.griffin.core.job.JobInstance.SUBMIT_DEADLINE_KEY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.isActive;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySubmitOrgStats;
+import org.apache.griffin.core.job.entity.LivySubmitStats;
+import org.apache.griffin.core.util.TokenBucket;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Submits queued predicate jobs to Livy, sharing the slots fairly among
+ * organizations.
+ * <p>
+ * A submission takes one of livy.task.max.concurrent.count permits, and a
+ * session keeps it until the sync of job instances sees it in a final
+ * state, or no longer sees it active at all. A dispatcher hands the tasks
+ * to a pool of submit workers at the rate of a token bucket.
+ * <p>
+ * Each organization of a measure has its own queue, earliest deadline
+ * first. A free slot goes to the organization which would then run the
+ * fewest tasks for its weight, so organizations get slots in proportion
+ * to their weights while they all have tasks waiting, and may borrow the
+ * slots others leave unused. Borrowed slots come back as their sessions
+ * end, since a Livy batch cannot be preempted.
+ */
+@Component
+public class LivySubmitScheduler {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(LivySubmitScheduler.class);
+    public static final int DEFAULT_QUEUE_SIZE = 20000;
+    public static final String DEFAULT_ORGANIZATION = "default";
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Value("${livy.task.max.concurrent.count:20}")
+    private int maxConcurrentTaskCount = 20;
+    @Value("${livy.task.submit.workers:4}")
+    private int workerCount = 4;
+    /**
+     * submissions per second, one per livy.task.submit.interval.second if
+     * not positive
+     */
+    @Value("${livy.task.submit.per.second:0}")
+    private double submitsPerSecond = 0;
+    @Value("${livy.task.submit.interval.second:3}")
+    private int batchIntervalSecond = 3;
+    @Value("${livy.task.queue.size:20000}")
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    /**
+     * weights of organizations such as "orgA:3,orgB:1"
+     */
+    @Value("${livy.task.org.weights:}")
+    private String orgWeights = "";
+    @Value("${livy.task.org.default.weight:1}")
+    private double defaultOrgWeight = 1;
+
+    private final Object lock = new Object();
+    /**
+     * guarded by lock
+     */
+    private final Map<String, Organization> organizations = new HashMap<>();
+    private int queuedCount;
+    /**
+     * keys of the tasks queued or being submitted, as a predicate job fires
+     * again while it waits
+     */
+    private final Set<JobKey> taskKeys = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Permit> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger submitting = new AtomicInteger();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+    private final AtomicLong missedDeadlineCount = new AtomicLong();
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    private final AtomicLong totalQueueWait = new AtomicLong();
+    private final AtomicLong lastQueueWait = new AtomicLong();
+    private final AtomicLong maxQueueWait = new AtomicLong();
+    private Semaphore permits;
+    private TokenBucket submitRate;
+    private ExecutorService workers;
+    private Thread dispatcher;
+
+    @PostConstruct
+    public void init() {
+        for (String orgWeight : StringUtils.split(orgWeights, ',')) {
+            String[] pair = orgWeight.split(":");
+            if (pair.length != 2) {
+                LOGGER.warn("Ignore weight {} of organization.", orgWeight);
+                continue;
+            }
+            String name = pair[0].trim();
+            organizations.put(name, new Organization(name,
+                Double.parseDouble(pair[1].trim())));
+        }
+        permits = new Semaphore(maxConcurrentTaskCount, true);
+        double rate = submitsPerSecond > 0 ? submitsPerSecond
+            : batchIntervalSecond > 0 ? 1.0 / batchIntervalSecond : 0;
+        submitRate = new TokenBucket(rate);
+        AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r,
+                "livy-task-submit-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher = new Thread(this::dispatch, "livy-task-submit-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void close() {
+        dispatcher.interrupt();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queue a predicate job for submission, unless it is queued already.
+     *
+     * @param jd predicate job detail
+     * @return false if the queue is full and the job is discarded
+     */
+    public boolean addTask(JobDetail jd) {
+        if (jd == null) {
+            LOGGER.warn("task is blank");
+            return true;
+        }
+        if (!taskKeys.add(jd.getKey())) {
+            LOGGER.info("Task {} is queued already.", jd.getKey());
+            return true;
+        }
+        SubmitTask task = new SubmitTask(jd);
+        synchronized (lock) {
+            if (queuedCount >= queueSize) {
+                taskKeys.remove(jd.getKey());
+                discardedCount.incrementAndGet();
+                LOGGER.warn("task is discard, queue is full, task: {}",
+                    jd.getKey());
+                return false;
+            }
+            getOrganization(task.org).queue.add(task);
+            queuedCount++;
+            lock.notifyAll();
+        }
+        LOGGER.info("add_task_to_waiting_queue_success, task: {}, " +
+            "organization: {}", jd.getKey(), task.org);
+        return true;
+    }
+
+    /**
+     * Give back the permit of a session which reached a final state.
+     *
+     * @param sessionId livy batch id
+     */
+    public void release(Long sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        Permit permit = sessions.remove(sessionId);
+        if (permit != null) {
+            releasePermit(permit.org);
+        }
+    }
+
+    /**
+     * Give back the permits of sessions which took them before the active
+     * sessions were listed and are not among them, in case their final
+     * state was never seen.
+     *
+     * @param activeSessionIds sessions of active job instances
+     * @param listedTms        time the active sessions were listed
+     */
+    public void retainSessions(Collection<Long> activeSessionIds,
+                               long listedTms) {
+        for (Map.Entry<Long, Permit> session : sessions.entrySet()) {
+            Long sessionId = session.getKey();
+            Permit permit = session.getValue();
+            if (permit.tms < listedTms
+                && !activeSessionIds.contains(sessionId)
+                && sessions.remove(sessionId, permit)) {
+                releasePermit(permit.org);
+                LOGGER.warn("Release permit of session {} which is no " +
+                    "longer active.", sessionId);
+            }
+        }
+    }
+
+    public LivySubmitStats getStats() {
+        LivySubmitStats stats = new LivySubmitStats();
+        long now = System.currentTimeMillis();
+        Map<String, LivySubmitOrgStats> orgStats = new HashMap<>();
+        synchronized (lock) {
+            double busyWeight = 0;
+            for (Organization org : organizations.values()) {
+                if (org.isBusy()) {
+                    busyWeight += org.weight;
+                }
+            }
+            for (Organization org : organizations.values()) {
+                LivySubmitOrgStats orgStat = org.getStats(now);
+                orgStat.setFairShare(org.isBusy()
+                    ? maxConcurrentTaskCount * org.weight / busyWeight : 0);
+                orgStats.put(org.name, orgStat);
+            }
+            stats.setQueuedTasks(queuedCount);
+        }
+        long oldestQueueWait = 0;
+        for (LivySubmitOrgStats orgStat : orgStats.values()) {
+            oldestQueueWait = Math.max(oldestQueueWait,
+                orgStat.getOldestQueueWait());
+        }
+        stats.setRunningTasks(sessions.size() + submitting.get());
+        stats.setMaxConcurrentTasks(maxConcurrentTaskCount);
+        stats.setSubmittedCount(submittedCount.get());
+        stats.setFailedCount(failedCount.get());
+        stats.setDiscardedCount(discardedCount.get());
+        stats.setMissedDeadlineCount(missedDeadlineCount.get());
+        stats.setLastQueueWait(lastQueueWait.get());
+        stats.setMaxQueueWait(maxQueueWait.get());
+        long dispatched = dispatchedCount.get();
+        stats.setAverageQueueWait(dispatched == 0 ? 0
+            : (double) totalQueueWait.get() / dispatched);
+        stats.setOldestQueueWait(oldestQueueWait);
+        stats.setOrganizations(orgStats);
+        return stats;
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            SubmitTask task;
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                submitRate.acquire();
+                task = take();
+            } catch (InterruptedException e) {
+                permits.release();
+                Thread.currentThread().interrupt();
+                return;
+            }
+            submitting.incrementAndGet();
+            try {
+                workers.execute(() -> submit(task));
+            } catch (RejectedExecutionException e) {
+                submitting.decrementAndGet();
+                releasePermit(task.org);
+                taskKeys.remove(task.key);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Take the next task of the organization which would run the fewest
+     * tasks for its weight, counting the task as running.
+     */
+    private SubmitTask take() throws InterruptedException {
+        synchronized (lock) {
+            while (queuedCount == 0) {
+                lock.wait();
+            }
+            Organization next = null;
+            for (Organization org : organizations.values()) {
+                if (!org.queue.isEmpty()
+                    && (next == null || org.compareTo(next) < 0)) {
+                    next = org;
+                }
+            }
+            SubmitTask task = next.queue.poll();
+            queuedCount--;
+            next.running++;
+            task.queueWait = System.currentTimeMillis() - task.queuedTms;
+            next.dispatchedCount++;
+            next.totalQueueWait += task.queueWait;
+            next.maxQueueWait = Math.max(next.maxQueueWait, task.queueWait);
+            return task;
+        }
+    }
+
+    private void releasePermit(String org) {
+        synchronized (lock) {
+            getOrganization(org).running--;
+        }
+        permits.release();
+    }
+
+    private void submit(SubmitTask task) {
+        long queueWait = task.queueWait;
+        dispatchedCount.incrementAndGet();
+        totalQueueWait.addAndGet(queueWait);
+        lastQueueWait.set(queueWait);
+        maxQueueWait.accumulateAndGet(queueWait, Math::max);
+        if (System.currentTimeMillis() > task.deadline) {
+            missedDeadlineCount.incrementAndGet();
+        }
+        LOGGER.info("Submit task {} of organization {} after {} ms in queue.",
+            task.key, task.org, queueWait);
+        Long sessionId = null;
+        try {
+            SparkSubmitJob job = beanFactory.createBean(SparkSubmitJob.class);
+            JobInstanceBean instance = job.saveJobInstance(task.jd);
+            if (instance != null) {
+                if (instance.getSessionId() == null) {
+                    failedCount.incrementAndGet();
+                } else {
+                    submittedCount.incrementAndGet();
+                    if (isActive(instance.getState())) {
+                        sessionId = instance.getSessionId();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            LOGGER.error("Async_worker_doTask_failed, {}", e.getMessage(), e);
+        } finally {
+            if (sessionId == null || sessions.putIfAbsent(sessionId,
+                new Permit(task.org)) != null) {
+                releasePermit(task.org);
+            }
+            submitting.decrementAndGet();
+            taskKeys.remove(task.key);
+        }
+    }
+
+    /**
+     * guarded by lock
+     */
+    private Organization getOrganization(String name) {
+        return organizations.computeIfAbsent(name,
+            key -> new Organization(key, defaultOrgWeight));
+    }
+
+    private static class Organization implements Comparable<Organization> {
+        private final String name;
+        private final double weight;
+        private final PriorityQueue<SubmitTask> queue = new PriorityQueue<>();
+        private int running;
+        private long dispatchedCount;
+        private long totalQueueWait;
+        private long maxQueueWait;
+
+        Organization(String name, double weight) {
+            this.name = name;
+            this.weight = weight > 0 ? weight : 1;
+        }
+
+        boolean isBusy() {
+            return running > 0 || !queue.isEmpty();
+        }
+
+        LivySubmitOrgStats getStats(long now) {
+            LivySubmitOrgStats stats = new LivySubmitOrgStats();
+            long oldest = now;
+            for (SubmitTask task : queue) {
+                oldest = Math.min(oldest, task.queuedTms);
+            }
+            stats.setWeight(weight);
+            stats.setQueuedTasks(queue.size());
+            stats.setRunningTasks(running);
+            stats.setMaxQueueWait(maxQueueWait);
+            stats.setAverageQueueWait(dispatchedCount == 0 ? 0
+                : (double) totalQueueWait / dispatchedCount);
+            stats.setOldestQueueWait(now - oldest);
+            return stats;
+        }
+
+        @Override
+        public int compareTo(Organization other) {
+            int order = Double.compare((running + 1) / weight,
+                (other.running + 1) / other.weight);
+            return order != 0 ? order
+                : queue.peek().compareTo(other.queue.peek());
+        }
+    }
+
+    private static class Permit {
+        private final String org;
+        private final long tms = System.currentTimeMillis();
+
+        Permit(String org) {
+            this.org = org;
+        }
+    }
+
+    private class SubmitTask implements Comparable<SubmitTask> {
+        private final JobDetail jd;
+        private final JobKey key;
+        private final String org;
+        private final long queuedTms = System.currentTimeMillis();
+        private final long deadline;
+        private final long seq = sequence.incrementAndGet();
+        private long queueWait;
+
+        SubmitTask(JobDetail jd) {
+            this.jd = jd;
+            this.key = jd.getKey();
+            JobDataMap dataMap = jd.getJobDataMap();
+            this.deadline = dataMap.containsKey(SUBMIT_DEADLINE_KEY)
+                ? dataMap.getLong(SUBMIT_DEADLINE_KEY) : queuedTms;
+            String organization = dataMap.getString(ORGANIZATION_KEY);
+            this.org = StringUtils.isBlank(organization)
+                ? DEFAULT_ORGANIZATION : organization;
+        }
+
+        @Override
+        public int compareTo(SubmitTask other) {
+            int order = Long.compare(deadline, other.deadline);
+            return order != 0 ? order : Long.compare(seq, other.seq);
+        }
+    }
+}
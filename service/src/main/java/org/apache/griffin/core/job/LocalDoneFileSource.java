@@ -0,0 +1,141 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Watches done files on local or NFS mounted dirs with a WatchService. It
+ * registers the nearest existing dir of each file, so a missing dir on the
+ * way is reported when it's created, and watched from there on the next
+ * check. Changes made by other NFS clients are not seen, which polling
+ * still covers.
+ */
+class LocalDoneFileSource implements DoneFileSource {
+    private static final String SCHEME = "file";
+
+    private final WatchService watchService;
+    private final Consumer<String> listener;
+    /**
+     * guarded by this
+     */
+    private final Map<java.nio.file.Path, Registration> registrations =
+        new HashMap<>();
+    private final Thread poller;
+
+    /**
+     * @param listener receives the watch keys of created paths
+     */
+    LocalDoneFileSource(Consumer<String> listener) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.listener = listener;
+        this.poller = new Thread(this::poll, "local-done-file-watcher");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    @Override
+    public Closeable watch(Path file) throws IOException {
+        java.nio.file.Path target = Paths.get(file.toUri().getPath());
+        java.nio.file.Path dir = target.getParent();
+        while (dir != null && !Files.isDirectory(dir)) {
+            dir = dir.getParent();
+        }
+        if (dir == null) {
+            return null;
+        }
+        java.nio.file.Path watchedDir = dir;
+        synchronized (this) {
+            Registration registration = registrations.get(watchedDir);
+            if (registration == null) {
+                registration = new Registration(
+                    watchedDir.register(watchService, ENTRY_CREATE));
+                registrations.put(watchedDir, registration);
+            }
+            registration.count++;
+        }
+        // created before the dir was registered
+        if (Files.exists(target)) {
+            listener.accept(DoneFileWatcher.key(SCHEME, null,
+                target.toString()));
+        }
+        return () -> release(watchedDir);
+    }
+
+    private synchronized void release(java.nio.file.Path dir) {
+        Registration registration = registrations.get(dir);
+        if (registration != null && --registration.count == 0) {
+            registration.key.cancel();
+            registrations.remove(dir);
+        }
+    }
+
+    private void poll() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                java.nio.file.Path dir = (java.nio.file.Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == ENTRY_CREATE) {
+                        java.nio.file.Path created = dir.resolve(
+                            (java.nio.file.Path) event.context());
+                        listener.accept(DoneFileWatcher.key(SCHEME, null,
+                            created.toString()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed with the service
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        poller.interrupt();
+        watchService.close();
+    }
+
+    private static class Registration {
+        private final WatchKey key;
+        private int count;
+
+        Registration(WatchKey key) {
+            this.key = key;
+        }
+    }
+}
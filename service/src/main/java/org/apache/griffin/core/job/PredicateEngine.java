@@ -0,0 +1,562 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.JobInstance.CONNECTOR_CONFIGS_KEY;
+import static org.apache.griffin.core.job.JobInstance.JOB_NAME;
+import static org.apache.griffin.core.job.JobInstance.MEASURE_KEY;
+import static org.apache.griffin.core.job.JobInstance.MEASURE_SNAPSHOT_KEY;
+import static org.apache.griffin.core.job.JobInstance.MEASURE_TIMESTAMP_KEY;
+import static org.apache.griffin.core.job.JobInstance.ORGANIZATION_KEY;
+import static org.apache.griffin.core.job.JobInstance.PREDICATE_JOB_NAME;
+import static org.apache.griffin.core.job.JobInstance.SUBMIT_DEADLINE_KEY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.FINDING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_FOUND;
+import static org.apache.griffin.core.util.JsonUtil.toEntity;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.JobKey.jobKey;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.PendingPredicate;
+import org.apache.griffin.core.job.entity.SegmentPredicate;
+import org.apache.griffin.core.job.factory.PredicatorFactory;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.apache.griffin.core.job.repo.PendingPredicateRepo;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Checks the predicates of all pending job instances and submits those
+ * which are ready, in place of a Quartz job and trigger per instance.
+ * <p>
+ * Pending instances are rows of one table. In memory the engine only
+ * keeps when each of them is due, and on every tick it loads the due ones
+ * in batches, checks their predicates in parallel and writes the outcome
+ * back in one go. A ready instance is handed to the submit queue, or
+ * submitted at once without a queue, and stays pending until the submit
+ * deletes its predicate job, so that a lost submit is retried after the
+ * next interval like a predicate job firing again.
+ * <p>
+ * Unless it's checked by polling only, an instance is also checked as soon
+ * as a done file it waits for shows up. Such checks do not count against
+ * its repeat count, which keeps the timeout of polling.
+ * <p>
+ * With more than one server, the engine of each one schedules all pending
+ * instances, and claims the rows of due instances before checking them, so
+ * that only one engine checks and submits an instance. A claim runs out
+ * after a timeout, so instances claimed by a server which went down are
+ * checked by another one. Every now and then the engine also picks up the
+ * instances added on other servers.
+ */
+@Component
+public class PredicateEngine {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(PredicateEngine.class);
+    private static final long IN_CHECK = Long.MAX_VALUE;
+
+    @Autowired
+    private PendingPredicateRepo pendingRepo;
+    @Autowired
+    private JobInstanceRepo instanceRepo;
+    @Autowired
+    private LivySubmitScheduler submitScheduler;
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+    @Autowired
+    private DoneFileWatcher doneFileWatcher;
+    @Autowired
+    private JobHealthTracker healthTracker;
+
+    @Value("${livy.need.queue:false}")
+    private boolean isNeedLivyQueue;
+    @Value("${predicate.engine.tick.in.milliseconds:10000}")
+    private long tickInterval = 10000;
+    @Value("${predicate.engine.batch.size:500}")
+    private int batchSize = 500;
+    @Value("${predicate.engine.threads:8}")
+    private int threadCount = 8;
+    @Value("${predicate.engine.claim.timeout.in.milliseconds:600000}")
+    private long claimTimeout = 600000;
+    @Value("${predicate.engine.resync.in.milliseconds:60000}")
+    private long resyncInterval = 60000;
+
+    /**
+     * owner of the rows this engine claims
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Object lock = new Object();
+    /**
+     * next check time by predicate name, guarded by lock
+     */
+    private final Map<String, Long> nextChecks = new HashMap<>();
+    /**
+     * check times in order, entries no longer in nextChecks are skipped,
+     * guarded by lock
+     */
+    private final PriorityQueue<Due> dueQueue = new PriorityQueue<>();
+    /**
+     * instances to check as their done files show up, guarded by lock
+     */
+    private final Set<String> wokenUp = new LinkedHashSet<>();
+    private long lastResync;
+    private ScheduledExecutorService ticker;
+    private ExecutorService evaluators;
+
+    @PostConstruct
+    public void init() {
+        LOGGER.info("Predicate engine resumes {} pending instances.",
+            resync());
+        AtomicInteger count = new AtomicInteger();
+        evaluators = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r,
+                "predicate-evaluator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "predicate-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickInterval, tickInterval,
+            TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        ticker.shutdownNow();
+        evaluators.shutdownNow();
+    }
+
+    /**
+     * Start checking the predicates of a new job instance, first on the
+     * next tick.
+     */
+    public void add(PendingPredicate pending) {
+        pending.setNextCheckTms(System.currentTimeMillis());
+        pendingRepo.save(pending);
+        synchronized (lock) {
+            schedule(pending.getPredicateName(), pending.getNextCheckTms());
+        }
+    }
+
+    /**
+     * Stop checking the predicates of a job instance, as it is submitted,
+     * stopped or deleted.
+     *
+     * @param predicateName predicate job name of the instance
+     */
+    public void remove(String predicateName) {
+        synchronized (lock) {
+            nextChecks.remove(predicateName);
+        }
+        doneFileWatcher.unwatch(predicateName);
+        // the instance may be added on another server since the last resync
+        pendingRepo.deleteByPredicateName(predicateName);
+    }
+
+    /**
+     * Stop checking the predicates of job instances in batch, as they are
+     * expired.
+     *
+     * @param predicateNames predicate job names of the instances
+     */
+    public void remove(Collection<String> predicateNames) {
+        if (predicateNames.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            predicateNames.forEach(nextChecks::remove);
+        }
+        predicateNames.forEach(doneFileWatcher::unwatch);
+        pendingRepo.deleteByPredicateNameIn(predicateNames);
+    }
+
+    int getPendingCount() {
+        synchronized (lock) {
+            return nextChecks.size();
+        }
+    }
+
+    void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - lastResync >= resyncInterval) {
+                resync();
+            }
+            List<String> due = pollDue(now);
+            for (int from = 0; from < due.size(); from += batchSize) {
+                check(due.subList(from, Math.min(from + batchSize,
+                    due.size())), true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.error("Failed to check pending predicates.", e);
+        }
+    }
+
+    /**
+     * Schedule the pending instances not known yet, added on other servers
+     * or before a restart. Those known are rescheduled as they are checked.
+     *
+     * @return the number of instances added
+     */
+    private int resync() {
+        lastResync = System.currentTimeMillis();
+        List<Object[]> schedules = pendingRepo.findSchedule();
+        int count = 0;
+        synchronized (lock) {
+            for (Object[] schedule : schedules) {
+                String name = (String) schedule[0];
+                Long tms = (Long) schedule[1];
+                if (!nextChecks.containsKey(name)) {
+                    schedule(name, tms == null ? 0 : tms);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check an instance on the engine thread before it's due, as a done
+     * file it waits for is created.
+     */
+    private void wakeUp(String name) {
+        synchronized (lock) {
+            if (!wokenUp.add(name) || wokenUp.size() > 1) {
+                return;
+            }
+        }
+        try {
+            ticker.execute(this::checkWokenUp);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Predicate engine is closed.");
+        }
+    }
+
+    private void checkWokenUp() {
+        List<String> names = new ArrayList<>();
+        synchronized (lock) {
+            for (String name : wokenUp) {
+                Long tms = nextChecks.get(name);
+                if (tms != null && tms != IN_CHECK) {
+                    nextChecks.put(name, IN_CHECK);
+                    names.add(name);
+                }
+            }
+            wokenUp.clear();
+        }
+        try {
+            for (int from = 0; from < names.size(); from += batchSize) {
+                check(names.subList(from, Math.min(from + batchSize,
+                    names.size())), false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.error("Failed to check woken up predicates.", e);
+        }
+    }
+
+    private List<String> pollDue(long now) {
+        List<String> due = new ArrayList<>();
+        synchronized (lock) {
+            while (!dueQueue.isEmpty() && dueQueue.peek().tms <= now) {
+                Due next = dueQueue.poll();
+                Long tms = nextChecks.get(next.name);
+                if (tms != null && tms == next.tms) {
+                    nextChecks.put(next.name, IN_CHECK);
+                    due.add(next.name);
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @param polled whether the instances are due, rather than woken up,
+     *               as only then a failed check counts and delays the next
+     */
+    private void check(List<String> names, boolean polled)
+        throws InterruptedException {
+        long claimed = System.currentTimeMillis();
+        long lease = claimed + claimTimeout;
+        pendingRepo.claim(names, nodeId, lease, claimed,
+            polled ? claimed : Long.MAX_VALUE);
+        List<PendingPredicate> pendings = new ArrayList<>();
+        List<PendingPredicate> claimedElsewhere = new ArrayList<>();
+        for (PendingPredicate pending : pendingRepo
+            .findByPredicateNameIn(names)) {
+            if (nodeId.equals(pending.getOwner())
+                && Long.valueOf(lease).equals(pending.getLeaseTms())) {
+                pendings.add(pending);
+            } else {
+                claimedElsewhere.add(pending);
+            }
+        }
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (PendingPredicate pending : pendings) {
+            results.add(evaluators.submit(() -> checkAndSubmit(pending)));
+        }
+        List<PendingPredicate> rescheduled = new ArrayList<>();
+        List<String> submitted = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        List<PendingPredicate> restored = new ArrayList<>();
+        Map<String, PendingPredicate> expired = new HashMap<>();
+        for (int i = 0; i < pendings.size(); i++) {
+            PendingPredicate pending = pendings.get(i);
+            boolean ready = false;
+            try {
+                ready = results.get(i).get();
+            } catch (ExecutionException e) {
+                LOGGER.error("Failed to check predicates of {}.",
+                    pending.getPredicateName(), e.getCause());
+            }
+            if (ready) {
+                doneFileWatcher.unwatch(pending.getPredicateName());
+                submitted.add(pending.getPredicateName());
+            } else if (!polled) {
+                restored.add(pending);
+                continue;
+            } else {
+                pending.setCheckCount(pending.getCheckCount() + 1);
+            }
+            if (!ready && pending.getCheckCount() > pending.getRepeatCount()) {
+                expired.put(pending.getPredicateName(), pending);
+            } else if (!ready) {
+                failed.add(pending.getPredicateName());
+                rescheduled.add(pending);
+            } else {
+                rescheduled.add(pending);
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (PendingPredicate pending : rescheduled) {
+            pending.setNextCheckTms(now + pending.getInterval());
+        }
+        // rows removed meanwhile are not updated, as they are not claimed
+        if (!failed.isEmpty()) {
+            pendingRepo.rescheduleFailed(failed, nodeId, lease, now);
+        }
+        if (!submitted.isEmpty()) {
+            pendingRepo.rescheduleSubmitted(submitted, nodeId, lease, now);
+        }
+        if (!restored.isEmpty()) {
+            pendingRepo.release(restored.stream()
+                .map(PendingPredicate::getPredicateName)
+                .collect(Collectors.toList()), nodeId, lease);
+        }
+        synchronized (lock) {
+            // skip the instances removed while being checked
+            rescheduled.removeIf(p ->
+                !nextChecks.containsKey(p.getPredicateName()));
+            expired.keySet().removeIf(name -> !nextChecks.containsKey(name));
+            for (PendingPredicate pending : rescheduled) {
+                schedule(pending.getPredicateName(),
+                    pending.getNextCheckTms());
+            }
+            // woken up too early, keep the time they are due,
+            // their check times are still queued
+            for (PendingPredicate pending : restored) {
+                if (nextChecks.containsKey(pending.getPredicateName())) {
+                    nextChecks.put(pending.getPredicateName(),
+                        pending.getNextCheckTms());
+                }
+            }
+            // checked by another server, check again once its claim runs
+            // out or as it's due as rescheduled there
+            for (PendingPredicate pending : claimedElsewhere) {
+                if (nextChecks.containsKey(pending.getPredicateName())) {
+                    schedule(pending.getPredicateName(), Math.max(
+                        orZero(pending.getNextCheckTms()),
+                        orZero(pending.getLeaseTms())));
+                }
+            }
+            for (String name : expired.keySet()) {
+                nextChecks.remove(name);
+            }
+            // rows deleted before they were loaded
+            for (String name : names) {
+                if (Long.valueOf(IN_CHECK).equals(nextChecks.get(name))) {
+                    nextChecks.remove(name);
+                }
+            }
+        }
+        expire(expired);
+    }
+
+    private static long orZero(Long tms) {
+        return tms == null ? 0 : tms;
+    }
+
+    private boolean checkAndSubmit(PendingPredicate pending)
+        throws Exception {
+        if (!isReady(pending)) {
+            return false;
+        }
+        JobDetail jd = toJobDetail(pending);
+        if (isNeedLivyQueue) {
+            if (!submitScheduler.addTask(jd)) {
+                LOGGER.warn("Submit queue is full, check {} again later.",
+                    pending.getPredicateName());
+                return false;
+            }
+        } else {
+            beanFactory.createBean(SparkSubmitJob.class).saveJobInstance(jd);
+        }
+        return true;
+    }
+
+    private boolean isReady(PendingPredicate pending) throws Exception {
+        if (StringUtils.isEmpty(pending.getPredicates())) {
+            return true;
+        }
+        List<SegmentPredicate> predicates = toEntity(pending.getPredicates(),
+            new TypeReference<List<SegmentPredicate>>() {
+            });
+        for (SegmentPredicate predicate : predicates) {
+            Predicator predicator = PredicatorFactory
+                .newPredicateInstance(predicate);
+            if (predicator != null && !predicator.predicate()) {
+                String name = pending.getPredicateName();
+                doneFileWatcher.watch(name, predicator.getWatchedPaths(),
+                    () -> wakeUp(name));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The job detail SparkSubmitJob submits, without predicates as they
+     * are checked already.
+     */
+    private JobDetail toJobDetail(PendingPredicate pending) {
+        JobDataMap dataMap = new JobDataMap();
+        if (pending.getMeasureSnapshotId() != null) {
+            dataMap.put(MEASURE_SNAPSHOT_KEY,
+                String.valueOf(pending.getMeasureSnapshotId()));
+            if (pending.getMeasureTimestamp() != null) {
+                dataMap.put(MEASURE_TIMESTAMP_KEY,
+                    String.valueOf(pending.getMeasureTimestamp()));
+            }
+            if (!StringUtils.isEmpty(pending.getConnectorConfigs())) {
+                dataMap.put(CONNECTOR_CONFIGS_KEY,
+                    pending.getConnectorConfigs());
+            }
+        } else {
+            dataMap.put(MEASURE_KEY, pending.getMeasure());
+        }
+        dataMap.put(JOB_NAME, pending.getJobName());
+        dataMap.put(PREDICATE_JOB_NAME, pending.getPredicateName());
+        if (pending.getSubmitDeadline() != null) {
+            // job data stays strings, as Quartz stores it as properties
+            dataMap.put(SUBMIT_DEADLINE_KEY,
+                String.valueOf(pending.getSubmitDeadline()));
+        }
+        if (!StringUtils.isEmpty(pending.getOrganization())) {
+            dataMap.put(ORGANIZATION_KEY, pending.getOrganization());
+        }
+        return newJob(SparkSubmitJob.class)
+            .withIdentity(jobKey(pending.getPredicateName(),
+                pending.getPredicateGroup()))
+            .usingJobData(dataMap)
+            .build();
+    }
+
+    /**
+     * Give up the instances whose predicates never held.
+     */
+    private void expire(Map<String, PendingPredicate> expired) {
+        if (expired.isEmpty()) {
+            return;
+        }
+        List<JobInstanceBean> instances = instanceRepo
+            .findByPredicateNameIn(expired.keySet());
+        for (JobInstanceBean instance : instances) {
+            if (instance.getState() == FINDING) {
+                instance.setState(NOT_FOUND);
+            }
+            instance.setPredicateDeleted(true);
+        }
+        instanceRepo.saveAll(instances);
+        healthTracker.update(instances);
+        expired.keySet().forEach(doneFileWatcher::unwatch);
+        pendingRepo.deleteAll(new ArrayList<>(expired.values()));
+        LOGGER.info("{} job instances are not found after all checks.",
+            expired.size());
+    }
+
+    /**
+     * guarded by lock
+     */
+    private void schedule(String name, long tms) {
+        nextChecks.put(name, tms);
+        dueQueue.add(new Due(name, tms));
+    }
+
+    private static class Due implements Comparable<Due> {
+        private final String name;
+        private final long tms;
+
+        Due(String name, long tms) {
+            this.name = name;
+            this.tms = tms;
+        }
+
+        @Override
+        public int compareTo(Due other) {
+            return Long.compare(tms, other.tms);
+        }
+    }
+}
@@ -20,10 +20,13 @@ under the License.
 package org.apache.griffin.core.job;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Predicator is an object that judges if one condition is met.
- * This interface only has one method {@link #predicate()}
+ * The condition is checked by {@link #predicate()}, and may be checked
+ * again early once one of {@link #getWatchedPaths()} appears.
  */
 public interface Predicator {
     /**
@@ -33,4 +36,14 @@ public interface Predicator {
      * @throws IOException
      */
     boolean predicate() throws IOException;
+
+    /**
+     * paths whose creation may make the condition met, so that it's
+     * checked again as soon as they appear instead of on the next poll
+     *
+     * @return paths to watch, empty if the condition can only be polled
+     */
+    default List<String> getWatchedPaths() {
+        return Collections.emptyList();
+    }
 }
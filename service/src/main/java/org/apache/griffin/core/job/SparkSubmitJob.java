@@ -22,8 +22,11 @@ package org.apache.griffin.core.job;
 import static org.apache.griffin.core.config.EnvConfig.ENV_BATCH;
 import static org.apache.griffin.core.config.EnvConfig.ENV_STREAMING;
 import static org.apache.griffin.core.config.PropertiesConfig.livyConfMap;
+import static org.apache.griffin.core.job.JobInstance.CONNECTOR_CONFIGS_KEY;
 import static org.apache.griffin.core.job.JobInstance.JOB_NAME;
 import static org.apache.griffin.core.job.JobInstance.MEASURE_KEY;
+import static org.apache.griffin.core.job.JobInstance.MEASURE_SNAPSHOT_KEY;
+import static org.apache.griffin.core.job.JobInstance.MEASURE_TIMESTAMP_KEY;
 import static org.apache.griffin.core.job.JobInstance.PREDICATES_KEY;
 import static org.apache.griffin.core.job.JobInstance.PREDICATE_JOB_NAME;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State;
@@ -44,11 +47,14 @@ import org.apache.griffin.core.job.entity.JobInstanceBean;
 import org.apache.griffin.core.job.entity.SegmentPredicate;
 import org.apache.griffin.core.job.factory.PredicatorFactory;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.apache.griffin.core.measure.MeasureSnapshotStore;
+import org.apache.griffin.core.measure.MeasureSnapshotStore.ParsedSnapshot;
 import org.apache.griffin.core.measure.entity.GriffinMeasure;
 import org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType;
 import org.apache.griffin.core.util.JsonUtil;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
+import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.PersistJobDataAfterExecution;
@@ -67,7 +73,7 @@ import org.springframework.util.StringUtils;
  * Simple implementation of the Quartz Job interface, submitting the
  * griffin job to spark cluster via livy
  *
- * @see LivyTaskSubmitHelper#postToLivy(String)
+ * @see LivyTaskSubmitHelper#postToLivy(String, Map)
  * @see Job#execute(JobExecutionContext) 
  */
 @PersistJobDataAfterExecution
@@ -85,6 +91,12 @@ public class SparkSubmitJob implements Job {
     private Environment env;
     @Autowired
     private LivyTaskSubmitHelper livyTaskSubmitHelper;
+    @Autowired
+    private LivySubmitScheduler submitScheduler;
+    @Autowired
+    private MeasureSnapshotStore snapshotStore;
+    @Autowired
+    private JobHealthTracker healthTracker;
 
     @Value("${livy.need.queue:false}")
     private boolean isNeedLivyQueue;
@@ -92,7 +104,12 @@ public class SparkSubmitJob implements Job {
     private int appIdRetryCount;
 
     private GriffinMeasure measure;
+    private String measureJson;
     private String livyUri;
+    /**
+     * request body of this submission, copied from the shared livy config
+     */
+    private Map<String, Object> livyConf;
     private List<SegmentPredicate> mPredicates;
     private JobInstanceBean jobInstance;
 
@@ -102,7 +119,9 @@ public class SparkSubmitJob implements Job {
         try {
             if (isNeedLivyQueue) {
                 //livy batch limit
-                livyTaskSubmitHelper.addTaskToWaitingQueue(jd);
+                if (!submitScheduler.addTask(jd)) {
+                    discard(jd);
+                }
             } else {
                 saveJobInstance(jd);
             }
@@ -111,6 +130,14 @@ public class SparkSubmitJob implements Job {
         }
     }
 
+    private void discard(JobDetail jd) throws IOException {
+        jobInstance = jobInstanceRepo.findByPredicateName(jd.getJobDataMap()
+            .getString(PREDICATE_JOB_NAME));
+        if (jobInstance != null) {
+            saveJobInstance(null, NOT_FOUND);
+        }
+    }
+
     private void updateJobInstanceState(JobExecutionContext context)
         throws IOException {
         SimpleTrigger simpleTrigger = (SimpleTrigger) context.getTrigger();
@@ -122,7 +149,7 @@ public class SparkSubmitJob implements Job {
     }
 
     private String post2Livy() {
-        return livyTaskSubmitHelper.postToLivy(livyUri);
+        return livyTaskSubmitHelper.postToLivy(livyUri, livyConf);
     }
 
     private boolean success(List<SegmentPredicate> predicates) {
@@ -148,13 +175,44 @@ public class SparkSubmitJob implements Job {
         mPredicates = new ArrayList<>();
         jobInstance = jobInstanceRepo.findByPredicateName(jd.getJobDataMap()
             .getString(PREDICATE_JOB_NAME));
-        measure = toEntity(jd.getJobDataMap().getString(MEASURE_KEY),
-            GriffinMeasure.class);
         livyUri = env.getProperty("livy.uri");
-        setPredicates(jd.getJobDataMap().getString(PREDICATES_KEY));
+        JobDataMap dataMap = jd.getJobDataMap();
+        setPredicates(dataMap.getString(PREDICATES_KEY));
         // in order to keep metric name unique, we set job name
         // as measure name at present
-        measure.setName(jd.getJobDataMap().getString(JOB_NAME));
+        String name = dataMap.getString(JOB_NAME);
+        if (dataMap.containsKey(MEASURE_SNAPSHOT_KEY)) {
+            ParsedSnapshot snapshot = snapshotStore.get(
+                dataMap.getLong(MEASURE_SNAPSHOT_KEY), name);
+            if (snapshot == null) {
+                throw new IOException("Measure snapshot of "
+                    + jd.getKey() + " does not exist.");
+            }
+            measure = snapshot.getMeasure();
+            measureJson = snapshot.getJson(getMeasureTimestamp(dataMap),
+                getConnectorConfigs(dataMap.getString(
+                    CONNECTOR_CONFIGS_KEY)));
+        } else {
+            measure = toEntity(dataMap.getString(MEASURE_KEY),
+                GriffinMeasure.class);
+            measure.setName(name);
+            measureJson = JsonUtil.toJsonWithFormat(measure);
+        }
+    }
+
+    private Long getMeasureTimestamp(JobDataMap dataMap) {
+        return dataMap.containsKey(MEASURE_TIMESTAMP_KEY)
+            ? dataMap.getLong(MEASURE_TIMESTAMP_KEY) : null;
+    }
+
+    private Map<String, Map<String, Object>> getConnectorConfigs(String json)
+        throws IOException {
+        if (StringUtils.isEmpty(json)) {
+            return null;
+        }
+        return toEntity(json,
+            new TypeReference<Map<String, Map<String, Object>>>() {
+            });
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
@@ -191,24 +249,30 @@ public class SparkSubmitJob implements Job {
     private void setLivyArgs() throws IOException {
         List<String> args = new ArrayList<>();
         args.add(genEnv());
-        String measureJson = JsonUtil.toJsonWithFormat(measure);
         // to fix livy bug: character will be ignored by livy
         String finalMeasureJson = escapeCharacter(measureJson, "\\`");
         LOGGER.info(finalMeasureJson);
         args.add(finalMeasureJson);
         args.add("raw,raw");
-        livyConfMap.put("args", args);
+        livyConf = new HashMap<>(livyConfMap);
+        livyConf.put("args", args);
     }
 
-    protected void saveJobInstance(JobDetail jd) throws SchedulerException,
-        IOException {
+    /**
+     * Submit the measure of a predicate job to Livy and save the instance.
+     *
+     * @param jd predicate job detail
+     * @return the saved instance, or null if the predicates do not hold yet
+     */
+    protected JobInstanceBean saveJobInstance(JobDetail jd)
+        throws SchedulerException, IOException {
         // If result is null, it may livy uri is wrong
         // or livy parameter is wrong.
         initParam(jd);
         setLivyConf();
         if (!success(mPredicates)) {
             updateJobInstanceState((JobExecutionContext) jd);
-            return;
+            return null;
         }
         Map<String, Object> resultMap = post2LivyWithRetry();
         String group = jd.getKey().getGroup();
@@ -217,6 +281,8 @@ public class SparkSubmitJob implements Job {
         LOGGER.info("Delete predicate job({},{}) SUCCESS.", group, name);
         setJobInstance(resultMap, FOUND);
         jobInstanceRepo.save(jobInstance);
+        healthTracker.update(jobInstance);
+        return jobInstance;
     }
 
     private Map<String, Object> post2LivyWithRetry()
@@ -225,10 +291,6 @@ public class SparkSubmitJob implements Job {
         Map<String, Object> resultMap = null;
         if (result != null) {
             resultMap = livyTaskSubmitHelper.retryLivyGetAppId(result, appIdRetryCount);
-            if (resultMap != null) {
-                livyTaskSubmitHelper.increaseCurTaskNum(Long.valueOf(
-                    String.valueOf(resultMap.get("id"))).longValue());
-            }
         }
 
         return resultMap;
@@ -245,6 +307,7 @@ public class SparkSubmitJob implements Job {
         }
         setJobInstance(resultMap, state);
         jobInstanceRepo.save(jobInstance);
+        healthTracker.update(jobInstance);
     }
 
     private void setJobInstance(Map<String, Object> resultMap, State state) {
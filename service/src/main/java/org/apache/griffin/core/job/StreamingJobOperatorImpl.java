@@ -34,7 +34,6 @@ import javax.annotation.PostConstruct;
 
 import org.apache.griffin.core.exception.GriffinException;
 import org.apache.griffin.core.job.entity.AbstractJob;
-import org.apache.griffin.core.job.entity.JobHealth;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
 import org.apache.griffin.core.job.entity.JobState;
 import org.apache.griffin.core.job.entity.StreamingJob;
@@ -75,6 +74,8 @@ public class StreamingJobOperatorImpl implements JobOperator {
     private SchedulerFactoryBean factory;
     @Autowired
     private LivyTaskSubmitHelper livyTaskSubmitHelper;
+    @Autowired
+    private JobHealthTracker healthTracker;
 
     private String livyUri;
 
@@ -163,15 +164,6 @@ public class StreamingJobOperatorImpl implements JobOperator {
     }
 
 
-    @Override
-    public JobHealth getHealth(JobHealth jobHealth, AbstractJob job) {
-        jobHealth.setJobCount(jobHealth.getJobCount() + 1);
-        if (jobService.isJobHealthy(job.getId())) {
-            jobHealth.setHealthyJobCount(jobHealth.getHealthyJobCount() + 1);
-        }
-        return jobHealth;
-    }
-
     @Override
     public JobState getState(AbstractJob job, String action) {
         JobState jobState = new JobState();
@@ -276,6 +268,7 @@ public class StreamingJobOperatorImpl implements JobOperator {
             });
         job.setDeleted(delete);
         streamingJobRepo.save(job);
+        healthTracker.update(instances);
     }
 
     private void pauseJob(StreamingJob job) throws SchedulerException {
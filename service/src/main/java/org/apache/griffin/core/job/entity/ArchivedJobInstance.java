@@ -0,0 +1,151 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.measure.entity.AbstractAuditableEntity;
+import org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType;
+
+/**
+ * A job instance in its final state moved out of the job instance table
+ * once old enough, keeping the id it had there. It refers to its job by id
+ * only, as archived instances may outlive their jobs.
+ */
+@Entity
+@Table(indexes = {@Index(columnList = "instance_id", unique = true),
+    @Index(columnList = "job_id, timestamp"),
+    @Index(columnList = "triggerKey"),
+    @Index(columnList = "expire_timestamp")})
+public class ArchivedJobInstance extends AbstractAuditableEntity {
+
+    private static final long serialVersionUID = 3286357640126734125L;
+
+    @Column(name = "instance_id", nullable = false)
+    private Long instanceId;
+
+    @Column(name = "job_id")
+    private Long jobId;
+
+    private Long sessionId;
+
+    @Enumerated(EnumType.STRING)
+    private State state;
+
+    @Enumerated(EnumType.STRING)
+    private ProcessType type;
+
+    private String appId;
+
+    @Column(length = 2 * 1024)
+    private String appUri;
+
+    @Column(name = "timestamp")
+    private Long tms;
+
+    @Column(name = "expire_timestamp")
+    private Long expireTms;
+
+    @Column(name = "predicate_group_name")
+    private String predicateGroup;
+
+    @Column(name = "predicate_job_name")
+    private String predicateName;
+
+    private boolean deleted;
+
+    private String triggerKey;
+
+    @Column(name = "archive_timestamp")
+    private Long archivedTms;
+
+    protected ArchivedJobInstance() {
+    }
+
+    public ArchivedJobInstance(JobInstanceBean instance, long archivedTms) {
+        this.instanceId = instance.getId();
+        this.jobId = instance.getJob() != null ? instance.getJob().getId()
+            : null;
+        this.sessionId = instance.getSessionId();
+        this.state = instance.getState();
+        this.type = instance.getType();
+        this.appId = instance.getAppId();
+        this.appUri = instance.getAppUri();
+        this.tms = instance.getTms();
+        this.expireTms = instance.getExpireTms();
+        this.predicateGroup = instance.getPredicateGroup();
+        this.predicateName = instance.getPredicateName();
+        this.deleted = instance.isDeleted();
+        this.triggerKey = instance.getTriggerKey();
+        this.archivedTms = archivedTms;
+    }
+
+    /**
+     * @return the instance as it was in the job instance table, without its
+     * job
+     */
+    public JobInstanceBean toInstance() {
+        JobInstanceBean instance = new JobInstanceBean();
+        instance.setId(instanceId);
+        instance.setSessionId(sessionId);
+        instance.setState(state);
+        instance.setType(type);
+        instance.setAppId(appId);
+        instance.setAppUri(appUri);
+        instance.setTms(tms);
+        instance.setExpireTms(expireTms);
+        instance.setPredicateGroup(predicateGroup);
+        instance.setPredicateName(predicateName);
+        instance.setPredicateDeleted(true);
+        instance.setDeleted(deleted);
+        instance.setTriggerKey(triggerKey);
+        return instance;
+    }
+
+    public Long getInstanceId() {
+        return instanceId;
+    }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Long getTms() {
+        return tms;
+    }
+
+    public Long getExpireTms() {
+        return expireTms;
+    }
+
+    public Long getArchivedTms() {
+        return archivedTms;
+    }
+}
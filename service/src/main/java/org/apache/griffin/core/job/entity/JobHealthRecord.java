@@ -0,0 +1,97 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.apache.griffin.core.measure.entity.AbstractAuditableEntity;
+
+/**
+ * Health of one job as counted in the job health summary, kept up to date
+ * as the states of its instances change.
+ */
+@Entity
+@Table(indexes = {@Index(columnList = "job_id", unique = true)})
+public class JobHealthRecord extends AbstractAuditableEntity {
+
+    private static final long serialVersionUID = -6395738237480160416L;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    /**
+     * whether the job counts at all, which a batch job does while it has a
+     * trigger
+     */
+    private boolean counted;
+
+    /**
+     * whether the latest instance of the job is in a healthy state
+     */
+    private boolean healthy;
+
+    /**
+     * time of the latest instance, null if there is none
+     */
+    private Long latestTms;
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Long jobId) {
+        this.jobId = jobId;
+    }
+
+    public boolean isCounted() {
+        return counted;
+    }
+
+    public void setCounted(boolean counted) {
+        this.counted = counted;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    public Long getLatestTms() {
+        return latestTms;
+    }
+
+    public void setLatestTms(Long latestTms) {
+        this.latestTms = latestTms;
+    }
+
+    public JobHealthRecord() {
+    }
+
+    public JobHealthRecord(Long jobId, boolean counted) {
+        this.jobId = jobId;
+        this.counted = counted;
+    }
+}
@@ -33,13 +33,18 @@ import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 import org.apache.griffin.core.job.entity.LivySessionStates.State;
 import org.apache.griffin.core.measure.entity.AbstractAuditableEntity;
 import org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType;
 
 @Entity
-@Table(indexes = {@Index(columnList = "triggerKey")})
+@Table(indexes = {@Index(columnList = "triggerKey"),
+    @Index(columnList = "job_id, timestamp"),
+    @Index(columnList = "state"),
+    @Index(columnList = "predicate_job_name"),
+    @Index(columnList = "expire_timestamp")})
 public class JobInstanceBean extends AbstractAuditableEntity {
 
     private static final long serialVersionUID = -4748881017029815874L;
@@ -90,6 +95,14 @@ public class JobInstanceBean extends AbstractAuditableEntity {
 
     private String triggerKey;
 
+    /**
+     * Time the state was last confirmed by Livy or YARN, null if the state
+     * is final or has not been synced since the service started
+     */
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long syncedTms;
+
     public AbstractJob getJob() {
         return job;
     }
@@ -196,6 +209,15 @@ public class JobInstanceBean extends AbstractAuditableEntity {
         this.triggerKey = triggerKey;
     }
 
+    @JsonProperty("syncedTimestamp")
+    public Long getSyncedTms() {
+        return syncedTms;
+    }
+
+    public void setSyncedTms(Long syncedTms) {
+        this.syncedTms = syncedTms;
+    }
+
     public JobInstanceBean() {
     }
 
@@ -0,0 +1,104 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.entity;
+
+/**
+ * Progress of expiring job instances. Counters of the last run tell whether
+ * it deleted every expired instance or stopped at its time budget, and
+ * durations are in milliseconds.
+ */
+public class JobInstanceExpiryStats {
+
+    private long lastStartTms;
+    private long lastDuration;
+    private int lastChunkCount;
+    private int lastDeletedCount;
+    private boolean lastFinished;
+    private long deletedCount;
+    private long unfinishedRunCount;
+    private long failedRunCount;
+
+    public JobInstanceExpiryStats() {
+    }
+
+    public long getLastStartTms() {
+        return lastStartTms;
+    }
+
+    public void setLastStartTms(long lastStartTms) {
+        this.lastStartTms = lastStartTms;
+    }
+
+    public long getLastDuration() {
+        return lastDuration;
+    }
+
+    public void setLastDuration(long lastDuration) {
+        this.lastDuration = lastDuration;
+    }
+
+    public int getLastChunkCount() {
+        return lastChunkCount;
+    }
+
+    public void setLastChunkCount(int lastChunkCount) {
+        this.lastChunkCount = lastChunkCount;
+    }
+
+    public int getLastDeletedCount() {
+        return lastDeletedCount;
+    }
+
+    public void setLastDeletedCount(int lastDeletedCount) {
+        this.lastDeletedCount = lastDeletedCount;
+    }
+
+    public boolean isLastFinished() {
+        return lastFinished;
+    }
+
+    public void setLastFinished(boolean lastFinished) {
+        this.lastFinished = lastFinished;
+    }
+
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+
+    public void setDeletedCount(long deletedCount) {
+        this.deletedCount = deletedCount;
+    }
+
+    public long getUnfinishedRunCount() {
+        return unfinishedRunCount;
+    }
+
+    public void setUnfinishedRunCount(long unfinishedRunCount) {
+        this.unfinishedRunCount = unfinishedRunCount;
+    }
+
+    public long getFailedRunCount() {
+        return failedRunCount;
+    }
+
+    public void setFailedRunCount(long failedRunCount) {
+        this.failedRunCount = failedRunCount;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.entity;
+
+/**
+ * Id, measure and metric name of a job, read by list and summary queries
+ * without loading its data segments.
+ */
+public class JobSummary {
+
+    private Long id;
+    private Long measureId;
+    private String jobName;
+    private String metricName;
+
+    public JobSummary(Long id, Long measureId, String jobName,
+                      String metricName) {
+        this.id = id;
+        this.measureId = measureId;
+        this.jobName = jobName;
+        this.metricName = metricName;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getMeasureId() {
+        return measureId;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
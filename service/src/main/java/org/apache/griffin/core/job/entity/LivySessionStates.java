@@ -31,6 +31,8 @@ import static org.apache.griffin.core.job.entity.LivySessionStates.State.STOPPED
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.SUCCESS;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.UNKNOWN;
 
+import java.util.Locale;
+
 import com.cloudera.livy.sessions.SessionState;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -125,6 +127,28 @@ public class LivySessionStates {
         }
     }
 
+    /**
+     * Parse a state reported by Livy for a batch or session.
+     *
+     * @param value state value of Livy, case insensitive
+     * @return DEAD for a killed batch, UNKNOWN for a state this enum does
+     * not know, or null if Livy reports no state
+     */
+    public static State parseLivyState(String value) {
+        if (value == null) {
+            return null;
+        }
+        String name = value.toUpperCase(Locale.ROOT);
+        if ("KILLED".equals(name)) {
+            return DEAD;
+        }
+        try {
+            return State.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+
     public static boolean isActive(State state) {
         if (UNKNOWN.equals(state) || STOPPED.equals(state) || NOT_FOUND.equals
             (state) || FOUND.equals(state)) {
@@ -0,0 +1,96 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.entity;
+
+/**
+ * Counters of one organization in the Livy submission scheduler. The fair
+ * share is the number of slots its weight entitles it to among the
+ * organizations with tasks queued or running, and queue waits are in
+ * milliseconds.
+ */
+public class LivySubmitOrgStats {
+
+    private double weight;
+    private double fairShare;
+    private int queuedTasks;
+    private int runningTasks;
+    private long maxQueueWait;
+    private double averageQueueWait;
+    private long oldestQueueWait;
+
+    public LivySubmitOrgStats() {
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public void setWeight(double weight) {
+        this.weight = weight;
+    }
+
+    public double getFairShare() {
+        return fairShare;
+    }
+
+    public void setFairShare(double fairShare) {
+        this.fairShare = fairShare;
+    }
+
+    public int getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    public void setQueuedTasks(int queuedTasks) {
+        this.queuedTasks = queuedTasks;
+    }
+
+    public int getRunningTasks() {
+        return runningTasks;
+    }
+
+    public void setRunningTasks(int runningTasks) {
+        this.runningTasks = runningTasks;
+    }
+
+    public long getMaxQueueWait() {
+        return maxQueueWait;
+    }
+
+    public void setMaxQueueWait(long maxQueueWait) {
+        this.maxQueueWait = maxQueueWait;
+    }
+
+    public double getAverageQueueWait() {
+        return averageQueueWait;
+    }
+
+    public void setAverageQueueWait(double averageQueueWait) {
+        this.averageQueueWait = averageQueueWait;
+    }
+
+    public long getOldestQueueWait() {
+        return oldestQueueWait;
+    }
+
+    public void setOldestQueueWait(long oldestQueueWait) {
+        this.oldestQueueWait = oldestQueueWait;
+    }
+}
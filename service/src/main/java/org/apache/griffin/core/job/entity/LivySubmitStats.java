@@ -0,0 +1,143 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.entity;
+
+import java.util.Map;
+
+/**
+ * Counters of the Livy submission scheduler. Running tasks are the ones
+ * holding a permit, and queue waits are in milliseconds. Counters of each
+ * organization are keyed by its name.
+ */
+public class LivySubmitStats {
+
+    private int queuedTasks;
+    private int runningTasks;
+    private int maxConcurrentTasks;
+    private long submittedCount;
+    private long failedCount;
+    private long discardedCount;
+    private long missedDeadlineCount;
+    private long lastQueueWait;
+    private long maxQueueWait;
+    private double averageQueueWait;
+    private long oldestQueueWait;
+    private Map<String, LivySubmitOrgStats> organizations;
+
+    public LivySubmitStats() {
+    }
+
+    public int getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    public void setQueuedTasks(int queuedTasks) {
+        this.queuedTasks = queuedTasks;
+    }
+
+    public int getRunningTasks() {
+        return runningTasks;
+    }
+
+    public void setRunningTasks(int runningTasks) {
+        this.runningTasks = runningTasks;
+    }
+
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    public void setMaxConcurrentTasks(int maxConcurrentTasks) {
+        this.maxConcurrentTasks = maxConcurrentTasks;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    public void setSubmittedCount(long submittedCount) {
+        this.submittedCount = submittedCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public long getDiscardedCount() {
+        return discardedCount;
+    }
+
+    public void setDiscardedCount(long discardedCount) {
+        this.discardedCount = discardedCount;
+    }
+
+    public long getMissedDeadlineCount() {
+        return missedDeadlineCount;
+    }
+
+    public void setMissedDeadlineCount(long missedDeadlineCount) {
+        this.missedDeadlineCount = missedDeadlineCount;
+    }
+
+    public long getLastQueueWait() {
+        return lastQueueWait;
+    }
+
+    public void setLastQueueWait(long lastQueueWait) {
+        this.lastQueueWait = lastQueueWait;
+    }
+
+    public long getMaxQueueWait() {
+        return maxQueueWait;
+    }
+
+    public void setMaxQueueWait(long maxQueueWait) {
+        this.maxQueueWait = maxQueueWait;
+    }
+
+    public double getAverageQueueWait() {
+        return averageQueueWait;
+    }
+
+    public void setAverageQueueWait(double averageQueueWait) {
+        this.averageQueueWait = averageQueueWait;
+    }
+
+    public long getOldestQueueWait() {
+        return oldestQueueWait;
+    }
+
+    public void setOldestQueueWait(long oldestQueueWait) {
+        this.oldestQueueWait = oldestQueueWait;
+    }
+
+    public Map<String, LivySubmitOrgStats> getOrganizations() {
+        return organizations;
+    }
+
+    public void setOrganizations(
+        Map<String, LivySubmitOrgStats> organizations) {
+        this.organizations = organizations;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.entity;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+import org.apache.griffin.core.measure.entity.AbstractAuditableEntity;
+
+/**
+ * A job instance waiting for its predicates to hold, checked by the
+ * predicate engine every interval until the checks run out.
+ * <p>
+ * Rows are claimed by the engine of one node at a time, so they are not
+ * cached, as other nodes change them.
+ */
+@Entity
+@Cacheable(false)
+@Table(indexes = {@Index(columnList = "predicate_job_name", unique = true)})
+public class PendingPredicate extends AbstractAuditableEntity {
+
+    private static final long serialVersionUID = 3563167960291658127L;
+
+    @Column(name = "predicate_job_name", nullable = false)
+    private String predicateName;
+
+    @Column(name = "predicate_group_name")
+    private String predicateGroup;
+
+    private String jobName;
+
+    /**
+     * snapshot of the measure to submit, shared by all runs of the job
+     */
+    private Long measureSnapshotId;
+
+    /**
+     * timestamp of the run to put into the measure snapshot
+     */
+    private Long measureTimestamp;
+
+    /**
+     * json of the connector configs with partitions of the scheduled time
+     * filled in, by connector name, to put into the measure snapshot
+     */
+    @Lob
+    private String connectorConfigs;
+
+    /**
+     * measure json of the instances pending before measure snapshots
+     */
+    @Lob
+    private String measure;
+
+    @Lob
+    private String predicates;
+
+    private Long submitDeadline;
+
+    private String organization;
+
+    @Column(name = "check_interval")
+    private Long interval;
+
+    private int repeatCount;
+
+    private int checkCount;
+
+    private Long nextCheckTms;
+
+    /**
+     * node whose engine claimed the row to check it
+     */
+    private String owner;
+
+    /**
+     * time the claim of the owner runs out, after which any node may claim
+     * the row again
+     */
+    private Long leaseTms;
+
+    public String getPredicateName() {
+        return predicateName;
+    }
+
+    public void setPredicateName(String predicateName) {
+        this.predicateName = predicateName;
+    }
+
+    public String getPredicateGroup() {
+        return predicateGroup;
+    }
+
+    public void setPredicateGroup(String predicateGroup) {
+        this.predicateGroup = predicateGroup;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public Long getMeasureSnapshotId() {
+        return measureSnapshotId;
+    }
+
+    public void setMeasureSnapshotId(Long measureSnapshotId) {
+        this.measureSnapshotId = measureSnapshotId;
+    }
+
+    public Long getMeasureTimestamp() {
+        return measureTimestamp;
+    }
+
+    public void setMeasureTimestamp(Long measureTimestamp) {
+        this.measureTimestamp = measureTimestamp;
+    }
+
+    public String getConnectorConfigs() {
+        return connectorConfigs;
+    }
+
+    public void setConnectorConfigs(String connectorConfigs) {
+        this.connectorConfigs = connectorConfigs;
+    }
+
+    public String getMeasure() {
+        return measure;
+    }
+
+    public void setMeasure(String measure) {
+        this.measure = measure;
+    }
+
+    public String getPredicates() {
+        return predicates;
+    }
+
+    public void setPredicates(String predicates) {
+        this.predicates = predicates;
+    }
+
+    public Long getSubmitDeadline() {
+        return submitDeadline;
+    }
+
+    public void setSubmitDeadline(Long submitDeadline) {
+        this.submitDeadline = submitDeadline;
+    }
+
+    public String getOrganization() {
+        return organization;
+    }
+
+    public void setOrganization(String organization) {
+        this.organization = organization;
+    }
+
+    public Long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Long interval) {
+        this.interval = interval;
+    }
+
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    public void setRepeatCount(int repeatCount) {
+        this.repeatCount = repeatCount;
+    }
+
+    public int getCheckCount() {
+        return checkCount;
+    }
+
+    public void setCheckCount(int checkCount) {
+        this.checkCount = checkCount;
+    }
+
+    public Long getNextCheckTms() {
+        return nextCheckTms;
+    }
+
+    public void setNextCheckTms(Long nextCheckTms) {
+        this.nextCheckTms = nextCheckTms;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Long getLeaseTms() {
+        return leaseTms;
+    }
+
+    public void setLeaseTms(Long leaseTms) {
+        this.leaseTms = leaseTms;
+    }
+
+    public PendingPredicate() {
+    }
+
+    public PendingPredicate(String predicateName, String predicateGroup,
+                            String jobName, Long interval,
+                            int repeatCount) {
+        this.predicateName = predicateName;
+        this.predicateGroup = predicateGroup;
+        this.jobName = jobName;
+        this.interval = interval;
+        this.repeatCount = repeatCount;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.repo;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.griffin.core.job.entity.ArchivedJobInstance;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ArchivedJobInstanceRepo
+    extends BaseJpaRepository<ArchivedJobInstance, Long> {
+
+    ArchivedJobInstance findByInstanceId(Long instanceId);
+
+    @Query("select a from ArchivedJobInstance a where a.jobId = ?1")
+    List<ArchivedJobInstance> findByJobId(Long jobId, Pageable pageable);
+
+    List<ArchivedJobInstance> findByTriggerKey(String triggerKey);
+
+    @Query("select a.id from ArchivedJobInstance a " +
+        "where a.expireTms <= ?1 order by a.id")
+    List<Long> findExpiredIds(Long expireTms, Pageable pageable);
+
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("delete from ArchivedJobInstance a where a.id in ?1")
+    int deleteByIdIn(Collection<Long> ids);
+}
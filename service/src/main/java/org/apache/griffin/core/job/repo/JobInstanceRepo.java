@@ -24,6 +24,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 import static org.apache.griffin.core.job.entity.LivySessionStates.State;
@@ -32,6 +33,8 @@ public interface JobInstanceRepo extends BaseJpaRepository<JobInstanceBean, Long
 
     JobInstanceBean findByPredicateName(String name);
 
+    List<JobInstanceBean> findByPredicateNameIn(Collection<String> names);
+
     @Query("select s from JobInstanceBean s where s.id = ?1")
     JobInstanceBean findByInstanceId(Long id);
 
@@ -41,6 +44,14 @@ public interface JobInstanceRepo extends BaseJpaRepository<JobInstanceBean, Long
     @Query("select s from JobInstanceBean s where s.job.id = ?1")
     List<JobInstanceBean> findByJobId(Long jobId);
 
+    /**
+     * @return job id, state and time of the latest instance of each job
+     */
+    @Query("select s.job.id, s.state, s.tms from JobInstanceBean s " +
+            "where s.job.id in ?1 and s.tms = (select max(t.tms) " +
+            "from JobInstanceBean t where t.job.id = s.job.id)")
+    List<Object[]> findLatestOfJobs(Collection<Long> jobIds);
+
     List<JobInstanceBean> findByExpireTmsLessThanEqual(Long expireTms);
 
     @Transactional(rollbackFor = Exception.class)
@@ -49,6 +60,33 @@ public interface JobInstanceRepo extends BaseJpaRepository<JobInstanceBean, Long
             "where j.expireTms <= ?1 and j.deleted = false ")
     int deleteByExpireTimestamp(Long expireTms);
 
+    /**
+     * @return expired instances of ids greater than afterId in the order of
+     * id, so that they are paged through while earlier pages are deleted
+     */
+    @Query("select s from JobInstanceBean s where s.expireTms <= ?1 " +
+            "and s.deleted = false and s.id > ?2 order by s.id")
+    List<JobInstanceBean> findExpiredAfter(Long expireTms, Long afterId,
+                                           Pageable pageable);
+
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("delete from JobInstanceBean j where j.id in ?1")
+    int deleteByIdIn(Collection<Long> ids);
+
+    /**
+     * @return instances of ids greater than afterId in the order of id, in
+     * one of the given states since before tms, except the latest one of
+     * each job, which job health is computed from
+     */
+    @Query("select s from JobInstanceBean s where s.tms <= ?1 " +
+            "and s.state in ?2 and s.id > ?3 and s.tms < (select " +
+            "max(t.tms) from JobInstanceBean t where t.job.id = s.job.id) " +
+            "order by s.id")
+    List<JobInstanceBean> findArchivableAfter(Long tms, State[] states,
+                                              Long afterId,
+                                              Pageable pageable);
+
     @Query("select DISTINCT s from JobInstanceBean s where s.state in ?1")
     List<JobInstanceBean> findByActiveState(State[] states);
 
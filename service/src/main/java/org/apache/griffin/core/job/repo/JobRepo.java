@@ -20,6 +20,7 @@ under the License.
 package org.apache.griffin.core.job.repo;
 
 import org.apache.griffin.core.job.entity.AbstractJob;
+import org.apache.griffin.core.job.entity.JobSummary;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
@@ -32,6 +33,14 @@ public interface JobRepo<T extends AbstractJob> extends BaseJpaRepository<T, Lon
 
     List<T> findByDeleted(boolean deleted);
 
+    /**
+     * @return summaries of jobs, without loading their segments
+     */
+    @Query("select new org.apache.griffin.core.job.entity.JobSummary(" +
+        "j.id, j.measureId, j.jobName, j.metricName) " +
+        "from #{#entityName} j where j.deleted = ?1")
+    List<JobSummary> findSummaryByDeleted(boolean deleted);
+
     List<T> findByJobNameAndDeleted(String jobName, boolean deleted);
 
     List<T> findByMeasureIdAndDeleted(Long measureId, boolean deleted);
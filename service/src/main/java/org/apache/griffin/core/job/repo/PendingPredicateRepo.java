@@ -0,0 +1,101 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.repo;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.griffin.core.job.entity.PendingPredicate;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface PendingPredicateRepo
+    extends BaseJpaRepository<PendingPredicate, Long> {
+
+    List<PendingPredicate> findByPredicateNameIn(Collection<String> names);
+
+    /**
+     * @return predicate name and next check time of all pending predicates,
+     * without loading their measures
+     */
+    @Query("select p.predicateName, p.nextCheckTms from PendingPredicate p")
+    List<Object[]> findSchedule();
+
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("delete from PendingPredicate p where p.predicateName = ?1")
+    int deleteByPredicateName(String name);
+
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("delete from PendingPredicate p where p.predicateName in ?1")
+    int deleteByPredicateNameIn(Collection<String> names);
+
+    /**
+     * Claim the given rows for an owner unless another claim still holds.
+     *
+     * @param dueBy claim only rows due by then
+     * @return the number of rows claimed
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("update PendingPredicate p set p.owner = ?2, p.leaseTms = ?3 " +
+        "where p.predicateName in ?1 " +
+        "and (p.leaseTms is null or p.leaseTms <= ?4) " +
+        "and (p.nextCheckTms is null or p.nextCheckTms <= ?5)")
+    int claim(Collection<String> names, String owner, long leaseTms,
+              long now, long dueBy);
+
+    /**
+     * Count a failed check of claimed rows and release them until they
+     * are due again.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("update PendingPredicate p set p.checkCount = p.checkCount + 1, " +
+        "p.nextCheckTms = ?4 + p.interval, p.owner = null, " +
+        "p.leaseTms = null where p.predicateName in ?1 " +
+        "and p.owner = ?2 and p.leaseTms = ?3")
+    int rescheduleFailed(Collection<String> names, String owner,
+                         long leaseTms, long now);
+
+    /**
+     * Keep claimed rows which are submitted until they are due again,
+     * when a lost submit is retried.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("update PendingPredicate p set p.nextCheckTms = ?4 + p.interval, " +
+        "p.leaseTms = ?4 + p.interval where p.predicateName in ?1 " +
+        "and p.owner = ?2 and p.leaseTms = ?3")
+    int rescheduleSubmitted(Collection<String> names, String owner,
+                            long leaseTms, long now);
+
+    /**
+     * Release claimed rows without counting their check.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("update PendingPredicate p set p.owner = null, " +
+        "p.leaseTms = null where p.predicateName in ?1 " +
+        "and p.owner = ?2 and p.leaseTms = ?3")
+    int release(Collection<String> names, String owner, long leaseTms);
+}
@@ -28,8 +28,7 @@ import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.griffin.core.exception.GriffinException;
-import org.apache.griffin.core.measure.entity.GriffinMeasure;
-import org.apache.griffin.core.measure.entity.Measure;
+import org.apache.griffin.core.measure.entity.MeasureSummary;
 import org.apache.griffin.core.measure.repo.GriffinMeasureRepo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -58,8 +57,9 @@ public class MeasureOrgServiceImpl implements MeasureOrgService {
     @Override
     public Map<String, List<String>> getMeasureNamesGroupByOrg() {
         Map<String, List<String>> orgWithMetricsMap = new HashMap<>();
-        List<GriffinMeasure> measures = measureRepo.findByDeleted(false);
-        for (Measure measure : measures) {
+        List<MeasureSummary> measures = measureRepo.findSummaryByDeleted(
+            false);
+        for (MeasureSummary measure : measures) {
             String orgName = measure.getOrganization();
             orgName = orgName == null ? "null" : orgName;
             String measureName = measure.getName();
@@ -77,11 +77,12 @@ public class MeasureOrgServiceImpl implements MeasureOrgService {
         List<Map<String, Object>>> jobDetails) {
         Map<String, Map<String, List<Map<String, Object>>>> result =
             new HashMap<>();
-        List<GriffinMeasure> measures = measureRepo.findByDeleted(false);
+        List<MeasureSummary> measures = measureRepo.findSummaryByDeleted(
+            false);
         if (measures == null) {
             return null;
         }
-        for (Measure measure : measures) {
+        for (MeasureSummary measure : measures) {
             String orgName = measure.getOrganization();
             String measureName = measure.getName();
             String measureId = measure.getId().toString();
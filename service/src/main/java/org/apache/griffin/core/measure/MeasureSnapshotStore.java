@@ -0,0 +1,224 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.measure;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.griffin.core.measure.entity.GriffinMeasure;
+import org.apache.griffin.core.measure.entity.MeasureSnapshot;
+import org.apache.griffin.core.measure.repo.MeasureSnapshotRepo;
+import org.apache.griffin.core.util.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores the measures job instances submit as immutable snapshots, one per
+ * distinct content, and keeps the parsed snapshots in memory, so that a
+ * submit does no json work for a snapshot parsed before.
+ * <p>
+ * Snapshots are taken before the values of a run are filled in, that is the
+ * timestamp and the partitions in the connector configs, so that all runs of
+ * a job share one snapshot. Those values are kept with each instance and
+ * put into the snapshot as it's submitted.
+ */
+@Component
+public class MeasureSnapshotStore {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(MeasureSnapshotStore.class);
+    private static final int MAX_CACHED_SNAPSHOTS = 1000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private MeasureSnapshotRepo snapshotRepo;
+
+    /**
+     * how long an unused snapshot is kept, which should be longer than
+     * a job instance may wait for its predicates
+     */
+    @Value("${measure.snapshot.retention.in.milliseconds:86400000}")
+    private long retention = 86400000L;
+
+    /**
+     * parsed snapshots by id, guarded by itself
+     */
+    private final Map<Long, ParsedSnapshot> parsed = Collections
+        .synchronizedMap(new LinkedHashMap<Long, ParsedSnapshot>(16, 0.75f,
+            true) {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<Long, ParsedSnapshot> eldest) {
+                return size() > MAX_CACHED_SNAPSHOTS;
+            }
+        });
+
+    /**
+     * @param measure measure to submit
+     * @return id of the snapshot with the same content, saved first if
+     * there is none yet
+     */
+    public Long save(GriffinMeasure measure) throws IOException {
+        String content = JsonUtil.toJson(measure);
+        String digest = digest(content);
+        long now = System.currentTimeMillis();
+        MeasureSnapshot snapshot = snapshotRepo.findByDigest(digest);
+        // a snapshot used within half the retention is not purged before
+        // the instance refers to it, an older one is marked as used unless
+        // it's purged meanwhile
+        if (snapshot != null && (isRecentlyUsed(snapshot, now)
+            || snapshotRepo.touch(snapshot.getId(), now) > 0)) {
+            return snapshot.getId();
+        }
+        try {
+            return snapshotRepo.save(new MeasureSnapshot(measure.getId(),
+                digest, content)).getId();
+        } catch (DataIntegrityViolationException e) {
+            // saved by another job at the same time
+            snapshot = snapshotRepo.findByDigest(digest);
+            if (snapshot == null) {
+                throw e;
+            }
+            return snapshot.getId();
+        }
+    }
+
+    /**
+     * @param id   snapshot id
+     * @param name name to submit the measure with, that is the job name
+     * @return the parsed snapshot, shared by callers, so it must not be
+     * modified, or null if it doesn't exist
+     */
+    public ParsedSnapshot get(Long id, String name) throws IOException {
+        ParsedSnapshot snapshot = parsed.get(id);
+        if (snapshot != null && Objects.equals(snapshot.measure.getName(), name)) {
+            return snapshot;
+        }
+        MeasureSnapshot stored = snapshotRepo.findById(id).orElse(null);
+        if (stored == null) {
+            return null;
+        }
+        GriffinMeasure measure = JsonUtil.toEntity(stored.getContent(),
+            GriffinMeasure.class);
+        measure.setName(name);
+        snapshot = new ParsedSnapshot(measure,
+            JsonUtil.toJsonWithFormat(measure));
+        parsed.put(id, snapshot);
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString =
+        "${measure.snapshot.purge.interval.in.milliseconds:3600000}")
+    public void purge() {
+        int count = snapshotRepo.deleteUnusedBefore(
+            System.currentTimeMillis() - retention);
+        if (count > 0) {
+            LOGGER.info("Delete {} unused measure snapshots.", count);
+        }
+    }
+
+    private boolean isRecentlyUsed(MeasureSnapshot snapshot, long now) {
+        return snapshot.getUsedTms() != null
+            && snapshot.getUsedTms() > now - retention / 2;
+    }
+
+    private static String digest(String content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                .digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class ParsedSnapshot {
+        private final GriffinMeasure measure;
+        private final String json;
+        private final ObjectNode tree;
+
+        ParsedSnapshot(GriffinMeasure measure, String json) {
+            this.measure = measure;
+            this.json = json;
+            this.tree = MAPPER.valueToTree(measure);
+        }
+
+        public GriffinMeasure getMeasure() {
+            return measure;
+        }
+
+        /**
+         * the measure formatted as it's posted to Livy
+         */
+        public String getJson() {
+            return json;
+        }
+
+        /**
+         * @param timestamp        timestamp of the run, or null
+         * @param connectorConfigs configs of the run by connector name
+         * @return the measure of a run formatted as it's posted to Livy
+         */
+        public String getJson(Long timestamp,
+                              Map<String, Map<String, Object>> connectorConfigs)
+            throws JsonProcessingException {
+            if (timestamp == null && (connectorConfigs == null
+                || connectorConfigs.isEmpty())) {
+                return json;
+            }
+            ObjectNode run = tree.deepCopy();
+            if (timestamp != null) {
+                run.put("timestamp", timestamp);
+            }
+            if (connectorConfigs != null) {
+                for (JsonNode source : run.path("data.sources")) {
+                    JsonNode connector = source.path("connector");
+                    Map<String, Object> config = connectorConfigs.get(
+                        connector.path("name").asText());
+                    if (config != null && connector instanceof ObjectNode) {
+                        ((ObjectNode) connector).set("config",
+                            MAPPER.valueToTree(config));
+                    }
+                }
+            }
+            return MAPPER.writer().withDefaultPrettyPrinter()
+                .writeValueAsString(run);
+        }
+    }
+}
@@ -45,6 +45,8 @@ import javax.validation.constraints.NotNull;
 
 import org.apache.griffin.core.job.entity.SegmentPredicate;
 import org.apache.griffin.core.util.JsonUtil;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.CollectionUtils;
@@ -95,11 +97,13 @@ public class DataConnector extends AbstractAuditableEntity {
     @Transient
     private Map<String, Object> configMap;
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST,
         CascadeType.REMOVE, CascadeType.MERGE})
     @JoinColumn(name = "data_connector_id")
     private List<SegmentPredicate> predicates = new ArrayList<>();
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST,
         CascadeType.REMOVE, CascadeType.MERGE})
     @JoinColumn(name = "pre_process_id")
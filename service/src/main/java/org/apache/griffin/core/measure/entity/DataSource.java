@@ -32,6 +32,8 @@ import java.util.Map;
 import javax.persistence.*;
 
 import org.apache.griffin.core.util.JsonUtil;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 import org.springframework.util.StringUtils;
 
 @Entity
@@ -40,6 +42,7 @@ public class DataSource extends AbstractAuditableEntity {
 
     private String name;
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToOne(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST,
         CascadeType.REMOVE, CascadeType.MERGE})
     @JoinColumn(name = "data_source_id")
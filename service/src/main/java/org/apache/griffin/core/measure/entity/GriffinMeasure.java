@@ -46,6 +46,8 @@ import javax.validation.constraints.NotNull;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.griffin.core.util.JsonUtil;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 import org.springframework.util.StringUtils;
 
 /**
@@ -78,12 +80,14 @@ public class GriffinMeasure extends Measure {
     private Map<String, Object> ruleDescriptionMap;
 
     @NotNull
+    @BatchFetch(BatchFetchType.IN)
     @OneToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST,
         CascadeType.REMOVE, CascadeType.MERGE})
     @JoinColumn(name = "measure_id")
     private List<DataSource> dataSources = new ArrayList<>();
 
     @NotNull
+    @BatchFetch(BatchFetchType.IN)
     @OneToOne(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST,
         CascadeType.REMOVE, CascadeType.MERGE})
     @JoinColumn(name = "evaluate_rule_id")
@@ -0,0 +1,82 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.measure.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+/**
+ * An immutable copy of a measure as a job instance submits it, stored once
+ * per distinct content and referenced by id, instead of the measure json
+ * being carried along with each instance.
+ */
+@Entity
+@Table(indexes = {@Index(columnList = "digest", unique = true)})
+public class MeasureSnapshot extends AbstractAuditableEntity {
+
+    private static final long serialVersionUID = -2170563513437311092L;
+
+    private Long measureId;
+
+    /**
+     * sha-256 of the content, telling snapshots apart
+     */
+    @Column(nullable = false, length = 64)
+    private String digest;
+
+    @Lob
+    @Column(nullable = false)
+    private String content;
+
+    /**
+     * last time a job instance took the snapshot, unused ones are purged
+     * a while after it
+     */
+    private Long usedTms;
+
+    public Long getMeasureId() {
+        return measureId;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Long getUsedTms() {
+        return usedTms;
+    }
+
+    protected MeasureSnapshot() {
+    }
+
+    public MeasureSnapshot(Long measureId, String digest, String content) {
+        this.measureId = measureId;
+        this.digest = digest;
+        this.content = content;
+        this.usedTms = getCreatedDate();
+    }
+}
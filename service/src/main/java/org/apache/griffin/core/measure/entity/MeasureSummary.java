@@ -0,0 +1,62 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.measure.entity;
+
+/**
+ * Id, name and owning organization of a measure, read by list and summary
+ * queries without loading its data sources and rules.
+ */
+public class MeasureSummary {
+
+    private Long id;
+    private String name;
+    private String owner;
+    private String organization;
+    private DqType dqType;
+
+    public MeasureSummary(Long id, String name, String owner,
+                          String organization, DqType dqType) {
+        this.id = id;
+        this.name = name;
+        this.owner = owner;
+        this.organization = organization;
+        this.dqType = dqType;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getOrganization() {
+        return organization;
+    }
+
+    public DqType getDqType() {
+        return dqType;
+    }
+}
@@ -22,6 +22,7 @@ package org.apache.griffin.core.measure.repo;
 
 import org.apache.griffin.core.job.repo.BaseJpaRepository;
 import org.apache.griffin.core.measure.entity.Measure;
+import org.apache.griffin.core.measure.entity.MeasureSummary;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
@@ -50,6 +51,18 @@ public interface MeasureRepo<T extends Measure> extends BaseJpaRepository<T, Lon
      */
     List<T> findByDeleted(Boolean deleted);
 
+    /**
+     * search summaries by deletion state, without loading data sources and
+     * rules of measures
+     *
+     * @param deleted query condition
+     * @return measure summary collection
+     */
+    @Query("select new org.apache.griffin.core.measure.entity.MeasureSummary("
+            + "m.id, m.name, m.owner, m.organization, m.dqType) "
+            + "from #{#entityName} m where m.deleted = ?1")
+    List<MeasureSummary> findSummaryByDeleted(Boolean deleted);
+
     /**
      * search repository by owner and deletion state
      *
@@ -0,0 +1,55 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.measure.repo;
+
+import org.apache.griffin.core.measure.entity.MeasureSnapshot;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface MeasureSnapshotRepo
+    extends CrudRepository<MeasureSnapshot, Long> {
+
+    MeasureSnapshot findByDigest(String digest);
+
+    /**
+     * Mark a snapshot as used, so that it's not purged before a pending job
+     * instance refers to it.
+     *
+     * @return 0 if the snapshot is purged already
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("update MeasureSnapshot s set s.usedTms = ?2 where s.id = ?1")
+    int touch(Long id, Long tms);
+
+    /**
+     * Delete the snapshots last used before a time which no pending job
+     * instance refers to any more.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("delete from MeasureSnapshot s where (s.usedTms < ?1 or " +
+        "(s.usedTms is null and s.createdDate < ?1)) and " +
+        "not exists (select p from PendingPredicate p " +
+        "where p.measureSnapshotId = s.id)")
+    int deleteUnusedBefore(Long tms);
+}
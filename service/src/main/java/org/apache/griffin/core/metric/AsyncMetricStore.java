@@ -0,0 +1,60 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricCursor;
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricValuePage;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Metric store whose calls return at once and complete on the store's own
+ * threads, so that a slow store does not hold the calling thread.
+ * <p>
+ * Failures complete the returned future exceptionally, and a call which is
+ * not answered in time fails with {@link MetricStoreTimeoutException}.
+ */
+public interface AsyncMetricStore extends MetricStore {
+
+    CompletableFuture<List<MetricValue>> getMetricValuesAsync(
+        String metricName, int from, int size, long tmst);
+
+    CompletableFuture<MetricValuePage> getMetricValuePageAsync(
+        String metricName, int size, MetricCursor after);
+
+    CompletableFuture<List<MetricBucket>> aggregateMetricValuesAsync(
+        String metricName, long from, long to, long interval,
+        List<String> fields);
+
+    CompletableFuture<ResponseEntity<?>> addMetricValuesAsync(
+        List<MetricValue> metricValues);
+
+    CompletableFuture<ResponseEntity<?>> deleteMetricValuesAsync(
+        String metricName);
+
+    /**
+     * @return future of the latest metric value of the application, or of
+     * null if there is none
+     */
+    CompletableFuture<MetricValue> getMetricAsync(String applicationId);
+}
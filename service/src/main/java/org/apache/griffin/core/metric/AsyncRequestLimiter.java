@@ -0,0 +1,137 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of asynchronous requests in flight without blocking the
+ * caller. Requests beyond the cap wait in a bounded queue and are started
+ * as running ones complete; when the queue is full they fail at once.
+ * <p>
+ * Cancelling the future of a request gives up its place in the queue. A
+ * running request keeps its slot until the rest client completes it, as
+ * the client cannot abort it, and its response is then dropped.
+ */
+class AsyncRequestLimiter {
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    private final Semaphore permits;
+    private final int maxPending;
+    private final Queue<Request<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    AsyncRequestLimiter(int maxInFlight, int maxPending) {
+        this.permits = new Semaphore(maxInFlight);
+        this.maxPending = maxPending;
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+        Request<T> task = new Request<>(request);
+        task.result.whenComplete((value, e) -> {
+            if (task.result.isCancelled()) {
+                abandon(task);
+            }
+        });
+        if (permits.tryAcquire()) {
+            task.run();
+            return task.result;
+        }
+        if (pendingCount.incrementAndGet() > maxPending) {
+            pendingCount.decrementAndGet();
+            task.state.set(DONE);
+            task.result.completeExceptionally(new RejectedExecutionException(
+                "Too many pending metric store requests."));
+            return task.result;
+        }
+        pending.add(task);
+        // a permit may have been released between tryAcquire and add
+        drain();
+        return task.result;
+    }
+
+    private void abandon(Request<?> task) {
+        // unless polled meanwhile, then it gives its permit back itself
+        if (task.state.compareAndSet(QUEUED, DONE) && pending.remove(task)) {
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    private void release() {
+        permits.release();
+        drain();
+    }
+
+    private void drain() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            Request<?> next = pending.poll();
+            if (next == null) {
+                permits.release();
+            } else {
+                pendingCount.decrementAndGet();
+                next.run();
+            }
+        }
+    }
+
+    /**
+     * A request which runs holding a permit.
+     */
+    private final class Request<T> {
+        private final Supplier<CompletableFuture<T>> request;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        Request(Supplier<CompletableFuture<T>> request) {
+            this.request = request;
+        }
+
+        void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                // cancelled while queued
+                release();
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = request.get();
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((value, e) -> {
+                state.set(DONE);
+                release();
+                if (e != null) {
+                    result.completeExceptionally(MetricStoreFutures.unwrap(e));
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,522 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.metric;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricBulkError;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricCacheStats;
+import org.apache.griffin.core.metric.model.MetricCursor;
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricValuePage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-through cache in front of the metric store backend.
+ * <p>
+ * Metric value windows are cached by (metric name, from, size) in a bounded
+ * LRU map whose entries also expire after a fixed time. Concurrent misses of
+ * the same window share one backend call, and every write or delete of a
+ * metric name drops all cached windows of that name.
+ * <p>
+ * Asynchronous calls go through the same cache, and are passed on
+ * asynchronously if the backend supports it.
+ * <p>
+ * The latest metric value of each application id is kept in a second
+ * bounded LRU map. It is filled by successful writes and by lookups, so
+ * the metric of a recently finished job instance is found without asking
+ * the backend.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "metric.cache.enabled", havingValue = "true")
+public class CachingMetricStore implements AsyncMetricStore {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(CachingMetricStore.class);
+
+    private final MetricStore delegate;
+    private final int maxSize;
+    private final long expireMillis;
+
+    /**
+     * access ordered, guarded by this
+     */
+    private final LinkedHashMap<CacheKey, CacheEntry> entries;
+    private final ConcurrentMap<CacheKey, CompletableFuture<List<MetricValue>>>
+        loadings = new ConcurrentHashMap<>();
+    /**
+     * Bumped on every invalidation of a metric name, so that a load which
+     * started before the invalidation does not put stale values back.
+     */
+    private final ConcurrentMap<String, AtomicLong> versions =
+        new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    @Value("${metric.cache.application.max.size:10000}")
+    private int maxApplications = 10000;
+    /**
+     * latest metric value of each application id, access ordered, guarded
+     * by itself
+     */
+    private final LinkedHashMap<String, MetricValue> latestOfApplications =
+        new LinkedHashMap<String, MetricValue>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<String, MetricValue> eldest) {
+                return size() > maxApplications;
+            }
+        };
+
+    public CachingMetricStore(
+        @Qualifier(value = "metricStoreBackend") MetricStore delegate,
+        @Value("${metric.cache.max.size:1000}") int maxSize,
+        @Value("${metric.cache.expire.in.milliseconds:60000}")
+            long expireMillis) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.expireMillis = expireMillis;
+        this.entries = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f,
+            true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<CacheKey, CacheEntry> eldest) {
+                if (size() > CachingMetricStore.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        LOGGER.info("Metric cache is enabled. max size: {}, expire: {}ms",
+            maxSize, expireMillis);
+    }
+
+    @Override
+    public List<MetricValue> getMetricValues(String metricName, int from,
+                                             int size, long tmst)
+        throws IOException {
+        return MetricStoreFutures.await(getMetricValuesAsync(metricName, from,
+            size, tmst));
+    }
+
+    @Override
+    public CompletableFuture<List<MetricValue>> getMetricValuesAsync(
+        String metricName, int from, int size, long tmst) {
+        CacheKey key = new CacheKey(metricName, from, size);
+        List<MetricValue> values = getIfPresent(key);
+        if (values != null) {
+            hitCount.incrementAndGet();
+            return CompletableFuture.completedFuture(values);
+        }
+        missCount.incrementAndGet();
+        CompletableFuture<List<MetricValue>> loading = new CompletableFuture<>();
+        CompletableFuture<List<MetricValue>> existing = loadings
+            .putIfAbsent(key, loading);
+        if (existing != null) {
+            return existing;
+        }
+        long version = getVersion(metricName);
+        loadCount.incrementAndGet();
+        CompletableFuture<List<MetricValue>> load;
+        if (delegate instanceof AsyncMetricStore) {
+            load = ((AsyncMetricStore) delegate).getMetricValuesAsync(
+                metricName, from, size, tmst);
+        } else {
+            load = MetricStoreFutures.supply(() -> delegate.getMetricValues(
+                metricName, from, size, tmst));
+        }
+        load.whenComplete((loaded, e) -> {
+            loadings.remove(key, loading);
+            if (e != null) {
+                loading.completeExceptionally(MetricStoreFutures.unwrap(e));
+                return;
+            }
+            List<MetricValue> unmodifiable = Collections
+                .unmodifiableList(loaded);
+            putIfCurrent(key, unmodifiable, version);
+            loading.complete(unmodifiable);
+        });
+        return loading;
+    }
+
+    @Override
+    public Map<String, List<MetricValue>> getMetricValues(
+        List<String> metricNames, int from, int size) throws IOException {
+        Map<String, List<MetricValue>> metricValues = new HashMap<>();
+        Map<String, Long> missedVersions = new LinkedHashMap<>();
+        for (String name : new LinkedHashSet<>(metricNames)) {
+            List<MetricValue> values = getIfPresent(new CacheKey(name, from,
+                size));
+            if (values != null) {
+                hitCount.incrementAndGet();
+                metricValues.put(name, values);
+            } else {
+                missCount.incrementAndGet();
+                missedVersions.put(name, getVersion(name));
+            }
+        }
+        if (missedVersions.isEmpty()) {
+            return metricValues;
+        }
+        loadCount.incrementAndGet();
+        Map<String, List<MetricValue>> loaded = delegate.getMetricValues(
+            new ArrayList<>(missedVersions.keySet()), from, size);
+        for (Map.Entry<String, Long> entry : missedVersions.entrySet()) {
+            String name = entry.getKey();
+            List<MetricValue> values = Collections.unmodifiableList(loaded
+                .getOrDefault(name, Collections.emptyList()));
+            putIfCurrent(new CacheKey(name, from, size), values,
+                entry.getValue());
+            metricValues.put(name, values);
+        }
+        return metricValues;
+    }
+
+    @Override
+    public MetricValuePage getMetricValuePage(String metricName, int size,
+                                              MetricCursor after)
+        throws IOException {
+        return delegate.getMetricValuePage(metricName, size, after);
+    }
+
+    @Override
+    public CompletableFuture<MetricValuePage> getMetricValuePageAsync(
+        String metricName, int size, MetricCursor after) {
+        if (delegate instanceof AsyncMetricStore) {
+            return ((AsyncMetricStore) delegate).getMetricValuePageAsync(
+                metricName, size, after);
+        }
+        return MetricStoreFutures.supply(() -> delegate.getMetricValuePage(
+            metricName, size, after));
+    }
+
+    @Override
+    public List<MetricBucket> aggregateMetricValues(String metricName,
+                                                    long from, long to,
+                                                    long interval,
+                                                    List<String> fields)
+        throws IOException {
+        return delegate.aggregateMetricValues(metricName, from, to, interval,
+            fields);
+    }
+
+    @Override
+    public CompletableFuture<List<MetricBucket>> aggregateMetricValuesAsync(
+        String metricName, long from, long to, long interval,
+        List<String> fields) {
+        if (delegate instanceof AsyncMetricStore) {
+            return ((AsyncMetricStore) delegate).aggregateMetricValuesAsync(
+                metricName, from, to, interval, fields);
+        }
+        return MetricStoreFutures.supply(() -> delegate.aggregateMetricValues(
+            metricName, from, to, interval, fields));
+    }
+
+    @Override
+    public ResponseEntity<?> addMetricValues(List<MetricValue> metricValues)
+        throws IOException {
+        ResponseEntity<?> response;
+        try {
+            response = delegate.addMetricValues(metricValues);
+        } finally {
+            for (String name : new LinkedHashSet<>(getNames(metricValues))) {
+                invalidate(name);
+            }
+        }
+        putLatestOfApplications(metricValues);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<ResponseEntity<?>> addMetricValuesAsync(
+        List<MetricValue> metricValues) {
+        CompletableFuture<ResponseEntity<?>> future;
+        if (delegate instanceof AsyncMetricStore) {
+            future = ((AsyncMetricStore) delegate).addMetricValuesAsync(
+                metricValues);
+        } else {
+            future = MetricStoreFutures.supply(() -> delegate.addMetricValues(
+                metricValues));
+        }
+        return invalidateOnComplete(future.whenComplete((response, e) -> {
+            if (e == null) {
+                putLatestOfApplications(metricValues);
+            }
+        }), getNames(metricValues));
+    }
+
+    @Override
+    public MetricBulkResult bulkAddMetricValues(List<MetricValue> metricValues)
+        throws IOException {
+        MetricBulkResult result;
+        try {
+            result = delegate.bulkAddMetricValues(metricValues);
+        } finally {
+            for (String name : new LinkedHashSet<>(getNames(metricValues))) {
+                invalidate(name);
+            }
+        }
+        List<MetricValue> written = new ArrayList<>(metricValues);
+        for (MetricBulkError error : result.getErrors()) {
+            written.set((int) error.getPosition(), null);
+        }
+        putLatestOfApplications(written);
+        return result;
+    }
+
+    @Override
+    public ResponseEntity<?> deleteMetricValues(String metricName)
+        throws IOException {
+        try {
+            return delegate.deleteMetricValues(metricName);
+        } finally {
+            invalidate(metricName);
+            removeLatestOfApplications(metricName);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ResponseEntity<?>> deleteMetricValuesAsync(
+        String metricName) {
+        CompletableFuture<ResponseEntity<?>> future;
+        if (delegate instanceof AsyncMetricStore) {
+            future = ((AsyncMetricStore) delegate).deleteMetricValuesAsync(
+                metricName);
+        } else {
+            future = MetricStoreFutures.supply(() -> delegate
+                .deleteMetricValues(metricName));
+        }
+        return invalidateOnComplete(future.whenComplete((response, e) ->
+            removeLatestOfApplications(metricName)),
+            Collections.singletonList(metricName));
+    }
+
+    @Override
+    public MetricValue getMetric(String applicationId) throws IOException {
+        return MetricStoreFutures.await(getMetricAsync(applicationId));
+    }
+
+    @Override
+    public CompletableFuture<MetricValue> getMetricAsync(
+        String applicationId) {
+        MetricValue value;
+        synchronized (latestOfApplications) {
+            value = latestOfApplications.get(applicationId);
+        }
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        CompletableFuture<MetricValue> future;
+        if (delegate instanceof AsyncMetricStore) {
+            future = ((AsyncMetricStore) delegate).getMetricAsync(
+                applicationId);
+        } else {
+            future = MetricStoreFutures.supply(() -> delegate.getMetric(
+                applicationId));
+        }
+        return future.thenApply(metricValue -> {
+            if (metricValue != null) {
+                putLatest(applicationId, metricValue);
+            }
+            return metricValue;
+        });
+    }
+
+    private <T> CompletableFuture<T> invalidateOnComplete(
+        CompletableFuture<T> future, List<String> metricNames) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, e) -> {
+            for (String name : new LinkedHashSet<>(metricNames)) {
+                invalidate(name);
+            }
+            if (e != null) {
+                result.completeExceptionally(MetricStoreFutures.unwrap(e));
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Drop all cached windows of a metric name.
+     *
+     * @param metricName metric name
+     */
+    public void invalidate(String metricName) {
+        versions.computeIfAbsent(metricName, name -> new AtomicLong())
+            .incrementAndGet();
+        synchronized (this) {
+            Iterator<CacheKey> iterator = entries.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (Objects.equals(iterator.next().name, metricName)) {
+                    iterator.remove();
+                    invalidationCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void putLatestOfApplications(List<MetricValue> metricValues) {
+        for (MetricValue value : metricValues) {
+            Object applicationId = value == null || value.getMetadata() == null
+                ? null : value.getMetadata().get("applicationId");
+            if (applicationId != null) {
+                putLatest(applicationId.toString(), value);
+            }
+        }
+    }
+
+    /**
+     * Keep a value as the latest of its application unless a newer one is
+     * known already.
+     */
+    private void putLatest(String applicationId, MetricValue value) {
+        synchronized (latestOfApplications) {
+            MetricValue current = latestOfApplications.get(applicationId);
+            if (current == null || getTmst(current) <= getTmst(value)) {
+                latestOfApplications.put(applicationId, value);
+            }
+        }
+    }
+
+    private void removeLatestOfApplications(String metricName) {
+        synchronized (latestOfApplications) {
+            latestOfApplications.values().removeIf(value -> Objects.equals(
+                value.getName(), metricName));
+        }
+    }
+
+    private static long getTmst(MetricValue value) {
+        return value.getTmst() == null ? Long.MIN_VALUE : value.getTmst();
+    }
+
+    public MetricCacheStats getStats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new MetricCacheStats(size, maxSize, hitCount.get(),
+            missCount.get(), loadCount.get(), evictionCount.get(),
+            invalidationCount.get());
+    }
+
+    private synchronized List<MetricValue> getIfPresent(CacheKey key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadTime >= expireMillis) {
+            entries.remove(key);
+            evictionCount.incrementAndGet();
+            return null;
+        }
+        return entry.values;
+    }
+
+    private synchronized void putIfCurrent(CacheKey key,
+                                           List<MetricValue> values,
+                                           long version) {
+        if (getVersion(key.name) == version) {
+            entries.put(key, new CacheEntry(values,
+                System.currentTimeMillis()));
+        }
+    }
+
+    private long getVersion(String metricName) {
+        AtomicLong version = versions.get(metricName);
+        return version == null ? 0 : version.get();
+    }
+
+    private static List<String> getNames(List<MetricValue> metricValues) {
+        List<String> names = new ArrayList<>();
+        for (MetricValue value : metricValues) {
+            names.add(value.getName());
+        }
+        return names;
+    }
+
+    private static final class CacheKey {
+        private final String name;
+        private final int from;
+        private final int size;
+
+        CacheKey(String name, int from, int size) {
+            this.name = name;
+            this.from = from;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CacheKey that = (CacheKey) o;
+            return from == that.from && size == that.size &&
+                Objects.equals(name, that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, from, size);
+        }
+    }
+
+    private static final class CacheEntry {
+        private final List<MetricValue> values;
+        private final long loadTime;
+
+        CacheEntry(List<MetricValue> values, long loadTime) {
+            this.values = values;
+            this.loadTime = loadTime;
+        }
+    }
+}
@@ -19,11 +19,18 @@ under the License.
 
 package org.apache.griffin.core.metric;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.griffin.core.metric.model.Metric;
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricCacheStats;
+import org.apache.griffin.core.metric.model.MetricIngestResult;
 import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricValuePage;
+import org.apache.griffin.core.metric.model.MetricWriteBufferStats;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -47,8 +54,12 @@ public class MetricController {
         return metricService.getAllMetrics();
     }
 
+    /**
+     * Metric value endpoints return futures, so that request threads are
+     * released while the metric store is working.
+     */
     @RequestMapping(value = "/metrics/values", method = RequestMethod.GET)
-    public List<MetricValue> getMetricValues(@RequestParam("metricName")
+    public CompletableFuture<List<MetricValue>> getMetricValues(@RequestParam("metricName")
                                                  String metricName,
                                              @RequestParam("size") int size,
                                              @RequestParam(value = "offset",
@@ -57,24 +68,76 @@ public class MetricController {
                                              @RequestParam(value = "tmst",
                                                  defaultValue = "0")
                                                  long tmst) {
-        return metricService.getMetricValues(metricName, offset, size, tmst);
+        return metricService.getMetricValuesAsync(metricName, offset, size,
+            tmst);
+    }
+
+    /**
+     * Page through metric values, newest first. Pass the next token of a
+     * page as cursor to get the page after it.
+     */
+    @RequestMapping(value = "/metrics/values/page", method = RequestMethod.GET)
+    public CompletableFuture<MetricValuePage> getMetricValuePage(
+        @RequestParam("metricName") String metricName,
+        @RequestParam("size") int size,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+        return metricService.getMetricValuePageAsync(metricName, size, cursor);
+    }
+
+    /**
+     * Aggregate metric values of [from, to) into buckets of interval
+     * milliseconds, with min, max, avg and last of every field.
+     */
+    @RequestMapping(value = "/metrics/values/aggregate",
+        method = RequestMethod.GET)
+    public CompletableFuture<List<MetricBucket>> aggregateMetricValues(
+        @RequestParam("metricName") String metricName,
+        @RequestParam("from") long from,
+        @RequestParam("to") long to,
+        @RequestParam("interval") long interval,
+        @RequestParam("fields") List<String> fields) {
+        return metricService.aggregateMetricValuesAsync(metricName, from, to,
+            interval, fields);
     }
 
     @RequestMapping(value = "/metrics/values", method = RequestMethod.POST)
-    public ResponseEntity<?> addMetricValues(@RequestBody List<MetricValue>
-                                                 values) {
+    public CompletableFuture<ResponseEntity<?>> addMetricValues(
+        @RequestBody List<MetricValue> values) {
+        return metricService.addMetricValuesAsync(values);
+    }
+
+    /**
+     * Add metric values streamed as newline delimited json, one metric value
+     * per line.
+     */
+    @RequestMapping(value = "/metrics/values/stream",
+        method = RequestMethod.POST)
+    public ResponseEntity<MetricIngestResult> addMetricValues(InputStream
+                                                                  values) {
         return metricService.addMetricValues(values);
     }
 
     @RequestMapping(value = "/metrics/values", method = RequestMethod.DELETE)
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public ResponseEntity<?> deleteMetricValues(@RequestParam("metricName")
-                                                    String metricName) {
-        return metricService.deleteMetricValues(metricName);
+    public CompletableFuture<ResponseEntity<?>> deleteMetricValues(
+        @RequestParam("metricName") String metricName) {
+        return metricService.deleteMetricValuesAsync(metricName);
     }
 
     @RequestMapping(value = "/metrics/values/{instanceId}", method = RequestMethod.GET)
-    public MetricValue getMetric(@PathVariable("instanceId") Long id) {
-        return metricService.findMetric(id);
+    public CompletableFuture<MetricValue> getMetric(
+        @PathVariable("instanceId") Long id) {
+        return metricService.findMetricAsync(id);
+    }
+
+    @RequestMapping(value = "/metrics/cache/stats", method = RequestMethod.GET)
+    public MetricCacheStats getMetricCacheStats() {
+        return metricService.getMetricCacheStats();
+    }
+
+    @RequestMapping(value = "/metrics/buffer/stats",
+        method = RequestMethod.GET)
+    public MetricWriteBufferStats getMetricWriteBufferStats() {
+        return metricService.getMetricWriteBufferStats();
     }
 }
@@ -0,0 +1,158 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Names of time-partitioned metric indices. A metric value goes to the
+ * index of the UTC month or day of its tmst, named
+ * {@code <prefix>-yyyy.MM} or {@code <prefix>-yyyy.MM.dd}.
+ */
+final class MetricIndices {
+
+    enum Partition {
+        MONTH("yyyy.MM") {
+            @Override
+            ZonedDateTime truncate(ZonedDateTime time) {
+                return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            }
+
+            @Override
+            ZonedDateTime next(ZonedDateTime start) {
+                return start.plusMonths(1);
+            }
+
+            @Override
+            ZonedDateTime parse(String suffix) {
+                return YearMonth.parse(suffix, formatter).atDay(1)
+                    .atStartOfDay(ZoneOffset.UTC);
+            }
+        },
+        DAY("yyyy.MM.dd") {
+            @Override
+            ZonedDateTime truncate(ZonedDateTime time) {
+                return time.truncatedTo(ChronoUnit.DAYS);
+            }
+
+            @Override
+            ZonedDateTime next(ZonedDateTime start) {
+                return start.plusDays(1);
+            }
+
+            @Override
+            ZonedDateTime parse(String suffix) {
+                return LocalDate.parse(suffix, formatter)
+                    .atStartOfDay(ZoneOffset.UTC);
+            }
+        };
+
+        final DateTimeFormatter formatter;
+
+        Partition(String pattern) {
+            this.formatter = DateTimeFormatter.ofPattern(pattern);
+        }
+
+        abstract ZonedDateTime truncate(ZonedDateTime time);
+
+        abstract ZonedDateTime next(ZonedDateTime start);
+
+        abstract ZonedDateTime parse(String suffix);
+
+        static Partition of(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final String prefix;
+    private final Partition partition;
+
+    MetricIndices(String prefix, Partition partition) {
+        this.prefix = prefix;
+        this.partition = partition;
+    }
+
+    String getPattern() {
+        return prefix + "-*";
+    }
+
+    String getIndex(long tmst) {
+        return prefix + "-" + partition.formatter.format(start(tmst));
+    }
+
+    /**
+     * @return indices of all partitions overlapping [from, to), oldest first
+     */
+    List<String> getIndices(long from, long to) {
+        List<String> indices = new ArrayList<>();
+        if (from >= to) {
+            return indices;
+        }
+        ZonedDateTime end = Instant.ofEpochMilli(to).atZone(ZoneOffset.UTC);
+        for (ZonedDateTime start = start(from); start.isBefore(end);
+             start = partition.next(start)) {
+            indices.add(prefix + "-" + partition.formatter.format(start));
+        }
+        return indices;
+    }
+
+    /**
+     * @return count of partitions overlapping [from, to)
+     */
+    long countIndices(long from, long to) {
+        if (from >= to) {
+            return 0;
+        }
+        ChronoUnit unit = partition == Partition.MONTH ? ChronoUnit.MONTHS
+            : ChronoUnit.DAYS;
+        return unit.between(start(from), start(to - 1)) + 1;
+    }
+
+    /**
+     * @return end of the partition of an index in epoch millis, or -1 if
+     * the index is not a partition
+     */
+    long getEnd(String index) {
+        if (!index.startsWith(prefix + "-")) {
+            return -1;
+        }
+        try {
+            ZonedDateTime start = partition.parse(index.substring(
+                prefix.length() + 1));
+            return partition.next(start).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private ZonedDateTime start(long tmst) {
+        return partition.truncate(Instant.ofEpochMilli(tmst).atZone(
+            ZoneOffset.UTC));
+    }
+}
@@ -20,11 +20,18 @@ under the License.
 package org.apache.griffin.core.metric;
 
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.griffin.core.metric.model.Metric;
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricCacheStats;
+import org.apache.griffin.core.metric.model.MetricIngestResult;
 import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricValuePage;
+import org.apache.griffin.core.metric.model.MetricWriteBufferStats;
 import org.springframework.http.ResponseEntity;
 
 public interface MetricService {
@@ -34,9 +41,36 @@ public interface MetricService {
     List<MetricValue> getMetricValues(String metricName, int offset, int size,
                                       long tmst);
 
+    CompletableFuture<List<MetricValue>> getMetricValuesAsync(
+        String metricName, int offset, int size, long tmst);
+
+    /**
+     * @param cursor next token of the previous page, null for the first page
+     */
+    CompletableFuture<MetricValuePage> getMetricValuePageAsync(
+        String metricName, int size, String cursor);
+
+    CompletableFuture<List<MetricBucket>> aggregateMetricValuesAsync(
+        String metricName, long from, long to, long interval,
+        List<String> fields);
+
     ResponseEntity addMetricValues(List<MetricValue> values);
 
+    CompletableFuture<ResponseEntity<?>> addMetricValuesAsync(
+        List<MetricValue> values);
+
+    ResponseEntity<MetricIngestResult> addMetricValues(InputStream values);
+
     ResponseEntity<?> deleteMetricValues(String metricName);
 
+    CompletableFuture<ResponseEntity<?>> deleteMetricValuesAsync(
+        String metricName);
+
     MetricValue findMetric(Long id);
+
+    CompletableFuture<MetricValue> findMetricAsync(Long id);
+
+    MetricCacheStats getMetricCacheStats();
+
+    MetricWriteBufferStats getMetricWriteBufferStats();
 }
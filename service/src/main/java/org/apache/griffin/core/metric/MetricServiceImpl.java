@@ -20,34 +20,69 @@ under the License.
 package org.apache.griffin.core.metric;
 
 
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_BUCKET_INTERVAL;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_CURSOR;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_RECORDS_OFFSET;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_RECORDS_SIZE;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_TIME_RANGE;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_VALUE_FORMAT;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.JOB_INSTANCE_NOT_FOUND;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.METRIC_CACHE_DISABLED;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.METRIC_STORE_BUSY;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.METRIC_STORE_TIMEOUT;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.METRIC_WRITE_BUFFER_DISABLED;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.METRIC_WRITE_BUFFER_FULL;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.MISSING_METRIC_VALUE_FIELDS;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.griffin.core.exception.GriffinException;
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.JobSummary;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
 import org.apache.griffin.core.job.repo.JobRepo;
 import org.apache.griffin.core.measure.entity.Measure;
+import org.apache.griffin.core.measure.entity.MeasureSummary;
 import org.apache.griffin.core.measure.repo.MeasureRepo;
+import org.apache.griffin.core.metric.buffer.MetricWriteBuffer;
 import org.apache.griffin.core.metric.model.Metric;
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricBulkError;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricCacheStats;
+import org.apache.griffin.core.metric.model.MetricCursor;
+import org.apache.griffin.core.metric.model.MetricIngestResult;
 import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricValuePage;
+import org.apache.griffin.core.metric.model.MetricWriteBufferStats;
 import org.codehaus.jackson.JsonProcessingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
@@ -55,6 +90,11 @@ import org.springframework.stereotype.Service;
 public class MetricServiceImpl implements MetricService {
     private static final Logger LOGGER = LoggerFactory
         .getLogger(MetricServiceImpl.class);
+    private static final int DEFAULT_METRIC_VALUES_SIZE = 300;
+    private static final String INVALID_METRIC_VALUE = "invalid_metric_value";
+    private static final ObjectReader METRIC_VALUE_READER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        .readerFor(MetricValue.class);
 
     @Autowired
     private MeasureRepo<Measure> measureRepo;
@@ -64,24 +104,33 @@ public class MetricServiceImpl implements MetricService {
     private MetricStore metricStore;
     @Autowired
     private JobInstanceRepo jobInstanceRepo;
+    @Autowired(required = false)
+    private MetricWriteBuffer writeBuffer;
+
+    @Value("${metric.ingest.bulk.size:1000}")
+    private int ingestBulkSize = 1000;
+    @Value("${metric.aggregate.max.buckets:10000}")
+    private long maxAggregateBuckets = 10000;
 
     @Override
     public Map<String, List<Metric>> getAllMetrics() {
         Map<String, List<Metric>> metricMap = new HashMap<>();
-        List<AbstractJob> jobs = jobRepo.findByDeleted(false);
-        List<Measure> measures = measureRepo.findByDeleted(false);
-        Map<Long, Measure> measureMap = measures.stream().collect(Collectors
-            .toMap(Measure::getId, Function.identity()));
-        Map<Long, List<AbstractJob>> jobMap = jobs.stream().collect(Collectors
-            .groupingBy(AbstractJob::getMeasureId, Collectors.toList()));
-        for (Map.Entry<Long, List<AbstractJob>> entry : jobMap.entrySet()) {
+        List<JobSummary> jobs = jobRepo.findSummaryByDeleted(false);
+        List<MeasureSummary> measures = measureRepo.findSummaryByDeleted(
+            false);
+        Map<Long, MeasureSummary> measureMap = measures.stream().collect(
+            Collectors.toMap(MeasureSummary::getId, Function.identity()));
+        Map<Long, List<JobSummary>> jobMap = jobs.stream().collect(Collectors
+            .groupingBy(JobSummary::getMeasureId, Collectors.toList()));
+        Map<String, List<MetricValue>> valuesMap = getMetricValuesOfJobs(jobs);
+        for (Map.Entry<Long, List<JobSummary>> entry : jobMap.entrySet()) {
             Long measureId = entry.getKey();
-            Measure measure = measureMap.get(measureId);
-            List<AbstractJob> jobList = entry.getValue();
+            MeasureSummary measure = measureMap.get(measureId);
+            List<JobSummary> jobList = entry.getValue();
             List<Metric> metrics = new ArrayList<>();
-            for (AbstractJob job : jobList) {
-                List<MetricValue> metricValues = getMetricValues(job
-                    .getMetricName(), 0, 300, job.getCreatedDate());
+            for (JobSummary job : jobList) {
+                List<MetricValue> metricValues = valuesMap.getOrDefault(job
+                    .getMetricName(), Collections.emptyList());
                 metrics.add(new Metric(job.getMetricName(), measure.getDqType(),
                     measure.getOwner(), metricValues));
             }
@@ -91,9 +140,49 @@ public class MetricServiceImpl implements MetricService {
         return metricMap;
     }
 
+    private Map<String, List<MetricValue>> getMetricValuesOfJobs(
+        List<JobSummary> jobs) {
+        List<String> metricNames = jobs.stream()
+            .map(JobSummary::getMetricName)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        try {
+            return metricStore.getMetricValues(metricNames, 0,
+                DEFAULT_METRIC_VALUES_SIZE);
+        } catch (IOException e) {
+            LOGGER.error("Failed to get metric values of {} metrics. {}",
+                metricNames.size(), e.getMessage());
+            throw new GriffinException.ServiceException(
+                "Failed to get metric values", e);
+        }
+    }
+
     @Override
     public List<MetricValue> getMetricValues(String metricName, int offset,
                                              int size, long tmst) {
+        checkRange(offset, size);
+        try {
+            return metricStore.getMetricValues(metricName, offset, size, tmst);
+        } catch (IOException e) {
+            LOGGER.error("Failed to get metric values named {}. {}",
+                metricName, e.getMessage());
+            throw new GriffinException.ServiceException(
+                "Failed to get metric values", e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<MetricValue>> getMetricValuesAsync(
+        String metricName, int offset, int size, long tmst) {
+        checkRange(offset, size);
+        return callMetricStore(
+            store -> store.getMetricValuesAsync(metricName, offset, size,
+                tmst),
+            () -> metricStore.getMetricValues(metricName, offset, size, tmst),
+            "Failed to get metric values");
+    }
+
+    private void checkRange(int offset, int size) {
         if (offset < 0) {
             throw new GriffinException.BadRequestException
                 (INVALID_METRIC_RECORDS_OFFSET);
@@ -102,14 +191,63 @@ public class MetricServiceImpl implements MetricService {
             throw new GriffinException.BadRequestException
                 (INVALID_METRIC_RECORDS_SIZE);
         }
-        try {
-            return metricStore.getMetricValues(metricName, offset, size, tmst);
-        } catch (IOException e) {
-            LOGGER.error("Failed to get metric values named {}. {}",
-                metricName, e.getMessage());
-            throw new GriffinException.ServiceException(
-                "Failed to get metric values", e);
+    }
+
+    @Override
+    public CompletableFuture<MetricValuePage> getMetricValuePageAsync(
+        String metricName, int size, String cursor) {
+        checkRange(0, size);
+        MetricCursor after = null;
+        if (!StringUtils.isEmpty(cursor)) {
+            try {
+                after = MetricCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid metric cursor {}. {}", cursor,
+                    e.getMessage());
+                throw new GriffinException.BadRequestException
+                    (INVALID_METRIC_CURSOR);
+            }
         }
+        MetricCursor start = after;
+        return callMetricStore(
+            store -> store.getMetricValuePageAsync(metricName, size, start),
+            () -> metricStore.getMetricValuePage(metricName, size, start),
+            "Failed to get metric values");
+    }
+
+    /**
+     * Buckets start at multiples of the interval since the epoch, so the
+     * count is taken from the buckets of the first and the last millisecond
+     * of [from, to).
+     */
+    static long countBuckets(long from, long to, long interval) {
+        return Math.floorDiv(to - 1, interval) - Math.floorDiv(from, interval)
+            + 1;
+    }
+
+    @Override
+    public CompletableFuture<List<MetricBucket>> aggregateMetricValuesAsync(
+        String metricName, long from, long to, long interval,
+        List<String> fields) {
+        if (from < 0 || from >= to) {
+            throw new GriffinException.BadRequestException
+                (INVALID_METRIC_TIME_RANGE);
+        }
+        if (interval <= 0 || countBuckets(from, to, interval)
+            > maxAggregateBuckets) {
+            throw new GriffinException.BadRequestException
+                (INVALID_METRIC_BUCKET_INTERVAL);
+        }
+        if (CollectionUtils.isEmpty(fields)) {
+            throw new GriffinException.BadRequestException
+                (MISSING_METRIC_VALUE_FIELDS);
+        }
+        return callMetricStore(
+            store -> store.aggregateMetricValuesAsync(metricName, from, to,
+                interval, fields),
+            () -> metricStore.aggregateMetricValues(metricName, from, to,
+                interval, fields),
+            "Failed to aggregate metric values");
     }
 
     @SuppressWarnings("rawtypes")
@@ -118,6 +256,9 @@ public class MetricServiceImpl implements MetricService {
         for (MetricValue value : values) {
             checkFormat(value);
         }
+        if (writeBuffer != null) {
+            return addToWriteBuffer(values);
+        }
         try {
             return metricStore.addMetricValues(values);
         } catch (JsonProcessingException e) {
@@ -131,6 +272,110 @@ public class MetricServiceImpl implements MetricService {
         }
     }
 
+    @Override
+    public CompletableFuture<ResponseEntity<?>> addMetricValuesAsync(
+        List<MetricValue> values) {
+        for (MetricValue value : values) {
+            checkFormat(value);
+        }
+        if (writeBuffer != null) {
+            return CompletableFuture.completedFuture(addToWriteBuffer(values));
+        }
+        return callMetricStore(
+            store -> store.addMetricValuesAsync(values),
+            () -> metricStore.addMetricValues(values),
+            "Failed to add metric values");
+    }
+
+    /**
+     * Read metric values line by line and write them in bulks of
+     * {@code ingestBulkSize}. The next line is not read before the current
+     * bulk is written, so a slow metric store slows down the client instead
+     * of filling up the heap.
+     */
+    @Override
+    public ResponseEntity<MetricIngestResult> addMetricValues(
+        InputStream values) {
+        MetricIngestResult result = new MetricIngestResult();
+        List<MetricValue> chunk = new ArrayList<>(ingestBulkSize);
+        List<Long> chunkLines = new ArrayList<>(ingestBulkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            values, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (StringUtils.isBlank(line)) {
+                    continue;
+                }
+                result.setReceived(result.getReceived() + 1);
+                MetricValue value = parseMetricValue(line);
+                if (value == null) {
+                    result.addRejected(new MetricBulkError(lineNumber,
+                        HttpStatus.BAD_REQUEST.value(), INVALID_METRIC_VALUE,
+                        INVALID_METRIC_VALUE_FORMAT.getMessage()));
+                    continue;
+                }
+                chunk.add(value);
+                chunkLines.add(lineNumber);
+                if (chunk.size() >= ingestBulkSize
+                    && !flush(chunk, chunkLines, result)) {
+                    return new ResponseEntity<>(result,
+                        HttpStatus.INTERNAL_SERVER_ERROR);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read metric values. {}", e.getMessage());
+            result.setAbortReason("Failed to read metric values: "
+                + e.getMessage());
+            return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST);
+        }
+        if (!flush(chunk, chunkLines, result)) {
+            return new ResponseEntity<>(result,
+                HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    private MetricValue parseMetricValue(String line) {
+        try {
+            MetricValue value = METRIC_VALUE_READER.readValue(line);
+            return isValidFormat(value) ? value : null;
+        } catch (IOException e) {
+            LOGGER.debug("Failed to parse metric value {}. {}", line,
+                e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the metric store failed and ingestion must stop
+     */
+    private boolean flush(List<MetricValue> chunk, List<Long> chunkLines,
+                          MetricIngestResult result) {
+        if (chunk.isEmpty()) {
+            return true;
+        }
+        try {
+            MetricBulkResult bulkResult = metricStore.bulkAddMetricValues(chunk);
+            for (MetricBulkError error : bulkResult.getErrors()) {
+                error.setPosition(chunkLines.get((int) error.getPosition()));
+            }
+            result.addChunk(bulkResult);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Failed to add metric values of lines {} to {}. {}",
+                chunkLines.get(0), chunkLines.get(chunkLines.size() - 1),
+                e.getMessage());
+            result.setAbortReason(String.format("Failed to add metric values "
+                    + "from line %d: %s", chunkLines.get(0), e.getMessage()));
+            return false;
+        } finally {
+            chunk.clear();
+            chunkLines.clear();
+        }
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     public ResponseEntity deleteMetricValues(String metricName) {
@@ -144,28 +389,131 @@ public class MetricServiceImpl implements MetricService {
         }
     }
 
+    @Override
+    public CompletableFuture<ResponseEntity<?>> deleteMetricValuesAsync(
+        String metricName) {
+        return callMetricStore(
+            store -> store.deleteMetricValuesAsync(metricName),
+            () -> metricStore.deleteMetricValues(metricName),
+            "Failed to delete metric values.");
+    }
+
     @Override
     public MetricValue findMetric(Long id) {
+        String appId = getAppId(id);
+        try {
+            return metricStore.getMetric(appId);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to get metric for applicationId {} ", appId);
+            throw new GriffinException.ServiceException("Failed to find metric", e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<MetricValue> findMetricAsync(Long id) {
+        String appId = getAppId(id);
+        return callMetricStore(
+            store -> store.getMetricAsync(appId),
+            () -> metricStore.getMetric(appId),
+            "Failed to find metric");
+    }
+
+    private String getAppId(Long id) {
         JobInstanceBean jobInstanceBean = jobInstanceRepo.findByInstanceId(id);
         if (jobInstanceBean == null) {
             LOGGER.warn("There are no job instances with id {} ", id);
             throw new GriffinException
                 .NotFoundException(JOB_INSTANCE_NOT_FOUND);
         }
-        String appId = jobInstanceBean.getAppId();
+        return jobInstanceBean.getAppId();
+    }
+
+    /**
+     * Call the metric store asynchronously if it supports it, or else
+     * blocking in the current thread. Failures come back as griffin
+     * exceptions, with timeouts and a full request queue told apart from
+     * other failures.
+     */
+    private <T> CompletableFuture<T> callMetricStore(
+        Function<AsyncMetricStore, CompletableFuture<T>> asyncCall,
+        MetricStoreFutures.IOSupplier<T> syncCall, String failure) {
+        CompletableFuture<T> future = metricStore instanceof AsyncMetricStore
+            ? asyncCall.apply((AsyncMetricStore) metricStore)
+            : MetricStoreFutures.supply(syncCall);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = MetricStoreFutures.unwrap(e);
+            if (cause instanceof MetricStoreTimeoutException) {
+                LOGGER.warn("{} {}", failure, cause.getMessage());
+                result.completeExceptionally(new GriffinException
+                    .GatewayTimeoutException(METRIC_STORE_TIMEOUT));
+            } else if (cause instanceof RejectedExecutionException) {
+                LOGGER.warn("{} {}", failure, cause.getMessage());
+                result.completeExceptionally(new GriffinException
+                    .TooManyRequestsException(METRIC_STORE_BUSY));
+            } else if (cause instanceof GriffinException) {
+                // rejected by the store, like a cursor it did not issue
+                result.completeExceptionally(cause);
+            } else {
+                LOGGER.error("{} {}", failure, cause.getMessage());
+                result.completeExceptionally(new GriffinException
+                    .ServiceException(failure, cause));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public MetricCacheStats getMetricCacheStats() {
+        if (!(metricStore instanceof CachingMetricStore)) {
+            throw new GriffinException
+                .NotFoundException(METRIC_CACHE_DISABLED);
+        }
+        return ((CachingMetricStore) metricStore).getStats();
+    }
+
+    @Override
+    public MetricWriteBufferStats getMetricWriteBufferStats() {
+        if (writeBuffer == null) {
+            throw new GriffinException
+                .NotFoundException(METRIC_WRITE_BUFFER_DISABLED);
+        }
+        return writeBuffer.getStats();
+    }
+
+    /**
+     * Values added through the write buffer are written later, so the
+     * response only tells how many values were accepted.
+     */
+    private ResponseEntity<?> addToWriteBuffer(List<MetricValue> values) {
         try {
-            return metricStore.getMetric(appId);
+            writeBuffer.add(values);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Failed to buffer metric values. {}", e.getMessage());
+            throw new GriffinException.TooManyRequestsException(
+                METRIC_WRITE_BUFFER_FULL);
         } catch (IOException e) {
-            LOGGER.warn("Failed to get metric for applicationId {} ", appId);
-            throw new GriffinException.ServiceException("Failed to find metric", e);
+            LOGGER.error("Failed to buffer metric values", e);
+            throw new GriffinException.ServiceException(
+                "Failed to add metric values", e);
         }
+        return new ResponseEntity<>(Collections.singletonMap("accepted",
+            values.size()), HttpStatus.ACCEPTED);
     }
 
     private void checkFormat(MetricValue value) {
-        if (StringUtils.isBlank(value.getName()) || value.getTmst() == null
-            || MapUtils.isEmpty(value.getValue())) {
+        if (!isValidFormat(value)) {
             throw new GriffinException.BadRequestException
                 (INVALID_METRIC_VALUE_FORMAT);
         }
     }
+
+    private boolean isValidFormat(MetricValue value) {
+        return value != null && !StringUtils.isBlank(value.getName())
+            && value.getTmst() != null && !MapUtils.isEmpty(value.getValue());
+    }
 }
@@ -21,8 +21,13 @@ package org.apache.griffin.core.metric;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricCursor;
 import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricValuePage;
 import org.springframework.http.ResponseEntity;
 
 public interface MetricStore {
@@ -30,9 +35,60 @@ public interface MetricStore {
     List<MetricValue> getMetricValues(String metricName, int from, int size,
                                       long tmst) throws IOException;
 
+    /**
+     * Get metric values of several metrics in as few round trips as the
+     * store allows.
+     *
+     * @param metricNames metric names
+     * @param from        offset of the first value of every metric
+     * @param size        max count of values of every metric
+     * @return metric values grouped by metric name, each sorted by
+     * timestamp descending
+     */
+    Map<String, List<MetricValue>> getMetricValues(List<String> metricNames,
+                                                   int from, int size)
+        throws IOException;
+
+    /**
+     * Get a page of metric values, newest first, after the values already
+     * read. Unlike paging by offset, a page costs the same however deep it
+     * is.
+     *
+     * @param after cursor of the previous page, null for the first page
+     * @return page whose next token is null if there are no more values
+     */
+    MetricValuePage getMetricValuePage(String metricName, int size,
+                                       MetricCursor after) throws IOException;
+
+    /**
+     * Aggregate metric values of a time range into buckets of a fixed
+     * interval. Buckets start at multiples of the interval, and buckets
+     * without metric values are left out.
+     *
+     * @param from     start of the time range, inclusive
+     * @param to       end of the time range, exclusive
+     * @param interval bucket length in milliseconds
+     * @param fields   numeric fields of the metric value map, nested fields
+     *                 joined by dots
+     * @return buckets in time order
+     */
+    List<MetricBucket> aggregateMetricValues(String metricName, long from,
+                                             long to, long interval,
+                                             List<String> fields)
+        throws IOException;
+
     ResponseEntity<?> addMetricValues(List<MetricValue> metricValues)
         throws IOException;
 
+    /**
+     * Write metric values in one bulk and report the values which failed.
+     *
+     * @param metricValues metric values
+     * @return bulk result whose error positions are indexes in metricValues
+     */
+    MetricBulkResult bulkAddMetricValues(List<MetricValue> metricValues)
+        throws IOException;
+
     ResponseEntity<?> deleteMetricValues(String metricName) throws IOException;
 
     MetricValue getMetric(String applicationId) throws IOException;
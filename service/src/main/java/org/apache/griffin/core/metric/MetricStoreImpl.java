@@ -19,21 +19,43 @@ under the License.
 
 package org.apache.griffin.core.metric;
 
+import static org.elasticsearch.client.RestClientBuilder.DEFAULT_MAX_CONN_PER_ROUTE;
+import static org.elasticsearch.client.RestClientBuilder.DEFAULT_MAX_CONN_TOTAL;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricBulkError;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricCursor;
+import org.apache.griffin.core.metric.model.MetricFieldStats;
 import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricValuePage;
 import org.apache.griffin.core.util.JsonUtil;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
@@ -44,36 +66,132 @@ import org.apache.http.nio.entity.NStringEntity;
 import org.apache.http.util.EntityUtils;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
-public class MetricStoreImpl implements MetricStore {
+@Qualifier(value = "metricStoreBackend")
+@ConditionalOnProperty(name = "metric.store.type",
+    havingValue = "elasticsearch", matchIfMissing = true)
+public class MetricStoreImpl implements AsyncMetricStore {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(MetricStoreImpl.class);
 
     private static final String INDEX = "griffin";
     private static final String TYPE = "accuracy";
+    private static final String BUCKETS_AGG = "buckets";
+    private static final String LAST_AGG_PREFIX = "last_";
+    private static final String LAST_HIT_AGG = "hit";
+    private static final String FIELD_AGG_PREFIX = "field_";
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER =
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metric-store-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
 
     private RestClient client;
     private HttpHeaders responseHeaders;
     private String urlGet;
+    private String urlAggregate;
+    private String urlPage;
+    private String urlMultiSearch;
     private String urlDelete;
     private String urlPost;
     private ObjectMapper mapper;
     private String indexMetaData;
+    private String searchMetaData;
+
+    @Value("${elasticsearch.msearch.batch.size:100}")
+    private int multiSearchBatchSize = 100;
+    @Value("${elasticsearch.msearch.max.concurrent:4}")
+    private int maxConcurrentMultiSearches = 4;
+    private int maxConcurrentRequests;
+    @Value("${elasticsearch.max.pending.requests:1000}")
+    private int maxPendingRequests = 1000;
+    @Value("${elasticsearch.request.timeout.in.milliseconds:30000}")
+    private long requestTimeoutMillis = 30000;
+    /**
+     * keyword field of application ids, as dynamic mapping maps them on the
+     * griffin index and the template on partitions
+     */
+    @Value("${elasticsearch.application.id.field:" +
+        "metadata.applicationId.keyword}")
+    private String applicationIdField = "metadata.applicationId.keyword";
+    /**
+     * month or day to write into time-partitioned indices behind a read
+     * alias, or empty to keep all values in the griffin index
+     */
+    @Value("${elasticsearch.index.partition:}")
+    private String indexPartition = "";
+    @Value("${elasticsearch.index.prefix:griffin-metric}")
+    private String indexPrefix = "griffin-metric";
+    @Value("${elasticsearch.index.alias:griffin-metrics}")
+    private String indexAlias = "griffin-metrics";
+    /**
+     * whether the griffin index of values written before partitioning is
+     * read through the alias as well
+     */
+    @Value("${elasticsearch.index.legacy.readable:true}")
+    private boolean legacyIndexReadable = true;
+    /**
+     * days after which whole partitions are dropped, 0 to keep them
+     */
+    @Value("${elasticsearch.index.retention.in.days:0}")
+    private long retentionDays = 0;
+    /**
+     * max partitions a time range is routed to, wider ranges read the alias
+     */
+    @Value("${elasticsearch.index.max.routed:100}")
+    private int maxRoutedIndices = 100;
+    private volatile AsyncRequestLimiter requestLimiter;
+    /**
+     * null unless values are written into time-partitioned indices
+     */
+    private MetricIndices indices;
+    private volatile boolean partitioningReady;
+
+    public MetricStoreImpl(String host, int port, String scheme, String user,
+                           String password) {
+        this(host, port, scheme, user, password, DEFAULT_MAX_CONN_PER_ROUTE);
+    }
 
+    /**
+     * @param maxConcurrentRequests max asynchronous requests in flight, the
+     *                              connection pool has room for them besides
+     *                              its default connections kept for the
+     *                              synchronous requests
+     */
+    @Autowired
     public MetricStoreImpl(@Value("${elasticsearch.host}") String host,
                            @Value("${elasticsearch.port}") int port,
                            @Value("${elasticsearch.scheme:http}") String scheme,
                            @Value("${elasticsearch.user:}") String user,
-                           @Value("${elasticsearch.password:}") String password) {
+                           @Value("${elasticsearch.password:}") String password,
+                           @Value("${elasticsearch.max.concurrent.requests:10}")
+                               int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
         HttpHost httpHost = new HttpHost(host, port, scheme);
         RestClientBuilder builder = RestClient.builder(httpHost);
+        int maxConnPerRoute = maxConcurrentRequests
+            + DEFAULT_MAX_CONN_PER_ROUTE;
+        builder.setHttpClientConfigCallback(clientBuilder -> clientBuilder
+            .setMaxConnPerRoute(maxConnPerRoute)
+            .setMaxConnTotal(Math.max(maxConnPerRoute,
+                DEFAULT_MAX_CONN_TOTAL)));
         if (!user.isEmpty() && !password.isEmpty()) {
             String encodedAuth = buildBasicAuthString(user, password);
             Header[] requestHeaders = new Header[]{
@@ -85,16 +203,151 @@ public class MetricStoreImpl implements MetricStore {
         HttpHeaders responseHeaders = new HttpHeaders();
         responseHeaders.setContentType(MediaType.APPLICATION_JSON);
         this.responseHeaders = responseHeaders;
-        String urlBase = String.format("/%s/%s", INDEX, TYPE);
+        this.urlPost = String.format("/%s/%s/_bulk", INDEX, TYPE);
+        this.indexMetaData = getIndexMetaData(INDEX);
+        setReadIndex(INDEX);
+        this.mapper = new ObjectMapper();
+    }
+
+    /**
+     * With time-partitioned indices, read through the alias and make sure
+     * that new partitions join it. Elasticsearch may not be up yet, so a
+     * failure is retried before the next write.
+     */
+    @PostConstruct
+    public void init() {
+        if (StringUtils.isEmpty(indexPartition)) {
+            return;
+        }
+        indices = new MetricIndices(indexPrefix,
+            MetricIndices.Partition.of(indexPartition));
+        setReadIndex(indexAlias);
+        try {
+            ensurePartitioning();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to set up metric indices {}, will retry. {}",
+                indices.getPattern(), e.getMessage());
+        }
+    }
+
+    private void setReadIndex(String index) {
+        String urlBase = String.format("/%s/%s", index, TYPE);
         this.urlGet = urlBase.concat("/_search?filter_path=hits.hits._source");
-        this.urlPost = urlBase.concat("/_bulk");
+        this.urlAggregate = urlBase.concat(
+            "/_search?filter_path=aggregations");
+        this.urlPage = urlBase.concat(
+            "/_search?filter_path=hits.hits._source,hits.hits.sort");
+        this.urlMultiSearch = urlBase.concat("/_msearch");
         this.urlDelete = urlBase.concat("/_delete_by_query");
-        this.indexMetaData = String.format(
-            "{ \"index\" : { \"_index\" : " +
-                "\"%s\",\"_type\" : \"%s\" } }%n",
-            INDEX,
-            TYPE);
-        this.mapper = new ObjectMapper();
+        this.searchMetaData = String.format(
+            "{ \"index\" : \"%s\", \"type\" : \"%s\" }%n", index, TYPE);
+    }
+
+    private static String getIndexMetaData(String index) {
+        return String.format("{ \"index\" : { \"_index\" : " +
+            "\"%s\",\"_type\" : \"%s\" } }%n", index, TYPE);
+    }
+
+    /**
+     * Put an index template which maps the partitions and adds them to the
+     * read alias when Elasticsearch creates them on the first write, and
+     * add the griffin index to the alias if it is still read.
+     */
+    private synchronized void ensurePartitioning() throws IOException {
+        if (indices == null || partitioningReady) {
+            return;
+        }
+        Map<String, Object> template = new HashMap<>();
+        template.put("index_patterns", Collections.singletonList(
+            indices.getPattern()));
+        template.put("aliases", Collections.singletonMap(indexAlias,
+            Collections.emptyMap()));
+        template.put("mappings", Collections.singletonMap(TYPE,
+            Collections.singletonMap("properties", getIndexProperties())));
+        client.performRequest("PUT", "/_template/" + indexAlias,
+            Collections.emptyMap(), new NStringEntity(JsonUtil.toJson(
+                template), ContentType.APPLICATION_JSON));
+        if (legacyIndexReadable) {
+            Map<String, Object> add = new HashMap<>();
+            add.put("index", INDEX);
+            add.put("alias", indexAlias);
+            try {
+                client.performRequest("POST", "/_aliases",
+                    Collections.emptyMap(), new NStringEntity(JsonUtil.toJson(
+                        Collections.singletonMap("actions",
+                            Collections.singletonList(Collections
+                                .singletonMap("add", add)))),
+                        ContentType.APPLICATION_JSON));
+            } catch (ResponseException e) {
+                if (!isNotFound(e)) {
+                    throw e;
+                }
+                LOGGER.info("There is no legacy metric index {}.", INDEX);
+            }
+        }
+        partitioningReady = true;
+        LOGGER.info("Metric values are written into {} and read through {}.",
+            indices.getPattern(), indexAlias);
+    }
+
+    /**
+     * Map strings the way dynamic mapping does on the griffin index, so
+     * that the same keyword fields are searched through the alias.
+     */
+    private static Map<String, Object> getIndexProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("name", getTextProperty());
+        properties.put("tmst", Collections.singletonMap("type", "date"));
+        properties.put("metadata", Collections.singletonMap("properties",
+            Collections.singletonMap("applicationId", getTextProperty())));
+        return properties;
+    }
+
+    private static Map<String, Object> getTextProperty() {
+        Map<String, Object> keyword = new HashMap<>();
+        keyword.put("type", "keyword");
+        keyword.put("ignore_above", 256);
+        Map<String, Object> text = new HashMap<>();
+        text.put("type", "text");
+        text.put("fields", Collections.singletonMap("keyword", keyword));
+        return text;
+    }
+
+    /**
+     * Drop whole partitions whose time range ended before the retention
+     * period, instead of deleting their values by query.
+     */
+    @Scheduled(fixedDelayString =
+        "${elasticsearch.index.retention.check.interval.in.milliseconds:3600000}")
+    public void dropExpiredIndices() {
+        if (indices == null || retentionDays <= 0) {
+            return;
+        }
+        long expiry = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(
+            retentionDays);
+        try {
+            Map<String, String> params = new HashMap<>();
+            params.put("h", "index");
+            params.put("format", "json");
+            Response response = client.performRequest("GET",
+                "/_cat/indices/" + indices.getPattern(), params);
+            JsonNode root;
+            try (InputStream in = response.getEntity().getContent()) {
+                root = mapper.readTree(in);
+            }
+            for (JsonNode node : root) {
+                String index = node.path("index").asText();
+                long end = indices.getEnd(index);
+                if (end >= 0 && end <= expiry) {
+                    client.performRequest("DELETE", "/" + index);
+                    LOGGER.info("Dropped metric index {} past retention.",
+                        index);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to drop expired metric indices. {}",
+                e.getMessage());
+        }
     }
 
     @Override
@@ -115,56 +368,384 @@ public class MetricStoreImpl implements MetricStore {
         }
     }
 
+    @Override
+    public CompletableFuture<List<MetricValue>> getMetricValuesAsync(
+        String metricName, int from, int size, long tmst) {
+        HttpEntity entity;
+        try {
+            entity = getHttpEntityForSearch(metricName, from, size, tmst);
+        } catch (JsonProcessingException e) {
+            return MetricStoreFutures.failed(e);
+        }
+        return performRequestAsync("GET", urlGet, Collections.emptyMap(),
+            entity, this::getMetricValuesFromResponse, Collections::emptyList);
+    }
+
+    /**
+     * Search metric values of all metric names with one _msearch request per
+     * chunk of names. Chunks are sent concurrently, but no more than
+     * {@code maxConcurrentMultiSearches} of them are in flight at a time.
+     */
+    @Override
+    public Map<String, List<MetricValue>> getMetricValues(
+        List<String> metricNames, int from, int size) throws IOException {
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(metricNames));
+        List<List<String>> chunks = new ArrayList<>();
+        List<CompletableFuture<Response>> futures = new ArrayList<>();
+        Semaphore permits = new Semaphore(maxConcurrentMultiSearches);
+        Map<String, List<MetricValue>> metricValues = new HashMap<>();
+        try {
+            for (int i = 0; i < names.size(); i += multiSearchBatchSize) {
+                List<String> chunk = names.subList(i,
+                    Math.min(i + multiSearchBatchSize, names.size()));
+                permits.acquire();
+                chunks.add(chunk);
+                futures.add(multiSearchAsync(chunk, from, size, permits));
+            }
+            for (int i = 0; i < chunks.size(); i++) {
+                Response response = waitForResponse(futures.get(i));
+                metricValues.putAll(getMetricValuesFromMultiResponse(
+                    chunks.get(i), response));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+                "Interrupted while searching metric values.");
+        }
+        return metricValues;
+    }
+
+    private CompletableFuture<Response> multiSearchAsync(List<String> names,
+                                                         int from, int size,
+                                                         Semaphore permits)
+        throws JsonProcessingException {
+        HttpEntity entity = new NStringEntity(
+            getMultiSearchBody(names, from, size),
+            ContentType.APPLICATION_JSON);
+        CompletableFuture<Response> future = performRequestAsync("POST",
+            urlMultiSearch, Collections.emptyMap(), entity,
+            response -> response, null);
+        future.whenComplete((response, e) -> permits.release());
+        return future;
+    }
+
+    private Response waitForResponse(CompletableFuture<Response> future)
+        throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (isNotFound(cause)) {
+                return null;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private String getMultiSearchBody(List<String> names, int from, int size)
+        throws JsonProcessingException {
+        StringBuilder body = new StringBuilder();
+        for (String name : names) {
+            body.append(searchMetaData);
+            body.append(JsonUtil.toJson(getSearchBody(name, from, size)));
+            body.append(System.lineSeparator());
+        }
+        return body.toString();
+    }
+
     private HttpEntity getHttpEntityForSearch(String metricName, int from, int
         size, long tmst)
         throws JsonProcessingException {
+        return new NStringEntity(
+            JsonUtil.toJson(getSearchBody(metricName, from, size)),
+            ContentType.APPLICATION_JSON);
+    }
+
+    private Map<String, Object> getSearchBody(String metricName, int from,
+                                              int size) {
         Map<String, Object> map = new HashMap<>();
-        Map<String, Object> queryParam = new HashMap<>();
-        Map<String, Object> termQuery = Collections.singletonMap("name.keyword",
-            metricName);
-        queryParam.put("filter", Collections.singletonMap("term", termQuery));
         Map<String, Object> sortParam = Collections
             .singletonMap("tmst", Collections.singletonMap("order",
                 "desc"));
-        map.put("query", Collections.singletonMap("bool", queryParam));
+        map.put("query", getNameQuery(metricName));
         map.put("sort", sortParam);
         map.put("from", from);
         map.put("size", size);
-        return new NStringEntity(JsonUtil.toJson(map),
+        return map;
+    }
+
+    private Map<String, Object> getNameQuery(String metricName) {
+        Map<String, Object> queryParam = new HashMap<>();
+        Map<String, Object> termQuery = Collections.singletonMap("name.keyword",
+            metricName);
+        queryParam.put("filter", Collections.singletonMap("term", termQuery));
+        return Collections.singletonMap("bool", queryParam);
+    }
+
+    @Override
+    public MetricValuePage getMetricValuePage(String metricName, int size,
+                                              MetricCursor after)
+        throws IOException {
+        HttpEntity entity = new NStringEntity(JsonUtil.toJson(
+            getPageSearchBody(metricName, size, after)),
             ContentType.APPLICATION_JSON);
+        try {
+            Response response = client.performRequest("GET", urlPage,
+                Collections.emptyMap(), entity);
+            return getMetricValuePageFromResponse(response, size);
+        } catch (ResponseException e) {
+            if (isNotFound(e)) {
+                return new MetricValuePage(new ArrayList<>(), null);
+            }
+            throw e;
+        }
     }
 
-    private List<MetricValue> getMetricValuesFromResponse(Response response)
+    @Override
+    public CompletableFuture<MetricValuePage> getMetricValuePageAsync(
+        String metricName, int size, MetricCursor after) {
+        HttpEntity entity;
+        try {
+            entity = new NStringEntity(JsonUtil.toJson(getPageSearchBody(
+                metricName, size, after)), ContentType.APPLICATION_JSON);
+        } catch (JsonProcessingException e) {
+            return MetricStoreFutures.failed(e);
+        }
+        return performRequestAsync("GET", urlPage, Collections.emptyMap(),
+            entity, response -> getMetricValuePageFromResponse(response, size),
+            () -> new MetricValuePage(new ArrayList<>(), null));
+    }
+
+    /**
+     * Sort by (tmst, _id), so that every value has a unique position to
+     * search after, and start right after the cursor instead of skipping
+     * all values before it.
+     */
+    private Map<String, Object> getPageSearchBody(String metricName, int size,
+                                                  MetricCursor after) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("query", getNameQuery(metricName));
+        map.put("sort", Arrays.asList(
+            Collections.singletonMap("tmst",
+                Collections.singletonMap("order", "desc")),
+            Collections.singletonMap("_id",
+                Collections.singletonMap("order", "desc"))));
+        map.put("size", size);
+        if (after != null) {
+            map.put("search_after", Arrays.asList(after.getTmst(),
+                after.getKey()));
+        }
+        return map;
+    }
+
+    private MetricValuePage getMetricValuePageFromResponse(Response response,
+                                                           int size)
         throws IOException {
-        List<MetricValue> metricValues = new ArrayList<>();
-        JsonNode jsonNode = mapper.readTree(EntityUtils.toString(response
-            .getEntity()));
-        if (jsonNode.hasNonNull("hits") && jsonNode.get("hits")
-            .hasNonNull("hits")) {
-            for (JsonNode node : jsonNode.get("hits").get("hits")) {
-                JsonNode sourceNode = node.get("_source");
-                Map<String, Object> value = JsonUtil.toEntity(
-                    sourceNode.get("value").toString(),
-                    new TypeReference<Map<String, Object>>() {
-                    });
-                Map<String, Object> meta = JsonUtil.toEntity(
-                    Objects.toString(sourceNode.get("metadata"), null),
-                    new TypeReference<Map<String, Object>>() {
-                    });
-                MetricValue metricValue = new MetricValue(
-                    sourceNode.get("name").asText(),
-                    Long.parseLong(sourceNode.get("tmst").asText()),
-                    meta,
-                    value);
-                metricValues.add(metricValue);
+        MetricValueDecoder.Hits hits;
+        try (InputStream in = response.getEntity().getContent()) {
+            hits = MetricValueDecoder.readSearchResponse(in);
+        }
+        List<MetricValue> metricValues = hits.getValues();
+        List<Object> sort = hits.getLastSort();
+        if (size == 0 || metricValues.size() < size || sort == null
+            || sort.size() < 2) {
+            return new MetricValuePage(metricValues, null);
+        }
+        return new MetricValuePage(metricValues, new MetricCursor(
+            ((Number) sort.get(0)).longValue(),
+            String.valueOf(sort.get(1))).encode());
+    }
+
+    @Override
+    public List<MetricBucket> aggregateMetricValues(String metricName,
+                                                    long from, long to,
+                                                    long interval,
+                                                    List<String> fields)
+        throws IOException {
+        HttpEntity entity = new NStringEntity(JsonUtil.toJson(
+            getAggregationBody(metricName, from, to, interval, fields)),
+            ContentType.APPLICATION_JSON);
+        try {
+            Response response = client.performRequest("GET",
+                getAggregateUrl(from, to), Collections.emptyMap(), entity);
+            return getBucketsFromResponse(response, fields);
+        } catch (ResponseException e) {
+            if (isNotFound(e)) {
+                return Collections.emptyList();
             }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<MetricBucket>> aggregateMetricValuesAsync(
+        String metricName, long from, long to, long interval,
+        List<String> fields) {
+        HttpEntity entity;
+        try {
+            entity = new NStringEntity(JsonUtil.toJson(getAggregationBody(
+                metricName, from, to, interval, fields)),
+                ContentType.APPLICATION_JSON);
+        } catch (JsonProcessingException e) {
+            return MetricStoreFutures.failed(e);
+        }
+        return performRequestAsync("GET", getAggregateUrl(from, to),
+            Collections.emptyMap(), entity,
+            response -> getBucketsFromResponse(response, fields),
+            Collections::emptyList);
+    }
+
+    /**
+     * Search only the partitions overlapping [from, to), and the griffin
+     * index if it is still read. Partitions which do not exist are skipped.
+     */
+    private String getAggregateUrl(long from, long to) {
+        if (indices == null || indices.countIndices(from, to)
+            > maxRoutedIndices) {
+            return urlAggregate;
+        }
+        List<String> names = indices.getIndices(from, to);
+        if (legacyIndexReadable) {
+            names.add(INDEX);
+        }
+        if (names.isEmpty()) {
+            return urlAggregate;
+        }
+        return String.format("/%s/%s/_search?filter_path=aggregations"
+            + "&ignore_unavailable=true", String.join(",", names), TYPE);
+    }
+
+    /**
+     * A date_histogram of the time range, with stats and the latest hit
+     * having the field of every field and bucket, as the local store takes
+     * the last value of a field from the values having it. Only
+     * aggregations are returned, so the response size depends on the count
+     * of buckets and not of values.
+     */
+    private Map<String, Object> getAggregationBody(String metricName,
+                                                   long from, long to,
+                                                   long interval,
+                                                   List<String> fields) {
+        Map<String, Object> range = new HashMap<>();
+        range.put("gte", from);
+        range.put("lt", to);
+        List<Object> filters = new ArrayList<>();
+        filters.add(Collections.singletonMap("term",
+            Collections.singletonMap("name.keyword", metricName)));
+        filters.add(Collections.singletonMap("range",
+            Collections.singletonMap("tmst", range)));
+
+        Map<String, Object> aggs = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            String field = "value." + fields.get(i);
+            aggs.put(FIELD_AGG_PREFIX + i, Collections.singletonMap("stats",
+                Collections.singletonMap("field", field)));
+            Map<String, Object> hit = new HashMap<>();
+            hit.put("size", 1);
+            hit.put("sort", Collections.singletonMap("tmst",
+                Collections.singletonMap("order", "desc")));
+            hit.put("_source", Collections.singletonMap("includes",
+                Collections.singletonList(field)));
+            Map<String, Object> last = new HashMap<>();
+            last.put("filter", Collections.singletonMap("exists",
+                Collections.singletonMap("field", field)));
+            last.put("aggs", Collections.singletonMap(LAST_HIT_AGG,
+                Collections.singletonMap("top_hits", hit)));
+            aggs.put(LAST_AGG_PREFIX + i, last);
+        }
+
+        Map<String, Object> histogram = new HashMap<>();
+        histogram.put("field", "tmst");
+        histogram.put("interval", interval + "ms");
+        histogram.put("min_doc_count", 1);
+        Map<String, Object> buckets = new HashMap<>();
+        buckets.put("date_histogram", histogram);
+        buckets.put("aggs", aggs);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("size", 0);
+        body.put("query", Collections.singletonMap("bool",
+            Collections.singletonMap("filter", filters)));
+        body.put("aggs", Collections.singletonMap(BUCKETS_AGG, buckets));
+        return body;
+    }
+
+    private List<MetricBucket> getBucketsFromResponse(Response response,
+                                                      List<String> fields)
+        throws IOException {
+        JsonNode root;
+        try (InputStream in = response.getEntity().getContent()) {
+            root = mapper.readTree(in);
+        }
+        List<MetricBucket> buckets = new ArrayList<>();
+        for (JsonNode node : root.path("aggregations").path(BUCKETS_AGG)
+            .path("buckets")) {
+            MetricBucket bucket = new MetricBucket(node.path("key").asLong(),
+                node.path("doc_count").asLong());
+            for (int i = 0; i < fields.size(); i++) {
+                String field = fields.get(i);
+                JsonNode stats = node.path(FIELD_AGG_PREFIX + i);
+                JsonNode lastValue = node.path(LAST_AGG_PREFIX + i)
+                    .path(LAST_HIT_AGG).path("hits").path("hits").path(0)
+                    .path("_source").path("value");
+                bucket.getFields().put(field, new MetricFieldStats(
+                    stats.path("count").asLong(),
+                    toDouble(stats.get("min")),
+                    toDouble(stats.get("max")),
+                    toDouble(stats.get("avg")),
+                    toDouble(getField(lastValue, field))));
+            }
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    private static JsonNode getField(JsonNode node, String field) {
+        for (String part : field.split("\\.")) {
+            node = node.path(part);
+        }
+        return node;
+    }
+
+    private static Double toDouble(JsonNode node) {
+        return node != null && node.isNumber() ? node.asDouble() : null;
+    }
+
+    /**
+     * Responses of _msearch come back in the order of the requests, so the
+     * n-th response belongs to the n-th metric name of the chunk.
+     */
+    private Map<String, List<MetricValue>> getMetricValuesFromMultiResponse(
+        List<String> names, Response response) throws IOException {
+        Map<String, List<MetricValue>> metricValues = new HashMap<>();
+        List<MetricValueDecoder.Hits> responses = Collections.emptyList();
+        if (response != null) {
+            try (InputStream in = response.getEntity().getContent()) {
+                responses = MetricValueDecoder.readMultiSearchResponse(in);
+            }
+        }
+        for (int i = 0; i < names.size(); i++) {
+            metricValues.put(names.get(i), i < responses.size()
+                ? responses.get(i).getValues()
+                : new ArrayList<>());
         }
         return metricValues;
     }
 
+    private List<MetricValue> getMetricValuesFromResponse(Response response)
+        throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return MetricValueDecoder.readSearchResponse(in).getValues();
+        }
+    }
+
     @Override
     public ResponseEntity<?> addMetricValues(List<MetricValue> metricValues)
         throws IOException {
+        ensurePartitioning();
         String bulkRequestBody = getBulkRequestBody(metricValues);
         HttpEntity entity = new NStringEntity(bulkRequestBody,
             ContentType.APPLICATION_JSON);
@@ -173,29 +754,115 @@ public class MetricStoreImpl implements MetricStore {
         return getResponseEntityFromResponse(response);
     }
 
+    @Override
+    public CompletableFuture<ResponseEntity<?>> addMetricValuesAsync(
+        List<MetricValue> metricValues) {
+        if (indices != null && !partitioningReady) {
+            return MetricStoreFutures.supply(() -> {
+                ensurePartitioning();
+                return null;
+            }).thenCompose(ignored -> addMetricValuesAsync(metricValues));
+        }
+        HttpEntity entity;
+        try {
+            entity = new NStringEntity(getBulkRequestBody(metricValues),
+                ContentType.APPLICATION_JSON);
+        } catch (JsonProcessingException e) {
+            return MetricStoreFutures.failed(e);
+        }
+        return performRequestAsync("POST", urlPost, Collections.emptyMap(),
+            entity, this::getResponseEntityFromResponse, null);
+    }
+
+    @Override
+    public MetricBulkResult bulkAddMetricValues(List<MetricValue> metricValues)
+        throws IOException {
+        ensurePartitioning();
+        String bulkRequestBody = getBulkRequestBody(metricValues);
+        HttpEntity entity = new NStringEntity(bulkRequestBody,
+            ContentType.APPLICATION_JSON);
+        Response response = client.performRequest("POST", urlPost,
+            Collections.emptyMap(), entity);
+        return getBulkResultFromResponse(response, metricValues.size());
+    }
+
     private String getBulkRequestBody(List<MetricValue> metricValues) throws
         JsonProcessingException {
         StringBuilder bulkRequestBody = new StringBuilder();
         for (MetricValue metricValue : metricValues) {
-            bulkRequestBody.append(indexMetaData);
-            bulkRequestBody.append(JsonUtil.toJson(metricValue));
+            bulkRequestBody.append(indices == null ? indexMetaData
+                : getIndexMetaData(indices.getIndex(getTmst(metricValue))));
+            bulkRequestBody.append(mapper.writeValueAsString(metricValue));
             bulkRequestBody.append(System.lineSeparator());
         }
         return bulkRequestBody.toString();
     }
 
+    private static long getTmst(MetricValue metricValue) {
+        return metricValue.getTmst() == null ? System.currentTimeMillis()
+            : metricValue.getTmst();
+    }
+
+    /**
+     * Items of a _bulk response come back in the order of the request, so the
+     * index of a failed item is the index of its metric value.
+     */
+    private MetricBulkResult getBulkResultFromResponse(Response response,
+                                                       int count)
+        throws IOException {
+        JsonNode root;
+        try (InputStream in = response.getEntity().getContent()) {
+            root = mapper.readTree(in);
+        }
+        MetricBulkResult result = new MetricBulkResult(
+            root.path("took").asLong(), count);
+        if (!root.path("errors").asBoolean(false)) {
+            return result;
+        }
+        JsonNode items = root.path("items");
+        for (int i = 0; i < items.size(); i++) {
+            Iterator<JsonNode> actions = items.get(i).elements();
+            JsonNode item = actions.hasNext() ? actions.next() : null;
+            if (item != null && item.hasNonNull("error")) {
+                JsonNode error = item.get("error");
+                result.addError(new MetricBulkError(i,
+                    item.path("status").asInt(),
+                    error.path("type").asText(null),
+                    error.path("reason").asText(null)));
+            }
+        }
+        return result;
+    }
+
     @Override
     public ResponseEntity<?> deleteMetricValues(String metricName) throws
         IOException {
+        HttpEntity entity = getHttpEntityForDelete(metricName);
+        Response response = client.performRequest("POST", urlDelete,
+            Collections.emptyMap(), entity);
+        return getResponseEntityFromResponse(response);
+    }
+
+    @Override
+    public CompletableFuture<ResponseEntity<?>> deleteMetricValuesAsync(
+        String metricName) {
+        HttpEntity entity;
+        try {
+            entity = getHttpEntityForDelete(metricName);
+        } catch (JsonProcessingException e) {
+            return MetricStoreFutures.failed(e);
+        }
+        return performRequestAsync("POST", urlDelete, Collections.emptyMap(),
+            entity, this::getResponseEntityFromResponse, null);
+    }
+
+    private HttpEntity getHttpEntityForDelete(String metricName)
+        throws JsonProcessingException {
         Map<String, Object> param = Collections.singletonMap("query",
             Collections.singletonMap("term",
                 Collections.singletonMap("name.keyword", metricName)));
-        HttpEntity entity = new NStringEntity(
-            JsonUtil.toJson(param),
+        return new NStringEntity(JsonUtil.toJson(param),
             ContentType.APPLICATION_JSON);
-        Response response = client.performRequest("POST", urlDelete,
-            Collections.emptyMap(), entity);
-        return getResponseEntityFromResponse(response);
     }
 
     private ResponseEntity<?> getResponseEntityFromResponse(Response response)
@@ -214,11 +881,138 @@ public class MetricStoreImpl implements MetricStore {
 
     @Override
     public MetricValue getMetric(String applicationId) throws IOException {
-        Response response = client.performRequest(
-            "GET", urlGet,
-            Collections.singletonMap(
-                "q", "metadata.applicationId:" + applicationId));
+        HttpEntity entity = new NStringEntity(JsonUtil.toJson(
+            getApplicationSearchBody(applicationId)),
+            ContentType.APPLICATION_JSON);
+        Response response = client.performRequest("GET", urlGet,
+            Collections.emptyMap(), entity);
         List<MetricValue> metricValues = getMetricValuesFromResponse(response);
-        return metricValues.get(0);
+        return metricValues.isEmpty() ? null : metricValues.get(0);
+    }
+
+    @Override
+    public CompletableFuture<MetricValue> getMetricAsync(String applicationId) {
+        HttpEntity entity;
+        try {
+            entity = new NStringEntity(JsonUtil.toJson(
+                getApplicationSearchBody(applicationId)),
+                ContentType.APPLICATION_JSON);
+        } catch (JsonProcessingException e) {
+            return MetricStoreFutures.failed(e);
+        }
+        return performRequestAsync("GET", urlGet, Collections.emptyMap(),
+            entity, response -> {
+                List<MetricValue> metricValues =
+                    getMetricValuesFromResponse(response);
+                return metricValues.isEmpty() ? null : metricValues.get(0);
+            }, null);
+    }
+
+    /**
+     * Latest value of an application, found by a term filter on the keyword
+     * field of application ids instead of a query string search.
+     */
+    private Map<String, Object> getApplicationSearchBody(
+        String applicationId) {
+        Map<String, Object> termQuery = Collections.singletonMap(
+            applicationIdField, applicationId);
+        Map<String, Object> map = new HashMap<>();
+        map.put("query", Collections.singletonMap("bool",
+            Collections.singletonMap("filter", Collections.singletonMap(
+                "term", termQuery))));
+        map.put("sort", Collections.singletonList(Collections.singletonMap(
+            "tmst", Collections.singletonMap("order", "desc"))));
+        map.put("size", 1);
+        return map;
+    }
+
+    /**
+     * Send a request without blocking the caller. At most
+     * {@code maxConcurrentRequests} requests are in flight, further ones
+     * wait for a free slot, and the returned future fails with
+     * {@link MetricStoreTimeoutException} if the request, waiting included,
+     * takes longer than {@code requestTimeoutMillis}. A timed out request
+     * gives up its place in the queue, or keeps its slot until its late
+     * response arrives, so that slow responses do not let more requests in.
+     *
+     * @param notFound value of a 404 response, or null to fail on it
+     */
+    private <T> CompletableFuture<T> performRequestAsync(
+        String method, String endpoint, Map<String, String> params,
+        HttpEntity entity, ResponseParser<T> parser, Supplier<T> notFound) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Response> request = getRequestLimiter()
+            .submit(() -> sendAsync(method, endpoint, params, entity));
+        ScheduledFuture<?> timeout = TIMEOUT_SCHEDULER.schedule(() -> {
+            // give up the place in the queue or drop the late response
+            if (request.cancel(false)) {
+                result.completeExceptionally(new MetricStoreTimeoutException(
+                    String.format("%s %s did not complete in %d ms.", method,
+                        endpoint, requestTimeoutMillis)));
+            }
+        }, requestTimeoutMillis, TimeUnit.MILLISECONDS);
+        request.whenComplete((response, e) -> {
+            timeout.cancel(false);
+            if (request.isCancelled()) {
+                return;
+            }
+            if (e == null) {
+                try {
+                    result.complete(parser.parse(response));
+                } catch (IOException | RuntimeException ex) {
+                    result.completeExceptionally(ex);
+                }
+                return;
+            }
+            Throwable cause = MetricStoreFutures.unwrap(e);
+            if (notFound != null && isNotFound(cause)) {
+                result.complete(notFound.get());
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<Response> sendAsync(String method,
+                                                  String endpoint,
+                                                  Map<String, String> params,
+                                                  HttpEntity entity) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        client.performRequestAsync(method, endpoint, params, entity,
+            new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    future.complete(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        return future;
+    }
+
+    private AsyncRequestLimiter getRequestLimiter() {
+        if (requestLimiter == null) {
+            synchronized (this) {
+                if (requestLimiter == null) {
+                    requestLimiter = new AsyncRequestLimiter(
+                        maxConcurrentRequests, maxPendingRequests);
+                }
+            }
+        }
+        return requestLimiter;
+    }
+
+    private static boolean isNotFound(Throwable e) {
+        return e instanceof ResponseException && ((ResponseException) e)
+            .getResponse().getStatusLine().getStatusCode() == 404;
+    }
+
+    @FunctionalInterface
+    private interface ResponseParser<T> {
+        T parse(Response response) throws IOException;
     }
 }
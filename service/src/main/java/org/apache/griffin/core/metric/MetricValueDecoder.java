@@ -0,0 +1,201 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.griffin.core.metric.model.MetricValue;
+
+/**
+ * Decodes metric values of Elasticsearch search responses in one pass over
+ * the response stream. Only the value and metadata maps of each hit are
+ * materialized; everything else is skipped token by token.
+ */
+final class MetricValueDecoder {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+    private static final ObjectReader MAP_READER = MAPPER.readerFor(
+        new TypeReference<Map<String, Object>>() {
+        });
+    private static final ObjectReader LIST_READER = MAPPER.readerFor(
+        new TypeReference<List<Object>>() {
+        });
+
+    /**
+     * Hits of one search response.
+     */
+    static final class Hits {
+        private final List<MetricValue> values = new ArrayList<>();
+        private List<Object> lastSort;
+
+        List<MetricValue> getValues() {
+            return values;
+        }
+
+        /**
+         * @return sort values of the last hit, or null if there are none
+         */
+        List<Object> getLastSort() {
+            return lastSort;
+        }
+    }
+
+    private MetricValueDecoder() {
+    }
+
+    static Hits readSearchResponse(InputStream in) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Search response is not an object.");
+            }
+            return readResponse(parser);
+        }
+    }
+
+    /**
+     * @return hits of every response of a _msearch, in request order. A
+     * failed search has no hits.
+     */
+    static List<Hits> readMultiSearchResponse(InputStream in)
+        throws IOException {
+        List<Hits> responses = new ArrayList<>();
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Search response is not an object.");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("responses".equals(field)
+                    && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        responses.add(readResponse(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Read a search response object, from its START_OBJECT to its
+     * END_OBJECT.
+     */
+    private static Hits readResponse(JsonParser parser) throws IOException {
+        Hits hits = new Hits();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("hits".equals(field) && token == JsonToken.START_OBJECT) {
+                readHitsObject(parser, hits);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return hits;
+    }
+
+    private static void readHitsObject(JsonParser parser, Hits hits)
+        throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("hits".equals(field) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readHit(parser, hits);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readHit(JsonParser parser, Hits hits)
+        throws IOException {
+        MetricValue value = null;
+        List<Object> sort = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("_source".equals(field) && token == JsonToken.START_OBJECT) {
+                value = readSource(parser);
+            } else if ("sort".equals(field)
+                && token == JsonToken.START_ARRAY) {
+                sort = LIST_READER.readValue(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (value != null) {
+            hits.values.add(value);
+            hits.lastSort = sort;
+        }
+    }
+
+    private static MetricValue readSource(JsonParser parser)
+        throws IOException {
+        MetricValue value = new MetricValue();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "name":
+                    value.setName(parser.getValueAsString());
+                    break;
+                case "tmst":
+                    value.setTmst(token == JsonToken.VALUE_NUMBER_INT
+                        ? parser.getLongValue()
+                        : Long.parseLong(parser.getText()));
+                    break;
+                case "value":
+                    value.setValue(readMap(parser, token));
+                    break;
+                case "metadata":
+                    value.setMetadata(readMap(parser, token));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    private static Map<String, Object> readMap(JsonParser parser,
+                                               JsonToken token)
+        throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return MAP_READER.readValue(parser);
+    }
+}
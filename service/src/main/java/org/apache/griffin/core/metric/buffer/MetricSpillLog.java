@@ -0,0 +1,249 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.buffer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of metric values that could not be written to the metric
+ * store, one json metric value per line. The log is a directory of segment
+ * files named by increasing sequence numbers. Segments are replayed oldest
+ * first and deleted as a whole once all their values are written, so a
+ * crash during replay writes the values of at most one segment twice. A
+ * replay stopping part way moves the values not written yet of a segment to
+ * a new one.
+ * <p>
+ * All methods are synchronized.
+ */
+final class MetricSpillLog {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(MetricSpillLog.class);
+
+    private static final String SUFFIX = ".ndjson";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path dir;
+    private final long segmentSize;
+
+    /**
+     * sequence to size in bytes of every segment, the last one is active
+     */
+    private final TreeMap<Long, Long> segments = new TreeMap<>();
+    private FileChannel active;
+    private long size;
+    private long count;
+
+    private MetricSpillLog(Path dir, long segmentSize) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+    static MetricSpillLog open(Path dir, long segmentSize) throws IOException {
+        Files.createDirectories(dir);
+        MetricSpillLog log = new MetricSpillLog(dir, segmentSize);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir,
+            "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long sequence;
+                try {
+                    sequence = Long.parseLong(name.substring(0,
+                        name.length() - SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Skip unknown spill file {}.", file);
+                    continue;
+                }
+                long fileSize = Files.size(file);
+                log.segments.put(sequence, fileSize);
+                log.size += fileSize;
+                log.count += countLines(file);
+            }
+        }
+        if (!log.segments.isEmpty()) {
+            LOGGER.info("Found {} spilled metric values in {}.", log.count,
+                dir);
+        }
+        return log;
+    }
+
+    /**
+     * Append values and force them to disk.
+     */
+    synchronized void append(List<MetricValue> values) throws IOException {
+        if (values.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (MetricValue value : values) {
+            lines.append(mapper.writeValueAsString(value)).append('\n');
+        }
+        byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+        FileChannel channel = getActive(bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        segments.merge(segments.lastKey(), (long) bytes.length, Long::sum);
+        size += bytes.length;
+        count += values.size();
+    }
+
+    /**
+     * Read the oldest segment. The active segment is sealed first if it is
+     * the only one, so that appends during the replay go to a new segment.
+     *
+     * @return values of the oldest segment, or null if the log is empty
+     */
+    synchronized Segment readOldest() throws IOException {
+        if (segments.isEmpty()) {
+            return null;
+        }
+        long sequence = segments.firstKey();
+        if (active != null && sequence == segments.lastKey()) {
+            closeActive();
+        }
+        List<MetricValue> values = new ArrayList<>();
+        Path file = getFile(sequence);
+        try (BufferedReader reader = Files.newBufferedReader(file,
+            StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    values.add(mapper.readValue(line, MetricValue.class));
+                } catch (IOException e) {
+                    LOGGER.warn("Skip unreadable line of spill file {}. {}",
+                        file, e.getMessage());
+                }
+            }
+        }
+        return new Segment(sequence, values);
+    }
+
+    /**
+     * Delete a segment returned by {@link #readOldest()} after its values
+     * have been written.
+     */
+    synchronized void remove(Segment segment) throws IOException {
+        Long fileSize = segments.remove(segment.sequence);
+        if (fileSize == null) {
+            return;
+        }
+        Files.deleteIfExists(getFile(segment.sequence));
+        size -= fileSize;
+        count -= segment.values.size();
+        if (segments.isEmpty()) {
+            size = 0;
+            count = 0;
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * @return bytes of all segments
+     */
+    synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of spilled values
+     */
+    synchronized long getCount() {
+        return count;
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    synchronized void close() throws IOException {
+        closeActive();
+    }
+
+    private FileChannel getActive(int length) throws IOException {
+        if (active != null && segments.lastEntry().getValue() + length
+            > segmentSize) {
+            closeActive();
+        }
+        if (active == null) {
+            long sequence = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+            active = FileChannel.open(getFile(sequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+            segments.put(sequence, 0L);
+        }
+        return active;
+    }
+
+    private void closeActive() throws IOException {
+        if (active != null) {
+            active.close();
+            active = null;
+        }
+    }
+
+    private Path getFile(long sequence) {
+        return dir.resolve(String.format("%019d%s", sequence, SUFFIX));
+    }
+
+    private static long countLines(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file,
+            StandardCharsets.UTF_8)) {
+            return reader.lines().filter(line -> !line.isEmpty()).count();
+        }
+    }
+
+    static final class Segment {
+        private final long sequence;
+        private final List<MetricValue> values;
+
+        private Segment(long sequence, List<MetricValue> values) {
+            this.sequence = sequence;
+            this.values = values;
+        }
+
+        List<MetricValue> getValues() {
+            return values;
+        }
+    }
+}
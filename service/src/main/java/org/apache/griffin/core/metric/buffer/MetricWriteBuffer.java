@@ -0,0 +1,366 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.buffer;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+
+import org.apache.griffin.core.metric.MetricStore;
+import org.apache.griffin.core.metric.model.MetricBulkError;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricWriteBufferStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind buffer in front of the metric store.
+ * <p>
+ * Added values are queued in memory and written by a single flusher thread
+ * in bulks of up to {@code batchSize} values, once a bulk is full or the
+ * queue has waited for {@code maxAgeMillis}. Values that cannot be written
+ * because the store failed or rejected them as overloaded are appended to
+ * a local spill log, which is replayed once the store accepts writes again.
+ * While the store is failing, flushes go to the spill log directly and the
+ * store is retried every {@code retryIntervalMillis}.
+ * <p>
+ * Values beyond {@code maxQueuedValues} go to the spill log as well, and
+ * once the spill log has reached {@code maxSpillSize} bytes, further values
+ * are rejected.
+ */
+@Component
+@ConditionalOnProperty(name = "metric.write.buffer.enabled",
+    havingValue = "true")
+public class MetricWriteBuffer {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(MetricWriteBuffer.class);
+
+    private final MetricStore store;
+    private final int batchSize;
+    private final long maxAgeMillis;
+    private final int maxQueuedValues;
+    private final long maxSpillSize;
+    private final long retryIntervalMillis;
+    private final MetricSpillLog spillLog;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * guarded by this
+     */
+    private final ArrayDeque<MetricValue> queue = new ArrayDeque<>();
+    /**
+     * time the oldest queued value was added, guarded by this
+     */
+    private long oldestNanos;
+    /**
+     * whether a flush of a full bulk is scheduled, guarded by this
+     */
+    private boolean flushRequested;
+
+    /**
+     * only accessed by the flusher thread
+     */
+    private long nextRetryNanos;
+    private volatile boolean storeAvailable = true;
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong spillCount = new AtomicLong();
+    private final AtomicLong replayedCount = new AtomicLong();
+    private final AtomicLong lastFlushLatency = new AtomicLong();
+    private final AtomicLong maxFlushLatency = new AtomicLong();
+    private final AtomicLong totalFlushLatency = new AtomicLong();
+
+    public MetricWriteBuffer(
+        MetricStore store,
+        @Value("${metric.write.buffer.batch.size:1000}") int batchSize,
+        @Value("${metric.write.buffer.max.age.in.milliseconds:1000}")
+            long maxAgeMillis,
+        @Value("${metric.write.buffer.max.queued:100000}")
+            int maxQueuedValues,
+        @Value("${metric.write.buffer.spill.path:griffin-metric-spill}")
+            String spillPath,
+        @Value("${metric.write.buffer.spill.segment.size:8388608}")
+            long spillSegmentSize,
+        @Value("${metric.write.buffer.spill.max.size:1073741824}")
+            long maxSpillSize,
+        @Value("${metric.write.buffer.retry.interval.in.milliseconds:5000}")
+            long retryIntervalMillis) throws IOException {
+        this.store = store;
+        this.batchSize = batchSize;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxQueuedValues = maxQueuedValues;
+        this.maxSpillSize = maxSpillSize;
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.spillLog = MetricSpillLog.open(Paths.get(spillPath),
+            spillSegmentSize);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metric-write-buffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = Math.max(1, maxAgeMillis / 4);
+        flusher.scheduleWithFixedDelay(this::flush, tick, tick,
+            TimeUnit.MILLISECONDS);
+        LOGGER.info("Metric write buffer is enabled. batch size: {}, "
+                + "max age: {}ms, spill path: {}", batchSize, maxAgeMillis,
+            spillPath);
+    }
+
+    /**
+     * Accept values for writing.
+     *
+     * @throws RejectedExecutionException if both the queue and the spill
+     *                                    log are full
+     * @throws IOException                if values could not be spilled
+     */
+    public void add(List<MetricValue> values) throws IOException {
+        if (values.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (queue.size() + values.size() <= maxQueuedValues) {
+                if (queue.isEmpty()) {
+                    oldestNanos = System.nanoTime();
+                }
+                queue.addAll(values);
+                acceptedCount.addAndGet(values.size());
+                if (queue.size() >= batchSize && !flushRequested) {
+                    flushRequested = true;
+                    flusher.execute(this::flush);
+                }
+                return;
+            }
+        }
+        if (spillLog.getSize() >= maxSpillSize) {
+            rejectedCount.addAndGet(values.size());
+            throw new RejectedExecutionException(String.format(
+                "Metric write buffer is full. queued: %d, spilled: %d bytes",
+                maxQueuedValues, spillLog.getSize()));
+        }
+        spillLog.append(values);
+        acceptedCount.addAndGet(values.size());
+        spillCount.addAndGet(values.size());
+    }
+
+    public MetricWriteBufferStats getStats() {
+        MetricWriteBufferStats stats = new MetricWriteBufferStats();
+        synchronized (this) {
+            stats.setQueuedValues(queue.size());
+        }
+        stats.setMaxQueuedValues(maxQueuedValues);
+        stats.setSpilledValues(spillLog.getCount());
+        stats.setSpillSize(spillLog.getSize());
+        stats.setMaxSpillSize(maxSpillSize);
+        stats.setStoreAvailable(storeAvailable);
+        stats.setAcceptedCount(acceptedCount.get());
+        stats.setRejectedCount(rejectedCount.get());
+        long flushes = flushCount.get();
+        stats.setFlushCount(flushes);
+        stats.setFlushedCount(flushedCount.get());
+        stats.setFailedCount(failedCount.get());
+        stats.setSpillCount(spillCount.get());
+        stats.setReplayedCount(replayedCount.get());
+        stats.setLastFlushLatency(lastFlushLatency.get());
+        stats.setMaxFlushLatency(maxFlushLatency.get());
+        stats.setAverageFlushLatency(flushes == 0 ? 0
+            : (double) totalFlushLatency.get() / flushes);
+        return stats;
+    }
+
+    /**
+     * Write all queued values, spilling what cannot be written, and close
+     * the spill log.
+     */
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(maxAgeMillis + retryIntervalMillis,
+                TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Metric write buffer flusher did not stop.");
+            }
+            List<MetricValue> batch;
+            while ((batch = poll(true)) != null) {
+                write(batch);
+            }
+            spillLog.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close metric spill log. {}",
+                e.getMessage());
+        }
+    }
+
+    /**
+     * Replay the spill log if it is due and write every full or expired
+     * bulk. Runs on the flusher thread only.
+     */
+    void flush() {
+        try {
+            if (!spillLog.isEmpty() && System.nanoTime() >= nextRetryNanos) {
+                replay();
+            }
+            List<MetricValue> batch;
+            while ((batch = poll(false)) != null) {
+                write(batch);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to flush metric values. {}", e.getMessage());
+        }
+    }
+
+    private synchronized List<MetricValue> poll(boolean force) {
+        flushRequested = false;
+        if (queue.isEmpty() || (!force && queue.size() < batchSize
+            && System.nanoTime() - oldestNanos
+            < TimeUnit.MILLISECONDS.toNanos(maxAgeMillis))) {
+            return null;
+        }
+        int size = Math.min(batchSize, queue.size());
+        List<MetricValue> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(queue.poll());
+        }
+        return batch;
+    }
+
+    /**
+     * Write a bulk to the store, or to the spill log while the store is
+     * failing.
+     */
+    private void write(List<MetricValue> batch) throws IOException {
+        if (storeAvailable || System.nanoTime() >= nextRetryNanos) {
+            List<MetricValue> retries = send(batch);
+            if (retries == null) {
+                return;
+            }
+            batch = retries;
+        }
+        spill(batch);
+    }
+
+    private void replay() throws IOException {
+        MetricSpillLog.Segment segment = spillLog.readOldest();
+        if (segment == null) {
+            return;
+        }
+        List<MetricValue> values = segment.getValues();
+        for (int i = 0; i < values.size(); i += batchSize) {
+            List<MetricValue> batch = values.subList(i, Math.min(i + batchSize,
+                values.size()));
+            List<MetricValue> retries = send(batch);
+            if (retries == null) {
+                replayedCount.addAndGet(batch.size());
+                continue;
+            }
+            if (retries.size() == batch.size()) {
+                if (i > 0) {
+                    // move the values not written yet to a new segment, so
+                    // those written are not written again on the next replay
+                    spillLog.append(values.subList(i, values.size()));
+                    spillLog.remove(segment);
+                }
+                return;
+            }
+            // a part of the bulk was rejected, keep it for a later replay
+            spill(retries);
+            replayedCount.addAndGet(batch.size() - retries.size());
+        }
+        spillLog.remove(segment);
+        LOGGER.info("Replayed {} spilled metric values.", values.size());
+    }
+
+    /**
+     * @return null if all values are written or failed for good, otherwise
+     * the values to write again later
+     */
+    private List<MetricValue> send(List<MetricValue> batch) {
+        long start = System.nanoTime();
+        MetricBulkResult result;
+        try {
+            result = store.bulkAddMetricValues(batch);
+        } catch (IOException e) {
+            if (storeAvailable) {
+                LOGGER.warn("Metric store failed, spilling metric values. {}",
+                    e.getMessage());
+            }
+            storeAvailable = false;
+            nextRetryNanos = System.nanoTime() + TimeUnit.MILLISECONDS
+                .toNanos(retryIntervalMillis);
+            return batch;
+        } finally {
+            recordLatency(System.nanoTime() - start);
+        }
+        if (!storeAvailable) {
+            LOGGER.info("Metric store accepts writes again.");
+            storeAvailable = true;
+        }
+        List<MetricValue> retries = new ArrayList<>();
+        for (MetricBulkError error : result.getErrors()) {
+            MetricValue value = batch.get((int) error.getPosition());
+            if (isRetryable(error)) {
+                retries.add(value);
+            } else {
+                LOGGER.warn("Metric store rejected metric value {}. {}",
+                    value.getName(), error.getReason());
+                failedCount.incrementAndGet();
+            }
+        }
+        flushedCount.addAndGet(batch.size() - result.getFailedCount());
+        return retries.isEmpty() ? null : retries;
+    }
+
+    private void spill(List<MetricValue> values) throws IOException {
+        spillLog.append(values);
+        spillCount.addAndGet(values.size());
+    }
+
+    private void recordLatency(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        flushCount.incrementAndGet();
+        lastFlushLatency.set(millis);
+        totalFlushLatency.addAndGet(millis);
+        maxFlushLatency.accumulateAndGet(millis, Math::max);
+    }
+
+    /**
+     * Values rejected because the store was overloaded or failing are
+     * worth another try, invalid ones are not.
+     */
+    private static boolean isRetryable(MetricBulkError error) {
+        return error.getStatus() == 429 || error.getStatus() >= 500;
+    }
+}
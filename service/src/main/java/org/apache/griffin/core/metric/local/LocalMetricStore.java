@@ -0,0 +1,471 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.local;
+
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_CURSOR;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.griffin.core.exception.GriffinException;
+import org.apache.griffin.core.metric.MetricStore;
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricBulkError;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricCursor;
+import org.apache.griffin.core.metric.model.MetricFieldStats;
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricValuePage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metric store on local disk for deployments without Elasticsearch.
+ * <p>
+ * Every metric has its own directory of append-only segments, named by the
+ * url safe base64 of the metric name. Values are read newest first through
+ * memory mappings of the segments, and small segments are merged by a
+ * periodic compaction. Latest values of applications are found through an
+ * in-memory index from application id to metric name and timestamp, which
+ * is rebuilt from the segments on startup.
+ */
+@Component
+@Qualifier(value = "metricStoreBackend")
+@ConditionalOnProperty(name = "metric.store.type", havingValue = "local")
+public class LocalMetricStore implements MetricStore {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(LocalMetricStore.class);
+    private static final String APPLICATION_ID = "applicationId";
+    private static final String INVALID_METRIC_VALUE = "invalid_metric_value";
+
+    private final Path root;
+    private final int segmentSize;
+    private final int compactionThreshold;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpHeaders responseHeaders = new HttpHeaders();
+    private final ConcurrentMap<String, MetricSeries> series =
+        new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ApplicationRef> applications =
+        new ConcurrentHashMap<>();
+
+    public LocalMetricStore(
+        @Value("${metric.store.local.path:griffin-metrics}") String path,
+        @Value("${metric.store.local.segment.size:67108864}") int segmentSize,
+        @Value("${metric.store.local.compaction.threshold:4}")
+            int compactionThreshold) throws IOException {
+        this.root = Paths.get(path).toAbsolutePath();
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        this.responseHeaders.setContentType(MediaType.APPLICATION_JSON);
+        load();
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(root);
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root,
+            Files::isDirectory)) {
+            for (Path dir : dirs) {
+                String name = decodeName(dir.getFileName().toString());
+                if (name == null) {
+                    LOGGER.warn("Skip unknown directory {}.", dir);
+                    continue;
+                }
+                MetricSeries metricSeries = MetricSeries.open(dir,
+                    segmentSize);
+                metricSeries.forEachApplication((applicationId, tmst) ->
+                    indexApplication(applicationId, name, tmst));
+                series.put(name, metricSeries);
+            }
+        }
+        LOGGER.info("Loaded {} metrics from {}.", series.size(), root);
+    }
+
+    @Override
+    public List<MetricValue> getMetricValues(String metricName, int from,
+                                             int size, long tmst)
+        throws IOException {
+        MetricSeries metricSeries = series.get(metricName);
+        if (metricSeries == null) {
+            return Collections.emptyList();
+        }
+        List<MetricValue> metricValues = new ArrayList<>();
+        for (MetricSeries.Record record : metricSeries.scan(Long.MAX_VALUE,
+            from, size)) {
+            metricValues.add(mapper.readValue(record.payload,
+                MetricValue.class));
+        }
+        return metricValues;
+    }
+
+    /**
+     * The cursor key is the count of values of the cursor timestamp which
+     * were already read, since local values have no ids.
+     *
+     * @throws GriffinException.BadRequestException if the cursor key is not
+     *                                               such a count, as of a
+     *                                               cursor of another store
+     */
+    @Override
+    public MetricValuePage getMetricValuePage(String metricName, int size,
+                                              MetricCursor after)
+        throws IOException {
+        MetricSeries metricSeries = series.get(metricName);
+        if (metricSeries == null) {
+            return new MetricValuePage(new ArrayList<>(), null);
+        }
+        long maxTmst = after == null ? Long.MAX_VALUE : after.getTmst();
+        int skip = after == null ? 0 : getReadCount(after);
+        List<MetricSeries.Record> records = metricSeries.scan(maxTmst, skip,
+            size);
+        List<MetricValue> metricValues = new ArrayList<>();
+        for (MetricSeries.Record record : records) {
+            metricValues.add(mapper.readValue(record.payload,
+                MetricValue.class));
+        }
+        if (size == 0 || records.size() < size) {
+            return new MetricValuePage(metricValues, null);
+        }
+        long lastTmst = records.get(records.size() - 1).tmst;
+        int read = after != null && after.getTmst() == lastTmst ? skip : 0;
+        for (MetricSeries.Record record : records) {
+            if (record.tmst == lastTmst) {
+                read++;
+            }
+        }
+        return new MetricValuePage(metricValues, new MetricCursor(lastTmst,
+            Integer.toString(read)).encode());
+    }
+
+    private static int getReadCount(MetricCursor cursor) {
+        String key = cursor.getKey();
+        if (key != null && !key.isEmpty() && key.length() <= 9
+            && key.chars().allMatch(Character::isDigit)) {
+            return Integer.parseInt(key);
+        }
+        LOGGER.warn("Invalid local metric cursor key {}.", key);
+        throw new GriffinException.BadRequestException(INVALID_METRIC_CURSOR);
+    }
+
+    @Override
+    public Map<String, List<MetricValue>> getMetricValues(
+        List<String> metricNames, int from, int size) throws IOException {
+        Map<String, List<MetricValue>> metricValues = new HashMap<>();
+        for (String name : new LinkedHashSet<>(metricNames)) {
+            metricValues.put(name, getMetricValues(name, from, size, 0));
+        }
+        return metricValues;
+    }
+
+    /**
+     * Buckets start at multiples of the interval since the epoch, like those
+     * of an Elasticsearch date_histogram.
+     */
+    @Override
+    public List<MetricBucket> aggregateMetricValues(String metricName,
+                                                    long from, long to,
+                                                    long interval,
+                                                    List<String> fields)
+        throws IOException {
+        MetricSeries metricSeries = series.get(metricName);
+        if (metricSeries == null) {
+            return Collections.emptyList();
+        }
+        TreeMap<Long, BucketBuilder> buckets = new TreeMap<>();
+        metricSeries.scan(from, to, (tmst, payload) -> {
+            MetricValue value = mapper.readValue(payload, MetricValue.class);
+            long key = Math.floorDiv(tmst, interval) * interval;
+            buckets.computeIfAbsent(key, k -> new BucketBuilder(k, fields))
+                .add(tmst, value.getValue());
+        });
+        return buckets.values().stream().map(BucketBuilder::build)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public ResponseEntity<?> addMetricValues(List<MetricValue> metricValues)
+        throws IOException {
+        MetricBulkResult result = bulkAddMetricValues(metricValues);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("took", result.getTook());
+        body.put("errors", !result.getErrors().isEmpty());
+        body.put("count", result.getCount());
+        body.put("failed", result.getFailedCount());
+        return new ResponseEntity<>(mapper.writeValueAsString(body),
+            responseHeaders, HttpStatus.OK);
+    }
+
+    @Override
+    public MetricBulkResult bulkAddMetricValues(List<MetricValue> metricValues)
+        throws IOException {
+        long start = System.currentTimeMillis();
+        List<MetricBulkError> errors = new ArrayList<>();
+        Map<String, List<MetricSeries.Record>> records = new LinkedHashMap<>();
+        for (int i = 0; i < metricValues.size(); i++) {
+            MetricValue value = metricValues.get(i);
+            if (value == null || StringUtils.isBlank(value.getName())
+                || value.getTmst() == null) {
+                errors.add(new MetricBulkError(i,
+                    HttpStatus.BAD_REQUEST.value(), INVALID_METRIC_VALUE,
+                    "Metric value must have a name and a tmst"));
+                continue;
+            }
+            records.computeIfAbsent(value.getName(), name -> new ArrayList<>())
+                .add(new MetricSeries.Record(value.getTmst(),
+                    getApplicationId(value), mapper.writeValueAsBytes(value)));
+        }
+        for (Map.Entry<String, List<MetricSeries.Record>> entry : records
+            .entrySet()) {
+            append(entry.getKey(), entry.getValue());
+        }
+        MetricBulkResult result = new MetricBulkResult(
+            System.currentTimeMillis() - start, metricValues.size());
+        errors.forEach(result::addError);
+        return result;
+    }
+
+    private void append(String name, List<MetricSeries.Record> records)
+        throws IOException {
+        // a series deleted between lookup and append is created again
+        MetricSeries metricSeries = getOrCreateSeries(name);
+        while (!metricSeries.append(records)) {
+            series.remove(name, metricSeries);
+            metricSeries = getOrCreateSeries(name);
+        }
+        for (MetricSeries.Record record : records) {
+            if (record.applicationId != null) {
+                indexApplication(record.applicationId, name, record.tmst);
+            }
+        }
+    }
+
+    private MetricSeries getOrCreateSeries(String name) throws IOException {
+        MetricSeries metricSeries = series.get(name);
+        if (metricSeries != null) {
+            return metricSeries;
+        }
+        synchronized (series) {
+            metricSeries = series.get(name);
+            if (metricSeries == null) {
+                metricSeries = MetricSeries.create(root.resolve(encodeName(
+                    name)), segmentSize);
+                series.put(name, metricSeries);
+            }
+            return metricSeries;
+        }
+    }
+
+    @Override
+    public ResponseEntity<?> deleteMetricValues(String metricName)
+        throws IOException {
+        long deleted = 0;
+        MetricSeries metricSeries;
+        synchronized (series) {
+            metricSeries = series.remove(metricName);
+        }
+        if (metricSeries != null) {
+            deleted = metricSeries.delete();
+            applications.values().removeIf(ref -> Objects.equals(ref.name,
+                metricName));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("deleted", deleted);
+        body.put("failures", Collections.emptyList());
+        return new ResponseEntity<>(mapper.writeValueAsString(body),
+            responseHeaders, HttpStatus.OK);
+    }
+
+    @Override
+    public MetricValue getMetric(String applicationId) throws IOException {
+        ApplicationRef ref = applications.get(applicationId);
+        MetricSeries metricSeries = ref == null ? null : series.get(ref.name);
+        byte[] payload = metricSeries == null ? null
+            : metricSeries.find(ref.tmst, applicationId);
+        return payload == null ? null
+            : mapper.readValue(payload, MetricValue.class);
+    }
+
+    @Scheduled(fixedDelayString =
+        "${metric.store.local.compaction.interval.in.milliseconds:600000}")
+    public void compact() {
+        for (Map.Entry<String, MetricSeries> entry : series.entrySet()) {
+            try {
+                entry.getValue().compact(compactionThreshold);
+            } catch (IOException e) {
+                LOGGER.error("Failed to compact metric {}. {}", entry.getKey(),
+                    e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Map.Entry<String, MetricSeries> entry : series.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close metric {}. {}", entry.getKey(),
+                    e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Keep the latest value of every application.
+     */
+    private void indexApplication(String applicationId, String name,
+                                  long tmst) {
+        applications.merge(applicationId, new ApplicationRef(name, tmst),
+            (old, ref) -> ref.tmst >= old.tmst ? ref : old);
+    }
+
+    private static String getApplicationId(MetricValue value) {
+        Map<String, Object> metadata = value.getMetadata();
+        Object applicationId = metadata == null ? null
+            : metadata.get(APPLICATION_ID);
+        return applicationId == null ? null : applicationId.toString();
+    }
+
+    static String encodeName(String name) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+            name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeName(String dirName) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(dirName),
+                StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class BucketBuilder {
+        private final long tmst;
+        private final List<String> fields;
+        private final FieldStatsBuilder[] stats;
+        private long count;
+
+        BucketBuilder(long tmst, List<String> fields) {
+            this.tmst = tmst;
+            this.fields = fields;
+            this.stats = new FieldStatsBuilder[fields.size()];
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] = new FieldStatsBuilder();
+            }
+        }
+
+        void add(long valueTmst, Map<String, Object> value) {
+            count++;
+            for (int i = 0; i < stats.length; i++) {
+                Object field = getField(value, fields.get(i));
+                if (field instanceof Number) {
+                    stats[i].add(valueTmst, ((Number) field).doubleValue());
+                }
+            }
+        }
+
+        MetricBucket build() {
+            MetricBucket bucket = new MetricBucket(tmst, count);
+            for (int i = 0; i < stats.length; i++) {
+                bucket.getFields().put(fields.get(i), stats[i].build());
+            }
+            return bucket;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Object getField(Map<String, Object> value,
+                                       String field) {
+            Object node = value;
+            for (String part : field.split("\\.")) {
+                if (!(node instanceof Map)) {
+                    return null;
+                }
+                node = ((Map<String, Object>) node).get(part);
+            }
+            return node;
+        }
+    }
+
+    private static final class FieldStatsBuilder {
+        private long count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        private long lastTmst = Long.MIN_VALUE;
+        private Double last;
+
+        void add(long tmst, double value) {
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            if (tmst >= lastTmst) {
+                lastTmst = tmst;
+                last = value;
+            }
+        }
+
+        MetricFieldStats build() {
+            if (count == 0) {
+                return new MetricFieldStats(0, null, null, null, null);
+            }
+            return new MetricFieldStats(count, min, max, sum / count, last);
+        }
+    }
+
+    private static final class ApplicationRef {
+        private final String name;
+        private final long tmst;
+
+        ApplicationRef(String name, long tmst) {
+            this.name = name;
+            this.tmst = tmst;
+        }
+    }
+}
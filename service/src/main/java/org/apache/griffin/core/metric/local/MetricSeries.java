@@ -0,0 +1,441 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.local;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * All segments of one metric, in one directory.
+ * <p>
+ * Values are appended to the newest segment, which is rolled over once it
+ * reaches the segment size. Older segments are never written again, until
+ * compaction merges them into one segment in time order.
+ */
+final class MetricSeries {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(MetricSeries.class);
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path dir;
+    private final int segmentSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+
+    /**
+     * ordered by sequence, guarded by lock
+     */
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private long nextSequence;
+    private boolean deleted;
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(long tmst, byte[] payload) throws IOException;
+    }
+
+    static final class Record {
+        final long tmst;
+        final String applicationId;
+        final byte[] payload;
+
+        Record(long tmst, String applicationId, byte[] payload) {
+            this.tmst = tmst;
+            this.applicationId = applicationId;
+            this.payload = payload;
+        }
+    }
+
+    private MetricSeries(Path dir, int segmentSize) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+    static MetricSeries create(Path dir, int segmentSize) throws IOException {
+        Files.createDirectories(dir);
+        return new MetricSeries(dir, segmentSize);
+    }
+
+    /**
+     * Open the segments of a directory. Leftovers of a compaction that did
+     * not finish are removed: temporary files, and segments already covered
+     * by a compacted segment.
+     */
+    static MetricSeries open(Path dir, int segmentSize) throws IOException {
+        MetricSeries series = new MetricSeries(dir, segmentSize);
+        List<long[]> ranges = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long[] range = Segment.parseFileName(name);
+                if (range != null) {
+                    ranges.add(range);
+                } else if (name.endsWith(TMP_SUFFIX)) {
+                    Files.delete(file);
+                }
+            }
+        }
+        ranges.sort(Comparator.<long[]>comparingLong(range -> range[0])
+            .thenComparing(range -> -range[1]));
+        long covered = -1;
+        for (long[] range : ranges) {
+            Path file = dir.resolve(Segment.fileName(range[0], range[1]));
+            if (range[1] <= covered) {
+                LOGGER.info("Remove segment {} replaced by compaction.", file);
+                Files.delete(file);
+                continue;
+            }
+            series.segments.add(Segment.open(file, range[0], range[1]));
+            covered = range[1];
+        }
+        series.nextSequence = covered + 1;
+        return series;
+    }
+
+    /**
+     * @return false if the series was deleted and nothing was written
+     */
+    boolean append(List<Record> records) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (deleted) {
+                return false;
+            }
+            for (Record record : records) {
+                if (active == null || (active.getSize() + record.payload.length
+                    > segmentSize && !active.isEmpty())) {
+                    roll();
+                }
+                active.append(record.tmst, record.applicationId,
+                    record.payload);
+            }
+            if (active != null) {
+                active.sync();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            active.seal();
+        }
+        long sequence = nextSequence++;
+        active = Segment.create(dir.resolve(Segment.fileName(sequence,
+            sequence)), sequence, sequence);
+        segments.add(active);
+    }
+
+    /**
+     * Read values newest first, merging the segments by timestamp. Values of
+     * the same timestamp always come in the same order, newest segment
+     * first, so that a page can start after the values already read.
+     *
+     * @param maxTmst timestamp of the first value to read, inclusive
+     * @param skip    count of values to skip from maxTmst on
+     * @return values without application id
+     */
+    List<Record> scan(long maxTmst, int skip, int size) throws IOException {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>(
+                Math.max(1, segments.size()));
+            for (Segment segment : segments) {
+                int position = segment.floor(maxTmst);
+                if (position >= 0) {
+                    cursors.add(new Cursor(segment, position));
+                }
+            }
+            List<Record> records = new ArrayList<>(Math.min(size, 1024));
+            int skipped = 0;
+            while (records.size() < size && !cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                if (skipped < skip) {
+                    skipped++;
+                } else {
+                    Segment segment = cursor.segment;
+                    records.add(new Record(segment.getTmst(cursor.position),
+                        null, segment.readPayload(cursor.position)));
+                }
+                if (--cursor.position >= 0) {
+                    cursors.add(cursor);
+                }
+            }
+            return records;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Call the consumer with every value of a time range, in no particular
+     * order. Only the part of each segment inside the range is read.
+     *
+     * @param fromTmst start of the range, inclusive
+     * @param toTmst   end of the range, exclusive
+     */
+    void scan(long fromTmst, long toTmst, RecordConsumer consumer)
+        throws IOException {
+        lock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                if (segment.isEmpty() || segment.getMaxTmst() < fromTmst
+                    || segment.getMinTmst() >= toTmst) {
+                    continue;
+                }
+                for (int position = segment.floor(toTmst - 1); position >= 0
+                    && segment.getTmst(position) >= fromTmst; position--) {
+                    consumer.accept(segment.getTmst(position),
+                        segment.readPayload(position));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return json payload of the value with the timestamp and application
+     * id, or null if there is none
+     */
+    byte[] find(long tmst, String applicationId) throws IOException {
+        lock.readLock().lock();
+        try {
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                Segment segment = segments.get(i);
+                if (segment.isEmpty() || tmst < segment.getMinTmst()
+                    || tmst > segment.getMaxTmst()) {
+                    continue;
+                }
+                for (int position = segment.floor(tmst); position >= 0
+                    && segment.getTmst(position) == tmst; position--) {
+                    if (applicationId.equals(segment.readApplicationId(
+                        position))) {
+                        return segment.readPayload(position);
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Call the consumer with the application id and timestamp of every value
+     * which has an application id.
+     */
+    void forEachApplication(BiConsumer<String, Long> consumer)
+        throws IOException {
+        lock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                for (int i = 0; i < segment.getCount(); i++) {
+                    String applicationId = segment.readApplicationId(i);
+                    if (!applicationId.isEmpty()) {
+                        consumer.accept(applicationId, segment.getTmst(i));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Merge runs of adjacent small segments, up to the segment size each,
+     * once there are at least {@code threshold} segments besides the one
+     * being written. Merged segments are in time order. Appends and reads go
+     * on while a merged segment is written; they are only blocked while the
+     * segments are swapped.
+     *
+     * @return count of segments merged away
+     */
+    int compact(int threshold) throws IOException {
+        synchronized (compactionLock) {
+            List<Segment> sealed = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                if (deleted) {
+                    return 0;
+                }
+                for (Segment segment : segments) {
+                    if (segment != active) {
+                        sealed.add(segment);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (sealed.size() < threshold) {
+                return 0;
+            }
+            int removed = 0;
+            List<Segment> run = new ArrayList<>();
+            long runSize = 0;
+            for (Segment segment : sealed) {
+                if (!run.isEmpty() && runSize + segment.getSize() > segmentSize) {
+                    removed += compact(run);
+                    run.clear();
+                    runSize = 0;
+                }
+                run.add(segment);
+                runSize += segment.getSize();
+            }
+            return removed + compact(run);
+        }
+    }
+
+    private int compact(List<Segment> run) throws IOException {
+        if (run.size() < 2) {
+            return 0;
+        }
+        long first = run.get(0).getFirstSequence();
+        long last = run.get(run.size() - 1).getLastSequence();
+        Path file = dir.resolve(Segment.fileName(first, last));
+        Path tmp = dir.resolve(file.getFileName() + TMP_SUFFIX);
+        merge(run, tmp);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        Segment merged = Segment.open(file, first, last);
+        lock.writeLock().lock();
+        try {
+            if (deleted) {
+                merged.delete();
+                return 0;
+            }
+            int index = segments.indexOf(run.get(0));
+            segments.removeAll(run);
+            segments.add(index, merged);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Segment segment : run) {
+            segment.delete();
+        }
+        LOGGER.info("Compacted {} segments of {} into {}.", run.size(), dir,
+            file);
+        return run.size() - 1;
+    }
+
+    private static void merge(List<Segment> run, Path tmp)
+        throws IOException {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(run.size(),
+            Comparator.reverseOrder());
+        for (Segment segment : run) {
+            if (!segment.isEmpty()) {
+                cursors.add(new Cursor(segment, 0));
+            }
+        }
+        Files.deleteIfExists(tmp);
+        Segment merged = Segment.create(tmp, 0, 0);
+        try {
+            while (!cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                Segment segment = cursor.segment;
+                merged.append(segment.getTmst(cursor.position),
+                    segment.readApplicationId(cursor.position),
+                    segment.readPayload(cursor.position));
+                if (++cursor.position < segment.getCount()) {
+                    cursors.add(cursor);
+                }
+            }
+        } finally {
+            merged.seal();
+        }
+    }
+
+    /**
+     * @return count of deleted values
+     */
+    long delete() throws IOException {
+        lock.writeLock().lock();
+        try {
+            deleted = true;
+            long count = 0;
+            for (Segment segment : segments) {
+                count += segment.getCount();
+                segment.delete();
+            }
+            segments.clear();
+            active = null;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(dir);
+            return count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (active != null) {
+                active.seal();
+                active = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Position in a segment. Cursors compare by the timestamp at their
+     * position, newest first, and by segment sequence on ties.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+        private final Segment segment;
+        private int position;
+
+        Cursor(Segment segment, int position) {
+            this.segment = segment;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int result = Long.compare(other.segment.getTmst(other.position),
+                segment.getTmst(position));
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(other.segment.getFirstSequence(),
+                segment.getFirstSequence());
+        }
+    }
+}
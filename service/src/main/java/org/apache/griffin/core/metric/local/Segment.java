@@ -0,0 +1,324 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only file of metric records of one metric.
+ * <p>
+ * A record is a header of payload length, crc, timestamp and application id
+ * length, followed by the application id and the json payload. Reads go
+ * through a read-only memory mapping of the file, and an in-memory index
+ * keeps the offsets of all records ordered by timestamp ascending.
+ * <p>
+ * The file name holds the range of sequence numbers the segment covers:
+ * a new segment covers its own sequence number, a compacted one the range of
+ * the segments it replaced.
+ */
+final class Segment {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Segment.class);
+
+    static final String SUFFIX = ".seg";
+    /**
+     * payload length, crc, timestamp, application id length
+     */
+    static final int HEADER_SIZE = 4 + 4 + 8 + 2;
+
+    private final Path file;
+    private final long firstSequence;
+    private final long lastSequence;
+
+    private FileChannel appendChannel;
+    private volatile MappedByteBuffer buffer;
+    private volatile int size;
+
+    private long[] tmsts = new long[16];
+    private int[] offsets = new int[16];
+    private int count;
+
+    private Segment(Path file, long firstSequence, long lastSequence) {
+        this.file = file;
+        this.firstSequence = firstSequence;
+        this.lastSequence = lastSequence;
+    }
+
+    static String fileName(long firstSequence, long lastSequence) {
+        return String.format("%019d-%019d%s", firstSequence, lastSequence,
+            SUFFIX);
+    }
+
+    /**
+     * @return sequence range of a segment file name, or null if it is not one
+     */
+    static long[] parseFileName(String name) {
+        if (!name.endsWith(SUFFIX)) {
+            return null;
+        }
+        String[] range = name.substring(0, name.length() - SUFFIX.length())
+            .split("-");
+        if (range.length != 2) {
+            return null;
+        }
+        try {
+            return new long[]{Long.parseLong(range[0]),
+                Long.parseLong(range[1])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static Segment create(Path file, long firstSequence, long lastSequence)
+        throws IOException {
+        Segment segment = new Segment(file, firstSequence, lastSequence);
+        segment.appendChannel = FileChannel.open(file,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return segment;
+    }
+
+    /**
+     * Open an existing segment and index its records. A torn or corrupt
+     * record at the tail, left by a crash during an append, is cut off.
+     */
+    static Segment open(Path file, long firstSequence, long lastSequence)
+        throws IOException {
+        Segment segment = new Segment(file, firstSequence, lastSequence);
+        int fileSize = (int) Files.size(file);
+        segment.size = fileSize;
+        ByteBuffer data = segment.map();
+        int offset = 0;
+        while (offset + HEADER_SIZE <= fileSize) {
+            int payloadLength = data.getInt(offset);
+            int crc = data.getInt(offset + 4);
+            long tmst = data.getLong(offset + 8);
+            int appIdLength = data.getShort(offset + 16) & 0xFFFF;
+            int end = offset + HEADER_SIZE + appIdLength + payloadLength;
+            if (payloadLength < 0 || end > fileSize || end < offset
+                || crc != checksum(data, offset, appIdLength + payloadLength)) {
+                break;
+            }
+            segment.index(tmst, offset);
+            offset = end;
+        }
+        if (offset < fileSize) {
+            LOGGER.warn("Truncate segment {} from {} to {} bytes.", file,
+                fileSize, offset);
+            try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+            }
+            segment.size = offset;
+            segment.buffer = null;
+        }
+        return segment;
+    }
+
+    int append(long tmst, String applicationId, byte[] payload)
+        throws IOException {
+        byte[] appId = applicationId == null ? new byte[0]
+            : applicationId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + appId.length
+            + payload.length);
+        record.putInt(payload.length);
+        record.putInt(0);
+        record.putLong(tmst);
+        record.putShort((short) appId.length);
+        record.put(appId);
+        record.put(payload);
+        record.putInt(4, checksum(record, 0, appId.length + payload.length));
+        record.flip();
+        int offset = size;
+        while (record.hasRemaining()) {
+            appendChannel.write(record, size + record.position());
+        }
+        size += record.limit();
+        index(tmst, offset);
+        return offset;
+    }
+
+    void sync() throws IOException {
+        if (appendChannel != null) {
+            appendChannel.force(false);
+        }
+    }
+
+    void seal() throws IOException {
+        if (appendChannel != null) {
+            appendChannel.force(false);
+            appendChannel.close();
+            appendChannel = null;
+        }
+    }
+
+    void delete() throws IOException {
+        seal();
+        buffer = null;
+        Files.deleteIfExists(file);
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    long getMinTmst() {
+        return tmsts[0];
+    }
+
+    long getMaxTmst() {
+        return tmsts[count - 1];
+    }
+
+    /**
+     * @param position position in timestamp ascending order
+     */
+    long getTmst(int position) {
+        return tmsts[position];
+    }
+
+    /**
+     * @param position position in timestamp ascending order
+     * @return json payload of the record
+     */
+    byte[] readPayload(int position) throws IOException {
+        ByteBuffer data = map();
+        int offset = offsets[position];
+        int payloadLength = data.getInt(offset);
+        int appIdLength = data.getShort(offset + 16) & 0xFFFF;
+        byte[] payload = new byte[payloadLength];
+        ByteBuffer slice = data.duplicate();
+        slice.position(offset + HEADER_SIZE + appIdLength);
+        slice.get(payload);
+        return payload;
+    }
+
+    /**
+     * @param position position in timestamp ascending order
+     */
+    String readApplicationId(int position) throws IOException {
+        ByteBuffer data = map();
+        int offset = offsets[position];
+        byte[] appId = new byte[data.getShort(offset + 16) & 0xFFFF];
+        ByteBuffer slice = data.duplicate();
+        slice.position(offset + HEADER_SIZE);
+        slice.get(appId);
+        return new String(appId, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return position of the last record whose timestamp is not greater
+     * than tmst, or -1 if there is none
+     */
+    int floor(long tmst) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (tmsts[mid] <= tmst) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Map the file again if it grew since it was last mapped.
+     */
+    private ByteBuffer map() throws IOException {
+        MappedByteBuffer mapped = buffer;
+        int mappedSize = size;
+        if (mapped == null || mapped.capacity() < mappedSize) {
+            try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    mappedSize);
+            }
+            buffer = mapped;
+        }
+        return mapped;
+    }
+
+    /**
+     * Records mostly arrive in time order and are appended to the index.
+     * A late record is inserted at its place.
+     */
+    private void index(long tmst, int offset) {
+        if (count == tmsts.length) {
+            tmsts = Arrays.copyOf(tmsts, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        int position = floor(tmst) + 1;
+        if (position < count) {
+            System.arraycopy(tmsts, position, tmsts, position + 1,
+                count - position);
+            System.arraycopy(offsets, position, offsets, position + 1,
+                count - position);
+        }
+        tmsts[position] = tmst;
+        offsets[position] = offset;
+        count++;
+    }
+
+    private static int checksum(ByteBuffer record, int offset, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer body = record.duplicate();
+        body.position(offset + 8);
+        body.limit(offset + HEADER_SIZE + length);
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
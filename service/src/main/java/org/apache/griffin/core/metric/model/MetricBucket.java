@@ -0,0 +1,72 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregated metric values of one time bucket.
+ */
+public class MetricBucket {
+
+    /**
+     * start of the bucket, a multiple of the bucket interval
+     */
+    private long tmst;
+
+    /**
+     * count of metric values in the bucket
+     */
+    private long count;
+
+    private Map<String, MetricFieldStats> fields = new LinkedHashMap<>();
+
+    public MetricBucket() {
+    }
+
+    public MetricBucket(long tmst, long count) {
+        this.tmst = tmst;
+        this.count = count;
+    }
+
+    public long getTmst() {
+        return tmst;
+    }
+
+    public void setTmst(long tmst) {
+        this.tmst = tmst;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Map<String, MetricFieldStats> getFields() {
+        return fields;
+    }
+
+    public void setFields(Map<String, MetricFieldStats> fields) {
+        this.fields = fields;
+    }
+}
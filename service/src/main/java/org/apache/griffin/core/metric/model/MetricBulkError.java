@@ -0,0 +1,99 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.metric.model;
+
+import java.util.Objects;
+
+/**
+ * A metric value which was not written.
+ */
+public class MetricBulkError {
+
+    /**
+     * position of the value: index in the list handed to the metric store,
+     * or line number when the values were streamed as ndjson
+     */
+    private long position;
+
+    private int status;
+
+    private String type;
+
+    private String reason;
+
+    public MetricBulkError() {
+    }
+
+    public MetricBulkError(long position, int status, String type,
+                           String reason) {
+        this.position = position;
+        this.status = status;
+        this.type = type;
+        this.reason = reason;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MetricBulkError that = (MetricBulkError) o;
+        return position == that.position &&
+            status == that.status &&
+            Objects.equals(type, that.type) &&
+            Objects.equals(reason, that.reason);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(position, status, type, reason);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.metric.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of writing one bulk of metric values.
+ */
+public class MetricBulkResult {
+
+    private long took;
+
+    private int count;
+
+    private List<MetricBulkError> errors = new ArrayList<>();
+
+    public MetricBulkResult() {
+    }
+
+    public MetricBulkResult(long took, int count) {
+        this.took = took;
+        this.count = count;
+    }
+
+    public long getTook() {
+        return took;
+    }
+
+    public void setTook(long took) {
+        this.took = took;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public List<MetricBulkError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<MetricBulkError> errors) {
+        this.errors = errors;
+    }
+
+    public void addError(MetricBulkError error) {
+        errors.add(error);
+    }
+
+    public int getFailedCount() {
+        return errors.size();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position after the last metric value of a page: its timestamp and a
+ * tie breaker among values of the same timestamp, whose meaning is up to
+ * the metric store. Clients only see it as an opaque token.
+ */
+public class MetricCursor {
+    private static final String SEPARATOR = ":";
+
+    private final long tmst;
+    private final String key;
+
+    public MetricCursor(long tmst, String key) {
+        this.tmst = tmst;
+        this.key = Objects.requireNonNull(key);
+    }
+
+    public long getTmst() {
+        return tmst;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+            (tmst + SEPARATOR + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not made by
+     *                                  {@link #encode()}
+     */
+    public static MetricCursor decode(String token) {
+        String cursor = new String(Base64.getUrlDecoder().decode(token),
+            StandardCharsets.UTF_8);
+        int index = cursor.indexOf(SEPARATOR);
+        if (index <= 0) {
+            throw new IllegalArgumentException("Invalid cursor " + token);
+        }
+        return new MetricCursor(Long.parseLong(cursor.substring(0, index)),
+            cursor.substring(index + 1));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MetricCursor that = (MetricCursor) o;
+        return tmst == that.tmst && Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tmst, key);
+    }
+}
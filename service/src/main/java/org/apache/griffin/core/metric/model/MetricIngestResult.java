@@ -0,0 +1,100 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.metric.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of streaming metric values into the metric store.
+ */
+public class MetricIngestResult {
+
+    /**
+     * count of non-blank lines read
+     */
+    private long received;
+
+    private long written;
+
+    /**
+     * lines which are not valid metric values and were never sent
+     */
+    private List<MetricBulkError> rejected = new ArrayList<>();
+
+    private List<MetricBulkResult> chunks = new ArrayList<>();
+
+    /**
+     * why ingestion stopped before the end of the stream, null if it did not
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String abortReason;
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public void setWritten(long written) {
+        this.written = written;
+    }
+
+    public List<MetricBulkError> getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(List<MetricBulkError> rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<MetricBulkResult> getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(List<MetricBulkResult> chunks) {
+        this.chunks = chunks;
+    }
+
+    public String getAbortReason() {
+        return abortReason;
+    }
+
+    public void setAbortReason(String abortReason) {
+        this.abortReason = abortReason;
+    }
+
+    public void addRejected(MetricBulkError error) {
+        rejected.add(error);
+    }
+
+    public void addChunk(MetricBulkResult chunk) {
+        chunks.add(chunk);
+        written += chunk.getCount() - chunk.getFailedCount();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of metric values, newest first.
+ */
+public class MetricValuePage {
+
+    private List<MetricValue> values = new ArrayList<>();
+
+    /**
+     * token of the next page, null on the last page
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next;
+
+    public MetricValuePage() {
+    }
+
+    public MetricValuePage(List<MetricValue> values, String next) {
+        this.values = values;
+        this.next = next;
+    }
+
+    public List<MetricValue> getValues() {
+        return values;
+    }
+
+    public void setValues(List<MetricValue> values) {
+        this.values = values;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
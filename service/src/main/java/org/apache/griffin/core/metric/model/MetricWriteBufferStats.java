@@ -0,0 +1,174 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.model;
+
+/**
+ * Counters of the metric write buffer. Counts are numbers of metric values,
+ * except for the flush count, and latencies are in milliseconds.
+ */
+public class MetricWriteBufferStats {
+
+    private long queuedValues;
+    private int maxQueuedValues;
+    private long spilledValues;
+    private long spillSize;
+    private long maxSpillSize;
+    private boolean storeAvailable;
+    private long acceptedCount;
+    private long rejectedCount;
+    private long flushCount;
+    private long flushedCount;
+    private long failedCount;
+    private long spillCount;
+    private long replayedCount;
+    private long lastFlushLatency;
+    private long maxFlushLatency;
+    private double averageFlushLatency;
+
+    public MetricWriteBufferStats() {
+    }
+
+    public long getQueuedValues() {
+        return queuedValues;
+    }
+
+    public void setQueuedValues(long queuedValues) {
+        this.queuedValues = queuedValues;
+    }
+
+    public int getMaxQueuedValues() {
+        return maxQueuedValues;
+    }
+
+    public void setMaxQueuedValues(int maxQueuedValues) {
+        this.maxQueuedValues = maxQueuedValues;
+    }
+
+    public long getSpilledValues() {
+        return spilledValues;
+    }
+
+    public void setSpilledValues(long spilledValues) {
+        this.spilledValues = spilledValues;
+    }
+
+    public long getSpillSize() {
+        return spillSize;
+    }
+
+    public void setSpillSize(long spillSize) {
+        this.spillSize = spillSize;
+    }
+
+    public long getMaxSpillSize() {
+        return maxSpillSize;
+    }
+
+    public void setMaxSpillSize(long maxSpillSize) {
+        this.maxSpillSize = maxSpillSize;
+    }
+
+    public boolean isStoreAvailable() {
+        return storeAvailable;
+    }
+
+    public void setStoreAvailable(boolean storeAvailable) {
+        this.storeAvailable = storeAvailable;
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public void setAcceptedCount(long acceptedCount) {
+        this.acceptedCount = acceptedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public void setRejectedCount(long rejectedCount) {
+        this.rejectedCount = rejectedCount;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public void setFlushCount(long flushCount) {
+        this.flushCount = flushCount;
+    }
+
+    public long getFlushedCount() {
+        return flushedCount;
+    }
+
+    public void setFlushedCount(long flushedCount) {
+        this.flushedCount = flushedCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public long getSpillCount() {
+        return spillCount;
+    }
+
+    public void setSpillCount(long spillCount) {
+        this.spillCount = spillCount;
+    }
+
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+
+    public void setReplayedCount(long replayedCount) {
+        this.replayedCount = replayedCount;
+    }
+
+    public long getLastFlushLatency() {
+        return lastFlushLatency;
+    }
+
+    public void setLastFlushLatency(long lastFlushLatency) {
+        this.lastFlushLatency = lastFlushLatency;
+    }
+
+    public long getMaxFlushLatency() {
+        return maxFlushLatency;
+    }
+
+    public void setMaxFlushLatency(long maxFlushLatency) {
+        this.maxFlushLatency = maxFlushLatency;
+    }
+
+    public double getAverageFlushLatency() {
+        return averageFlushLatency;
+    }
+
+    public void setAverageFlushLatency(double averageFlushLatency) {
+        this.averageFlushLatency = averageFlushLatency;
+    }
+}
@@ -22,11 +22,14 @@ package org.apache.griffin.core.util;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.HDFS_FILE_NOT_EXIST;
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
@@ -168,9 +171,37 @@ public class FSUtil {
     }
 
     public static boolean isFileExist(String path) throws IOException {
+        checkHDFSConf();
+        // one status call answers for files and directories alike
+        return fileSystem.exists(new Path(path));
+    }
+
+    /**
+     * @return the path with the scheme and authority of its file system,
+     * the default one if it has none
+     */
+    public static Path makeQualified(String path) throws IOException {
         checkHDFSConf();
         Path hdfsPath = new Path(path);
-        return fileSystem.isFile(hdfsPath) || fileSystem.isDirectory(hdfsPath);
+        return hdfsPath.getFileSystem(fileSystem.getConf())
+            .makeQualified(hdfsPath);
+    }
+
+    /**
+     * names of the files and dirs directly under a dir, with a single
+     * listing call. It's empty if the dir doesn't exist.
+     */
+    public static Set<String> listNames(String dir) throws IOException {
+        checkHDFSConf();
+        Set<String> names = new HashSet<>();
+        try {
+            for (FileStatus status : fileSystem.listStatus(new Path(dir))) {
+                names.add(status.getPath().getName());
+            }
+        } catch (FileNotFoundException e) {
+            LOGGER.debug("Directory {} doesn't exist.", dir);
+        }
+        return names;
     }
 
     public static InputStream getSampleInputStream(String path)
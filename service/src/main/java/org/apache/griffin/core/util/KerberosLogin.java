@@ -0,0 +1,188 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.util;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.Configuration;
+import javax.security.auth.login.LoginContext;
+import javax.security.auth.login.LoginException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps one keytab login alive for all Kerberos authenticated calls.
+ * The login happens on first use, and a background check logs in again
+ * once the TGT has used up most of its lifetime, so callers never pay
+ * for a KDC round trip on the request path.
+ */
+public class KerberosLogin implements Closeable {
+    private static final Logger LOGGER = LoggerFactory
+        .getLogger(KerberosLogin.class);
+    private static final String TGT_PREFIX = "krbtgt/";
+    private static final double RENEW_WINDOW = 0.8;
+
+    private final Callable<Subject> login;
+    private final ScheduledExecutorService renewer;
+    private volatile Subject subject;
+
+    public KerberosLogin(String principal, String keyTabLocation,
+                         long checkIntervalMs) {
+        this(() -> keyTabLogin(principal, keyTabLocation), checkIntervalMs);
+    }
+
+    KerberosLogin(Callable<Subject> login, long checkIntervalMs) {
+        this.login = login;
+        this.renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kerberos-relogin");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (checkIntervalMs > 0) {
+            renewer.scheduleWithFixedDelay(this::reloginIfNeeded,
+                checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the logged in subject, logging in first if needed
+     */
+    public Subject getSubject() {
+        Subject current = subject;
+        if (current == null) {
+            synchronized (this) {
+                if (subject == null) {
+                    try {
+                        subject = login.call();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(
+                            "Kerberos login failed.", e);
+                    }
+                }
+                current = subject;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Log in again when the TGT is about to expire. A failed renewal keeps
+     * the current subject so that requests go on until the ticket really
+     * runs out, and it is retried on the next check.
+     */
+    void reloginIfNeeded() {
+        Subject current = subject;
+        if (current == null) {
+            return;
+        }
+        KerberosTicket tgt = getTgt(current);
+        if (tgt != null && System.currentTimeMillis() < renewTime(tgt)) {
+            return;
+        }
+        try {
+            Subject renewed = login.call();
+            synchronized (this) {
+                subject = renewed;
+            }
+            KerberosTicket renewedTgt = getTgt(renewed);
+            LOGGER.info("Renewed Kerberos ticket, it expires at {}.",
+                renewedTgt == null ? null : renewedTgt.getEndTime());
+        } catch (Exception e) {
+            LOGGER.warn("Failed to renew Kerberos ticket. {}", e.getMessage());
+        }
+    }
+
+    static KerberosTicket getTgt(Subject subject) {
+        for (KerberosTicket ticket : subject
+            .getPrivateCredentials(KerberosTicket.class)) {
+            if (ticket.getServer().getName().startsWith(TGT_PREFIX)) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    static long renewTime(KerberosTicket tgt) {
+        Date start = tgt.getStartTime() != null ? tgt.getStartTime()
+            : tgt.getAuthTime();
+        long end = tgt.getEndTime().getTime();
+        if (start == null) {
+            return end;
+        }
+        return start.getTime()
+            + (long) ((end - start.getTime()) * RENEW_WINDOW);
+    }
+
+    @Override
+    public void close() {
+        renewer.shutdownNow();
+    }
+
+    private static Subject keyTabLogin(String principal, String keyTabLocation)
+        throws LoginException {
+        Subject subject = new Subject(false,
+            new HashSet<>(Collections.singleton(
+                new KerberosPrincipal(principal))),
+            new HashSet<>(), new HashSet<>());
+        LoginContext context = new LoginContext("", subject, null,
+            new KeyTabConfig(principal, keyTabLocation));
+        context.login();
+        return context.getSubject();
+    }
+
+    private static class KeyTabConfig extends Configuration {
+        private final String principal;
+        private final String keyTabLocation;
+
+        KeyTabConfig(String principal, String keyTabLocation) {
+            this.principal = principal;
+            this.keyTabLocation = keyTabLocation;
+        }
+
+        @Override
+        public AppConfigurationEntry[] getAppConfigurationEntry(String name) {
+            Map<String, String> options = new HashMap<>();
+            options.put("useKeyTab", "true");
+            options.put("keyTab", keyTabLocation);
+            options.put("principal", principal);
+            options.put("storeKey", "true");
+            options.put("doNotPrompt", "true");
+            options.put("isInitiator", "true");
+            options.put("refreshKrb5Config", "true");
+            return new AppConfigurationEntry[]{new AppConfigurationEntry(
+                "com.sun.security.auth.module.Krb5LoginModule",
+                AppConfigurationEntry.LoginModuleControlFlag.REQUIRED,
+                options)};
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.util;
+
+import java.net.URI;
+import java.security.PrivilegedAction;
+import java.util.function.Supplier;
+import javax.security.auth.Subject;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * RestTemplate which runs every request as the given subject, so that a
+ * SPNEGO capable request factory picks its Kerberos credentials from there.
+ */
+public class SubjectRestTemplate extends RestTemplate {
+    private final Supplier<Subject> subject;
+
+    public SubjectRestTemplate(ClientHttpRequestFactory requestFactory,
+                               Supplier<Subject> subject) {
+        super(requestFactory);
+        this.subject = subject;
+    }
+
+    @Override
+    protected <T> T doExecute(URI url, HttpMethod method,
+                              RequestCallback requestCallback,
+                              ResponseExtractor<T> responseExtractor)
+        throws RestClientException {
+        return Subject.doAs(subject.get(), (PrivilegedAction<T>) () ->
+            super.doExecute(url, method, requestCallback, responseExtractor));
+    }
+}
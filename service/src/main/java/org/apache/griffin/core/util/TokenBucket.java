@@ -0,0 +1,109 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket which limits how often a remote endpoint is called. Callers
+ * which find the bucket empty take a permit in advance and sleep until it
+ * is refilled, so they proceed in the order they asked.
+ */
+public class TokenBucket {
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final double permitsPerSecond;
+    private final double capacity;
+    private final LongSupplier ticker;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond rate of permits, unlimited if not positive
+     */
+    public TokenBucket(double permitsPerSecond) {
+        this(permitsPerSecond, Math.max(1, permitsPerSecond));
+    }
+
+    /**
+     * @param permitsPerSecond rate of permits, unlimited if not positive
+     * @param capacity         permits which may be taken at once after the
+     *                         bucket has been idle
+     */
+    public TokenBucket(double permitsPerSecond, double capacity) {
+        this(permitsPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, double capacity,
+                LongSupplier ticker) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = capacity;
+        this.ticker = ticker;
+        this.tokens = capacity;
+        this.lastRefill = ticker.getAsLong();
+    }
+
+    /**
+     * Take a permit, waiting for it if the bucket is empty.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Take a permit only if one is available now.
+     */
+    public synchronized boolean tryAcquire() {
+        if (permitsPerSecond <= 0) {
+            return true;
+        }
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * @return nanoseconds until the reserved permit may be used
+     */
+    synchronized long reserve() {
+        if (permitsPerSecond <= 0) {
+            return 0;
+        }
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0
+            : (long) Math.ceil(-tokens * NANOS_PER_SECOND / permitsPerSecond);
+    }
+
+    private void refill() {
+        long now = ticker.getAsLong();
+        tokens = Math.min(capacity,
+            tokens + (now - lastRefill) * permitsPerSecond / NANOS_PER_SECOND);
+        lastRefill = now;
+    }
+}
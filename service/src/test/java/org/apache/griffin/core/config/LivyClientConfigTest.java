@@ -0,0 +1,204 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.security.auth.Subject;
+
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.auth.ContextAwareAuthScheme;
+import org.apache.http.auth.Credentials;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HttpContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.RestTemplate;
+
+public class LivyClientConfigTest {
+    private static final String AUTH_COOKIE = "hadoop.auth";
+
+    private HttpServer livy;
+    private String livyUri;
+    private final AtomicInteger handshakes = new AtomicInteger();
+    private final AtomicInteger negotiations = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    @Before
+    public void setup() throws IOException {
+        livy = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        livy.createContext("/", this::handle);
+        livy.start();
+        livyUri = "http://localhost:" + livy.getAddress().getPort()
+            + "/batches";
+    }
+
+    @After
+    public void tearDown() {
+        livy.stop(0);
+    }
+
+    @Test
+    public void testKerberosClientNegotiatesOnceAndReusesConnection() {
+        Subject subject = new Subject(false,
+            Collections.emptySet(), new HashSet<>(), new HashSet<>());
+        AtomicReference<Subject> negotiatedAs = new AtomicReference<>();
+        RestTemplate restTemplate = LivyClientConfig.createRestTemplate(
+            LivyClientConfig.createHttpClient(4, 1000, 1000,
+                context -> new FakeNegotiateScheme(negotiatedAs)),
+            () -> subject);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("{}", restTemplate.getForObject(livyUri,
+                String.class));
+        }
+
+        assertEquals(1, negotiations.get());
+        assertEquals(1, handshakes.get());
+        assertSame(subject, negotiatedAs.get());
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void testPlainClientReusesConnection() {
+        livy.removeContext("/");
+        livy.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange, 200, "{}");
+        });
+        RestTemplate restTemplate = LivyClientConfig.createRestTemplate(
+            LivyClientConfig.createHttpClient(4, 1000, 1000, null), null);
+
+        for (int i = 0; i < 5; i++) {
+            restTemplate.getForObject(livyUri, String.class);
+        }
+
+        assertEquals(1, clientPorts.size());
+    }
+
+    /**
+     * Behaves like Livy behind Hadoop auth: challenge for SPNEGO, then
+     * accept the signed cookie handed out after a successful handshake.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+        String auth = exchange.getRequestHeaders().getFirst("Authorization");
+        if (cookie != null && cookie.contains(AUTH_COOKIE + "=")) {
+            respond(exchange, 200, "{}");
+        } else if (auth != null && auth.startsWith("Negotiate ")) {
+            handshakes.incrementAndGet();
+            exchange.getResponseHeaders().add("Set-Cookie",
+                AUTH_COOKIE + "=u-griffin-t-kerberos; Path=/");
+            respond(exchange, 200, "{}");
+        } else {
+            exchange.getResponseHeaders().add("WWW-Authenticate",
+                "Negotiate");
+            exchange.sendResponseHeaders(401, -1);
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status,
+                                String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Stands in for the GSS backed scheme, which needs a KDC.
+     */
+    private class FakeNegotiateScheme implements ContextAwareAuthScheme {
+        private final AtomicReference<Subject> negotiatedAs;
+        private boolean complete;
+
+        FakeNegotiateScheme(AtomicReference<Subject> negotiatedAs) {
+            this.negotiatedAs = negotiatedAs;
+        }
+
+        @Override
+        public void processChallenge(Header header) {
+            complete = false;
+        }
+
+        @Override
+        public String getSchemeName() {
+            return "Negotiate";
+        }
+
+        @Override
+        public String getParameter(String name) {
+            return null;
+        }
+
+        @Override
+        public String getRealm() {
+            return null;
+        }
+
+        @Override
+        public boolean isConnectionBased() {
+            return true;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public Header authenticate(Credentials credentials,
+                                   HttpRequest request) {
+            return authenticate(credentials, request, null);
+        }
+
+        @Override
+        public Header authenticate(Credentials credentials,
+                                   HttpRequest request,
+                                   HttpContext context) {
+            negotiations.incrementAndGet();
+            negotiatedAs.set(Subject.getSubject(
+                AccessController.getContext()));
+            complete = true;
+            return new BasicHeader("Authorization", "Negotiate dGlja2V0");
+        }
+    }
+}
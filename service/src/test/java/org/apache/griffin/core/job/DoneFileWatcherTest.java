@@ -0,0 +1,64 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DoneFileWatcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final DoneFileWatcher watcher = new DoneFileWatcher();
+
+    @After
+    public void tearDown() {
+        watcher.close();
+    }
+
+    @Test
+    public void testWakeUpOnMissingDirAndDoneFile() throws Exception {
+        File dir = new File(folder.getRoot(), "dt=20190101");
+        String done = new File(dir, "_DONE").getPath();
+
+        CountDownLatch dirCreated = new CountDownLatch(1);
+        watcher.watch("job_predicate", Collections.singletonList(done),
+            dirCreated::countDown);
+        assertTrue(dir.mkdir());
+        assertTrue(dirCreated.await(30, TimeUnit.SECONDS));
+
+        // watched from the new dir on the next check
+        CountDownLatch doneCreated = new CountDownLatch(1);
+        watcher.watch("job_predicate", Collections.singletonList(done),
+            doneCreated::countDown);
+        assertTrue(new File(done).createNewFile());
+        assertTrue(doneCreated.await(30, TimeUnit.SECONDS));
+    }
+}
@@ -20,6 +20,10 @@ package org.apache.griffin.core.job;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.File;
 import java.io.IOException;
@@ -27,16 +31,26 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.griffin.core.job.entity.SegmentPredicate;
+import org.apache.griffin.core.util.FSUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.tools.ant.util.FileUtils;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class FileExistPredicatorTest {
 
     static String fileName = "_SUCCESS";
     static String rootPath = "/tmp/";
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @BeforeClass
     public static void mkFile() throws IOException {
         File fileDirectory = new File(rootPath); // to fix createFileExclusively exception
@@ -88,4 +102,47 @@ public class FileExistPredicatorTest {
         assertFalse(predicator.predicate());
 
     }
+
+    @Test
+    public void testPredicateListsEachParentOnceAndCachesExistingPaths()
+        throws IOException {
+        File root = folder.getRoot();
+        StringBuilder paths = new StringBuilder();
+        for (String dir : new String[]{"hour=00", "hour=01"}) {
+            new File(root, dir).mkdir();
+            for (int i = 0; i < 4; i++) {
+                if (paths.length() > 0) {
+                    paths.append(',');
+                }
+                paths.append(dir).append("/_DONE_").append(i);
+                if (dir.equals("hour=00") || i < 2) {
+                    new File(root, dir + "/_DONE_" + i).createNewFile();
+                }
+            }
+        }
+        SegmentPredicate predicate = new SegmentPredicate();
+        Map<String, Object> configMap = new HashMap<>();
+        configMap.put("path", paths.toString());
+        configMap.put("root.path", root.getAbsolutePath() + "/");
+        predicate.setConfigMap(configMap);
+        FileExistPredicator predicator = new FileExistPredicator(predicate);
+
+        Object fileSystem = ReflectionTestUtils.getField(FSUtil.class,
+            "fileSystem");
+        FileSystem localFs = spy(FileSystem.getLocal(new Configuration()));
+        ReflectionTestUtils.setField(FSUtil.class, "fileSystem", localFs);
+        try {
+            assertFalse(predicator.predicate());
+            verify(localFs, times(2)).listStatus(any(Path.class));
+
+            new File(root, "hour=01/_DONE_2").createNewFile();
+            new File(root, "hour=01/_DONE_3").createNewFile();
+            assertTrue(predicator.predicate());
+            assertTrue(predicator.predicate());
+            verify(localFs, times(3)).listStatus(any(Path.class));
+        } finally {
+            ReflectionTestUtils.setField(FSUtil.class, "fileSystem",
+                fileSystem);
+        }
+    }
 }
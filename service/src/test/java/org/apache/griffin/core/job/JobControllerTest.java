@@ -43,7 +43,9 @@ import org.apache.griffin.core.exception.GriffinExceptionMessage;
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.JobHealth;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.JobInstanceExpiryStats;
 import org.apache.griffin.core.job.entity.LivySessionStates;
+import org.apache.griffin.core.job.entity.LivySubmitStats;
 import org.apache.griffin.core.util.URLHelper;
 import org.junit.Before;
 import org.junit.Test;
@@ -155,7 +157,7 @@ public class JobControllerTest {
         int size = 2;
         JobInstanceBean jobInstance = new JobInstanceBean(1L, LivySessionStates
                 .State.RUNNING, "", "", null, null);
-        given(service.findInstancesOfJob(1L, page, size)).willReturn(Arrays
+        given(service.findInstancesOfJob(1L, page, size, true)).willReturn(Arrays
                 .asList(jobInstance));
 
         mvc.perform(get(URLHelper.API_VERSION_PATH + "/jobs/instances").param
@@ -166,6 +168,23 @@ public class JobControllerTest {
                 .andExpect(jsonPath("$.[0].state", is("RUNNING")));
     }
 
+    @Test
+    public void testFindInstancesOfJobWithoutArchived() throws Exception {
+        int page = 0;
+        int size = 2;
+        JobInstanceBean jobInstance = new JobInstanceBean(1L, LivySessionStates
+                .State.RUNNING, "", "", null, null);
+        given(service.findInstancesOfJob(1L, page, size, false)).willReturn(Arrays
+                .asList(jobInstance));
+
+        mvc.perform(get(URLHelper.API_VERSION_PATH + "/jobs/instances").param
+                ("jobId", String.valueOf(1L))
+                .param("page", String.valueOf(page)).param("size",
+                        String.valueOf(size)).param("archived", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].state", is("RUNNING")));
+    }
+
     @Test
     public void testFindInstance() throws Exception {
         JobInstanceBean jobInstance = new JobInstanceBean(1L, LivySessionStates
@@ -207,6 +226,33 @@ public class JobControllerTest {
                 .andExpect(jsonPath("$.healthyJobCount", is(1)));
     }
 
+    @Test
+    public void testGetSubmitStats() throws Exception {
+        LivySubmitStats stats = new LivySubmitStats();
+        stats.setQueuedTasks(2);
+        stats.setMaxQueueWait(1500);
+        given(service.getSubmitStats()).willReturn(stats);
+
+        mvc.perform(get(URLHelper.API_VERSION_PATH + "/jobs/submissions/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.queuedTasks", is(2)))
+                .andExpect(jsonPath("$.maxQueueWait", is(1500)));
+    }
+
+    @Test
+    public void testGetExpiryStats() throws Exception {
+        JobInstanceExpiryStats stats = new JobInstanceExpiryStats();
+        stats.setLastDeletedCount(3);
+        stats.setLastFinished(false);
+        given(service.getExpiryStats()).willReturn(stats);
+
+        mvc.perform(get(URLHelper.API_VERSION_PATH
+                + "/jobs/instances/expiry/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastDeletedCount", is(3)))
+                .andExpect(jsonPath("$.lastFinished", is(false)));
+    }
+
     @Test
     public void testTriggerJobForSuccess() throws Exception {
         Long id = 1L;
@@ -0,0 +1,132 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.quartz.JobKey.jobKey;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.griffin.core.job.JobStateProvider.InstanceInfo;
+import org.apache.griffin.core.job.entity.AbstractJob;
+import org.apache.griffin.core.job.entity.BatchJob;
+import org.apache.griffin.core.job.entity.JobHealth;
+import org.apache.griffin.core.job.entity.JobHealthRecord;
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.entity.StreamingJob;
+import org.apache.griffin.core.job.repo.JobHealthRecordRepo;
+import org.apache.griffin.core.job.repo.JobRepo;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+public class JobHealthTrackerTest {
+
+    @Mock
+    private JobHealthRecordRepo recordRepo;
+
+    @Mock
+    private JobRepo<AbstractJob> jobRepo;
+
+    @Mock
+    private JobStateProvider stateProvider;
+
+    @InjectMocks
+    private JobHealthTracker tracker;
+
+    @Test
+    public void testHealthIsUpdatedByInstanceStates() throws Exception {
+        BatchJob scheduled = new BatchJob(1L, 1L, "scheduled", "qJob1",
+            "BA", false);
+        BatchJob completed = new BatchJob(2L, 1L, "completed", "qJob2",
+            "BA", false);
+        StreamingJob streaming = new StreamingJob();
+        streaming.setId(3L);
+        given(jobRepo.findByDeleted(false)).willReturn(
+            Arrays.asList(scheduled, completed, streaming));
+        given(stateProvider.getTriggers(Arrays.asList(
+            jobKey("qJob1", "BA"), jobKey("qJob2", "BA"))))
+            .willReturn(Collections.singletonMap(jobKey("qJob1", "BA"),
+                null));
+        Map<Long, InstanceInfo> latest = new HashMap<>();
+        latest.put(1L, new InstanceInfo(State.SUCCESS, 100L));
+        latest.put(3L, new InstanceInfo(State.DEAD, 100L));
+        given(stateProvider.getLatestInstances(Arrays.asList(1L, 2L, 3L)))
+            .willReturn(latest);
+
+        tracker.init();
+        assertHealth(1, 2);
+
+        // the next instance of the batch job
+        tracker.update(instance(scheduled, 200L, State.FINDING));
+        assertHealth(0, 2);
+        // an older instance of the streaming job
+        tracker.update(instance(streaming, 50L, State.SUCCESS));
+        assertHealth(0, 2);
+        tracker.update(instance(streaming, 100L, State.RUNNING));
+        assertHealth(1, 2);
+
+        tracker.remove(streaming);
+        assertHealth(0, 1);
+        verify(recordRepo).deleteByJobIdIn(Collections.singletonList(3L));
+    }
+
+    @Test
+    public void testHealthIsRestoredFromRecords() {
+        JobHealthRecord healthy = new JobHealthRecord(1L, true);
+        healthy.setHealthy(true);
+        JobHealthRecord unhealthy = new JobHealthRecord(2L, true);
+        JobHealthRecord notCounted = new JobHealthRecord(3L, false);
+        given(recordRepo.findAll()).willReturn(
+            Arrays.asList(healthy, unhealthy, notCounted));
+
+        tracker.init();
+
+        assertHealth(1, 2);
+        verify(jobRepo, never()).findByDeleted(anyBoolean());
+        verify(recordRepo, never()).saveAll(
+            anyCollectionOf(JobHealthRecord.class));
+    }
+
+    private void assertHealth(int healthyJobCount, int jobCount) {
+        JobHealth health = tracker.getHealth();
+        assertEquals(healthyJobCount, health.getHealthyJobCount());
+        assertEquals(jobCount, health.getJobCount());
+    }
+
+    private JobInstanceBean instance(AbstractJob job, Long tms,
+                                     State state) {
+        JobInstanceBean instance = new JobInstanceBean(state, tms, tms);
+        instance.setJob(job);
+        return instance;
+    }
+}
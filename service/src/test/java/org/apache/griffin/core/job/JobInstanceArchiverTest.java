@@ -0,0 +1,115 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.JobInstanceArchiver.FINAL_STATES;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.griffin.core.job.entity.ArchivedJobInstance;
+import org.apache.griffin.core.job.entity.BatchJob;
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.repo.ArchivedJobInstanceRepo;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@RunWith(SpringRunner.class)
+public class JobInstanceArchiverTest {
+
+    @Mock
+    private JobInstanceRepo instanceRepo;
+
+    @Mock
+    private ArchivedJobInstanceRepo archiveRepo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private JobInstanceArchiver archiver;
+
+    @Before
+    public void setup() {
+        ReflectionTestUtils.setField(archiver, "batchSize", 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testArchiveMovesInstancesInBatches() {
+        given(instanceRepo.findArchivableAfter(eq(100L), eq(FINAL_STATES),
+            eq(0L), any(Pageable.class))).willReturn(Arrays.asList(
+            instance(1L, State.SUCCESS), instance(2L, State.DEAD)));
+        given(instanceRepo.findArchivableAfter(eq(100L), eq(FINAL_STATES),
+            eq(2L), any(Pageable.class))).willReturn(
+            Collections.singletonList(instance(4L, State.NOT_FOUND)));
+        given(instanceRepo.deleteByIdIn(Arrays.asList(1L, 2L)))
+            .willReturn(2);
+        given(instanceRepo.deleteByIdIn(Collections.singletonList(4L)))
+            .willReturn(1);
+
+        assertEquals(3, archiver.archive(100L));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(archiveRepo, times(2))
+            .saveAll(captor.capture());
+        List<ArchivedJobInstance> first = captor.getAllValues().get(0);
+        assertEquals(2, first.size());
+        assertEquals(Long.valueOf(1L), first.get(0).getInstanceId());
+        assertEquals(Long.valueOf(10L), first.get(0).getJobId());
+        assertEquals(State.DEAD, first.get(1).toInstance().getState());
+    }
+
+    @Test
+    public void testArchiveNothing() {
+        assertEquals(0, archiver.archive(100L));
+
+        verify(archiveRepo, never()).saveAll(
+            anyListOf(ArchivedJobInstance.class));
+    }
+
+    private JobInstanceBean instance(Long id, State state) {
+        JobInstanceBean instance = new JobInstanceBean(state, 50L, 1000L);
+        instance.setId(id);
+        BatchJob job = new BatchJob();
+        job.setId(10L);
+        instance.setJob(job);
+        return instance;
+    }
+}
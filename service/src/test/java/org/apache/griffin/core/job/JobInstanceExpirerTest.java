@@ -0,0 +1,147 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.griffin.core.job.entity.BatchJob;
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.JobInstanceExpiryStats;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.repo.ArchivedJobInstanceRepo;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.quartz.SchedulerException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+public class JobInstanceExpirerTest {
+
+    @Mock
+    private JobInstanceRepo instanceRepo;
+
+    @Mock
+    private BatchJobOperatorImpl batchJobOp;
+
+    @Mock
+    private JobHealthTracker healthTracker;
+
+    @Mock
+    private ArchivedJobInstanceRepo archiveRepo;
+
+    @InjectMocks
+    private JobInstanceExpirer expirer;
+
+    @Before
+    public void setup() {
+        ReflectionTestUtils.setField(expirer, "chunkSize", 2);
+    }
+
+    @Test
+    public void testExpireDeletesChunksInOrderOfId() throws Exception {
+        List<JobInstanceBean> first = Arrays.asList(instance(1L, 10L),
+            instance(2L, 10L));
+        List<JobInstanceBean> second = Collections.singletonList(
+            instance(5L, 20L));
+        given(instanceRepo.findExpiredAfter(eq(100L), eq(0L),
+            any(Pageable.class))).willReturn(first);
+        given(instanceRepo.findExpiredAfter(eq(100L), eq(2L),
+            any(Pageable.class))).willReturn(second);
+        given(instanceRepo.deleteByIdIn(Arrays.asList(1L, 2L)))
+            .willReturn(2);
+        given(instanceRepo.deleteByIdIn(Collections.singletonList(5L)))
+            .willReturn(1);
+
+        assertEquals(3, expirer.expire(100L));
+
+        verify(batchJobOp).deletePredicateJobs(first);
+        verify(batchJobOp).deletePredicateJobs(second);
+        verify(healthTracker).refresh(Collections.singleton(10L));
+        verify(healthTracker).refresh(Collections.singleton(20L));
+        JobInstanceExpiryStats stats = expirer.getStats();
+        assertEquals(2, stats.getLastChunkCount());
+        assertEquals(3, stats.getLastDeletedCount());
+        assertTrue(stats.isLastFinished());
+    }
+
+    @Test
+    public void testExpireStopsAtTimeBudget() throws Exception {
+        ReflectionTestUtils.setField(expirer, "timeBudget", 0L);
+        given(instanceRepo.findExpiredAfter(eq(100L), eq(0L),
+            any(Pageable.class))).willReturn(Arrays.asList(
+            instance(1L, 10L), instance(2L, 10L)));
+        given(instanceRepo.deleteByIdIn(Arrays.asList(1L, 2L)))
+            .willReturn(2);
+
+        assertEquals(2, expirer.expire(100L));
+
+        verify(instanceRepo, never()).findExpiredAfter(eq(100L), eq(2L),
+            any(Pageable.class));
+        JobInstanceExpiryStats stats = expirer.getStats();
+        assertFalse(stats.isLastFinished());
+        assertEquals(1, stats.getUnfinishedRunCount());
+    }
+
+    @Test
+    public void testExpireKeepsInstancesWhenPredicateJobsFail()
+        throws Exception {
+        List<JobInstanceBean> chunk = Collections.singletonList(
+            instance(1L, 10L));
+        given(instanceRepo.findExpiredAfter(anyLong(), anyLong(),
+            any(Pageable.class))).willReturn(chunk);
+        doThrow(SchedulerException.class).when(batchJobOp)
+            .deletePredicateJobs(chunk);
+
+        assertEquals(0, expirer.expire(100L));
+
+        verify(instanceRepo, never()).deleteByIdIn(
+            anyCollectionOf(Long.class));
+        assertEquals(1, expirer.getStats().getFailedRunCount());
+    }
+
+    private JobInstanceBean instance(Long id, Long jobId) {
+        JobInstanceBean instance = new JobInstanceBean(State.FOUND, 0L, 0L);
+        instance.setId(id);
+        BatchJob job = new BatchJob();
+        job.setId(jobId);
+        instance.setJob(job);
+        return instance;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.JobInstanceSyncEngine.Priority.SCHEDULED;
+import static org.apache.griffin.core.job.JobInstanceSyncEngine.Priority.VIEWED;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.BUSY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.DEAD;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.RUNNING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.SUCCESS;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.UNKNOWN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+public class JobInstanceSyncEngineTest {
+
+    @Mock
+    private JobInstanceRepo instanceRepo;
+
+    @Mock
+    private LivyTaskSubmitHelper livyTaskSubmitHelper;
+
+    @Mock
+    private LivySubmitScheduler submitScheduler;
+
+    @Mock
+    private Environment env;
+
+    @Mock
+    private JobHealthTracker healthTracker;
+
+    @InjectMocks
+    private JobInstanceSyncEngine engine;
+
+    private final CountDownLatch livyBlocked = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        ReflectionTestUtils.setField(engine, "threads", 1);
+        given(env.getProperty("livy.uri")).willReturn("http://livy/batches");
+        given(env.getProperty("yarn.uri")).willReturn("http://yarn");
+        engine.init();
+    }
+
+    @After
+    public void tearDown() {
+        livyBlocked.countDown();
+        engine.close();
+    }
+
+    @Test
+    public void testSyncActiveInstancesByLivyListing() throws IOException {
+        JobInstanceBean listed = new JobInstanceBean(1L, RUNNING, null, null,
+            1L, 2L);
+        JobInstanceBean unchanged = new JobInstanceBean(2L, RUNNING, null,
+            null, 1L, 2L);
+        JobInstanceBean unlisted = new JobInstanceBean(3L, RUNNING, null,
+            null, 1L, 2L);
+        given(instanceRepo.findByActiveState(any()))
+            .willReturn(Arrays.asList(listed, unchanged, unlisted));
+        Map<Long, Map<String, Object>> batches = new HashMap<>();
+        batches.put(1L, batch(1, "success", "app_1"));
+        batches.put(2L, batch(2, "running", null));
+        given(livyTaskSubmitHelper.getBatchesFromLivy(anyInt()))
+            .willReturn(batches);
+        given(livyTaskSubmitHelper.getFromLivy("http://livy/batches/3"))
+            .willReturn("{\"id\":3,\"state\":\"dead\"}");
+
+        engine.syncActiveInstances();
+
+        assertEquals(SUCCESS, listed.getState());
+        assertEquals("http://yarn/cluster/app/app_1", listed.getAppUri());
+        assertEquals(DEAD, unlisted.getState());
+        verify(instanceRepo).saveAll(Collections.singletonList(listed));
+        verify(instanceRepo).save(unlisted);
+        verify(livyTaskSubmitHelper, times(1)).getFromLivy(anyString());
+        verify(submitScheduler).release(1L);
+        verify(submitScheduler).release(3L);
+        verify(submitScheduler).retainSessions(
+            eq(new HashSet<>(Arrays.asList(1L, 2L, 3L))), anyLong());
+    }
+
+    @Test
+    public void testSyncActiveInstancesWithKilledAndUnknownBatches()
+        throws IOException {
+        JobInstanceBean killed = new JobInstanceBean(1L, RUNNING, null, null,
+            1L, 2L);
+        JobInstanceBean unknown = new JobInstanceBean(2L, RUNNING, null,
+            null, 1L, 2L);
+        JobInstanceBean listed = new JobInstanceBean(3L, RUNNING, null, null,
+            1L, 2L);
+        given(instanceRepo.findByActiveState(any()))
+            .willReturn(Arrays.asList(killed, unknown, listed));
+        Map<Long, Map<String, Object>> batches = new HashMap<>();
+        batches.put(1L, batch(1, "killed", "app_1"));
+        batches.put(2L, batch(2, "unheard_of", null));
+        batches.put(3L, batch(3, "success", "app_3"));
+        given(livyTaskSubmitHelper.getBatchesFromLivy(anyInt()))
+            .willReturn(batches);
+
+        engine.syncActiveInstances();
+
+        assertEquals(DEAD, killed.getState());
+        assertEquals(UNKNOWN, unknown.getState());
+        assertEquals(SUCCESS, listed.getState());
+        verify(instanceRepo).saveAll(Arrays.asList(killed, unknown, listed));
+        verify(submitScheduler).release(1L);
+        verify(submitScheduler).release(3L);
+    }
+
+    @Test
+    public void testSyncActiveInstancesOneByOneWhenListingFails()
+        throws IOException {
+        JobInstanceBean instance = new JobInstanceBean(1L, RUNNING, null,
+            null, 1L, 2L);
+        given(instanceRepo.findByActiveState(any()))
+            .willReturn(Collections.singletonList(instance));
+        given(livyTaskSubmitHelper.getBatchesFromLivy(anyInt()))
+            .willThrow(new IOException("connection refused"));
+        given(livyTaskSubmitHelper.getFromLivy("http://livy/batches/1"))
+            .willReturn("{\"id\":1,\"state\":\"busy\"}");
+
+        engine.syncActiveInstances();
+
+        assertEquals(BUSY, instance.getState());
+        verify(instanceRepo).save(instance);
+    }
+
+    @Test
+    public void testRefreshDoesNotWaitAndSharesSyncOfSession()
+        throws Exception {
+        JobInstanceBean viewed = instance(10L, 1L);
+        JobInstanceBean loaded = instance(10L, 1L);
+        given(instanceRepo.findByInstanceId(10L)).willReturn(loaded);
+        blockLivyOn(1L);
+        List<JobInstanceBean> instances = Collections.singletonList(viewed);
+
+        assertSame(instances, engine.refresh(instances));
+        CompletableFuture<Void> first = engine.requestSync(viewed, VIEWED,
+            true);
+        CompletableFuture<Void> second = engine.requestSync(viewed, SCHEDULED,
+            false);
+        assertSame(first, second);
+        assertNull(viewed.getSyncedTms());
+
+        livyBlocked.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        verify(livyTaskSubmitHelper, times(1)).getFromLivy(anyString());
+        assertEquals(RUNNING, viewed.getState());
+        assertEquals(BUSY, loaded.getState());
+        verify(instanceRepo).save(loaded);
+
+        engine.refresh(instances);
+        assertNotNull(viewed.getSyncedTms());
+    }
+
+    @Test
+    public void testViewedInstancesAreSyncedFirst() throws Exception {
+        given(livyTaskSubmitHelper.getFromLivy(anyString()))
+            .willReturn("{\"state\":\"busy\"}");
+        blockLivyOn(1L);
+        CompletableFuture<Void> busy = engine.requestSync(instance(1L, 1L),
+            SCHEDULED, false);
+        CompletableFuture<Void> scheduled = engine.requestSync(
+            instance(2L, 2L), SCHEDULED, false);
+        CompletableFuture<Void> raised = engine.requestSync(
+            instance(4L, 4L), SCHEDULED, false);
+        CompletableFuture<Void> viewed = engine.requestSync(
+            instance(3L, 3L), VIEWED, false);
+        engine.requestSync(instance(4L, 4L), VIEWED, false);
+        assertEquals(3, engine.getQueueSize());
+
+        livyBlocked.countDown();
+        CompletableFuture.allOf(busy, scheduled, raised, viewed)
+            .get(5, TimeUnit.SECONDS);
+        InOrder order = inOrder(livyTaskSubmitHelper);
+        order.verify(livyTaskSubmitHelper).getFromLivy("http://livy/batches/1");
+        order.verify(livyTaskSubmitHelper).getFromLivy("http://livy/batches/4");
+        order.verify(livyTaskSubmitHelper).getFromLivy("http://livy/batches/3");
+        order.verify(livyTaskSubmitHelper).getFromLivy("http://livy/batches/2");
+    }
+
+    private void blockLivyOn(Long sessionId) throws IOException {
+        given(livyTaskSubmitHelper.getFromLivy("http://livy/batches/"
+            + sessionId)).willAnswer(invocation -> {
+                livyBlocked.await(5, TimeUnit.SECONDS);
+                return "{\"id\":" + sessionId + ",\"state\":\"busy\"}";
+            });
+    }
+
+    private static JobInstanceBean instance(Long id, Long sessionId) {
+        JobInstanceBean instance = new JobInstanceBean(sessionId, RUNNING,
+            null, null, 1L, 2L);
+        instance.setId(id);
+        return instance;
+    }
+
+    private static Map<String, Object> batch(long id, String state,
+                                             String appId) {
+        Map<String, Object> batch = new HashMap<>();
+        batch.put("id", id);
+        batch.put("state", state);
+        batch.put("appId", appId);
+        return batch;
+    }
+}
@@ -21,8 +21,10 @@ package org.apache.griffin.core.job;
 
 import static org.apache.griffin.core.util.EntityMocksHelper.createFileExistPredicate;
 import static org.apache.griffin.core.util.EntityMocksHelper.createGriffinMeasure;
+import static org.apache.griffin.core.util.EntityMocksHelper.createJob;
 import static org.apache.griffin.core.util.EntityMocksHelper.createJobDetail;
 import static org.apache.griffin.core.util.EntityMocksHelper.createSimpleTrigger;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
@@ -36,15 +38,18 @@ import java.util.Properties;
 
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.BatchJob;
+import org.apache.griffin.core.job.entity.PendingPredicate;
 import org.apache.griffin.core.job.repo.BatchJobRepo;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
 import org.apache.griffin.core.job.repo.JobRepo;
 import org.apache.griffin.core.measure.entity.GriffinMeasure;
+import org.apache.griffin.core.measure.MeasureSnapshotStore;
 import org.apache.griffin.core.measure.repo.GriffinMeasureRepo;
 import org.apache.griffin.core.util.JsonUtil;
 import org.apache.griffin.core.util.PropertiesUtil;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
@@ -107,6 +112,15 @@ public class JobInstanceTest {
     @MockBean
     private JobRepo<AbstractJob> repo;
 
+    @MockBean
+    private PredicateEngine predicateEngine;
+
+    @MockBean
+    private MeasureSnapshotStore snapshotStore;
+
+    @MockBean
+    private JobHealthTracker healthTracker;
+
     @Test
     @SuppressWarnings("unchecked")
     public void testExecute() throws Exception {
@@ -114,8 +128,7 @@ public class JobInstanceTest {
         Scheduler scheduler = mock(Scheduler.class);
         GriffinMeasure measure = createGriffinMeasure("measureName");
         JobDetail jd = createJobDetail(JsonUtil.toJson(measure), "");
-        BatchJob job = new BatchJob(1L, "jobName",
-                "qName", "qGroup", false);
+        BatchJob job = (BatchJob) createJob("jobName");
         job.setConfigMap(new HashMap<>());
         List<Trigger> triggers = Arrays.asList(createSimpleTrigger(2, 0));
         given(context.getJobDetail()).willReturn(jd);
@@ -135,9 +148,17 @@ public class JobInstanceTest {
         jobInstance.execute(context);
 
         verify(measureRepo, times(1)).findOne(Matchers.anyLong());
-        verify(factory, times(4)).getScheduler();
+        verify(factory, times(1)).getScheduler();
         verify(scheduler, times(1)).getTriggersOfJob(Matchers.any(
                 JobKey.class));
+        ArgumentCaptor<PendingPredicate> pending = ArgumentCaptor.forClass(
+                PendingPredicate.class);
+        verify(predicateEngine, times(1)).add(pending.capture());
+        // the values of the run are kept apart from the measure snapshot
+        assertNotNull(pending.getValue().getMeasureTimestamp());
+        assertNotNull(pending.getValue().getConnectorConfigs());
+        assertTrue(pending.getValue().getConnectorConfigs()
+                .contains("source_name"));
     }
 
     @SuppressWarnings("unchecked")
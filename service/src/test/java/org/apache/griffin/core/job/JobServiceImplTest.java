@@ -21,7 +21,10 @@ package org.apache.griffin.core.job;
 
 import org.apache.griffin.core.exception.GriffinException;
 import org.apache.griffin.core.job.entity.AbstractJob;
+import org.apache.griffin.core.job.entity.ArchivedJobInstance;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates;
+import org.apache.griffin.core.job.repo.ArchivedJobInstanceRepo;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
 import org.apache.griffin.core.job.repo.JobRepo;
 import org.junit.Test;
@@ -29,10 +32,12 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.quartz.*;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.quartz.SchedulerFactoryBean;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.apache.griffin.core.util.EntityMocksHelper.createGriffinJob;
 import static org.apache.griffin.core.util.EntityMocksHelper.createJobInstance;
@@ -40,7 +45,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -58,6 +65,12 @@ public class JobServiceImplTest {
     @Mock
     private JobInstanceRepo instanceRepo;
 
+    @Mock
+    private JobInstanceSyncEngine syncEngine;
+
+    @Mock
+    private ArchivedJobInstanceRepo archiveRepo;
+
     @InjectMocks
     private JobServiceImpl jobService;
 
@@ -81,6 +94,47 @@ public class JobServiceImplTest {
         verify(scheduler, times(1)).scheduleJob(any());
     }
 
+    @Test
+    public void testFindInstancesOfJobLeavesSyncToEngine() {
+        given(jobRepo.findByIdAndDeleted(1L, false))
+            .willReturn(createGriffinJob());
+        List<JobInstanceBean> instances = Collections.singletonList(
+            createJobInstance());
+        given(instanceRepo.findByJobId(eq(1L), any(Pageable.class)))
+            .willReturn(instances);
+        given(syncEngine.refresh(instances)).willReturn(instances);
+
+        assertEquals(instances, jobService.findInstancesOfJob(1L, 0, 10,
+            false));
+        verify(syncEngine).refresh(instances);
+    }
+
+    @Test
+    public void testFindInstancesOfJobMergesArchivedOnes() {
+        given(jobRepo.findByIdAndDeleted(1L, false))
+            .willReturn(createGriffinJob());
+        JobInstanceBean hot = createJobInstance();
+        hot.setTms(300L);
+        JobInstanceBean cold = createJobInstance();
+        cold.setId(2L);
+        cold.setTms(200L);
+        cold.setState(LivySessionStates.State.SUCCESS);
+        given(instanceRepo.findByJobId(eq(1L), any(Pageable.class)))
+            .willReturn(Collections.singletonList(hot));
+        given(archiveRepo.findByJobId(eq(1L), any(Pageable.class)))
+            .willReturn(Collections.singletonList(
+                new ArchivedJobInstance(cold, 400L)));
+        given(syncEngine.refresh(anyListOf(JobInstanceBean.class)))
+            .willAnswer(invocation -> invocation.getArguments()[0]);
+
+        List<JobInstanceBean> instances = jobService.findInstancesOfJob(1L,
+            1, 1, true);
+
+        assertEquals(1, instances.size());
+        assertEquals(Long.valueOf(2L), instances.get(0).getId());
+        assertEquals(Long.valueOf(200L), instances.get(0).getTms());
+    }
+
 
     @Test(expected = GriffinException.NotFoundException.class)
     public void testTriggerJobByIdFail() throws SchedulerException {
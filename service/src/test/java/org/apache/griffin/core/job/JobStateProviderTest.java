@@ -0,0 +1,126 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.quartz.JobKey.jobKey;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.griffin.core.job.JobStateProvider.TriggerInfo;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerMetaData;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+public class JobStateProviderTest {
+
+    @Mock
+    private SchedulerFactoryBean factory;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private JobStateProvider provider;
+
+    private final Scheduler scheduler = mock(Scheduler.class);
+
+    @Before
+    public void setup() throws Exception {
+        ReflectionTestUtils.setField(provider, "quartzConf",
+            new Properties());
+        SchedulerMetaData metaData = mock(SchedulerMetaData.class);
+        given(metaData.getJobStoreClass()).willReturn(JobStoreTX.class);
+        given(scheduler.getMetaData()).willReturn(metaData);
+        given(scheduler.getSchedulerName()).willReturn("spring-boot-quartz");
+        given(factory.getScheduler()).willReturn(scheduler);
+    }
+
+    @Test
+    public void testTriggersAreLoadedInOneQuery() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        given(rs.getString(1)).willReturn("job1", "job2", "other");
+        given(rs.getString(2)).willReturn("BA");
+        given(rs.getString(3)).willReturn("job1", "job2", "other");
+        given(rs.getString(4)).willReturn("PAUSED_BLOCKED", "WAITING",
+            "WAITING");
+        given(rs.getLong(5)).willReturn(2000L, 0L, 0L);
+        given(rs.getLong(6)).willReturn(1000L, 0L, 0L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = (RowCallbackHandler) invocation
+                .getArguments()[2];
+            for (int i = 0; i < 3; i++) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(Object[].class),
+            any(RowCallbackHandler.class));
+
+        Map<JobKey, TriggerInfo> triggers = provider.getTriggers(
+            Arrays.asList(jobKey("job1", "BA"), jobKey("job2", "BA")));
+
+        assertEquals(2, triggers.size());
+        TriggerInfo paused = triggers.get(jobKey("job1", "BA"));
+        assertEquals(TriggerState.PAUSED, paused.getState());
+        assertEquals(2000L, paused.getNextFireTime());
+        assertEquals(1000L, paused.getPreviousFireTime());
+        TriggerInfo waiting = triggers.get(jobKey("job2", "BA"));
+        assertEquals(TriggerState.NORMAL, waiting.getState());
+        assertEquals(-1L, waiting.getNextFireTime());
+        assertFalse(triggers.containsKey(jobKey("other", "BA")));
+        verify(scheduler, never()).getTriggersOfJob(any());
+    }
+
+    @Test
+    public void testStoredStatesMapLikeTheScheduler() {
+        assertEquals(TriggerState.NONE,
+            JobStateProvider.toTriggerState("DELETED"));
+        assertEquals(TriggerState.NORMAL,
+            JobStateProvider.toTriggerState("ACQUIRED"));
+        assertEquals(TriggerState.BLOCKED,
+            JobStateProvider.toTriggerState("BLOCKED"));
+        assertEquals(TriggerState.COMPLETE,
+            JobStateProvider.toTriggerState("COMPLETE"));
+    }
+}
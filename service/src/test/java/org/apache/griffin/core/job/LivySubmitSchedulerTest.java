@@ -0,0 +1,223 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.JobInstance.ORGANIZATION_KEY;
+import static org.apache.griffin.core.job.JobInstance.SUBMIT_DEADLINE_KEY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.RUNNING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.SUCCESS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.quartz.JobBuilder.newJob;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.entity.LivySubmitOrgStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.quartz.JobDetail;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+public class LivySubmitSchedulerTest {
+
+    @Mock
+    private AutowireCapableBeanFactory beanFactory;
+
+    @InjectMocks
+    private LivySubmitScheduler scheduler;
+
+    private final SparkSubmitJob job = mock(SparkSubmitJob.class);
+
+    @Before
+    public void setup() {
+        ReflectionTestUtils.setField(scheduler, "maxConcurrentTaskCount", 1);
+        ReflectionTestUtils.setField(scheduler, "workerCount", 2);
+        ReflectionTestUtils.setField(scheduler, "submitsPerSecond", 1000d);
+        given(beanFactory.createBean(SparkSubmitJob.class)).willReturn(job);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    public void testEarliestDeadlineFirst() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch firstBlocked = new CountDownLatch(1);
+        CountDownLatch allSubmitted = new CountDownLatch(4);
+        List<Long> order = new CopyOnWriteArrayList<>();
+        given(job.saveJobInstance(any())).willAnswer(invocation -> {
+            long deadline = ((JobDetail) invocation.getArguments()[0])
+                .getJobDataMap().getLong(SUBMIT_DEADLINE_KEY);
+            if (order.isEmpty()) {
+                firstStarted.countDown();
+                firstBlocked.await(5, TimeUnit.SECONDS);
+            }
+            order.add(deadline);
+            allSubmitted.countDown();
+            return instance(deadline, SUCCESS);
+        });
+        scheduler.init();
+
+        assertTrue(scheduler.addTask(task(500L)));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        scheduler.addTask(task(300L));
+        scheduler.addTask(task(100L));
+        scheduler.addTask(task(200L));
+        assertEquals(3, scheduler.getStats().getQueuedTasks());
+        firstBlocked.countDown();
+
+        assertTrue(allSubmitted.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(500L, 100L, 200L, 300L), order);
+        assertEquals(4, scheduler.getStats().getMissedDeadlineCount());
+    }
+
+    @Test
+    public void testPermitIsHeldUntilSessionIsReleased() throws Exception {
+        JobDetail running = task(1L);
+        JobDetail waiting = task(2L);
+        given(job.saveJobInstance(running)).willReturn(instance(1L, RUNNING));
+        scheduler.init();
+
+        scheduler.addTask(running);
+        scheduler.addTask(waiting);
+        verify(job, timeout(5000)).saveJobInstance(running);
+        verify(job, after(200).never()).saveJobInstance(waiting);
+        assertEquals(1, scheduler.getStats().getRunningTasks());
+
+        scheduler.release(1L);
+        verify(job, timeout(5000)).saveJobInstance(waiting);
+    }
+
+    @Test
+    public void testRetainSessionsReleasesPermitsOfInactiveSessions()
+        throws Exception {
+        JobDetail running = task(1L);
+        JobDetail waiting = task(2L);
+        given(job.saveJobInstance(running)).willReturn(instance(1L, RUNNING));
+        scheduler.init();
+
+        scheduler.addTask(running);
+        scheduler.addTask(waiting);
+        verify(job, timeout(5000)).saveJobInstance(running);
+        scheduler.retainSessions(Collections.singleton(1L),
+            System.currentTimeMillis() + 1000);
+        verify(job, after(200).never()).saveJobInstance(waiting);
+
+        scheduler.retainSessions(Collections.emptySet(),
+            System.currentTimeMillis() + 1000);
+        verify(job, timeout(5000)).saveJobInstance(waiting);
+    }
+
+    @Test
+    public void testFreeSlotGoesToOrganizationWithFewestTasksForWeight()
+        throws Exception {
+        ReflectionTestUtils.setField(scheduler, "maxConcurrentTaskCount", 3);
+        ReflectionTestUtils.setField(scheduler, "orgWeights", "big:1,small:1");
+        given(job.saveJobInstance(any())).willAnswer(invocation -> {
+            long deadline = ((JobDetail) invocation.getArguments()[0])
+                .getJobDataMap().getLong(SUBMIT_DEADLINE_KEY);
+            return instance(deadline, RUNNING);
+        });
+        scheduler.init();
+        for (long deadline = 1; deadline <= 3; deadline++) {
+            scheduler.addTask(task(deadline, "big"));
+        }
+        verify(job, after(200).times(3)).saveJobInstance(any());
+        LivySubmitOrgStats big = scheduler.getStats().getOrganizations()
+            .get("big");
+        assertEquals(3, big.getRunningTasks());
+        assertEquals(3, big.getFairShare(), 0);
+
+        JobDetail bigWaiting = task(4L, "big");
+        JobDetail smallWaiting = task(10L, "small");
+        scheduler.addTask(bigWaiting);
+        scheduler.addTask(task(5L, "big"));
+        scheduler.addTask(smallWaiting);
+        scheduler.addTask(task(11L, "small"));
+        assertEquals(1.5, scheduler.getStats().getOrganizations().get("small")
+            .getFairShare(), 0);
+
+        scheduler.release(1L);
+        verify(job, timeout(5000)).saveJobInstance(smallWaiting);
+        verify(job, never()).saveJobInstance(bigWaiting);
+        scheduler.release(2L);
+        verify(job, timeout(5000)).saveJobInstance(bigWaiting);
+        assertEquals(2, scheduler.getStats().getOrganizations().get("small")
+            .getQueuedTasks() + scheduler.getStats().getOrganizations()
+            .get("big").getQueuedTasks());
+    }
+
+    @Test
+    public void testDuplicateTaskIsQueuedOnceAndFullQueueDiscards() {
+        ReflectionTestUtils.setField(scheduler, "maxConcurrentTaskCount", 0);
+        ReflectionTestUtils.setField(scheduler, "queueSize", 1);
+        scheduler.init();
+        JobDetail queued = task(1L);
+
+        assertTrue(scheduler.addTask(queued));
+        assertTrue(scheduler.addTask(queued));
+        assertFalse(scheduler.addTask(task(2L)));
+        assertEquals(1, scheduler.getStats().getQueuedTasks());
+        assertEquals(1, scheduler.getStats().getDiscardedCount());
+    }
+
+    private static JobDetail task(long deadline) {
+        return task(deadline, null);
+    }
+
+    private static JobDetail task(long deadline, String org) {
+        JobDetail jd = newJob(SparkSubmitJob.class)
+            .withIdentity("predicate_" + deadline, "BA")
+            .usingJobData(SUBMIT_DEADLINE_KEY, String.valueOf(deadline))
+            .build();
+        if (org != null) {
+            jd.getJobDataMap().put(ORGANIZATION_KEY, org);
+        }
+        return jd;
+    }
+
+    private static JobInstanceBean instance(long sessionId, State state) {
+        return new JobInstanceBean(sessionId, state, null, null, 1L, 2L);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.RUNNING;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.apache.griffin.core.util.HttpServerStub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Time of one sync of running job instances against a stub Livy which
+ * knows all their sessions, synced one session at a time by the workers of
+ * the sync engine, without rate limit, or from the paged batch listing. Every sync starts from instances which all changed state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LivySyncBenchmark {
+
+    @Param({"10000"})
+    private int sessions;
+
+    @Param({"false", "true"})
+    private boolean byListing;
+
+    private HttpServerStub livy;
+    private JobInstanceSyncEngine engine;
+    private JobInstanceRepo instanceRepo;
+
+    @Setup(Level.Trial)
+    public void startLivy() throws IOException {
+        livy = new HttpServerStub((method, path, body) -> {
+            URI uri = URI.create(path);
+            if (uri.getQuery() == null) {
+                return session(Long.parseLong(uri.getPath().substring(
+                    "/batches/".length())));
+            }
+            int from = 0;
+            int size = 20;
+            for (String param : uri.getQuery().split("&")) {
+                String[] pair = param.split("=");
+                if ("from".equals(pair[0])) {
+                    from = Integer.parseInt(pair[1]);
+                } else if ("size".equals(pair[0])) {
+                    size = Integer.parseInt(pair[1]);
+                }
+            }
+            StringBuilder page = new StringBuilder("{\"from\":").append(from)
+                .append(",\"total\":").append(sessions)
+                .append(",\"sessions\":[");
+            for (int id = from; id < Math.min(from + size, sessions); id++) {
+                if (id > from) {
+                    page.append(',');
+                }
+                page.append(session(id));
+            }
+            return page.append("]}").toString();
+        });
+        String livyUri = "http://localhost:" + livy.getPort() + "/batches";
+        MockEnvironment env = new MockEnvironment()
+            .withProperty("livy.uri", livyUri)
+            .withProperty("livy.need.kerberos", "false")
+            .withProperty("yarn.uri", "http://localhost:8088");
+        LivyTaskSubmitHelper helper = new LivyTaskSubmitHelper();
+        ReflectionTestUtils.setField(helper, "env", env);
+        ReflectionTestUtils.setField(helper, "uri", livyUri);
+        ReflectionTestUtils.setField(helper, "restTemplate",
+            new RestTemplate());
+        instanceRepo = mock(JobInstanceRepo.class, withSettings().stubOnly());
+        engine = new JobInstanceSyncEngine();
+        ReflectionTestUtils.setField(engine, "env", env);
+        ReflectionTestUtils.setField(engine, "instanceRepo", instanceRepo);
+        ReflectionTestUtils.setField(engine, "livyTaskSubmitHelper", helper);
+        ReflectionTestUtils.setField(engine, "submitScheduler",
+            new LivySubmitScheduler());
+        ReflectionTestUtils.setField(engine, "syncByListing", byListing);
+        ReflectionTestUtils.setField(engine, "livyRequestsPerSecond", 0d);
+        engine.init();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetInstances() {
+        List<JobInstanceBean> instances = new ArrayList<>(sessions);
+        for (long id = 0; id < sessions; id++) {
+            instances.add(new JobInstanceBean(id, RUNNING, null, null, 0L,
+                0L));
+        }
+        given(instanceRepo.findByActiveState(any())).willReturn(instances);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopLivy() {
+        engine.close();
+        livy.close();
+    }
+
+    @Benchmark
+    public void sync() {
+        engine.syncActiveInstances();
+    }
+
+    private static String session(long id) {
+        return "{\"id\":" + id + ",\"state\":\"success\",\"appId\":"
+            + "\"application_1546300800000_" + id + "\",\"appInfo\":{"
+            + "\"driverLogUrl\":null,\"sparkUiUrl\":null},\"log\":[]}";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(LivySyncBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,284 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.JobInstance.JOB_NAME;
+import static org.apache.griffin.core.job.JobInstance.MEASURE_KEY;
+import static org.apache.griffin.core.job.JobInstance.PREDICATES_KEY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.FINDING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_FOUND;
+import static org.apache.griffin.core.util.EntityMocksHelper.createJobInstance;
+import static org.apache.griffin.core.util.EntityMocksHelper.createMockPredicate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.PendingPredicate;
+import org.apache.griffin.core.job.entity.SegmentPredicate;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.apache.griffin.core.job.repo.PendingPredicateRepo;
+import org.apache.griffin.core.util.JsonUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+public class PredicateEngineTest {
+
+    @Mock
+    private PendingPredicateRepo pendingRepo;
+
+    @Mock
+    private JobInstanceRepo instanceRepo;
+
+    @Mock
+    private LivySubmitScheduler submitScheduler;
+
+    @Mock
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Mock
+    private DoneFileWatcher doneFileWatcher;
+
+    @Mock
+    private JobHealthTracker healthTracker;
+
+    @InjectMocks
+    private PredicateEngine engine;
+
+    private final SparkSubmitJob job = mock(SparkSubmitJob.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() {
+        // ticks are driven by the tests
+        ReflectionTestUtils.setField(engine, "tickInterval", 3600000L);
+        ReflectionTestUtils.setField(engine, "threadCount", 2);
+        given(beanFactory.createBean(SparkSubmitJob.class)).willReturn(job);
+    }
+
+    @After
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    public void testReadyInstanceIsSubmittedWithoutItsPredicates()
+        throws Exception {
+        PendingPredicate pending = pending("job_predicate_1",
+            createMockPredicate(), 2);
+        given(pendingRepo.findByPredicateNameIn(any()))
+            .willReturn(Collections.singletonList(pending));
+        claimedHere(pending);
+        // submit deletes the predicate job of the instance
+        given(job.saveJobInstance(any())).willAnswer(invocation -> {
+            engine.remove("job_predicate_1");
+            return null;
+        });
+        engine.init();
+        engine.add(pending);
+
+        engine.tick();
+
+        ArgumentCaptor<JobDetail> jd = ArgumentCaptor.forClass(JobDetail.class);
+        verify(job).saveJobInstance(jd.capture());
+        JobDataMap dataMap = jd.getValue().getJobDataMap();
+        assertEquals("job_predicate_1", jd.getValue().getKey().getName());
+        assertEquals("job", dataMap.getString(JOB_NAME));
+        assertEquals("{}", dataMap.getString(MEASURE_KEY));
+        assertFalse(dataMap.containsKey(PREDICATES_KEY));
+        verify(pendingRepo).deleteByPredicateName("job_predicate_1");
+        assertEquals(0, engine.getPendingCount());
+    }
+
+    @Test
+    public void testInstanceIsNotFoundAfterAllChecks() throws Exception {
+        Map<String, String> config = new HashMap<>();
+        config.put("root.path", "/griffin-predicate-engine-test/");
+        config.put("path", "_DONE");
+        SegmentPredicate missing = new SegmentPredicate("file.exist", config);
+        missing.load();
+        PendingPredicate pending = pending("job_predicate_2", missing, 1);
+        JobInstanceBean instance = createJobInstance();
+        instance.setState(FINDING);
+        given(pendingRepo.findByPredicateNameIn(any()))
+            .willReturn(Collections.singletonList(pending));
+        claimedHere(pending);
+        given(instanceRepo.findByPredicateNameIn(any()))
+            .willReturn(Collections.singletonList(instance));
+        engine.init();
+        engine.add(pending);
+
+        engine.tick();
+        assertEquals(1, pending.getCheckCount());
+        assertEquals(1, engine.getPendingCount());
+        verify(instanceRepo, never()).saveAll(any());
+
+        engine.tick();
+        assertEquals(NOT_FOUND, instance.getState());
+        verify(pendingRepo).deleteAll(Collections.singletonList(pending));
+        verify(job, never()).saveJobInstance(any());
+        assertEquals(0, engine.getPendingCount());
+    }
+
+    @Test
+    public void testWokenUpCheckDoesNotCount() throws Exception {
+        Map<String, String> config = new HashMap<>();
+        config.put("root.path", folder.getRoot().getPath() + "/");
+        config.put("path", "_DONE");
+        SegmentPredicate done = new SegmentPredicate("file.exist", config);
+        done.load();
+        PendingPredicate pending = pending("job_predicate_3", done, 1);
+        given(pendingRepo.findByPredicateNameIn(any()))
+            .willReturn(Collections.singletonList(pending));
+        claimedHere(pending);
+        engine.init();
+        engine.add(pending);
+
+        engine.tick();
+        ArgumentCaptor<Runnable> listener = ArgumentCaptor
+            .forClass(Runnable.class);
+        verify(doneFileWatcher).watch(eq("job_predicate_3"),
+            anyCollectionOf(String.class), listener.capture());
+        assertEquals(1, pending.getCheckCount());
+
+        assertTrue(new File(folder.getRoot(), "_DONE").createNewFile());
+        listener.getValue().run();
+
+        verify(job, timeout(5000)).saveJobInstance(any());
+        verify(doneFileWatcher, timeout(5000)).unwatch("job_predicate_3");
+        assertEquals(1, pending.getCheckCount());
+    }
+
+    @Test
+    public void testOnlyDueInstancesAreLoaded() throws Exception {
+        long later = System.currentTimeMillis() + 3600000L;
+        given(pendingRepo.findSchedule()).willReturn(Arrays.asList(
+            new Object[]{"due", 0L}, new Object[]{"later", later}));
+        engine.init();
+        assertEquals(2, engine.getPendingCount());
+
+        engine.tick();
+
+        verify(pendingRepo).findByPredicateNameIn(
+            Collections.singletonList("due"));
+        // a row deleted meanwhile is dropped
+        assertEquals(1, engine.getPendingCount());
+    }
+
+    @Test
+    public void testInstanceClaimedByAnotherServerIsNotChecked()
+        throws Exception {
+        long lease = System.currentTimeMillis() + 3600000L;
+        PendingPredicate pending = pending("job_predicate_4",
+            createMockPredicate(), 2);
+        pending.setOwner("another server");
+        pending.setLeaseTms(lease);
+        given(pendingRepo.findByPredicateNameIn(any()))
+            .willReturn(Collections.singletonList(pending));
+        engine.init();
+        engine.add(pending);
+
+        engine.tick();
+
+        verify(pendingRepo).claim(eq(Collections.singletonList(
+            "job_predicate_4")), anyString(), anyLong(), anyLong(),
+            anyLong());
+        verify(job, never()).saveJobInstance(any());
+        verify(pendingRepo, never()).rescheduleSubmitted(any(), any(),
+            anyLong(), anyLong());
+        // not checked again before the claim runs out
+        assertEquals(1, engine.getPendingCount());
+        engine.tick();
+        verify(pendingRepo).claim(any(), any(), anyLong(), anyLong(),
+            anyLong());
+    }
+
+    @Test
+    public void testInstancesAddedOnAnotherServerArePickedUp() {
+        ReflectionTestUtils.setField(engine, "resyncInterval", 0L);
+        given(pendingRepo.findSchedule())
+            .willReturn(Collections.emptyList())
+            .willReturn(Collections.singletonList(
+                new Object[]{"elsewhere", null}));
+        engine.init();
+        assertEquals(0, engine.getPendingCount());
+
+        engine.tick();
+
+        verify(pendingRepo).findByPredicateNameIn(
+            Collections.singletonList("elsewhere"));
+    }
+
+    /**
+     * claims of the engine succeed for the given rows
+     */
+    private void claimedHere(PendingPredicate... pendings) {
+        given(pendingRepo.claim(any(), anyString(), anyLong(), anyLong(),
+            anyLong())).willAnswer(invocation -> {
+            for (PendingPredicate pending : pendings) {
+                pending.setOwner(invocation.getArgument(1));
+                pending.setLeaseTms(invocation.getArgument(2));
+            }
+            return pendings.length;
+        });
+    }
+
+    private PendingPredicate pending(String name, SegmentPredicate predicate,
+                                     int repeatCount) throws IOException {
+        PendingPredicate pending = new PendingPredicate(name, "PG", "job", 0L,
+            repeatCount);
+        pending.setMeasure("{}");
+        pending.setPredicates(JsonUtil.toJson(
+            Collections.singletonList(predicate)));
+        return pending;
+    }
+}
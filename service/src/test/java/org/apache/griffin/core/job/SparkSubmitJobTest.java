@@ -23,6 +23,8 @@ import org.apache.griffin.core.config.PropertiesConfig;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
 import org.apache.griffin.core.job.entity.SegmentPredicate;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.apache.griffin.core.measure.MeasureSnapshotStore;
+import org.apache.griffin.core.measure.MeasureSnapshotStore.ParsedSnapshot;
 import org.apache.griffin.core.measure.entity.GriffinMeasure;
 import org.apache.griffin.core.util.JsonUtil;
 import org.apache.griffin.core.util.PropertiesUtil;
@@ -44,7 +46,12 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Properties;
 
+import static org.apache.griffin.core.job.JobInstance.MEASURE_KEY;
+import static org.apache.griffin.core.job.JobInstance.CONNECTOR_CONFIGS_KEY;
+import static org.apache.griffin.core.job.JobInstance.MEASURE_SNAPSHOT_KEY;
+import static org.apache.griffin.core.job.JobInstance.MEASURE_TIMESTAMP_KEY;
 import static org.apache.griffin.core.util.EntityMocksHelper.*;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -92,6 +99,15 @@ public class SparkSubmitJobTest {
     @MockBean
     private LivyTaskSubmitHelper livyTaskSubmitHelper;
 
+    @MockBean
+    private LivySubmitScheduler submitScheduler;
+
+    @MockBean
+    private MeasureSnapshotStore snapshotStore;
+
+    @MockBean
+    private JobHealthTracker healthTracker;
+
     @Before
     public void setUp() {
     }
@@ -157,6 +173,10 @@ public class SparkSubmitJobTest {
         verify(context, times(1)).getJobDetail();
         verify(jobInstanceRepo, times(1)).findByPredicateName(
                 Matchers.anyString());
+        // arguments go into a copy, as submissions run concurrently
+        verify(livyTaskSubmitHelper).postToLivy(Matchers.any(),
+                Matchers.argThat(conf -> conf.containsKey("args")));
+        assertFalse(PropertiesConfig.livyConfMap.containsKey("args"));
     }
 
     @Test
@@ -176,6 +196,36 @@ public class SparkSubmitJobTest {
                 Matchers.anyString());
     }
 
+    @Test
+    public void testExecuteWithMeasureSnapshot() throws Exception {
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        JobInstanceBean instance = createJobInstance();
+        JobDetail jd = createJobDetail(null, "");
+        jd.getJobDataMap().remove(MEASURE_KEY);
+        jd.getJobDataMap().put(MEASURE_SNAPSHOT_KEY, "1");
+        jd.getJobDataMap().put(MEASURE_TIMESTAMP_KEY, "1000");
+        jd.getJobDataMap().put(CONNECTOR_CONFIGS_KEY,
+            "{\"source\":{\"where\":\"dt=20190901\"}}");
+        ParsedSnapshot snapshot = mock(ParsedSnapshot.class);
+        given(snapshot.getMeasure()).willReturn(
+            createGriffinMeasure("jobName"));
+        given(snapshot.getJson(Matchers.any(), Matchers.any()))
+            .willReturn("{}");
+        given(snapshotStore.get(1L, "jobName")).willReturn(snapshot);
+        given(context.getJobDetail()).willReturn(jd);
+        given(jobInstanceRepo.findByPredicateName(Matchers.anyString()))
+                .willReturn(instance);
+
+        sparkSubmitJob.execute(context);
+
+        verify(snapshotStore, times(1)).get(1L, "jobName");
+        verify(snapshot).getJson(Matchers.eq(1000L), Matchers.argThat(
+            configs -> "dt=20190901".equals(configs.get("source")
+                .get("where"))));
+        verify(jobInstanceRepo, times(1)).findByPredicateName(
+                Matchers.anyString());
+    }
+
     @Test
     public void testExecuteWithNullException() {
         JobExecutionContext context = mock(JobExecutionContext.class);
@@ -26,6 +26,7 @@ import java.util.List;
 import org.apache.griffin.core.config.EclipseLinkJpaConfigForTest;
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.BatchJob;
+import org.apache.griffin.core.job.entity.JobSummary;
 import org.apache.griffin.core.job.entity.VirtualJob;
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
 import org.junit.Before;
@@ -72,6 +73,13 @@ public class JobRepoTest {
         assertEquals(jobs.size(), 4);
     }
 
+    @Test
+    public void testFindSummaryByDeleted() {
+        List<JobSummary> jobs = jobRepo.findSummaryByDeleted(false);
+        assertEquals(jobs.size(), 4);
+        assertEquals(jobs.get(0).getMeasureId(), Long.valueOf(1L));
+    }
+
     @Test
     public void findByJobNameAndDeleted() {
         List<AbstractJob> jobs = jobRepo
@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.griffin.core.measure.entity.GriffinMeasure;
+import org.apache.griffin.core.measure.entity.MeasureSummary;
 import org.apache.griffin.core.measure.repo.GriffinMeasureRepo;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -73,15 +74,16 @@ public class MeasureOrgServiceImplTest {
     @Test
     public void testGetMeasureNamesGroupByOrg() throws Exception {
         GriffinMeasure measure = createGriffinMeasure("measure");
-        when(measureRepo.findByDeleted(false)).thenReturn(Arrays
-                .asList(measure));
+        when(measureRepo.findSummaryByDeleted(false)).thenReturn(Arrays
+                .asList(summaryOf(measure)));
         Map<String, List<String>> map = service.getMeasureNamesGroupByOrg();
         assertThat(map.size()).isEqualTo(1);
     }
 
     @Test
     public void testGetMeasureNamesGroupByOrgWithNull() {
-        when(measureRepo.findByDeleted(false)).thenReturn(new ArrayList<>());
+        when(measureRepo.findSummaryByDeleted(false))
+                .thenReturn(new ArrayList<>());
         Map<String, List<String>> map = service.getMeasureNamesGroupByOrg();
         assert map.size() == 0;
     }
@@ -94,8 +96,8 @@ public class MeasureOrgServiceImplTest {
         GriffinMeasure measure = createGriffinMeasure(measureName);
         measure.setOrganization("org");
         measure.setId(Long.valueOf(measureId));
-        given(measureRepo.findByDeleted(false)).willReturn(Arrays
-                .asList(measure));
+        given(measureRepo.findSummaryByDeleted(false)).willReturn(Arrays
+                .asList(summaryOf(measure)));
 
         Map<String, Object> jobDetail = createJobDetailMap();
 
@@ -114,9 +116,14 @@ public class MeasureOrgServiceImplTest {
     public void testGetMeasureWithJobDetailsGroupByOrgForFailure()
             throws Exception {
         Map detail = new HashMap();
-        given(measureRepo.findByDeleted(false)).willReturn(null);
+        given(measureRepo.findSummaryByDeleted(false)).willReturn(null);
         Map map = service.getMeasureWithJobDetailsGroupByOrg(detail);
         assert map == null;
     }
 
+    private static MeasureSummary summaryOf(GriffinMeasure measure) {
+        return new MeasureSummary(measure.getId(), measure.getName(),
+                measure.getOwner(), measure.getOrganization(),
+                measure.getDqType());
+    }
 }
@@ -0,0 +1,144 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.measure;
+
+import static org.apache.griffin.core.util.EntityMocksHelper.createGriffinMeasure;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import org.apache.griffin.core.measure.MeasureSnapshotStore.ParsedSnapshot;
+import org.apache.griffin.core.measure.entity.GriffinMeasure;
+import org.apache.griffin.core.measure.entity.MeasureSnapshot;
+import org.apache.griffin.core.measure.repo.MeasureSnapshotRepo;
+import org.apache.griffin.core.util.JsonUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+public class MeasureSnapshotStoreTest {
+
+    @InjectMocks
+    private MeasureSnapshotStore store;
+
+    @Mock
+    private MeasureSnapshotRepo snapshotRepo;
+
+    @Test
+    public void testSameContentIsSavedOnce() throws Exception {
+        GriffinMeasure measure = createGriffinMeasure("view_item_hourly");
+        MeasureSnapshot saved = new MeasureSnapshot(1L, "digest",
+            JsonUtil.toJson(measure));
+        saved.setId(10L);
+        given(snapshotRepo.save(any(MeasureSnapshot.class)))
+            .willReturn(saved);
+
+        assertEquals(Long.valueOf(10L), store.save(measure));
+        ArgumentCaptor<MeasureSnapshot> snapshot = ArgumentCaptor
+            .forClass(MeasureSnapshot.class);
+        verify(snapshotRepo).save(snapshot.capture());
+        String digest = snapshot.getValue().getDigest();
+        assertEquals(64, digest.length());
+
+        given(snapshotRepo.findByDigest(digest)).willReturn(saved);
+        assertEquals(Long.valueOf(10L), store.save(measure));
+        verify(snapshotRepo, times(1)).save(any(MeasureSnapshot.class));
+        // used recently, so it's not purged before it's referred to
+        verify(snapshotRepo, never()).touch(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testSnapshotPurgedMeanwhileIsSavedAgain() throws Exception {
+        ReflectionTestUtils.setField(store, "retention", 1000L);
+        GriffinMeasure measure = createGriffinMeasure("view_item_hourly");
+        MeasureSnapshot old = new MeasureSnapshot(1L, "digest",
+            JsonUtil.toJson(measure));
+        old.setId(10L);
+        ReflectionTestUtils.setField(old, "usedTms", 0L);
+        MeasureSnapshot saved = new MeasureSnapshot(1L, "digest",
+            JsonUtil.toJson(measure));
+        saved.setId(11L);
+        given(snapshotRepo.findByDigest(any())).willReturn(old);
+        given(snapshotRepo.touch(anyLong(), anyLong())).willReturn(0);
+        given(snapshotRepo.save(any(MeasureSnapshot.class)))
+            .willReturn(saved);
+
+        assertEquals(Long.valueOf(11L), store.save(measure));
+        verify(snapshotRepo).touch(eq(10L), anyLong());
+
+        given(snapshotRepo.touch(anyLong(), anyLong())).willReturn(1);
+        assertEquals(Long.valueOf(10L), store.save(measure));
+    }
+
+    @Test
+    public void testRunValuesArePutIntoSnapshot() throws Exception {
+        GriffinMeasure measure = createGriffinMeasure("view_item_hourly");
+        MeasureSnapshot saved = new MeasureSnapshot(1L, "digest",
+            JsonUtil.toJson(measure));
+        given(snapshotRepo.findById(10L)).willReturn(Optional.of(saved));
+        ParsedSnapshot snapshot = store.get(10L, "job");
+        String connector = measure.getDataSources().get(0).getConnector()
+            .getName();
+
+        JsonNode run = new ObjectMapper().readTree(snapshot.getJson(1000L,
+            Collections.singletonMap(connector, Collections
+                .<String, Object>singletonMap("where", "dt=20190901"))));
+
+        assertEquals(1000L, run.path("timestamp").asLong());
+        assertEquals("dt=20190901", run.path("data.sources").get(0)
+            .path("connector").path("config").path("where").asText());
+        assertEquals(snapshot.getJson(), snapshot.getJson(null, null));
+    }
+
+    @Test
+    public void testSnapshotIsParsedOnce() throws Exception {
+        GriffinMeasure measure = createGriffinMeasure("view_item_hourly");
+        MeasureSnapshot saved = new MeasureSnapshot(1L, "digest",
+            JsonUtil.toJson(measure));
+        given(snapshotRepo.findById(10L)).willReturn(Optional.of(saved));
+
+        ParsedSnapshot first = store.get(10L, "job");
+        ParsedSnapshot second = store.get(10L, "job");
+
+        assertSame(first, second);
+        assertEquals("job", first.getMeasure().getName());
+        verify(snapshotRepo, times(1)).findById(10L);
+        // submitted by another job with the same measure
+        assertNotSame(first, store.get(10L, "other_job"));
+    }
+}
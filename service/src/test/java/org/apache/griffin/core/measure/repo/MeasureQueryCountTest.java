@@ -0,0 +1,103 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.measure.repo;
+
+import static org.apache.griffin.core.util.EntityMocksHelper.createGriffinMeasure;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.griffin.core.config.EclipseLinkJpaConfigForTest;
+import org.apache.griffin.core.measure.entity.GriffinMeasure;
+import org.apache.griffin.core.measure.entity.MeasureSummary;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Listing measure summaries takes one query however many measures there
+ * are, as none of their data sources, connectors or rules are loaded.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = {EclipseLinkJpaConfigForTest.class})
+@TestPropertySource(properties = {"spring.jpa.show-sql=false",
+    "spring.jpa.properties.eclipselink.session-event-listener=" +
+        "org.apache.griffin.core.measure.repo.MeasureQueryCountTest" +
+        "$QueryCounter"})
+public class MeasureQueryCountTest {
+
+    private static final int MEASURE_COUNT = 10000;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private GriffinMeasureRepo measureRepo;
+
+    @MockBean
+    private IMetaStoreClient client;
+
+    @Before
+    public void setup() throws Exception {
+        for (int i = 0; i < MEASURE_COUNT; i++) {
+            GriffinMeasure measure = createGriffinMeasure("m" + i);
+            measure.setOrganization("org" + i % 10);
+            entityManager.persist(measure);
+            if (i % 500 == 499) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void testFindSummaryByDeletedIsOneQuery() {
+        QueryCounter.COUNT.set(0);
+
+        List<MeasureSummary> measures = measureRepo.findSummaryByDeleted(
+            false);
+
+        assertEquals(MEASURE_COUNT, measures.size());
+        assertEquals(1, QueryCounter.COUNT.get());
+    }
+
+    public static class QueryCounter extends SessionEventAdapter {
+        static final AtomicInteger COUNT = new AtomicInteger();
+
+        @Override
+        public void preExecuteQuery(SessionEvent event) {
+            COUNT.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.griffin.core.metric.model.MetricBulkError;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricCacheStats;
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingMetricStoreTest {
+
+    private MetricStore backend;
+    private CachingMetricStore store;
+
+    @Before
+    public void setup() {
+        backend = mock(MetricStore.class);
+        store = new CachingMetricStore(backend, 2, 60000);
+    }
+
+    @Test
+    public void testGetMetricValuesHitsCache() throws IOException {
+        List<MetricValue> values = values("metric");
+        given(backend.getMetricValues("metric", 0, 300, 0L))
+            .willReturn(values);
+
+        store.getMetricValues("metric", 0, 300, 0L);
+        List<MetricValue> cached = store.getMetricValues("metric", 0, 300, 0L);
+
+        assertEquals(values, cached);
+        verify(backend, times(1)).getMetricValues("metric", 0, 300, 0L);
+        MetricCacheStats stats = store.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+    }
+
+    @Test
+    public void testAddMetricValuesInvalidatesName() throws IOException {
+        given(backend.getMetricValues("metric", 0, 300, 0L))
+            .willReturn(values("metric"));
+
+        store.getMetricValues("metric", 0, 300, 0L);
+        store.addMetricValues(values("metric"));
+        store.getMetricValues("metric", 0, 300, 0L);
+
+        verify(backend, times(2)).getMetricValues("metric", 0, 300, 0L);
+        assertEquals(1, store.getStats().getInvalidationCount());
+    }
+
+    @Test
+    public void testDeleteMetricValuesInvalidatesName() throws IOException {
+        given(backend.getMetricValues("metric", 0, 300, 0L))
+            .willReturn(values("metric"));
+
+        store.getMetricValues("metric", 0, 300, 0L);
+        store.deleteMetricValues("metric");
+        store.getMetricValues("metric", 0, 300, 0L);
+
+        verify(backend, times(2)).getMetricValues("metric", 0, 300, 0L);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws IOException {
+        given(backend.getMetricValues(anyString(), anyInt(), anyInt(),
+            anyLong())).willReturn(values("metric"));
+
+        store.getMetricValues("a", 0, 300, 0L);
+        store.getMetricValues("b", 0, 300, 0L);
+        store.getMetricValues("a", 0, 300, 0L);
+        store.getMetricValues("c", 0, 300, 0L);
+        store.getMetricValues("a", 0, 300, 0L);
+        store.getMetricValues("b", 0, 300, 0L);
+
+        verify(backend, times(1)).getMetricValues("a", 0, 300, 0L);
+        verify(backend, times(2)).getMetricValues("b", 0, 300, 0L);
+        assertEquals(2, store.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void testExpiredEntryIsReloaded() throws IOException {
+        store = new CachingMetricStore(backend, 2, 0);
+        given(backend.getMetricValues("metric", 0, 300, 0L))
+            .willReturn(values("metric"));
+
+        store.getMetricValues("metric", 0, 300, 0L);
+        store.getMetricValues("metric", 0, 300, 0L);
+
+        verify(backend, times(2)).getMetricValues("metric", 0, 300, 0L);
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<MetricValue> values = values("metric");
+        given(backend.getMetricValues("metric", 0, 300, 0L)).willAnswer(
+            invocation -> {
+                loading.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return values;
+            });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<MetricValue>> first = executor.submit(() ->
+                store.getMetricValues("metric", 0, 300, 0L));
+            loading.await(10, TimeUnit.SECONDS);
+            Future<List<MetricValue>> second = executor.submit(() ->
+                store.getMetricValues("metric", 0, 300, 0L));
+            while (store.getStats().getMissCount() < 2) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertEquals(values, first.get(10, TimeUnit.SECONDS));
+            assertSame(first.get(), second.get(10, TimeUnit.SECONDS));
+            verify(backend, times(1)).getMetricValues("metric", 0, 300, 0L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGetMetricValuesOfNamesLoadsOnlyMisses() throws IOException {
+        given(backend.getMetricValues("a", 0, 300, 0L))
+            .willReturn(values("a"));
+        given(backend.getMetricValues(Collections.singletonList("b"), 0, 300))
+            .willReturn(Collections.singletonMap("b", values("b")));
+
+        store.getMetricValues("a", 0, 300, 0L);
+        Map<String, List<MetricValue>> result = store.getMetricValues(
+            Arrays.asList("a", "b"), 0, 300);
+
+        assertEquals(values("a"), result.get("a"));
+        assertEquals(values("b"), result.get("b"));
+        verify(backend, times(1)).getMetricValues(
+            Collections.singletonList("b"), 0, 300);
+    }
+
+    @Test
+    public void testGetMetricOfApplicationAddedBefore() throws IOException {
+        MetricValue older = applicationValue("metric", 1L, "app");
+        MetricValue newer = applicationValue("metric", 2L, "app");
+
+        store.addMetricValues(Arrays.asList(newer, older));
+
+        assertSame(newer, store.getMetric("app"));
+        verify(backend, never()).getMetric(anyString());
+    }
+
+    @Test
+    public void testGetMetricOfApplicationLoadsOnce() throws IOException {
+        MetricValue value = applicationValue("metric", 1L, "app");
+        given(backend.getMetric("app")).willReturn(value);
+
+        store.getMetric("app");
+        MetricValue cached = store.getMetric("app");
+
+        assertSame(value, cached);
+        verify(backend, times(1)).getMetric("app");
+    }
+
+    @Test
+    public void testDeleteMetricValuesForgetsApplications() throws IOException {
+        store.addMetricValues(Collections.singletonList(
+            applicationValue("metric", 1L, "app")));
+
+        store.deleteMetricValues("metric");
+        store.getMetric("app");
+
+        verify(backend, times(1)).getMetric("app");
+    }
+
+    @Test
+    public void testFailedBulkValuesAreNotLatest() throws IOException {
+        MetricBulkResult result = new MetricBulkResult(1, 1);
+        result.addError(new MetricBulkError(0, 400, "mapper_parsing_exception",
+            "failed to parse"));
+        given(backend.bulkAddMetricValues(anyListOf(MetricValue.class)))
+            .willReturn(result);
+
+        store.bulkAddMetricValues(Collections.singletonList(
+            applicationValue("metric", 1L, "app")));
+        store.getMetric("app");
+
+        verify(backend, times(1)).getMetric("app");
+    }
+
+    private static List<MetricValue> values(String name) {
+        return Collections.singletonList(new MetricValue(name, 1L,
+            new HashMap<>()));
+    }
+
+    private static MetricValue applicationValue(String name, long tmst,
+                                                String applicationId) {
+        return new MetricValue(name, tmst, Collections.<String, Object>
+            singletonMap("applicationId", applicationId), new HashMap<>());
+    }
+}
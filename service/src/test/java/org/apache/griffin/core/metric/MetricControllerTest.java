@@ -19,25 +19,31 @@ under the License.
 
 package org.apache.griffin.core.metric;
 
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_TIME_RANGE;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_VALUE_FORMAT;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.METRIC_STORE_TIMEOUT;
 import static org.apache.griffin.core.measure.entity.DqType.ACCURACY;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.griffin.core.exception.GriffinException;
 import org.apache.griffin.core.exception.GriffinExceptionHandler;
 import org.apache.griffin.core.metric.model.Metric;
+import org.apache.griffin.core.metric.model.MetricBucket;
 import org.apache.griffin.core.metric.model.MetricValue;
 import org.apache.griffin.core.util.JsonUtil;
 import org.apache.griffin.core.util.URLHelper;
@@ -52,6 +58,9 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 @RunWith(SpringRunner.class)
@@ -101,11 +110,12 @@ public class MetricControllerTest {
     @Test
     public void testGetMetricValuesSuccess() throws Exception {
         MetricValue value = new MetricValue("jobName", 1L, new HashMap<>());
-        given(service.getMetricValues(Matchers.anyString(), Matchers.anyInt(),
-                Matchers.anyInt(), Matchers.anyLong()))
-                .willReturn(Collections.singletonList(value));
+        given(service.getMetricValuesAsync(Matchers.anyString(),
+                Matchers.anyInt(), Matchers.anyInt(), Matchers.anyLong()))
+                .willReturn(CompletableFuture.completedFuture(
+                        Collections.singletonList(value)));
 
-        mvc.perform(get(URLHelper.API_VERSION_PATH + "/metrics/values")
+        performAsync(get(URLHelper.API_VERSION_PATH + "/metrics/values")
                 .param("metricName", "jobName")
                 .param("size", "5"))
                 .andExpect(jsonPath("$.[0].name", is("jobName")));
@@ -113,27 +123,81 @@ public class MetricControllerTest {
 
     @Test
     public void testGetMetricValuesFailureWithException() throws Exception {
-        given(service.getMetricValues(Matchers.anyString(), Matchers.anyInt(),
-                Matchers.anyInt(), Matchers.anyLong()))
-                .willThrow(new GriffinException.ServiceException(
-                        "Failed to get metric values", new IOException()));
+        given(service.getMetricValuesAsync(Matchers.anyString(),
+                Matchers.anyInt(), Matchers.anyInt(), Matchers.anyLong()))
+                .willReturn(failed(new GriffinException.ServiceException(
+                        "Failed to get metric values", new IOException())));
 
-        mvc.perform(get(URLHelper.API_VERSION_PATH + "/metrics/values")
+        performAsync(get(URLHelper.API_VERSION_PATH + "/metrics/values")
                 .param("metricName", "jobName")
                 .param("size", "5"))
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    public void testGetMetricValuesFailureWithTimeout() throws Exception {
+        given(service.getMetricValuesAsync(Matchers.anyString(),
+                Matchers.anyInt(), Matchers.anyInt(), Matchers.anyLong()))
+                .willReturn(failed(new GriffinException
+                        .GatewayTimeoutException(METRIC_STORE_TIMEOUT)));
+
+        performAsync(get(URLHelper.API_VERSION_PATH + "/metrics/values")
+                .param("metricName", "jobName")
+                .param("size", "5"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.code",
+                        is(METRIC_STORE_TIMEOUT.toString())));
+    }
+
+    @Test
+    public void testAggregateMetricValuesSuccess() throws Exception {
+        given(service.aggregateMetricValuesAsync("jobName", 0L, 7200000L,
+                3600000L, Collections.singletonList("total")))
+                .willReturn(CompletableFuture.completedFuture(
+                        Collections.singletonList(
+                                new MetricBucket(3600000L, 2L))));
+
+        performAsync(get(URLHelper.API_VERSION_PATH
+                + "/metrics/values/aggregate")
+                .param("metricName", "jobName")
+                .param("from", "0")
+                .param("to", "7200000")
+                .param("interval", "3600000")
+                .param("fields", "total"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].tmst", is(3600000)))
+                .andExpect(jsonPath("$.[0].count", is(2)));
+    }
+
+    @Test
+    public void testAggregateMetricValuesFailureWithInvalidRange()
+            throws Exception {
+        given(service.aggregateMetricValuesAsync(Matchers.anyString(),
+                Matchers.anyLong(), Matchers.anyLong(), Matchers.anyLong(),
+                Matchers.anyListOf(String.class)))
+                .willThrow(new GriffinException.BadRequestException
+                        (INVALID_METRIC_TIME_RANGE));
+
+        mvc.perform(get(URLHelper.API_VERSION_PATH
+                + "/metrics/values/aggregate")
+                .param("metricName", "jobName")
+                .param("from", "10")
+                .param("to", "0")
+                .param("interval", "1")
+                .param("fields", "total"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testAddMetricValuesSuccess() throws Exception {
         List<MetricValue> values = Collections.singletonList(new MetricValue());
-        given(service.addMetricValues(Matchers.any()))
-                .willReturn(
+        given(service.addMetricValuesAsync(Matchers.any()))
+                .willReturn(CompletableFuture.completedFuture(
                         new ResponseEntity<>(
                                 "{\"errors\": false, \"items\": []}",
-                                HttpStatus.OK));
+                                HttpStatus.OK)));
 
-        mvc.perform(
+        performAsync(
 
                 post(URLHelper.API_VERSION_PATH + "/metrics/values")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -145,10 +209,10 @@ public class MetricControllerTest {
     @Test
     public void testAddMetricValuesFailureWithException() throws Exception {
         List<MetricValue> values = Collections.singletonList(new MetricValue());
-        given(service.addMetricValues(Matchers.any()))
-                .willThrow(new GriffinException.ServiceException(
-                        "Failed to add metric values", new IOException()));
-        mvc.perform(post(URLHelper.API_VERSION_PATH + "/metrics/values")
+        given(service.addMetricValuesAsync(Matchers.any()))
+                .willReturn(failed(new GriffinException.ServiceException(
+                        "Failed to add metric values", new IOException())));
+        performAsync(post(URLHelper.API_VERSION_PATH + "/metrics/values")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(JsonUtil.toJson(values)))
                 .andExpect(status().isInternalServerError());
@@ -157,7 +221,7 @@ public class MetricControllerTest {
     @Test
     public void testAddMetricValuesFailureWithInvalidFormat() throws Exception {
         List<MetricValue> values = Collections.singletonList(new MetricValue());
-        given(service.addMetricValues(Matchers.any()))
+        given(service.addMetricValuesAsync(Matchers.any()))
                 .willThrow(new GriffinException.BadRequestException
                         (INVALID_METRIC_VALUE_FORMAT));
         mvc.perform(post(URLHelper.API_VERSION_PATH + "/metrics/values")
@@ -169,11 +233,12 @@ public class MetricControllerTest {
 
     @Test
     public void testDeleteMetricValuesSuccess() throws Exception {
-        given(service.deleteMetricValues("metricName"))
-                .willReturn(new ResponseEntity<>("{\"failures\": []}",
-                        HttpStatus.OK));
+        given(service.deleteMetricValuesAsync("metricName"))
+                .willReturn(CompletableFuture.completedFuture(
+                        new ResponseEntity<>("{\"failures\": []}",
+                                HttpStatus.OK)));
 
-        mvc.perform(delete(URLHelper.API_VERSION_PATH + "/metrics/values")
+        performAsync(delete(URLHelper.API_VERSION_PATH + "/metrics/values")
                 .param("metricName", "metricName"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.failures", hasSize(0)));
@@ -181,14 +246,27 @@ public class MetricControllerTest {
 
     @Test
     public void testDeleteMetricValuesFailureWithException() throws Exception {
-        given(service.deleteMetricValues("metricName"))
-                .willThrow(new GriffinException.ServiceException(
+        given(service.deleteMetricValuesAsync("metricName"))
+                .willReturn(failed(new GriffinException.ServiceException(
                         "Failed to delete metric values.",
-                        new IOException()));
+                        new IOException())));
 
-        mvc.perform(delete(URLHelper.API_VERSION_PATH + "/metrics/values")
+        performAsync(delete(URLHelper.API_VERSION_PATH + "/metrics/values")
                 .param("metricName", "metricName"))
                 .andExpect(status().isInternalServerError());
     }
 
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder)
+            throws Exception {
+        MvcResult result = mvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(result));
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
 }
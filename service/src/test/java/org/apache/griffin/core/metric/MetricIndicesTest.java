@@ -0,0 +1,75 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class MetricIndicesTest {
+
+    private static final long JAN_15_2019 = 1547510400000L;
+    private static final long FEB_1_2019 = 1548979200000L;
+    private static final long APR_1_2019 = 1554076800000L;
+    private static final long DAY = 86400000L;
+
+    private final MetricIndices monthly = new MetricIndices("griffin-metric",
+        MetricIndices.Partition.MONTH);
+
+    @Test
+    public void testGetIndex() {
+        assertEquals("griffin-metric-2019.01", monthly.getIndex(JAN_15_2019));
+        assertEquals("griffin-metric-2019.02", monthly.getIndex(FEB_1_2019));
+        assertEquals("griffin-metric-2019.01",
+            monthly.getIndex(FEB_1_2019 - 1));
+    }
+
+    @Test
+    public void testGetIndicesOverlappingRange() {
+        assertEquals(Arrays.asList("griffin-metric-2019.01",
+            "griffin-metric-2019.02", "griffin-metric-2019.03"),
+            monthly.getIndices(JAN_15_2019, APR_1_2019));
+        assertEquals(3, monthly.countIndices(JAN_15_2019, APR_1_2019));
+        assertEquals(Collections.emptyList(),
+            monthly.getIndices(APR_1_2019, JAN_15_2019));
+        assertEquals(0, monthly.countIndices(APR_1_2019, APR_1_2019));
+    }
+
+    @Test
+    public void testGetEnd() {
+        assertEquals(FEB_1_2019, monthly.getEnd("griffin-metric-2019.01"));
+        assertEquals(-1, monthly.getEnd("griffin-metric-latest"));
+        assertEquals(-1, monthly.getEnd("griffin"));
+    }
+
+    @Test
+    public void testDailyPartitions() {
+        MetricIndices daily = new MetricIndices("griffin-metric",
+            MetricIndices.Partition.of("day"));
+
+        assertEquals(Arrays.asList("griffin-metric-2019.01.15",
+            "griffin-metric-2019.01.16"),
+            daily.getIndices(JAN_15_2019, JAN_15_2019 + 2 * DAY));
+        assertEquals(JAN_15_2019 + DAY,
+            daily.getEnd("griffin-metric-2019.01.15"));
+    }
+}
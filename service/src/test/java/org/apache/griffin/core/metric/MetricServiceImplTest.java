@@ -23,23 +23,39 @@ import static org.apache.griffin.core.util.EntityMocksHelper.createGriffinJob;
 import static org.apache.griffin.core.util.EntityMocksHelper.createGriffinMeasure;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.griffin.core.exception.GriffinException;
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.JobSummary;
 import org.apache.griffin.core.job.entity.LivySessionStates;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
 import org.apache.griffin.core.job.repo.JobRepo;
 import org.apache.griffin.core.measure.entity.Measure;
+import org.apache.griffin.core.measure.entity.MeasureSummary;
 import org.apache.griffin.core.measure.repo.MeasureRepo;
+import org.apache.griffin.core.metric.buffer.MetricWriteBuffer;
 import org.apache.griffin.core.metric.model.Metric;
+import org.apache.griffin.core.metric.model.MetricBulkError;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricIngestResult;
 import org.apache.griffin.core.metric.model.MetricValue;
 import org.apache.griffin.core.util.JsonUtil;
 import org.junit.Before;
@@ -53,6 +69,7 @@ import org.springframework.core.env.Environment;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(SpringRunner.class)
 public class MetricServiceImplTest {
@@ -89,14 +106,14 @@ public class MetricServiceImplTest {
         measure.setId(1L);
         AbstractJob job = createGriffinJob();
         MetricValue value = new MetricValue("jobName", 1L, new HashMap<>());
-        given(jobRepo.findByDeleted(false)).willReturn(Collections
-                .singletonList(job));
-        given(measureRepo.findByDeleted(false)).willReturn(Collections
-                .singletonList(measure));
-        given(metricStore.getMetricValues(Matchers.anyString(),
-                Matchers.anyInt(), Matchers.anyInt(),
-                Matchers.anyLong()))
-                .willReturn(Collections.singletonList(value));
+        given(jobRepo.findSummaryByDeleted(false)).willReturn(Collections
+                .singletonList(jobSummaryOf(job)));
+        given(measureRepo.findSummaryByDeleted(false)).willReturn(Collections
+                .singletonList(measureSummaryOf(measure)));
+        given(metricStore.getMetricValues(Matchers.anyListOf(String.class),
+                Matchers.anyInt(), Matchers.anyInt()))
+                .willReturn(Collections.singletonMap("jobName",
+                        Collections.singletonList(value)));
 
         Map<String, List<Metric>> metricMap = service.getAllMetrics();
         assertEquals(metricMap.get("measureName").get(0).getName(), "jobName");
@@ -107,13 +124,12 @@ public class MetricServiceImplTest {
         Measure measure = createGriffinMeasure("measureName");
         measure.setId(1L);
         AbstractJob job = createGriffinJob();
-        given(jobRepo.findByDeleted(false)).willReturn(Collections
-                .singletonList(job));
-        given(measureRepo.findByDeleted(false)).willReturn(Collections
-                .singletonList(measure));
-        given(metricStore.getMetricValues(Matchers.anyString(),
-                Matchers.anyInt(), Matchers.anyInt(),
-                Matchers.anyLong()))
+        given(jobRepo.findSummaryByDeleted(false)).willReturn(Collections
+                .singletonList(jobSummaryOf(job)));
+        given(measureRepo.findSummaryByDeleted(false)).willReturn(Collections
+                .singletonList(measureSummaryOf(measure)));
+        given(metricStore.getMetricValues(Matchers.anyListOf(String.class),
+                Matchers.anyInt(), Matchers.anyInt()))
                 .willThrow(new IOException());
 
         service.getAllMetrics();
@@ -166,6 +182,11 @@ public class MetricServiceImplTest {
         assertEquals(body.get("errors").toString(), "false");
     }
 
+    @Test(expected = GriffinException.BadRequestException.class)
+    public void testGetMetricValuePageFailureWithInvalidCursor() {
+        service.getMetricValuePageAsync("metricName", 10, "not a cursor");
+    }
+
     @Test(expected = GriffinException.BadRequestException.class)
     public void testAddMetricValuesFailureWithInvalidFormat() {
         List<MetricValue> values = Collections.singletonList(new MetricValue());
@@ -185,6 +206,100 @@ public class MetricServiceImplTest {
         service.addMetricValues(values);
     }
 
+    @Test
+    public void testAddMetricValuesToWriteBuffer() throws IOException {
+        MetricWriteBuffer writeBuffer = mock(MetricWriteBuffer.class);
+        ReflectionTestUtils.setField(service, "writeBuffer", writeBuffer);
+        List<MetricValue> values = Collections.singletonList(
+                new MetricValue("jobName", 1L,
+                        Collections.<String, Object>singletonMap("total", 1)));
+
+        ResponseEntity response = service.addMetricValues(values);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        verify(writeBuffer).add(values);
+        verify(metricStore, never()).addMetricValues(values);
+    }
+
+    @Test
+    public void testGetMetricValuesFailureWithFullRequestQueue()
+            throws Exception {
+        given(metricStore.getMetricValuesAsync("metricName", 0, 10, 0))
+                .willReturn(MetricStoreFutures.failed(
+                        new RejectedExecutionException("queue is full")));
+
+        try {
+            service.getMetricValuesAsync("metricName", 0, 10, 0).get();
+            fail("Expected the request to be rejected.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof
+                    GriffinException.TooManyRequestsException);
+        }
+    }
+
+    @Test(expected = GriffinException.TooManyRequestsException.class)
+    public void testAddMetricValuesFailureWithFullWriteBuffer()
+            throws IOException {
+        MetricWriteBuffer writeBuffer = mock(MetricWriteBuffer.class);
+        ReflectionTestUtils.setField(service, "writeBuffer", writeBuffer);
+        List<MetricValue> values = Collections.singletonList(
+                new MetricValue("jobName", 1L,
+                        Collections.<String, Object>singletonMap("total", 1)));
+        willThrow(new RejectedExecutionException()).given(writeBuffer)
+                .add(values);
+
+        service.addMetricValues(values);
+    }
+
+    @Test
+    public void testAddMetricValuesOfStreamInChunks() throws IOException {
+        ReflectionTestUtils.setField(service, "ingestBulkSize", 2);
+        String ndjson = "{\"name\":\"a\",\"tmst\":1,\"value\":{\"total\":1}}\n"
+                + "{\"name\":\"b\",\"tmst\":1,\"value\":{\"total\":1}}\n"
+                + "\n"
+                + "{\"name\":\"c\",\"tmst\":1}\n"
+                + "not json\n"
+                + "{\"name\":\"d\",\"tmst\":1,\"value\":{\"total\":1}}\n";
+        MetricBulkResult first = new MetricBulkResult(1, 2);
+        first.addError(new MetricBulkError(1, 400, "mapper_parsing_exception",
+                "failed to parse"));
+        given(metricStore.bulkAddMetricValues(Matchers.anyListOf(
+                MetricValue.class)))
+                .willReturn(first)
+                .willReturn(new MetricBulkResult(1, 1));
+
+        ResponseEntity<MetricIngestResult> response = service.addMetricValues(
+                new ByteArrayInputStream(ndjson.getBytes(
+                        StandardCharsets.UTF_8)));
+        MetricIngestResult result = response.getBody();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(5, result.getReceived());
+        assertEquals(2, result.getWritten());
+        assertEquals(2, result.getChunks().size());
+        assertEquals(2, result.getChunks().get(0).getErrors().get(0)
+                .getPosition());
+        assertEquals(2, result.getRejected().size());
+        assertEquals(4, result.getRejected().get(0).getPosition());
+        assertEquals(5, result.getRejected().get(1).getPosition());
+    }
+
+    @Test
+    public void testAddMetricValuesOfStreamAbortsOnStoreFailure()
+            throws IOException {
+        String ndjson = "{\"name\":\"a\",\"tmst\":1,\"value\":{\"total\":1}}\n";
+        given(metricStore.bulkAddMetricValues(Matchers.anyListOf(
+                MetricValue.class))).willThrow(new IOException());
+
+        ResponseEntity<MetricIngestResult> response = service.addMetricValues(
+                new ByteArrayInputStream(ndjson.getBytes(
+                        StandardCharsets.UTF_8)));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+                response.getStatusCode());
+        assertNotNull(response.getBody().getAbortReason());
+    }
+
     @Test
     public void testDeleteMetricValuesSuccess() throws IOException {
 
@@ -234,6 +349,16 @@ public class MetricServiceImplTest {
 
     }
 
+    @Test
+    public void testCountBucketsFromEpochAlignedBounds() {
+        long hour = 3600000L;
+        assertEquals(2, MetricServiceImpl.countBuckets(0, 2 * hour, hour));
+        // half an hour on both sides of a boundary spans two buckets
+        assertEquals(2, MetricServiceImpl.countBuckets(hour / 2,
+            hour + hour / 2, hour));
+        assertEquals(1, MetricServiceImpl.countBuckets(hour, hour + 1, hour));
+    }
+
     @Test(expected = GriffinException.ServiceException.class)
     public void testFindMetricFailure() throws IOException {
         Long id = 1L;
@@ -248,4 +373,15 @@ public class MetricServiceImplTest {
     }
 
 
+
+    private static JobSummary jobSummaryOf(AbstractJob job) {
+        return new JobSummary(job.getId(), job.getMeasureId(),
+                job.getJobName(), job.getMetricName());
+    }
+
+    private static MeasureSummary measureSummaryOf(Measure measure) {
+        return new MeasureSummary(measure.getId(), measure.getName(),
+                measure.getOwner(), measure.getOrganization(),
+                measure.getDqType());
+    }
 }
@@ -0,0 +1,104 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricFieldStats;
+import org.apache.griffin.core.util.HttpServerStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricStoreImplAggregationTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String RESPONSE = "{\"aggregations\":{\"buckets\":{"
+        + "\"buckets\":[{\"key\":3600000,\"doc_count\":2,"
+        + "\"field_0\":{\"count\":2,\"min\":0.5,\"max\":0.9,\"avg\":0.7},"
+        + "\"field_1\":{\"count\":0,\"min\":null,\"max\":null,\"avg\":null},"
+        + "\"last_0\":{\"doc_count\":2,\"hit\":{\"hits\":{\"hits\":["
+        + "{\"_source\":{\"value\":{\"accuracy\":{\"ratio\":0.9}}}}]}}},"
+        + "\"last_1\":{\"doc_count\":0,\"hit\":{\"hits\":{\"hits\":[]}}}"
+        + "}]}}}";
+
+    private final AtomicReference<String> request = new AtomicReference<>();
+    private HttpServerStub elasticsearch;
+    private MetricStoreImpl metricStore;
+
+    @Before
+    public void setup() throws IOException {
+        elasticsearch = new HttpServerStub((method, path, body) -> {
+            request.set(body);
+            return RESPONSE;
+        });
+        metricStore = new MetricStoreImpl("localhost", elasticsearch.getPort(),
+            "http", "", "");
+    }
+
+    @After
+    public void tearDown() {
+        elasticsearch.close();
+    }
+
+    @Test
+    public void testAggregateMetricValues() throws Exception {
+        List<String> fields = Arrays.asList("accuracy.ratio", "miss");
+
+        List<MetricBucket> buckets = metricStore.aggregateMetricValuesAsync(
+            "metric", 0, 7200000, 3600000, fields).get();
+
+        JsonNode body = MAPPER.readTree(request.get());
+        assertEquals(0, body.get("size").asInt());
+        JsonNode histogram = body.path("aggs").path("buckets")
+            .path("date_histogram");
+        assertEquals("3600000ms", histogram.get("interval").asText());
+        assertEquals("value.accuracy.ratio", body.path("aggs").path("buckets")
+            .path("aggs").path("field_0").path("stats").path("field")
+            .asText());
+        // the latest hit having the field, as the local store takes it
+        assertEquals("value.miss", body.path("aggs").path("buckets")
+            .path("aggs").path("last_1").path("filter").path("exists")
+            .path("field").asText());
+
+        assertEquals(1, buckets.size());
+        MetricBucket bucket = buckets.get(0);
+        assertEquals(3600000, bucket.getTmst());
+        assertEquals(2, bucket.getCount());
+        MetricFieldStats ratio = bucket.getFields().get("accuracy.ratio");
+        assertEquals(0.5, ratio.getMin(), 0);
+        assertEquals(0.9, ratio.getMax(), 0);
+        assertEquals(0.7, ratio.getAvg(), 0);
+        assertEquals(0.9, ratio.getLast(), 0);
+        MetricFieldStats miss = bucket.getFields().get("miss");
+        assertEquals(0, miss.getCount());
+        assertNull(miss.getMin());
+        assertNull(miss.getLast());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.util.HttpServerStub;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class MetricStoreImplAsyncTest {
+
+    private static final String SEARCH_RESPONSE = "{\"hits\":{\"hits\":[{"
+        + "\"_source\":{\"name\":\"metric\",\"tmst\":1,"
+        + "\"value\":{\"total\":1}}}]}}";
+
+    private HttpServerStub elasticsearch;
+
+    @After
+    public void tearDown() {
+        if (elasticsearch != null) {
+            elasticsearch.close();
+        }
+    }
+
+    @Test
+    public void testGetMetricValuesAsyncWithBoundedConcurrency()
+        throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        elasticsearch = new HttpServerStub((method, path, body) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(),
+                Math::max);
+            sleep(100);
+            inFlight.decrementAndGet();
+            return SEARCH_RESPONSE;
+        });
+        MetricStoreImpl metricStore = createMetricStore(2, 10000);
+
+        List<CompletableFuture<List<MetricValue>>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(metricStore.getMetricValuesAsync("metric", 0, 10, 0));
+        }
+
+        for (CompletableFuture<List<MetricValue>> future : futures) {
+            assertEquals("metric", future.get().get(0).getName());
+        }
+        assertEquals(6, elasticsearch.getRequestCount());
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    @Test
+    public void testGetMetricValuesAsyncTimeout() throws Exception {
+        elasticsearch = new HttpServerStub((method, path, body) -> {
+            sleep(1000);
+            return SEARCH_RESPONSE;
+        });
+        MetricStoreImpl metricStore = createMetricStore(2, 100);
+
+        try {
+            metricStore.getMetricValuesAsync("metric", 0, 10, 0).get();
+            fail("Expected the request to time out.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MetricStoreTimeoutException);
+        }
+    }
+
+    @Test
+    public void testTimedOutRequestKeepsItsSlotUntilItsResponse()
+        throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        elasticsearch = new HttpServerStub((method, path, body) -> {
+            if (count.incrementAndGet() == 1) {
+                sleep(1000);
+            }
+            return SEARCH_RESPONSE;
+        });
+        MetricStoreImpl metricStore = createMetricStore(1, 300);
+        CompletableFuture<List<MetricValue>> slow = metricStore
+            .getMetricValuesAsync("metric", 0, 10, 0);
+        // waits in the queue and gives up its place as it times out
+        CompletableFuture<List<MetricValue>> queued = metricStore
+            .getMetricValuesAsync("metric", 0, 10, 0);
+        assertTimeout(slow);
+        assertTimeout(queued);
+        // the slow request is still in flight and holds the only slot
+        assertTimeout(metricStore.getMetricValuesAsync("metric", 0, 10, 0));
+        assertEquals(1, count.get());
+
+        sleep(700);
+        assertEquals("metric", metricStore.getMetricValuesAsync("metric", 0,
+            10, 0).get().get(0).getName());
+        assertEquals(2, count.get());
+    }
+
+    @Test
+    public void testRejectWhenRequestQueueIsFull() throws Exception {
+        elasticsearch = new HttpServerStub((method, path, body) -> {
+            sleep(500);
+            return SEARCH_RESPONSE;
+        });
+        MetricStoreImpl metricStore = createMetricStore(1, 10000);
+        ReflectionTestUtils.setField(metricStore, "maxPendingRequests", 0);
+        CompletableFuture<List<MetricValue>> running = metricStore
+            .getMetricValuesAsync("metric", 0, 10, 0);
+
+        try {
+            metricStore.getMetricValuesAsync("metric", 0, 10, 0).get();
+            fail("Expected the request to be rejected.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals("metric", running.get().get(0).getName());
+    }
+
+    private static void assertTimeout(CompletableFuture<?> future)
+        throws InterruptedException {
+        try {
+            future.get();
+            fail("Expected the request to time out.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MetricStoreTimeoutException);
+        }
+    }
+
+    private MetricStoreImpl createMetricStore(int maxConcurrentRequests,
+                                              long requestTimeoutMillis) {
+        MetricStoreImpl metricStore = new MetricStoreImpl("localhost",
+            elasticsearch.getPort(), "http", "", "", maxConcurrentRequests);
+        ReflectionTestUtils.setField(metricStore, "requestTimeoutMillis",
+            requestTimeoutMillis);
+        return metricStore;
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+}
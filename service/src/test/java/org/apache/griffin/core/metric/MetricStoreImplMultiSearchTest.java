@@ -0,0 +1,113 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.metric;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.util.HttpServerStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class MetricStoreImplMultiSearchTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private HttpServerStub elasticsearch;
+    private MetricStoreImpl metricStore;
+
+    @Before
+    public void setup() throws IOException {
+        elasticsearch = new HttpServerStub((method, path, body) ->
+            multiSearchResponse(body));
+        metricStore = new MetricStoreImpl("localhost", elasticsearch.getPort(),
+            "http", "", "");
+        ReflectionTestUtils.setField(metricStore, "multiSearchBatchSize", 10);
+        ReflectionTestUtils.setField(metricStore,
+            "maxConcurrentMultiSearches", 2);
+    }
+
+    @After
+    public void tearDown() {
+        elasticsearch.close();
+    }
+
+    @Test
+    public void testGetMetricValuesOfNamesInChunks() throws IOException {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            names.add("metric_" + i);
+        }
+
+        Map<String, List<MetricValue>> values = metricStore.getMetricValues(
+            names, 0, 300);
+
+        assertEquals(3, elasticsearch.getRequestCount());
+        assertEquals(25, values.size());
+        for (String name : names) {
+            assertEquals(1, values.get(name).size());
+            assertEquals(name, values.get(name).get(0).getName());
+        }
+    }
+
+    @Test
+    public void testGetMetricValuesOfDuplicateNames() throws IOException {
+        List<String> names = new ArrayList<>();
+        names.add("metric");
+        names.add("metric");
+
+        Map<String, List<MetricValue>> values = metricStore.getMetricValues(
+            names, 0, 300);
+
+        assertEquals(1, elasticsearch.getRequestCount());
+        assertEquals(1, values.size());
+    }
+
+    /**
+     * Answer every search of a _msearch body with one hit named after the
+     * metric name in its term filter.
+     */
+    private static String multiSearchResponse(String body) throws IOException {
+        StringBuilder responses = new StringBuilder("{\"responses\":[");
+        String[] lines = body.split("\\r?\\n");
+        for (int i = 1; i < lines.length; i += 2) {
+            JsonNode query = MAPPER.readTree(lines[i]);
+            String name = query.get("query").get("bool").get("filter")
+                .get("term").get("name.keyword").asText();
+            if (i > 1) {
+                responses.append(",");
+            }
+            responses.append(String.format("{\"hits\":{\"hits\":[{\"_source\":"
+                + "{\"name\":\"%s\",\"tmst\":1,\"value\":{\"total\":1}}}]}}",
+                name));
+        }
+        return responses.append("]}").toString();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.griffin.core.metric.model.MetricCursor;
+import org.apache.griffin.core.metric.model.MetricValuePage;
+import org.apache.griffin.core.util.HttpServerStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricStoreImplPageTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AtomicReference<String> request = new AtomicReference<>();
+    private HttpServerStub elasticsearch;
+    private MetricStoreImpl metricStore;
+
+    @Before
+    public void setup() throws IOException {
+        elasticsearch = new HttpServerStub((method, path, body) -> {
+            request.set(body);
+            return "{\"hits\":{\"hits\":["
+                + hit(5, "b") + "," + hit(5, "a") + "]}}";
+        });
+        metricStore = new MetricStoreImpl("localhost", elasticsearch.getPort(),
+            "http", "", "");
+    }
+
+    @After
+    public void tearDown() {
+        elasticsearch.close();
+    }
+
+    @Test
+    public void testFirstPage() throws IOException {
+        MetricValuePage page = metricStore.getMetricValuePage("metric", 2,
+            null);
+
+        JsonNode body = MAPPER.readTree(request.get());
+        assertFalse(body.has("search_after"));
+        assertFalse(body.has("from"));
+        assertEquals("_id", body.path("sort").path(1).fieldNames().next());
+        assertEquals(2, page.getValues().size());
+        assertEquals(new MetricCursor(5, "a"),
+            MetricCursor.decode(page.getNext()));
+    }
+
+    @Test
+    public void testPageAfterCursor() throws IOException {
+        MetricValuePage page = metricStore.getMetricValuePage("metric", 3,
+            new MetricCursor(7, "c"));
+
+        JsonNode searchAfter = MAPPER.readTree(request.get())
+            .path("search_after");
+        assertEquals(7, searchAfter.path(0).asLong());
+        assertEquals("c", searchAfter.path(1).asText());
+        assertNull(page.getNext());
+    }
+
+    private static String hit(long tmst, String id) {
+        return String.format("{\"_source\":{\"name\":\"metric\",\"tmst\":%d,"
+            + "\"value\":{\"total\":1}},\"sort\":[%d,\"%s\"]}", tmst, tmst, id);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.util.HttpServerStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class MetricStoreImplPartitionTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long JAN_15_2019 = 1547510400000L;
+    private static final long FEB_15_2019 = 1550188800000L;
+    private static final long APR_1_2019 = 1554076800000L;
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final Map<String, String> bodies = new ConcurrentHashMap<>();
+    private final String currentIndex = new MetricIndices("griffin-metric",
+        MetricIndices.Partition.MONTH).getIndex(System.currentTimeMillis());
+    private HttpServerStub elasticsearch;
+    private MetricStoreImpl metricStore;
+
+    @Before
+    public void setup() throws IOException {
+        elasticsearch = new HttpServerStub((method, path, body) -> {
+            String request = method + " " + path;
+            requests.add(request);
+            bodies.put(request, body);
+            if (path.contains("_bulk")) {
+                return "{\"took\":1,\"errors\":false,\"items\":["
+                    + "{\"index\":{\"status\":201}},"
+                    + "{\"index\":{\"status\":201}}]}";
+            }
+            if (path.startsWith("/_cat/indices")) {
+                return "[{\"index\":\"griffin-metric-2019.01\"},"
+                    + "{\"index\":\"" + currentIndex + "\"}]";
+            }
+            return "{}";
+        });
+        metricStore = new MetricStoreImpl("localhost", elasticsearch.getPort(),
+            "http", "", "");
+        ReflectionTestUtils.setField(metricStore, "indexPartition", "month");
+        ReflectionTestUtils.setField(metricStore, "retentionDays", 30L);
+        metricStore.init();
+    }
+
+    @After
+    public void tearDown() {
+        elasticsearch.close();
+    }
+
+    @Test
+    public void testSetUpTemplateAndLegacyAlias() throws IOException {
+        assertEquals(Arrays.asList("PUT /_template/griffin-metrics",
+            "POST /_aliases"), requests);
+        JsonNode template = MAPPER.readTree(bodies.get(
+            "PUT /_template/griffin-metrics"));
+        assertEquals("griffin-metric-*",
+            template.path("index_patterns").path(0).asText());
+        assertTrue(template.path("aliases").has("griffin-metrics"));
+        JsonNode add = MAPPER.readTree(bodies.get("POST /_aliases"))
+            .path("actions").path(0).path("add");
+        assertEquals("griffin", add.path("index").asText());
+        assertEquals("griffin-metrics", add.path("alias").asText());
+    }
+
+    @Test
+    public void testWriteIntoPartitionOfTmst() throws IOException {
+        metricStore.bulkAddMetricValues(Arrays.asList(
+            new MetricValue("metric", JAN_15_2019, Collections.emptyMap()),
+            new MetricValue("metric", FEB_15_2019, Collections.emptyMap())));
+
+        String body = bodies.get("POST /griffin/accuracy/_bulk");
+        String[] lines = body.split("\\r?\\n");
+        assertEquals("griffin-metric-2019.01", MAPPER.readTree(lines[0])
+            .path("index").path("_index").asText());
+        assertEquals("griffin-metric-2019.02", MAPPER.readTree(lines[2])
+            .path("index").path("_index").asText());
+    }
+
+    @Test
+    public void testReadThroughAlias() throws IOException {
+        metricStore.getMetricValues("metric", 0, 10, 0);
+
+        assertTrue(requests.get(requests.size() - 1)
+            .startsWith("GET /griffin-metrics/accuracy/_search"));
+    }
+
+    @Test
+    public void testAggregateOnlyOverlappingPartitions() throws IOException {
+        metricStore.aggregateMetricValues("metric", JAN_15_2019, APR_1_2019,
+            86400000L, Collections.singletonList("total"));
+
+        assertTrue(requests.get(requests.size() - 1).startsWith(
+            "GET /griffin-metric-2019.01,griffin-metric-2019.02,"
+                + "griffin-metric-2019.03,griffin/accuracy/_search"));
+    }
+
+    @Test
+    public void testDropOnlyExpiredPartitions() {
+        metricStore.dropExpiredIndices();
+
+        assertTrue(requests.contains("DELETE /griffin-metric-2019.01"));
+        assertFalse(requests.contains("DELETE /" + currentIndex));
+    }
+}
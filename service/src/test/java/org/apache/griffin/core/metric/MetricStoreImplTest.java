@@ -19,14 +19,18 @@ under the License.
 
 package org.apache.griffin.core.metric;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.griffin.core.metric.model.MetricValue;
 import org.apache.http.HttpEntity;
+import org.apache.http.util.EntityUtils;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
@@ -87,8 +91,6 @@ public class MetricStoreImplTest {
         HttpEntity httpEntityMock = PowerMockito.mock(HttpEntity.class);
         InputStream is = Thread.currentThread().getContextClassLoader()
                 .getResourceAsStream("metricvalue.json");
-        Map<String, String> map = new HashMap<>();
-        map.put("q", "metadata.applicationId:application_1549876136110_0018");
 
         Map<String, Object> value = new HashMap<String, Object>(){{
             put("total", 74);
@@ -102,7 +104,10 @@ public class MetricStoreImplTest {
                 value);
 
 
-        given(restClientMock.performRequest(eq("GET"), eq(urlGet), eq(map), anyVararg())).willReturn(responseMock);
+        ArgumentCaptor<HttpEntity> body = ArgumentCaptor.forClass(HttpEntity.class);
+        given(restClientMock.performRequest(eq("GET"), eq(urlGet),
+                eq(Collections.<String, String>emptyMap()), body.capture()))
+                .willReturn(responseMock);
         given(responseMock.getEntity()).willReturn(httpEntityMock);
         given(httpEntityMock.getContent()).willReturn(is);
 
@@ -113,6 +118,12 @@ public class MetricStoreImplTest {
         //then
         //PowerMockito.verifyStatic();
         assertEquals(expectedMetric, metric);
+        JsonNode query = new ObjectMapper().readTree(EntityUtils.toString(
+                body.getValue()));
+        assertEquals("application_1549876136110_0018", query.path("query")
+                .path("bool").path("filter").path("term")
+                .path("metadata.applicationId.keyword").asText());
+        assertEquals(1, query.path("size").asInt());
     }
 
 }
@@ -0,0 +1,148 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.util.JsonUtil;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares decoding a metric search response through a JsonNode tree, the
+ * way {@link MetricStoreImpl} used to, with {@link MetricValueDecoder}.
+ * Run {@link #main} from the test classpath; the GC profiler reports the
+ * allocation rate next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricValueDecoderBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Param({"300", "10000"})
+    private int hits;
+
+    private byte[] response;
+
+    @Setup
+    public void setup() {
+        StringBuilder json = new StringBuilder("{\"took\":12,"
+            + "\"timed_out\":false,\"_shards\":{\"total\":5,"
+            + "\"successful\":5,\"skipped\":0,\"failed\":0},\"hits\":{"
+            + "\"total\":").append(hits).append(",\"max_score\":null,"
+            + "\"hits\":[");
+        long tmst = 1546300800000L;
+        for (int i = 0; i < hits; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"_index\":\"griffin\",\"_type\":\"accuracy\",")
+                .append("\"_id\":\"AWx").append(i).append("\",")
+                .append("\"_score\":null,\"_source\":{")
+                .append("\"name\":\"accuracy_measure\",")
+                .append("\"tmst\":").append(tmst - i * 60000L).append(',')
+                .append("\"value\":{\"total\":").append(100000 + i)
+                .append(",\"miss\":").append(i % 97)
+                .append(",\"matched\":").append(100000 + i - i % 97)
+                .append(",\"matchedFraction\":0.99").append(i % 10)
+                .append("},\"metadata\":{\"applicationId\":")
+                .append("\"application_1546300800000_").append(i)
+                .append("\"}},\"sort\":[").append(tmst - i * 60000L)
+                .append("]}");
+        }
+        json.append("]}}");
+        response = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<MetricValue> tree() throws IOException {
+        JsonNode jsonNode = mapper.readTree(EntityUtils.toString(
+            new InputStreamEntity(stream(), ContentType.APPLICATION_JSON)));
+        List<MetricValue> metricValues = new ArrayList<>();
+        for (JsonNode node : jsonNode.get("hits").get("hits")) {
+            JsonNode sourceNode = node.get("_source");
+            Map<String, Object> value = JsonUtil.toEntity(
+                sourceNode.get("value").toString(),
+                new TypeReference<Map<String, Object>>() {
+                });
+            Map<String, Object> meta = JsonUtil.toEntity(
+                Objects.toString(sourceNode.get("metadata"), null),
+                new TypeReference<Map<String, Object>>() {
+                });
+            metricValues.add(new MetricValue(
+                sourceNode.get("name").asText(),
+                Long.parseLong(sourceNode.get("tmst").asText()),
+                meta,
+                value));
+        }
+        return metricValues;
+    }
+
+    @Benchmark
+    public List<MetricValue> streaming() throws IOException {
+        return MetricValueDecoder.readSearchResponse(stream()).getValues();
+    }
+
+    private InputStream stream() {
+        return new ByteArrayInputStream(response);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(MetricValueDecoderBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
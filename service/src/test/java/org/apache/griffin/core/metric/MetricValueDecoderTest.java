@@ -0,0 +1,100 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.junit.Test;
+
+public class MetricValueDecoderTest {
+
+    @Test
+    public void testReadSearchResponse() throws IOException {
+        MetricValueDecoder.Hits hits = MetricValueDecoder.readSearchResponse(
+            stream("{\"took\":3,\"_shards\":{\"total\":5},\"hits\":{"
+                + "\"total\":2,\"max_score\":null,\"hits\":["
+                + "{\"_id\":\"x\",\"_source\":{\"name\":\"metric\","
+                + "\"tmst\":\"10\",\"value\":{\"total\":5,\"miss\":[1,2]},"
+                + "\"metadata\":{\"applicationId\":\"app\"}},"
+                + "\"sort\":[10,\"x\"]},"
+                + "{\"_id\":\"y\",\"_source\":{\"name\":\"metric\","
+                + "\"tmst\":9,\"value\":{\"total\":4},\"metadata\":null},"
+                + "\"sort\":[9,\"y\"]}]}}"));
+
+        Map<String, Object> value = new HashMap<>();
+        value.put("total", 5);
+        value.put("miss", Arrays.asList(1, 2));
+        List<MetricValue> values = hits.getValues();
+        assertEquals(2, values.size());
+        assertEquals(new MetricValue("metric", 10L,
+            Collections.singletonMap("applicationId", "app"), value),
+            values.get(0));
+        assertEquals(9L, (long) values.get(1).getTmst());
+        assertNull(values.get(1).getMetadata());
+        assertEquals(Arrays.<Object>asList(9, "y"), hits.getLastSort());
+    }
+
+    @Test
+    public void testReadSearchResponseWithoutHits() throws IOException {
+        MetricValueDecoder.Hits hits = MetricValueDecoder.readSearchResponse(
+            stream("{\"hits\":{\"total\":0,\"hits\":[]}}"));
+
+        assertTrue(hits.getValues().isEmpty());
+        assertNull(hits.getLastSort());
+    }
+
+    @Test
+    public void testReadMultiSearchResponse() throws IOException {
+        List<MetricValueDecoder.Hits> responses =
+            MetricValueDecoder.readMultiSearchResponse(stream(
+                "{\"took\":1,\"responses\":["
+                    + "{\"error\":{\"type\":\"index_not_found_exception\"},"
+                    + "\"status\":404},"
+                    + "{\"hits\":{\"hits\":[{\"_source\":{\"name\":\"b\","
+                    + "\"tmst\":1,\"value\":{}}}]},\"status\":200}]}"));
+
+        assertEquals(2, responses.size());
+        assertTrue(responses.get(0).getValues().isEmpty());
+        assertEquals("b", responses.get(1).getValues().get(0).getName());
+        assertNull(responses.get(1).getValues().get(0).getMetadata());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadSearchResponseFailureWithNonObject()
+        throws IOException {
+        MetricValueDecoder.readSearchResponse(stream("[]"));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,230 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.griffin.core.metric.MetricStore;
+import org.apache.griffin.core.metric.model.MetricBulkError;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricWriteBufferStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+
+public class MetricWriteBufferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MetricStore store;
+    private MetricWriteBuffer buffer;
+
+    @Before
+    public void setup() {
+        store = mock(MetricStore.class);
+    }
+
+    @After
+    public void tearDown() {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    @Test
+    public void testCoalesceValuesIntoBulks() throws IOException {
+        given(store.bulkAddMetricValues(Matchers.anyListOf(MetricValue.class)))
+            .willReturn(new MetricBulkResult(1, 3));
+        buffer = createBuffer(3, 60000, 100, Long.MAX_VALUE);
+
+        buffer.add(values("a", 1));
+        buffer.add(values("b", 2));
+
+        ArgumentCaptor<List> bulk = ArgumentCaptor.forClass(List.class);
+        verify(store, timeout(5000)).bulkAddMetricValues(bulk.capture());
+        buffer.close();
+        assertEquals(3, bulk.getValue().size());
+        assertEquals(3, buffer.getStats().getFlushedCount());
+        assertEquals(0, buffer.getStats().getQueuedValues());
+    }
+
+    @Test
+    public void testFlushExpiredValues() throws IOException {
+        given(store.bulkAddMetricValues(Matchers.anyListOf(MetricValue.class)))
+            .willReturn(new MetricBulkResult(1, 1));
+        buffer = createBuffer(100, 50, 100, Long.MAX_VALUE);
+
+        buffer.add(values("a", 1));
+
+        verify(store, timeout(5000)).bulkAddMetricValues(
+            Matchers.anyListOf(MetricValue.class));
+    }
+
+    @Test
+    public void testSpillAndReplayWhenStoreRecovers() throws IOException {
+        List<List<MetricValue>> written = new ArrayList<>();
+        given(store.bulkAddMetricValues(Matchers.anyListOf(MetricValue.class)))
+            .willThrow(new IOException("connection refused"))
+            .willAnswer(invocation -> {
+                List<MetricValue> bulk = invocation.getArgument(0);
+                written.add(new ArrayList<>(bulk));
+                return new MetricBulkResult(1, bulk.size());
+            });
+        buffer = createBuffer(2, 100, 100, Long.MAX_VALUE);
+
+        buffer.add(values("a", 2));
+
+        verify(store, timeout(5000).times(2)).bulkAddMetricValues(
+            Matchers.anyListOf(MetricValue.class));
+        buffer.close();
+        MetricWriteBufferStats stats = buffer.getStats();
+        assertEquals(2, stats.getSpillCount());
+        assertEquals(2, stats.getReplayedCount());
+        assertEquals(0, stats.getSpilledValues());
+        assertTrue(stats.isStoreAvailable());
+        assertEquals(1, written.size());
+        assertEquals("a", written.get(0).get(0).getName());
+    }
+
+    @Test
+    public void testSpillRetryableErrorsOnly() throws IOException {
+        MetricBulkResult result = new MetricBulkResult(1, 2);
+        result.addError(new MetricBulkError(0, 429, "es_rejected_execution",
+            "queue is full"));
+        result.addError(new MetricBulkError(1, 400, "mapper_parsing_exception",
+            "failed to parse"));
+        given(store.bulkAddMetricValues(Matchers.anyListOf(MetricValue.class)))
+            .willReturn(result);
+        buffer = createBuffer(2, 60000, 100, Long.MAX_VALUE);
+
+        buffer.add(values("a", 2));
+
+        verify(store, timeout(5000)).bulkAddMetricValues(
+            Matchers.anyListOf(MetricValue.class));
+        buffer.close();
+        MetricWriteBufferStats stats = buffer.getStats();
+        assertEquals(1, stats.getFailedCount());
+        assertEquals(1, stats.getSpillCount());
+        assertEquals(1, stats.getSpilledValues());
+    }
+
+    @Test
+    public void testReplaySpillLogOnStartup() throws IOException {
+        MetricSpillLog log = MetricSpillLog.open(folder.getRoot().toPath(),
+            1024);
+        log.append(values("a", 3));
+        log.close();
+        given(store.bulkAddMetricValues(Matchers.anyListOf(MetricValue.class)))
+            .willReturn(new MetricBulkResult(1, 3));
+
+        buffer = createBuffer(10, 50, 100, Long.MAX_VALUE);
+
+        verify(store, timeout(5000)).bulkAddMetricValues(
+            Matchers.anyListOf(MetricValue.class));
+        buffer.close();
+        assertEquals(3, buffer.getStats().getReplayedCount());
+    }
+
+    @Test
+    public void testResumeStoppedReplayWithoutWritingValuesAgain()
+        throws IOException {
+        MetricSpillLog log = MetricSpillLog.open(folder.getRoot().toPath(),
+            1024);
+        log.append(values("a", 3));
+        log.close();
+        List<Long> written = new ArrayList<>();
+        given(store.bulkAddMetricValues(Matchers.anyListOf(MetricValue.class)))
+            .willAnswer(invocation -> {
+                List<MetricValue> bulk = invocation.getArgument(0);
+                bulk.forEach(value -> written.add(value.getTmst()));
+                return new MetricBulkResult(1, bulk.size());
+            })
+            .willThrow(new IOException("connection refused"))
+            .willAnswer(invocation -> {
+                List<MetricValue> bulk = invocation.getArgument(0);
+                bulk.forEach(value -> written.add(value.getTmst()));
+                return new MetricBulkResult(1, bulk.size());
+            });
+
+        buffer = createBuffer(2, 50, 100, Long.MAX_VALUE);
+
+        verify(store, timeout(5000).times(3)).bulkAddMetricValues(
+            Matchers.anyListOf(MetricValue.class));
+        buffer.close();
+        assertEquals(Arrays.asList(0L, 1L, 2L), written);
+        assertEquals(3, buffer.getStats().getReplayedCount());
+        assertEquals(0, buffer.getStats().getSpilledValues());
+    }
+
+    @Test
+    public void testRejectWhenQueueAndSpillLogAreFull() throws IOException {
+        buffer = createBuffer(100, 60000, 1, 1);
+
+        buffer.add(values("a", 1));
+        buffer.add(values("b", 1));
+        try {
+            buffer.add(values("c", 1));
+        } catch (RejectedExecutionException e) {
+            MetricWriteBufferStats stats = buffer.getStats();
+            assertEquals(1, stats.getQueuedValues());
+            assertEquals(1, stats.getSpilledValues());
+            assertEquals(1, stats.getRejectedCount());
+            verify(store, never()).bulkAddMetricValues(
+                Matchers.anyListOf(MetricValue.class));
+            return;
+        }
+        fail("Expected a full write buffer");
+    }
+
+    private MetricWriteBuffer createBuffer(int batchSize, long maxAgeMillis,
+                                           int maxQueued, long maxSpillSize)
+        throws IOException {
+        return new MetricWriteBuffer(store, batchSize, maxAgeMillis, maxQueued,
+            folder.getRoot().getPath(), 1024, maxSpillSize, 10);
+    }
+
+    private static List<MetricValue> values(String name, int count) {
+        List<MetricValue> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(new MetricValue(name, (long) i,
+                Collections.<String, Object>singletonMap("total", i)));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.metric.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.griffin.core.exception.GriffinException;
+import org.apache.griffin.core.metric.model.MetricBucket;
+import org.apache.griffin.core.metric.model.MetricBulkResult;
+import org.apache.griffin.core.metric.model.MetricCursor;
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.metric.model.MetricValuePage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalMetricStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String path;
+
+    @Before
+    public void setup() {
+        path = folder.getRoot().getAbsolutePath();
+    }
+
+    @Test
+    public void testGetMetricValuesNewestFirst() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 1 << 20, 4);
+        store.addMetricValues(Arrays.asList(value("m", 1L), value("m", 3L),
+            value("m", 2L), value("other", 5L)));
+
+        assertEquals(Arrays.asList(3L, 2L, 1L),
+            tmsts(store.getMetricValues("m", 0, 10, 0)));
+        assertEquals(Collections.singletonList(2L),
+            tmsts(store.getMetricValues("m", 1, 1, 0)));
+        assertTrue(store.getMetricValues("missing", 0, 10, 0).isEmpty());
+    }
+
+    @Test
+    public void testValuesSurviveRestart() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 1 << 20, 4);
+        store.addMetricValues(Arrays.asList(value("m", 1L), value("m", 2L)));
+        store.close();
+
+        store = new LocalMetricStore(path, 1 << 20, 4);
+        store.addMetricValues(Collections.singletonList(value("m", 3L)));
+
+        assertEquals(Arrays.asList(3L, 2L, 1L),
+            tmsts(store.getMetricValues("m", 0, 10, 0)));
+        assertEquals(Long.valueOf(2L), store.getMetric("app_2").getTmst());
+    }
+
+    @Test
+    public void testTornRecordIsCutOff() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 1 << 20, 4);
+        store.addMetricValues(Arrays.asList(value("m", 1L), value("m", 2L)));
+        store.close();
+        Path segment = segmentsOf("m").get(0);
+        try (FileChannel channel = FileChannel.open(segment,
+            StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        store = new LocalMetricStore(path, 1 << 20, 4);
+
+        assertEquals(Collections.singletonList(1L),
+            tmsts(store.getMetricValues("m", 0, 10, 0)));
+    }
+
+    @Test
+    public void testSegmentsRollOver() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 400, 4);
+        List<MetricValue> values = new ArrayList<>();
+        for (long tmst = 1; tmst <= 10; tmst++) {
+            values.add(value("m", tmst));
+        }
+
+        store.addMetricValues(values);
+
+        assertTrue(segmentsOf("m").size() > 2);
+        assertEquals(Arrays.asList(7L, 6L, 5L),
+            tmsts(store.getMetricValues("m", 3, 3, 0)));
+    }
+
+    @Test
+    public void testCompactMergesSmallSegments() throws IOException {
+        LocalMetricStore store = null;
+        for (long tmst : new long[]{3L, 1L, 4L, 2L}) {
+            store = new LocalMetricStore(path, 1 << 20, 2);
+            store.addMetricValues(Collections.singletonList(value("m", tmst)));
+            store.close();
+        }
+        store = new LocalMetricStore(path, 1 << 20, 2);
+        assertEquals(4, segmentsOf("m").size());
+
+        store.compact();
+
+        assertEquals(1, segmentsOf("m").size());
+        assertEquals(Arrays.asList(4L, 3L, 2L, 1L),
+            tmsts(store.getMetricValues("m", 0, 10, 0)));
+        store = new LocalMetricStore(path, 1 << 20, 2);
+        assertEquals(Arrays.asList(4L, 3L, 2L, 1L),
+            tmsts(store.getMetricValues("m", 0, 10, 0)));
+        assertEquals(Long.valueOf(1L), store.getMetric("app_1").getTmst());
+    }
+
+    @Test
+    public void testPageThroughValuesOfSameTmst() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 400, 4);
+        store.addMetricValues(Arrays.asList(value("m", 1L), value("m", 3L),
+            value("m", 3L), value("m", 3L), value("m", 2L), value("m", 4L)));
+
+        List<Long> tmsts = new ArrayList<>();
+        MetricCursor after = null;
+        int pages = 0;
+        do {
+            MetricValuePage page = store.getMetricValuePage("m", 2, after);
+            tmsts.addAll(tmsts(page.getValues()));
+            after = page.getNext() == null ? null
+                : MetricCursor.decode(page.getNext());
+            pages++;
+        } while (after != null);
+
+        assertEquals(Arrays.asList(4L, 3L, 3L, 3L, 2L, 1L), tmsts);
+        assertEquals(4, pages);
+    }
+
+    @Test(expected = GriffinException.BadRequestException.class)
+    public void testPageWithCursorOfElasticsearch() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 400, 4);
+        store.addMetricValues(Collections.singletonList(value("m", 1L)));
+
+        // keys of cursors issued by Elasticsearch are document ids
+        store.getMetricValuePage("m", 2, new MetricCursor(1L,
+            "AWxkqQ5dK1dF4nEwGqRk"));
+    }
+
+    @Test
+    public void testAggregateMetricValues() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 400, 4);
+        List<MetricValue> values = new ArrayList<>();
+        for (long tmst = 1; tmst <= 10; tmst++) {
+            values.add(value("m", tmst));
+        }
+        store.addMetricValues(values);
+
+        List<MetricBucket> buckets = store.aggregateMetricValues("m", 2, 10,
+            4, Arrays.asList("total", "missing"));
+
+        assertEquals(Arrays.asList(0L, 4L, 8L), buckets.stream()
+            .map(MetricBucket::getTmst).collect(Collectors.toList()));
+        MetricBucket bucket = buckets.get(1);
+        assertEquals(4, bucket.getCount());
+        assertEquals(4.0, bucket.getFields().get("total").getMin(), 0);
+        assertEquals(7.0, bucket.getFields().get("total").getMax(), 0);
+        assertEquals(5.5, bucket.getFields().get("total").getAvg(), 0);
+        assertEquals(7.0, bucket.getFields().get("total").getLast(), 0);
+        assertNull(bucket.getFields().get("missing").getAvg());
+        assertEquals(2, buckets.get(0).getCount());
+        assertEquals(2, buckets.get(2).getCount());
+    }
+
+    @Test
+    public void testGetMetricByApplicationId() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 1 << 20, 4);
+        store.addMetricValues(Arrays.asList(value("m", 1L), value("n", 2L)));
+
+        assertEquals("n", store.getMetric("app_2").getName());
+        assertNull(store.getMetric("app_3"));
+    }
+
+    @Test
+    public void testDeleteMetricValues() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 1 << 20, 4);
+        store.addMetricValues(Arrays.asList(value("m", 1L), value("n", 2L)));
+
+        store.deleteMetricValues("m");
+
+        assertTrue(store.getMetricValues("m", 0, 10, 0).isEmpty());
+        assertNull(store.getMetric("app_1"));
+        assertEquals(1, store.getMetricValues("n", 0, 10, 0).size());
+        store.addMetricValues(Collections.singletonList(value("m", 3L)));
+        assertEquals(1, store.getMetricValues("m", 0, 10, 0).size());
+    }
+
+    @Test
+    public void testBulkAddRejectsValuesWithoutTmst() throws IOException {
+        LocalMetricStore store = new LocalMetricStore(path, 1 << 20, 4);
+
+        MetricBulkResult result = store.bulkAddMetricValues(Arrays.asList(
+            value("m", 1L), value("m", null)));
+
+        assertEquals(1, result.getFailedCount());
+        assertEquals(1, result.getErrors().get(0).getPosition());
+    }
+
+    private List<Path> segmentsOf(String name) throws IOException {
+        Path dir = folder.getRoot().toPath().resolve(LocalMetricStore
+            .encodeName(name));
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(
+                Segment.SUFFIX)).collect(Collectors.toList());
+        }
+    }
+
+    private static MetricValue value(String name, Long tmst) {
+        return new MetricValue(name, tmst,
+            Collections.<String, Object>singletonMap("applicationId",
+                "app_" + tmst),
+            Collections.<String, Object>singletonMap("total", tmst));
+    }
+
+    private static List<Long> tmsts(List<MetricValue> values) {
+        return values.stream().map(MetricValue::getTmst)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+
+import org.junit.Test;
+
+public class KerberosLoginTest {
+    private static final String CLIENT = "griffin@EXAMPLE.COM";
+    private static final String TGS = "krbtgt/EXAMPLE.COM@EXAMPLE.COM";
+
+    private final AtomicInteger logins = new AtomicInteger();
+
+    @Test
+    public void testLoginOnceForAllCallers() {
+        Subject subject = subject(TimeUnit.HOURS.toMillis(10), 0);
+        KerberosLogin login = new KerberosLogin(() -> {
+            logins.incrementAndGet();
+            return subject;
+        }, 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertSame(subject, login.getSubject());
+        }
+        login.reloginIfNeeded();
+
+        assertEquals(1, logins.get());
+        login.close();
+    }
+
+    @Test
+    public void testReloginWhenTicketNearsExpiry() {
+        long hour = TimeUnit.HOURS.toMillis(1);
+        Subject expiring = subject(10 * hour, 9 * hour);
+        Subject renewed = subject(10 * hour, 0);
+        KerberosLogin login = new KerberosLogin(() ->
+            logins.incrementAndGet() == 1 ? expiring : renewed, 0);
+
+        assertSame(expiring, login.getSubject());
+        login.reloginIfNeeded();
+        assertSame(renewed, login.getSubject());
+        login.reloginIfNeeded();
+
+        assertSame(renewed, login.getSubject());
+        assertEquals(2, logins.get());
+        login.close();
+    }
+
+    @Test
+    public void testKeepSubjectWhenReloginFails() {
+        long hour = TimeUnit.HOURS.toMillis(1);
+        Subject expiring = subject(10 * hour, 9 * hour);
+        KerberosLogin login = new KerberosLogin(() -> {
+            if (logins.incrementAndGet() > 1) {
+                throw new IllegalStateException("KDC unreachable");
+            }
+            return expiring;
+        }, 0);
+
+        assertSame(expiring, login.getSubject());
+        login.reloginIfNeeded();
+
+        assertSame(expiring, login.getSubject());
+        assertEquals(2, logins.get());
+        login.close();
+    }
+
+    private static Subject subject(long lifetime, long elapsed) {
+        long start = System.currentTimeMillis() - elapsed;
+        KerberosTicket tgt = new KerberosTicket(new byte[]{0},
+            new KerberosPrincipal(CLIENT), new KerberosPrincipal(TGS),
+            new byte[16], 17, null, new Date(start), new Date(start),
+            new Date(start + lifetime), null, null);
+        return new Subject(false,
+            new HashSet<>(Collections.singleton(new KerberosPrincipal(CLIENT))),
+            new HashSet<>(), new HashSet<>(Collections.singleton(tgt)));
+    }
+}
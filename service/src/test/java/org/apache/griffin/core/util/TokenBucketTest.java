@@ -0,0 +1,75 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+public class TokenBucketTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    public void testBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 2, nanos::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void testRefillAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 1, nanos::get);
+        assertTrue(bucket.tryAcquire());
+
+        nanos.addAndGet(50_000_000L);
+        assertFalse(bucket.tryAcquire());
+        nanos.addAndGet(50_000_000L);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void testReserveQueuesWaiters() {
+        TokenBucket bucket = new TokenBucket(10, 1, nanos::get);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(100_000_000L, bucket.reserve());
+        assertEquals(200_000_000L, bucket.reserve());
+    }
+
+    @Test
+    public void testUnlimited() {
+        TokenBucket bucket = new TokenBucket(0, 1, nanos::get);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(bucket.tryAcquire());
+            assertEquals(0, bucket.reserve());
+        }
+    }
+}